@@ -27,6 +27,8 @@ import org.codehaus.plexus.compiler.CompilerException;
 import org.codehaus.plexus.util.StringUtils;
 
 import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
@@ -34,17 +36,79 @@ import java.lang.reflect.Method;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * A base class for invocation of rmi compilers whose arguments match those required by the JDK version of rmic.
  */
 abstract class AbstractRmiCompiler implements RmiCompiler
 {
+    static final int MAX_COMPILER_LOADERS = 4;
+
+    /**
+     * The class loaders created for compiler class paths, shared by all compiler instances so that concurrent and
+     * repeated executions load the compiler classes only once. At most a fixed number are held; the least recently
+     * used is closed and evicted first, so that a long-lived JVM which sees many class paths does not keep them all.
+     */
+    private static final Map<List<URL>, URLClassLoader> COMPILER_LOADERS =
+        new LinkedHashMap<List<URL>, URLClassLoader>( 16, 0.75f, true )
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<List<URL>, URLClassLoader> eldest )
+            {
+                if ( size() > MAX_COMPILER_LOADERS )
+                {
+                    closeQuietly( eldest.getValue() );
+                    return true;
+                }
+                return false;
+            }
+        };
+
     private Log logger;
 
     /* A facade to enable unit testing to control compiler access. */
-    private static ClassLoaderFacade classLoaderFacade = new ClassLoaderFacadeImpl();
+    private final ClassLoaderFacade classLoaderFacade;
+
+    AbstractRmiCompiler()
+    {
+        this( new ClassLoaderFacadeImpl() );
+    }
+
+    AbstractRmiCompiler( ClassLoaderFacade classLoaderFacade )
+    {
+        this.classLoaderFacade = classLoaderFacade;
+    }
+
+    /**
+     * Returns the number of class loaders currently held for compiler class paths.
+     */
+    static int getCompilerLoaderCount()
+    {
+        synchronized ( COMPILER_LOADERS )
+        {
+            return COMPILER_LOADERS.size();
+        }
+    }
+
+    private static void closeQuietly( URLClassLoader loader )
+    {
+        try
+        {
+            loader.close();
+        }
+        catch ( IOException ignored )
+        {
+            // the loader's jars will be closed when it is collected
+        }
+    }
 
     public void setLog( Log log )
     {
@@ -60,7 +124,7 @@ abstract class AbstractRmiCompiler implements RmiCompiler
      * Returns the object to use for classloading.
      * @return the appropriate loader facade
      */
-    static ClassLoaderFacade getClassLoaderFacade()
+    ClassLoaderFacade getClassLoaderFacade()
     {
         return classLoaderFacade;
     }
@@ -140,11 +204,51 @@ abstract class AbstractRmiCompiler implements RmiCompiler
             arguments.add( "-nowarn" );
         }
 
+        Set<String> classNames = new TreeSet<>();
         for ( File remoteClass : rmiConfig.getSourceFiles() )
         {
-            arguments.add( fileToClassName( remoteClass.getPath() ) );
+            classNames.add( fileToClassName( remoteClass.getPath() ) );
+        }
+
+        List<String> remaining = new ArrayList<>( classNames );
+        int batchSize = rmiConfig.getMaxBatchSize() > 0 ? rmiConfig.getMaxBatchSize() : remaining.size();
+
+        try
+        {
+            int start = 0;
+            do
+            {
+                if ( Thread.currentThread().isInterrupted() )
+                {
+                    throw new RmiCompilerException( "Compilation cancelled after " + start + " of "
+                                                    + remaining.size() + " classes" );
+                }
+                int end = Math.min( start + batchSize, remaining.size() );
+                compileBatch( arguments, remaining.subList( start, end ), rmiConfig );
+                start = end;
+            }
+            while ( start < remaining.size() );
+        }
+        catch ( CompilerException e )
+        {
+            throw new RmiCompilerException( e.getMessage(), e );
         }
+    }
 
+    /**
+     * Compiles a batch of classes. If the compiler runs out of memory, the batch is split in two and each half is
+     * compiled separately; the output of batches which have already completed is kept.
+     *
+     * @param options the compiler options
+     * @param classNames the classes to compile
+     * @param rmiConfig the compiler settings
+     * @throws CompilerException if the compiler reports a failure
+     */
+    private void compileBatch( List<String> options, List<String> classNames, RmiCompilerConfiguration rmiConfig )
+        throws CompilerException
+    {
+        List<String> arguments = new ArrayList<>( options );
+        arguments.addAll( classNames );
         String[] args = arguments.toArray( new String[arguments.size()] );
 
         if ( getLog().isDebugEnabled() )
@@ -159,11 +263,31 @@ abstract class AbstractRmiCompiler implements RmiCompiler
 
         try
         {
-            compileInProcess( args );
+            if ( rmiConfig.isFork() )
+            {
+                compileForked( args, rmiConfig );
+            }
+            else if ( rmiConfig.isReuseEnvironment() )
+            {
+                compileReusingEnvironment( options, classNames, rmiConfig );
+            }
+            else
+            {
+                compileInProcess( args );
+            }
         }
-        catch ( CompilerException e )
+        catch ( ResourceExhaustedException | OutOfMemoryError e )
         {
-            throw new RmiCompilerException( e.getMessage(), e );
+            if ( classNames.size() <= 1 )
+            {
+                throw new CompilerException( "Insufficient memory to compile " + classNames + ".", e );
+            }
+
+            int half = classNames.size() / 2;
+            getLog().warn( "Compiler ran out of memory with " + classNames.size() + " classes; "
+                               + "retrying in batches of " + half + " and " + ( classNames.size() - half ) + "." );
+            compileBatch( options, classNames.subList( 0, half ), rmiConfig );
+            compileBatch( options, classNames.subList( half, classNames.size() ), rmiConfig );
         }
     }
 
@@ -178,7 +302,7 @@ abstract class AbstractRmiCompiler implements RmiCompiler
         return classpath.toString();
     }
 
-    private static String fileToClassName( String classFileName )
+    static String fileToClassName( String classFileName )
     {
         return StringUtils.replace( StringUtils.replace( classFileName, ".class", "" ), File.separator, "." );
     }
@@ -200,27 +324,189 @@ abstract class AbstractRmiCompiler implements RmiCompiler
         }
     }
 
+    /**
+     * Runs the compiler in process in an {@link RmicEngine}, reusing the environment of an earlier batch if possible.
+     * Falls back to {@link #compileInProcess(String[])} if the compiler does not support reuse.
+     *
+     * @param options the compiler options
+     * @param classNames the classes to compile
+     * @param rmiConfig the compiler settings
+     * @throws CompilerException if the compiler could not be run or ran out of memory
+     */
+    private void compileReusingEnvironment( List<String> options, List<String> classNames,
+                                            RmiCompilerConfiguration rmiConfig )
+        throws CompilerException
+    {
+        Class<?> mainClass = createMainClass();
+        String fingerprint = rmiConfig.getClasspathFingerprint() != null ? rmiConfig.getClasspathFingerprint()
+                : RmicEngine.getFingerprint( rmiConfig.getClasspathEntries() );
+        RmicEngine engine = RmicEngine.acquire( mainClass, options, fingerprint );
+        if ( engine != null && !engine.canCompile( classNames ) )
+        {
+            engine.discard();
+            engine = RmicEngine.acquire( mainClass, options, fingerprint );
+        }
+        if ( engine == null )
+        {
+            List<String> arguments = new ArrayList<>( options );
+            arguments.addAll( classNames );
+            compileInProcess( arguments.toArray( new String[arguments.size()] ) );
+            return;
+        }
+
+        OutOfMemoryDetector output = new OutOfMemoryDetector( System.out );
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader( mainClass.getClassLoader() );
+        boolean reusable = false;
+        try
+        {
+            reusable = engine.compile( options, classNames, output ) && !output.isOutOfMemoryReported();
+        }
+        finally
+        {
+            thread.setContextClassLoader( contextClassLoader );
+            if ( reusable )
+            {
+                engine.release();
+            }
+            else
+            {
+                engine.discard();
+            }
+        }
+
+        // rmic reports running out of memory rather than throwing the error
+        if ( output.isOutOfMemoryReported() )
+        {
+            throw new ResourceExhaustedException( null );
+        }
+    }
+
+    /**
+     * Runs the compiler in a separate JVM.
+     *
+     * @param args the arguments to pass to the compiler
+     * @param rmiConfig the compiler settings, which include the fork settings
+     * @throws CompilerException if the compiler could not be run or reported a failure
+     */
+    protected void compileForked( String[] args, RmiCompilerConfiguration rmiConfig )
+        throws CompilerException
+    {
+        new ForkedRmicLauncher( getLog(), createMainClass(), rmiConfig ).run( args );
+    }
+
     protected abstract Class<?> createMainClass()
         throws CompilerException;
 
     private static void compileInProcess0( Class<?> rmicMainClass, String[] args )
         throws CompilerException
     {
+        OutOfMemoryDetector output = new OutOfMemoryDetector( System.out );
         try
         {
             Constructor<?> constructor = rmicMainClass.getConstructor( OutputStream.class, String.class );
 
-            Object main = constructor.newInstance( System.out, "rmic" );
+            Object main = constructor.newInstance( output, "rmic" );
 
             Method compile = rmicMainClass.getMethod( "compile", String[].class );
 
             compile.invoke( main, new Object[] { args } );
         }
+        catch ( InvocationTargetException e )
+        {
+            if ( e.getCause() instanceof VirtualMachineError )
+            {
+                throw new ResourceExhaustedException( e.getCause() );
+            }
+            throw new CompilerException( "Error while executing the compiler.", e );
+        }
         catch ( NoSuchMethodException | IllegalAccessException | IllegalArgumentException
-                | InstantiationException | InvocationTargetException e )
+                | InstantiationException e )
         {
             throw new CompilerException( "Error while executing the compiler.", e );
         }
+
+        // rmic reports running out of memory rather than throwing the error
+        if ( output.isOutOfMemoryReported() )
+        {
+            throw new ResourceExhaustedException( null );
+        }
+    }
+
+    /**
+     * Indicates that the compiler failed because it ran out of memory or another JVM resource.
+     */
+    static class ResourceExhaustedException extends CompilerException
+    {
+        private static final long serialVersionUID = 1L;
+
+        ResourceExhaustedException( Throwable cause )
+        {
+            super( "The rmi compiler ran out of memory.", cause );
+        }
+    }
+
+    /**
+     * An output stream which passes compiler output through, watching for a report that memory was exhausted.
+     */
+    static class OutOfMemoryDetector extends FilterOutputStream
+    {
+        private final StringBuilder line = new StringBuilder();
+
+        private boolean outOfMemoryReported;
+
+        OutOfMemoryDetector( OutputStream out )
+        {
+            super( out );
+        }
+
+        @Override
+        public void write( int b ) throws IOException
+        {
+            out.write( b );
+            if ( b == '\n' )
+            {
+                checkLine();
+            }
+            else
+            {
+                line.append( (char) b );
+            }
+        }
+
+        @Override
+        public void write( byte[] b, int off, int len ) throws IOException
+        {
+            out.write( b, off, len );
+            for ( int i = off; i < off + len; i++ )
+            {
+                if ( b[i] == '\n' )
+                {
+                    checkLine();
+                }
+                else
+                {
+                    line.append( (char) b[i] );
+                }
+            }
+        }
+
+        private void checkLine()
+        {
+            String text = line.toString().toLowerCase( Locale.ENGLISH );
+            outOfMemoryReported |= text.contains( "out of memory" ) || text.contains( "outofmemoryerror" );
+            line.setLength( 0 );
+        }
+
+        boolean isOutOfMemoryReported()
+        {
+            if ( line.length() > 0 )
+            {
+                checkLine();
+            }
+            return outOfMemoryReported;
+        }
     }
 
     /**
@@ -246,21 +532,56 @@ abstract class AbstractRmiCompiler implements RmiCompiler
     }
 
     /**
-     * The implementation of ClassLoaderFacade used at runtime.
+     * The implementation of ClassLoaderFacade used at runtime. Each compiler has its own list of prepended URLs, but
+     * the class loader for a given list is shared, so repeated and concurrent executions reuse the same compiler
+     * class loader rather than stacking new ones.
      */
     private static class ClassLoaderFacadeImpl implements ClassLoaderFacade
     {
-        ClassLoader classLoader = getClass().getClassLoader();
+        private final List<URL> prependedUrls = new ArrayList<>();
+
+        private ClassLoader classLoader = getClass().getClassLoader();
 
-        public void prependUrls( URL... urls )
+        public synchronized void prependUrls( URL... urls )
         {
-            classLoader = new URLClassLoader( urls, classLoader );
+            boolean changed = false;
+            for ( URL url : urls )
+            {
+                if ( !prependedUrls.contains( url ) )
+                {
+                    prependedUrls.add( 0, url );
+                    changed = true;
+                }
+            }
+
+            if ( changed )
+            {
+                classLoader = getCompilerLoader( new ArrayList<>( prependedUrls ) );
+            }
         }
 
         public Class<?> loadClass( String rmiCompilerClass ) throws ClassNotFoundException
         {
-            return classLoader.loadClass( rmiCompilerClass );
+            ClassLoader loader;
+            synchronized ( this )
+            {
+                loader = classLoader;
+            }
+            return loader.loadClass( rmiCompilerClass );
         }
 
+        private ClassLoader getCompilerLoader( List<URL> urls )
+        {
+            synchronized ( COMPILER_LOADERS )
+            {
+                URLClassLoader loader = COMPILER_LOADERS.get( urls );
+                if ( loader == null )
+                {
+                    loader = new URLClassLoader( urls.toArray( new URL[urls.size()] ), getClass().getClassLoader() );
+                    COMPILER_LOADERS.put( urls, loader );
+                }
+                return loader;
+            }
+        }
     }
 }
@@ -24,23 +24,42 @@ package org.codehaus.mojo.rmic;
 
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.compiler.util.scan.SourceInclusionScanner;
 import org.codehaus.plexus.compiler.util.scan.StaleSourceScanner;
 import org.codehaus.plexus.compiler.util.scan.mapping.SuffixMapping;
+import org.codehaus.plexus.util.Scanner;
+import org.codehaus.plexus.util.SelectorUtils;
 import org.codehaus.plexus.util.StringUtils;
+import org.sonatype.plexus.build.incremental.BuildContext;
+import org.sonatype.plexus.build.incremental.DefaultBuildContext;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URL;
-import java.net.URLClassLoader;
+import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Generic super class of rmi compiler mojos.
@@ -52,6 +71,41 @@ public abstract class AbstractRmiMojo
         extends AbstractMojo
 {
     private static final String STUB_CLASS_PATTERN = "**/*_Stub.class";
+
+    private static final String ALL_FILES_PATTERN = "**/*";
+
+    /**
+     * The stub policies: generate stubs for all remote classes, for all while reporting which need them, or only for
+     * those which need them.
+     */
+    private static final String STUB_POLICY_ALL = "all";
+
+    private static final String STUB_POLICY_REPORT = "report";
+
+    private static final String STUB_POLICY_REQUIRED = "required";
+
+    /**
+     * The number of classified remote classes which may wait for compilation before classification pauses.
+     */
+    private static final int CLASSIFIED_QUEUE_CAPACITY = 1024;
+
+    /**
+     * The number of candidate classes classified by a single task.
+     */
+    private static final int CLASSIFICATION_CHUNK_SIZE = 64;
+
+    /**
+     * Marks the end of the classified remote classes for a module.
+     */
+    private static final File END_OF_CLASSES = new File( "" );
+
+    /**
+     * JVM options used for a forked compiler when none are configured. They favor a fast start over peak performance,
+     * since the compiler runs only briefly.
+     */
+    private static final List<String> DEFAULT_FORK_JVM_ARGS = Collections.unmodifiableList( Arrays.asList(
+            "-XX:TieredStopAtLevel=1", "-XX:+UseSerialGC", "-XX:-UsePerfData", "-Xshare:auto", "-Xms32m", "-Xmx256m" ) );
+
     // ----------------------------------------------------------------------
     // Configurable parameters
     // ----------------------------------------------------------------------
@@ -159,226 +213,1102 @@ public abstract class AbstractRmiMojo
     @Parameter( defaultValue = "0" )
     private int staleMillis;
 
+    /**
+     * The largest number of classes to pass to a single compiler invocation. Each batch is compiled as soon as it is
+     * full, while the rest of the module is still being searched for remote classes. A value of 0 passes all classes
+     * at once, after the search is complete. Whatever the setting, a batch for which the compiler runs out of memory
+     * is split and retried.
+     *
+     * @since 1.3.1
+     */
+    @SuppressWarnings( "unused" )
+    @Parameter( property = "rmic.maxBatchSize", defaultValue = "500" )
+    private int maxBatchSize = 500;
+
+    /**
+     * When running the compiler in the Maven process, keep its environment of parsed classes between batches and
+     * executions with the same options and class path, rather than parsing the JDK and class path classes again for
+     * each batch. The environment is discarded when any class path element changes. Applies only to JRMP stubs from
+     * the built-in compiler, and keeps the memory used by the parsed classes for the rest of the build.
+     *
+     * @since 1.3.1
+     */
+    @SuppressWarnings( "unused" )
+    @Parameter( property = "rmic.reuseEnvironment", defaultValue = "false" )
+    private boolean reuseEnvironment;
+
+    /**
+     * Run the rmi compiler in a separate JVM rather than in the Maven process.
+     *
+     * @since 1.3.1
+     */
+    @SuppressWarnings( "unused" )
+    @Parameter( property = "rmic.fork", defaultValue = "false" )
+    private boolean fork;
+
+    /**
+     * The options with which to start a forked compiler JVM. If not specified, options which reduce JVM start-up
+     * time are used: <code>-XX:TieredStopAtLevel=1 -XX:+UseSerialGC -XX:-UsePerfData -Xshare:auto -Xms32m
+     * -Xmx256m</code>.
+     *
+     * @since 1.3.1
+     */
+    @SuppressWarnings( "unused" )
+    @Parameter
+    private List<String> forkJvmArgs;
+
+    /**
+     * When forking on a JDK which supports dynamic class data sharing (13 or later), create an archive of the compiler
+     * classes on first use and start later compiler JVMs from it.
+     *
+     * @since 1.3.1
+     */
+    @SuppressWarnings( "unused" )
+    @Parameter( property = "rmic.classDataSharing", defaultValue = "true" )
+    private boolean classDataSharing;
+
+    /**
+     * The directory in which class data sharing archives for the forked compiler are kept. Archives are named for the
+     * JDK and compiler classes from which they were created, so a single directory may be shared by all builds.
+     *
+     * @since 1.3.1
+     */
+    @SuppressWarnings( "unused" )
+    @Parameter( property = "rmic.classDataSharingDirectory", defaultValue = "${user.home}/.m2/rmic-cds" )
+    private File classDataSharingDirectory;
+
+    /**
+     * Write each generated file only if its contents differ from the file already in the output directory, so that
+     * unchanged stubs keep their modification times. The compiler writes to a staging directory beside the output
+     * directory, from which changed files are moved into place.
+     *
+     * @since 1.3.1
+     */
+    @SuppressWarnings( "unused" )
+    @Parameter( property = "rmic.writeIfChanged", defaultValue = "false" )
+    private boolean writeIfChanged;
+
+    /**
+     * Generate classes into a private staging directory beside the output directory, then publish them by renaming
+     * each into place while holding a lock on the output directory. Executions which share an output directory may then
+     * run at the same time, and an interrupted execution never leaves a partly written class behind. Always done when
+     * <code>writeIfChanged</code> is set.
+     *
+     * @since 1.3.1
+     */
+    @SuppressWarnings( "unused" )
+    @Parameter( property = "rmic.stageOutput", defaultValue = "false" )
+    private boolean stageOutput;
+
+    /**
+     * Which remote classes to generate stubs for. Since Java 5, an object exported without a generated stub is given a
+     * dynamic proxy in its place, so most stubs are needed only by older clients. The classes are analyzed for what
+     * still requires a stub: IIOP, version <code>1.1</code> or <code>compat</code> stubs, a reference to the stub class,
+     * or a call to <code>UnicastRemoteObject.exportObject(Remote)</code>, which returns a <code>RemoteStub</code>.
+     * <ul>
+     * <li><code>all</code> generates stubs for every remote class, without analysis</li>
+     * <li><code>report</code> generates stubs for every remote class, logging whether each needs one and why</li>
+     * <li><code>required</code> generates stubs only for the remote classes which need them</li>
+     * </ul>
+     *
+     * @since 1.3.1
+     */
+    @SuppressWarnings( "unused" )
+    @Parameter( property = "rmic.stubPolicy", defaultValue = STUB_POLICY_ALL )
+    private String stubPolicy = STUB_POLICY_ALL;
+
+    /**
+     * The number of compiler invocations which may run at the same time, each compiling a batch of classes. The
+     * <code>rmic:aggregate</code> goal uses the larger of this and its <code>threads</code> parameter.
+     *
+     * @since 1.3.1
+     */
+    @SuppressWarnings( "unused" )
+    @Parameter( property = "rmic.compileThreads", defaultValue = "1" )
+    private int compileThreads = 1;
+
+    /**
+     * Divide the remote classes of each module into batches of about equal estimated compile time rather than of equal
+     * numbers of classes, and start the costliest batches first. There is one batch per compiler thread, or more if
+     * needed to respect <code>maxBatchSize</code>. The cost of each class is estimated from the number of its methods
+     * and the time taken to compile it by earlier builds, kept in <code>compileCostCache</code>. The classes of a
+     * module are then all found before any is compiled.
+     *
+     * @since 1.3.1
+     */
+    @SuppressWarnings( "unused" )
+    @Parameter( property = "rmic.scheduleByCost", defaultValue = "false" )
+    private boolean scheduleByCost;
+
+    /**
+     * The file in which the time taken to compile each remote class is kept between builds, when
+     * <code>scheduleByCost</code> is set.
+     *
+     * @since 1.3.1
+     */
+    @SuppressWarnings( "unused" )
+    @Parameter( property = "rmic.compileCostCache", defaultValue = "${project.build.directory}/rmic/compile-costs.properties" )
+    private File compileCostCache;
+
+    /**
+     * The number of threads used to decide which of the out of date classes are remote classes. A value of 0 uses one
+     * thread per available processor. The classes are passed to the compiler in the same order whatever the setting.
+     *
+     * @since 1.3.1
+     */
+    @SuppressWarnings( "unused" )
+    @Parameter( property = "rmic.classifierThreads", defaultValue = "0" )
+    private int classifierThreads;
+
+    /**
+     * The file in which the super types of the classes on the class path are kept between builds, so that later
+     * builds need only read the classes which have changed to find the remote classes.
+     *
+     * @since 1.3.1
+     */
+    @SuppressWarnings( "unused" )
+    @Parameter( property = "rmic.hierarchyCache", defaultValue = "${project.build.directory}/rmic/class-hierarchy.cache" )
+    private File hierarchyCache;
+
+    /**
+     * Copy the stubs of explicitly included classes which are found on the class path, rather than in the classes
+     * directory, from where an upstream module has already generated them, instead of compiling them again. Stubs are
+     * looked for in the output directories of the modules earlier in the reactor which ran the <code>rmic</code> goal,
+     * and then on the class path, for example in a client jar attached by the <code>package</code> goal. Only version
+     * 1.2 stubs are reused, and only if they match their remote classes: they must implement the same remote
+     * interfaces and hold the hashes of the same remote methods.
+     *
+     * @since 1.3.1
+     */
+    @SuppressWarnings( "unused" )
+    @Parameter( property = "rmic.reuseUpstreamStubs", defaultValue = "false" )
+    private boolean reuseUpstreamStubs;
+
     // ----------------------------------------------------------------------
     // Constant parameters
     // ----------------------------------------------------------------------
 
     /**
-     * The maven project.
+     * The maven project.
+     */
+    @Parameter( defaultValue = "${project}", readonly = true )
+    protected MavenProject project;
+
+    /**
+     * The projects in the reactor.
+     */
+    @Parameter( defaultValue = "${reactorProjects}", readonly = true )
+    protected List<MavenProject> reactorProjects;
+
+    /**
+     * The build context, which in an IDE describes the classes changed or deleted since the previous build.
+     */
+    @Component
+    private BuildContext buildContext;
+
+    /**
+     * The interface between ths class and the rest of the world - unit tests replace the default implementation.
+     */
+    private final DependenciesFacade dependencies;
+
+    /**
+     * Creates the abstract class using a production implementation of the dependencies.
+     */
+    AbstractRmiMojo()
+    {
+        this( new DependenciesFacadeImpl() );
+    }
+
+
+    /**
+     * Creates the abstract class using the specified implementation of the dependencies.
+     *
+     * @param dependencies the implementation of the dependencies to use.
+     */
+    AbstractRmiMojo( DependenciesFacade dependencies )
+    {
+        this.dependencies = dependencies;
+    }
+
+    /**
+     * Returns true if the specified file or directory exists.
+     *
+     * @param file the file to check
+     * @return true if it exists
+     */
+    boolean fileExists( File file )
+    {
+        return dependencies.fileExists( file );
+    }
+
+    /**
+     * Get the list of sub-configurations.
+     */
+    List<Source> getSources()
+    {
+        return sources;
+    }
+
+    /**
+     * Get the list of elements to add to the classpath of rmic
+     *
+     * @return list of classpath elements
+     */
+    public abstract List<String> getProjectClasspathElements();
+
+    /**
+     * Get the directory where rmic generated class files are written.
+     *
+     * @return the directory
+     */
+    public abstract File getOutputDirectory();
+
+    /**
+     * Get the directory where Remote impl classes are located.
+     *
+     * @return path to compiled classes
+     */
+    public abstract File getClassesDirectory();
+
+    /**
+     * Returns the modules to be processed by this mojo. By default, this is the single module described by
+     * {@link #getClassesDirectory()}, {@link #getOutputDirectory()} and {@link #getProjectClasspathElements()}.
+     *
+     * @return the modules to process
+     * @throws MojoExecutionException if the modules cannot be determined
+     */
+    List<RmicModule> getModules() throws MojoExecutionException
+    {
+        return Collections.singletonList( new RmicModule( project != null ? project.getId() : "project",
+                getClassesDirectory(), getOutputDirectory(), getProjectClasspathElements() ) );
+    }
+
+    /**
+     * Returns the number of modules which may be compiled at the same time.
+     *
+     * @return the maximum number of concurrent compilations
+     */
+    int getModuleThreads()
+    {
+        return 1;
+    }
+
+    /**
+     * Returns true if stubs are generated only for the remote classes which need them.
+     */
+    boolean isStubPolicyRequired()
+    {
+        return STUB_POLICY_REQUIRED.equals( stubPolicy );
+    }
+
+    private int getCompileThreads()
+    {
+        return Math.max( getModuleThreads(), compileThreads );
+    }
+
+    /**
+     * Main mojo execution.
+     *
+     * @throws MojoExecutionException if there is a problem executing the mojo.
+     */
+    public void execute() throws MojoExecutionException
+    {
+        List<Source> effectiveSources = getEffectiveSources();
+        List<RmicModule> modules = getModules();
+        if ( !Arrays.asList( STUB_POLICY_ALL, STUB_POLICY_REPORT, STUB_POLICY_REQUIRED ).contains( stubPolicy ) )
+        {
+            throw new MojoExecutionException( "Unknown stubPolicy '" + stubPolicy + "': must be one of "
+                    + STUB_POLICY_ALL + ", " + STUB_POLICY_REPORT + " or " + STUB_POLICY_REQUIRED );
+        }
+        rmiCompiler.setLog( getLog() );
+
+        CompileCostModel costModel = scheduleByCost ? new CompileCostModel( compileCostCache ) : null;
+        Execution execution = new Execution( new CompileScheduler( writeIfChanged || stageOutput
+                ? new StagingRmiCompiler( rmiCompiler, writeIfChanged ) : rmiCompiler, getCompileThreads(),
+                costModel ), costModel );
+        try
+        {
+            defineClasspath( modules );
+            for ( List<Source> group : groupByCompilerOptions( effectiveSources ) )
+            {
+                doExecute( group, modules, execution );
+            }
+            execution.scheduler.awaitCompletion();
+            for ( Map.Entry<RmicModule, Integer> compiled : execution.compiledClasses.entrySet() )
+            {
+                getLog().info( "Compiled " + compiled.getValue() + " remote classes"
+                        + describe( compiled.getKey(), modules ) );
+            }
+            saveIncludedClasses( execution.trackers.values() );
+            saveUnneededStubs( execution.unneededStubs.values() );
+            saveCompileCosts( costModel );
+            for ( RmicModule module : execution.compiledModules )
+            {
+                getBuildContext().refresh( module.getOutputDirectory() );
+            }
+        }
+        finally
+        {
+            execution.shutdown();
+            dependencies.closeClasspath();
+        }
+    }
+
+    /**
+     * Groups source configurations which differ only in the classes they select, so that each group may be compiled
+     * with a single invocation of the compiler for each module. Groups are returned in the order of their first
+     * source configuration.
+     *
+     * @param sources the source configurations
+     * @return the groups of source configurations with the same compiler options
+     */
+    static Collection<List<Source>> groupByCompilerOptions( List<Source> sources )
+    {
+        Map<String, List<Source>> groups = new LinkedHashMap<>();
+        for ( Source source : sources )
+        {
+            List<Source> group = groups.get( source.getCompilerOptions() );
+            if ( group == null )
+            {
+                group = new ArrayList<>();
+                groups.put( source.getCompilerOptions(), group );
+            }
+            group.add( source );
+        }
+        return groups.values();
+    }
+
+    /**
+     * Returns the source configurations to process: the configured <code>sources</code> or, if there are none, the
+     * one described by the switches set directly on the mojo.
+     *
+     * @return the source configurations
+     * @throws MojoExecutionException if both <code>sources</code> and switches are configured
+     */
+    List<Source> getEffectiveSources() throws MojoExecutionException
+    {
+        if ( sources != null && source != null && source.getConfiguredOptions().length() > 0 )
+        {
+            throw new MojoExecutionException( "May not use <source> elements in addition to switches "
+                    + "without a <source> element: " + source.getConfiguredOptions() );
+        }
+        if ( sources == null || sources.isEmpty() )
+        {
+            sources = Collections.singletonList( getSource() );
+        }
+        return sources;
+    }
+
+    /**
+     * Submits for compilation the remote classes selected by a group of source configurations with the same compiler
+     * options.
+     *
+     * @param group the source configurations
+     * @param modules the modules whose classes are to be compiled
+     * @param execution the state shared by all groups
+     */
+    private void doExecute( List<Source> group, List<RmicModule> modules, Execution execution )
+            throws MojoExecutionException
+    {
+        for ( Source source : group )
+        {
+            if ( source.isVerbose() )
+            {
+                getLog().debug( source.toString() );
+            }
+        }
+
+        for ( RmicModule module : modules )
+        {
+            ensureOutputDirectory( module );
+            if ( getBuildContext().isIncremental() )
+            {
+                for ( Source source : group )
+                {
+                    deleteClassesGeneratedForDeletedClasses( source, module );
+                }
+            }
+
+            int count = compileRemoteClasses( group, module, execution );
+            if ( count > 0 )
+            {
+                execution.addCompiledClasses( module, count );
+            }
+            else
+            {
+                getLog().info( "No out of date rmi classes to process" + describe( module, modules ) + "." );
+            }
+        }
+    }
+
+    private void saveIncludedClasses( Collection<IncludedClassTracker> trackers )
+    {
+        for ( IncludedClassTracker tracker : trackers )
+        {
+            try
+            {
+                tracker.save();
+            }
+            catch ( IOException e )
+            {
+                getLog().warn( "Unable to record the artifacts of included classes: " + e );
+            }
+        }
+    }
+
+    private void saveUnneededStubs( Collection<UnneededStubRecord> records )
+    {
+        for ( UnneededStubRecord record : records )
+        {
+            try
+            {
+                record.save();
+            }
+            catch ( IOException e )
+            {
+                getLog().warn( "Unable to record the remote classes which need no stub: " + e );
+            }
+        }
+    }
+
+    private void saveCompileCosts( CompileCostModel costModel )
+    {
+        if ( costModel != null )
+        {
+            try
+            {
+                costModel.save();
+            }
+            catch ( IOException e )
+            {
+                getLog().warn( "Unable to record the compile time of remote classes: " + e );
+            }
+        }
+    }
+
+    private BuildContext getBuildContext()
+    {
+        if ( buildContext == null )
+        {
+            buildContext = new DefaultBuildContext();
+        }
+        return buildContext;
+    }
+
+    /**
+     * In an incremental build, deletes the stubs, skeletons and ties generated for classes which have been deleted
+     * from the classes directory since the previous build.
+     */
+    private void deleteClassesGeneratedForDeletedClasses( Source source, RmicModule module )
+    {
+        Scanner scanner = getBuildContext().newDeleteScanner( module.getClassesDirectory() );
+        configureScanner( scanner, source );
+        for ( String deletedFile : scanner.getIncludedFiles() )
+        {
+            if ( !deletedFile.endsWith( ".class" ) )
+            {
+                continue;
+            }
+
+            File baseFile = new File( module.getOutputDirectory(), StringUtils.replace( deletedFile, ".class", "" ) );
+            String name = baseFile.getName();
+            for ( String generatedName : new String[] { name + "_Stub.class", name + "_Skel.class",
+                    "_" + name + "_Stub.class", "_" + name + "_Tie.class" } )
+            {
+                File generatedFile = new File( baseFile.getParentFile(), generatedName );
+                if ( generatedFile.delete() )
+                {
+                    getLog().debug( "Deleted " + generatedFile );
+                    getBuildContext().refresh( generatedFile );
+                }
+            }
+        }
+    }
+
+    private void configureScanner( Scanner scanner, Source source )
+    {
+        Set<String> excludes = getExcludes( source );
+        scanner.setIncludes( source.getIncludes().toArray( new String[source.getIncludes().size()] ) );
+        scanner.setExcludes( excludes.toArray( new String[excludes.size()] ) );
+        scanner.scan();
+    }
+
+    private String describe( RmicModule module, List<RmicModule> modules )
+    {
+        return modules.size() > 1 ? " in " + module.getName() : "";
+    }
+
+    /**
+     * Returns true if the stubs which {@link RmicStubProcessor} generates are those the source configuration would
+     * produce. The processor generates only version 1.2 JRMP stubs.
+     */
+    private static boolean matchesGeneratedStubs( Source source )
+    {
+        return !source.isIiop() && !source.isIdl()
+                && ( source.getVersion() == null || "1.2".equals( source.getVersion() ) );
+    }
+
+    /**
+     * Copies to the output directory the stubs which {@link RmicStubProcessor} generated for candidate classes while
+     * the module was compiled, so that the <code>package</code> goal finds them with the stubs rmic generates.
+     *
+     * @return the candidate classes whose stubs must still be compiled
+     */
+    private Collection<File> copyGeneratedStubs( Source source, RmicModule module, Collection<File> candidates,
+                                                 Execution execution ) throws MojoExecutionException
+    {
+        GeneratedStubs generatedStubs = execution.getGeneratedStubs( module );
+        if ( candidates == null || generatedStubs == null || !matchesGeneratedStubs( source ) )
+        {
+            return candidates;
+        }
+
+        List<File> remaining = new ArrayList<>();
+        List<File> classpath = new ArrayList<>();
+        for ( String element : module.getClasspathElements() )
+        {
+            classpath.add( new File( element ) );
+        }
+        try ( ClassFileRepository repository = new ClassFileRepository( classpath ) )
+        {
+            StubVerifier verifier = new StubVerifier( new RemoteClassAnalyzer( repository ) );
+            for ( File candidate : candidates )
+            {
+                if ( generatedStubs.copyStub( candidate, repository, verifier, module.getOutputDirectory() ) )
+                {
+                    execution.compiledModules.add( module );
+                }
+                else
+                {
+                    remaining.add( candidate );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Unable to copy the stubs generated during compilation: "
+                    + e.getMessage(), e );
+        }
+
+        int copied = candidates.size() - remaining.size();
+        if ( copied > 0 )
+        {
+            getLog().info( "Copied " + copied + " stubs generated during compilation" );
+        }
+        return remaining;
+    }
+
+    private void ensureOutputDirectory( RmicModule module ) throws MojoExecutionException
+    {
+        if ( !module.getOutputDirectory().isDirectory() )
+        {
+            if ( !module.getOutputDirectory().mkdirs() )
+            {
+                throw new MojoExecutionException( "Could not make output directory: " + "'"
+                        + module.getOutputDirectory().getAbsolutePath() + "'." );
+            }
+        }
+    }
+
+    private RmiCompilerConfiguration createConfiguration( Source source, RmicModule module,
+                                                          Set<File> remoteClassesToCompile )
+    {
+        RmiCompilerConfiguration config = new RmiCompilerConfiguration();
+        config.setClasspathEntries( module.getClasspathElements() );
+        config.addSourceLocation( module.getClassesDirectory().getPath() );
+        config.setSourceFiles( remoteClassesToCompile );
+        config.setIdl( source.isIdl() );
+        config.setIiop( source.isIiop() );
+        config.setKeep( source.isKeep() );
+        config.setNoLocalStubs( source.isNoLocalStubs() );
+        config.setNoValueMethods( source.isNoValueMethods() );
+        config.setNowarn( source.isNowarn() );
+        config.setOutputLocation( module.getOutputDirectory().getAbsolutePath() );
+        config.setPoa( source.isPoa() );
+        config.setVerbose( source.isVerbose() );
+        config.setVersion( source.getVersion() );
+        config.setMaxBatchSize( maxBatchSize );
+        config.setReuseEnvironment( reuseEnvironment );
+        if ( reuseEnvironment )
+        {
+            config.setClasspathFingerprint( module.getClasspathFingerprint() );
+        }
+        config.setFork( fork );
+        config.setForkJvmArgs( forkJvmArgs != null ? forkJvmArgs : DEFAULT_FORK_JVM_ARGS );
+        config.setClassDataSharingDirectory( classDataSharing ? classDataSharingDirectory : null );
+        return config;
+    }
+
+    /**
+     * Defines the class path searched to find the remote classes of each module. Each module's classes are found on
+     * its own class path, while the classes read from dependencies the modules have in common are only read once.
+     */
+    private void defineClasspath( List<RmicModule> modules ) throws MojoExecutionException
+    {
+        Map<RmicModule, URL[]> classpaths = new LinkedHashMap<>();
+        for ( RmicModule module : modules )
+        {
+            List<URL> classpathUrls = generateUrlCompileClasspath( module );
+            classpaths.put( module, classpathUrls.toArray( new URL[classpathUrls.size()] ) );
+        }
+        dependencies.defineClasspath( classpaths, hierarchyCache );
+    }
+
+    /**
+     * Finds the classes in a module which need to be compiled and submits them to the scheduler. Candidate classes
+     * are classified on separate threads and passed on through a bounded queue, so that when a maximum batch size is
+     * set, each batch is compiled as soon as it is full while classification continues.
+     *
+     * @param group the source configurations, with the same compiler options, on which to operate
+     * @param module the module whose classes are to be searched
+     * @param execution the state shared by all groups of source configurations
+     * @return the number of classes submitted for compilation
+     */
+    private int compileRemoteClasses( List<Source> group, final RmicModule module, final Execution execution )
+            throws MojoExecutionException
+    {
+        final Source source = group.get( 0 );
+        final RemoteClassIndex index = execution.getIndex( module );
+        final UnneededStubRecord unneededStubs = STUB_POLICY_REQUIRED.equals( stubPolicy )
+                ? execution.getUnneededStubs( module ) : null;
+        boolean unneededStubsDiscarded = unneededStubs != null && unneededStubs.discardIfOutOfDate();
+        Collection<File> scanned = copyGeneratedStubs( source, module,
+                getCandidateClasses( group, module, index, unneededStubsDiscarded, execution.scans ), execution );
+        final Collection<File> candidates = unneededStubs != null
+                ? unneededStubs.removeUnneeded( scanned, source.getCompilerOptions() ) : scanned;
+        final StubRequirementAnalyzer analyzer = STUB_POLICY_ALL.equals( stubPolicy ) ? null
+                : new StubRequirementAnalyzer( module.getClassesDirectory() );
+        final BlockingQueue<File> remoteClasses = new ArrayBlockingQueue<>( CLASSIFIED_QUEUE_CAPACITY );
+        Future<Boolean> classification = execution.classifier.submit( new Callable<Boolean>()
+        {
+            public Boolean call() throws InterruptedException
+            {
+                try
+                {
+                    return classifyCandidates( source, module, index, analyzer, unneededStubs, candidates,
+                                               execution.classificationPool, remoteClasses );
+                }
+                finally
+                {
+                    remoteClasses.put( END_OF_CLASSES );
+                }
+            }
+        } );
+
+        try
+        {
+            int count = 0;
+            Set<File> batch = new HashSet<>();
+            for ( File remoteClass = remoteClasses.take(); remoteClass != END_OF_CLASSES;
+                  remoteClass = remoteClasses.take() )
+            {
+                batch.add( remoteClass );
+                if ( execution.costModel == null && batch.size() == maxBatchSize )
+                {
+                    count += submitBatch( source, module, batch, execution.scheduler );
+                    batch = new HashSet<>();
+                }
+            }
+
+            if ( candidates != null && classification.get() )
+            {
+                for ( Source included : group )
+                {
+                    batch.addAll( getIncludedJarClasses( included, module, execution ) );
+                }
+            }
+            if ( execution.costModel == null )
+            {
+                return count + submitBatch( source, module, batch, execution.scheduler );
+            }
+
+            for ( Set<File> costed : execution.costModel.partition( module.getClassesDirectory(), batch,
+                                                                    getCompileThreads(), maxBatchSize ) )
+            {
+                count += submitBatch( source, module, costed, execution.scheduler );
+            }
+            return count;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException( "Interrupted while scanning for classes.", e );
+        }
+        catch ( ExecutionException e )
+        {
+            throw new MojoExecutionException( "Problem while scanning for classes.", e.getCause() );
+        }
+    }
+
+    private int submitBatch( Source source, RmicModule module, Set<File> batch, CompileScheduler scheduler )
+            throws MojoExecutionException
+    {
+        if ( !batch.isEmpty() )
+        {
+            getLog().debug( "Compiling " + batch.size() + " remote classes" );
+            scheduler.submit( createConfiguration( source, module, batch ) );
+        }
+        return batch.size();
+    }
+
+    /**
+     * Returns the classes of a module which are out of date and selected by any of a group of source configurations.
+     * The classes directory is scanned once per execution, for all classes, and each source configuration selects from
+     * those found with its own patterns. In an incremental build, the out of date classes are those which have changed
+     * since the previous build, unless the classes which the required stub policy left without stubs may now need
+     * them; those need not have changed, so the classes directory is then scanned as in a full build. Otherwise, if
+     * the module has a remote class index, only the classes it lists are checked rather than the whole classes
+     * directory.
+     *
+     * @param unneededStubsDiscarded true if the record of classes left without stubs has just been discarded
+     * @return the class files found, or null if the scan failed
      */
-    @Parameter( defaultValue = "${project}", readonly = true )
-    protected MavenProject project;
+    private Collection<File> getCandidateClasses( List<Source> group, RmicModule module, RemoteClassIndex index,
+                                                  boolean unneededStubsDiscarded,
+                                                  Map<RmicModule, Collection<File>> scans )
+    {
+        if ( !scans.containsKey( module ) )
+        {
+            if ( getBuildContext().isIncremental() && !unneededStubsDiscarded )
+            {
+                scans.put( module, getChangedClasses( module ) );
+            }
+            else
+            {
+                scans.put( module, index != null ? getStaleIndexedClasses( module, index ) : getStaleClasses( module ) );
+            }
+        }
 
-    /**
-     * The interface between ths class and the rest of the world - unit tests replace the default implementation.
-     */
-    private DependenciesFacade dependencies = new DependenciesFacadeImpl();
+        Collection<File> scanned = scans.get( module );
+        if ( scanned == null )
+        {
+            return null;
+        }
 
-    /**
-     * The default implementation of the dependencies.
-     */
-    private static final DependenciesFacade DEPENDENCIES_FACADE = new DependenciesFacadeImpl();
+        Set<File> selected = new LinkedHashSet<>();
+        for ( Source source : group )
+        {
+            selected.addAll( selectSourceClasses( source, module.getClassesDirectory(), scanned ) );
+        }
+        return selected;
+    }
 
-    /**
-     * Creates the abstract class using a production implementation of the dependencies.
-     */
-    AbstractRmiMojo()
+    private Collection<File> getStaleClasses( RmicModule module )
     {
-        this( DEPENDENCIES_FACADE );
-    }
+        try
+        {
+            SourceInclusionScanner scanner = createScanner( Collections.singleton( ALL_FILES_PATTERN ),
+                                                            Collections.singleton( STUB_CLASS_PATTERN ) );
+            scanner.addSourceMapping( new SuffixMapping( ".class", "_Stub.class" ) );
 
+            Collection<File> candidates =
+                    scanner.getIncludedSources( module.getClassesDirectory(), module.getOutputDirectory() );
+            return writeIfChanged ? StagingRmiCompiler.removeVerifiedClasses( candidates, module.getClassesDirectory(),
+                                                                              module.getOutputDirectory() )
+                    : candidates;
+        }
+        catch ( Exception e )
+        {
+            getLog().warn( "Problem while scanning for classes: " + e );
+            return null;
+        }
+    }
 
     /**
-     * Creates the abstract class using the specified implementation of the dependencies.
-     *
-     * @param dependencies the implementation of the dependencies to use.
+     * Returns the classes listed in a module's remote class index whose stubs are missing or older than the classes,
+     * as a stale source scan of the classes directory would.
      */
-    AbstractRmiMojo( DependenciesFacade dependencies )
+    private Collection<File> getStaleIndexedClasses( RmicModule module, RemoteClassIndex index )
     {
-        this.dependencies = dependencies;
+        List<File> candidates = new ArrayList<>();
+        for ( File classFile : index.getClassFiles( module.getClassesDirectory() ) )
+        {
+            String path = module.getClassesDirectory().toURI().relativize( classFile.toURI() ).getPath();
+            if ( matchesAny( Collections.singleton( STUB_CLASS_PATTERN ), path ) )
+            {
+                continue;
+            }
+
+            File stubFile = new File( module.getOutputDirectory(),
+                                      StringUtils.replace( path, ".class", "_Stub.class" ) );
+            if ( !stubFile.exists() || stubFile.lastModified() + staleMillis < classFile.lastModified() )
+            {
+                candidates.add( classFile );
+            }
+        }
+        return writeIfChanged ? StagingRmiCompiler.removeVerifiedClasses( candidates, module.getClassesDirectory(),
+                                                                          module.getOutputDirectory() )
+                : candidates;
     }
 
-    /**
-     * Get the list of sub-configurations.
-     */
-    List<Source> getSources()
+    private Collection<File> getChangedClasses( RmicModule module )
     {
-        return sources;
+        Scanner scanner = getBuildContext().newScanner( module.getClassesDirectory() );
+        scanner.setIncludes( new String[] { ALL_FILES_PATTERN } );
+        scanner.setExcludes( new String[] { STUB_CLASS_PATTERN } );
+        scanner.scan();
+        List<File> changedClasses = new ArrayList<>();
+        for ( String changedFile : scanner.getIncludedFiles() )
+        {
+            if ( changedFile.endsWith( ".class" ) )
+            {
+                changedClasses.add( new File( module.getClassesDirectory(), changedFile ) );
+            }
+        }
+        return changedClasses;
     }
 
     /**
-     * Get the list of elements to add to the classpath of rmic
-     *
-     * @return list of classpath elements
-     */
-    public abstract List<String> getProjectClasspathElements();
-
-    /**
-     * Get the directory where rmic generated class files are written.
-     *
-     * @return the directory
+     * Returns the scanned classes which match the include and exclude patterns of a source configuration.
      */
-    public abstract File getOutputDirectory();
+    private Collection<File> selectSourceClasses( Source source, File classesDirectory, Collection<File> scanned )
+    {
+        Set<String> includes = source.getIncludes();
+        Set<String> excludes = getExcludes( source );
+        List<File> selected = new ArrayList<>();
+        for ( File classFile : scanned )
+        {
+            String path = classesDirectory.toURI().relativize( classFile.toURI() ).getPath();
+            if ( matchesAny( includes, path ) && !matchesAny( excludes, path ) )
+            {
+                selected.add( classFile );
+            }
+        }
+        return selected;
+    }
 
     /**
-     * Get the directory where Remote impl classes are located.
-     *
-     * @return path to compiled classes
+     * Returns true if a path matches any of the specified patterns, interpreted as by a directory scanner.
      */
-    public abstract File getClassesDirectory();
+    private static boolean matchesAny( Set<String> patterns, String path )
+    {
+        for ( String pattern : patterns )
+        {
+            String normalized = pattern.replace( '\\', '/' );
+            if ( normalized.endsWith( "/" ) )
+            {
+                normalized += "**";
+            }
+            if ( SelectorUtils.matchPath( normalized, path, "/", true ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
 
     /**
-     * Main mojo execution.
+     * Passes each candidate class which is a remote class to the specified queue, in order of their file names.
+     * The candidates are classified in chunks on the specified pool; the remote classes found in each chunk are
+     * passed on once it and all earlier chunks have been classified, so the order does not depend on the threads.
      *
-     * @throws MojoExecutionException if there is a problem executing the mojo.
+     * @return true if all candidates were classified
      */
-    public void execute() throws MojoExecutionException
+    private boolean classifyCandidates( final Source source, final RmicModule module, final RemoteClassIndex index,
+                                        final StubRequirementAnalyzer analyzer,
+                                        final UnneededStubRecord unneededStubs, Collection<File> candidates,
+                                        ExecutorService pool, BlockingQueue<File> remoteClasses )
+            throws InterruptedException
     {
-        if ( sources != null && source != null && source.getConfiguredOptions().length() > 0 )
+        if ( candidates == null )
         {
-            throw new MojoExecutionException( "May not use <source> elements in addition to switches "
-                    + "without a <source> element: " + source.getConfiguredOptions() );
+            return false;
         }
-        if ( sources == null || sources.isEmpty() )
+
+        List<File> orderedCandidates = new ArrayList<>( candidates );
+        Collections.sort( orderedCandidates );
+        List<Future<List<File>>> chunks = new ArrayList<>();
+        try
         {
-            sources = Collections.singletonList( getSource() );
-        }
+            for ( int start = 0; start < orderedCandidates.size(); start += CLASSIFICATION_CHUNK_SIZE )
+            {
+                final List<File> chunk = orderedCandidates.subList(
+                        start, Math.min( orderedCandidates.size(), start + CLASSIFICATION_CHUNK_SIZE ) );
+                chunks.add( pool.submit( new Callable<List<File>>()
+                {
+                    public List<File> call() throws Exception
+                    {
+                        return selectRemoteClasses( source, module, index, analyzer, unneededStubs, chunk );
+                    }
+                } ) );
+            }
 
-        for ( Source source : sources )
+            for ( Future<List<File>> chunk : chunks )
+            {
+                for ( File remoteClass : chunk.get() )
+                {
+                    remoteClasses.put( remoteClass );
+                }
+            }
+            return true;
+        }
+        catch ( ExecutionException e )
+        {
+            getLog().warn( "Problem while scanning for classes: " + e.getCause() );
+            return false;
+        }
+        finally
         {
-            doExecute( source );
+            for ( Future<List<File>> chunk : chunks )
+            {
+                chunk.cancel( true );
+            }
         }
     }
 
-    private void doExecute( Source source ) throws MojoExecutionException
+    /**
+     * Returns the candidate classes which are remote classes, as paths relative to the classes directory. If the module
+     * has a remote class index, the classes are looked up in it rather than read. If an analyzer is specified, the stub
+     * policy decides which of those which need no stub are returned; those which are not are noted in the specified
+     * record, if any.
+     */
+    private List<File> selectRemoteClasses( Source source, RmicModule module, RemoteClassIndex index,
+                                            StubRequirementAnalyzer analyzer, UnneededStubRecord unneededStubs,
+                                            List<File> candidates )
+            throws Exception
     {
-        rmiCompiler.setLog( getLog() );
+        File classesDirectory = module.getClassesDirectory();
+        List<File> remoteClasses = new ArrayList<>();
+        for ( File file : candidates )
+        {
+            URI relativeURI = classesDirectory.toURI().relativize( file.toURI() );
+            String className = fileToClassName( relativeURI.toString() );
+            // ignore interfaces unless in IIOP mode
+            boolean remote = index != null ? index.isRemoteClass( className, source.isIiop() )
+                    : dependencies.isRemoteClass( module, className, source.isIiop() );
+            if ( !remote )
+            {
+                continue;
+            }
+            if ( analyzer == null || isStubToBeGenerated( source, analyzer, className ) )
+            {
+                // file is absolute, we need relative files
+                remoteClasses.add( new File( relativeURI.toString() ) );
+            }
+            else if ( unneededStubs != null )
+            {
+                unneededStubs.recordUnneeded( file, source.getCompilerOptions() );
+            }
+        }
+        return remoteClasses;
+    }
 
-        if ( source.isVerbose() )
+    /**
+     * Applies the stub policy to a remote class, logging the analysis.
+     */
+    private boolean isStubToBeGenerated( Source source, StubRequirementAnalyzer analyzer, String className )
+            throws IOException
+    {
+        String reason = analyzer.getReason( source, className );
+        String analysis = reason != null ? className + " needs a stub: " + reason
+                : className + " needs no stub, as a dynamic proxy may be used";
+        if ( STUB_POLICY_REPORT.equals( stubPolicy ) )
         {
-            getLog().debug( source.toString() );
+            getLog().info( analysis );
+            return true;
         }
 
+        getLog().debug( analysis );
+        return reason != null;
+    }
 
-        if ( !getOutputDirectory().isDirectory() )
+    /**
+     * Returns the explicitly included classes which are not in the classes directory, and so are expected to be
+     * found in a classpath jar, omitting those whose stubs were generated from the jar as it now is, and those whose
+     * stubs could be copied from an upstream module. Like the other candidates, the classes are returned as paths
+     * relative to the classes directory, from which their names are derived.
+     */
+    private Set<File> getIncludedJarClasses( Source source, RmicModule module, Execution execution )
+    {
+        IncludedClassTracker tracker = execution.getTracker( module );
+        UpstreamStubs upstreamStubs = canReuseUpstreamStubs( source ) ? execution.getUpstreamStubs( module ) : null;
+        Set<File> jarClasses = new HashSet<>();
+        for ( String include : source.getIncludes() )
         {
-            if ( !getOutputDirectory().mkdirs() )
+            File includeFile = new File( module.getClassesDirectory(), include );
+            if ( ( include.contains( "*" ) ) || dependencies.fileExists( includeFile ) )
             {
-                throw new MojoExecutionException( "Could not make output directory: " + "'"
-                        + getOutputDirectory().getAbsolutePath() + "'." );
+                continue;
             }
-        }
-
-        try
-        {
-            // Get the list of classes to compile
-            Set<File> remoteClassesToCompile = getRemoteClasses( source );
-
-            if ( remoteClassesToCompile.size() == 0 )
+            // We have found a class that is not in the classes dir.
+            File generatedFile = getGeneratedFile( source, module, include );
+            if ( tracker.isUpToDate( include, source.getCompilerOptions(), generatedFile ) )
             {
-                getLog().info( "No out of date rmi classes to process." );
-                return;
+                getLog().debug( "Stubs for " + include + " are up to date" );
+                continue;
             }
-
-            getLog().info( "Compiling " + remoteClassesToCompile.size() + " remote classes" );
-            
-            RmiCompilerConfiguration config = new RmiCompilerConfiguration();
-            config.setClasspathEntries( getRmicClasspathElements() );
-            config.addSourceLocation( getClassesDirectory().getPath() );
-            config.setSourceFiles( remoteClassesToCompile );
-            config.setIdl( source.isIdl() );
-            config.setIiop( source.isIiop() );
-            config.setKeep( source.isKeep() );
-            config.setNoLocalStubs( source.isNoLocalStubs() );
-            config.setNoValueMethods( source.isNoValueMethods() );
-            config.setNowarn( source.isNowarn() );
-            config.setOutputLocation( getOutputDirectory().getAbsolutePath() );
-            config.setPoa( source.isPoa() );
-            config.setVerbose( source.isVerbose() );
-            config.setVersion( source.getVersion() );
-            
-            rmiCompiler.execute( config );
-        }
-        catch ( RmiCompilerException e )
-        {
-            throw new MojoExecutionException( "Error while executing the RMI compiler.", e );
+            if ( upstreamStubs != null && copyUpstreamStub( include, module, upstreamStubs ) )
+            {
+                execution.compiledModules.add( module );
+                continue;
+            }
+            jarClasses.add( new File( include ) );
         }
+        return jarClasses;
     }
-    
 
     /**
-     * Get the list of elements to add to the classpath of rmic
-     *
-     * @return list of classpath elements
+     * Returns the file which compiling an included class with the specified configuration writes to the output
+     * directory: its tie for IIOP, otherwise its stub. Returns null for IDL, whose files are named after the remote
+     * interfaces rather than the class.
      */
-    private List<String> getRmicClasspathElements()
+    private static File getGeneratedFile( Source source, RmicModule module, String include )
     {
-        List<String> classpathElements = getProjectClasspathElements();
-
-        if ( !classpathElements.contains( getClassesDirectory().getAbsolutePath() ) )
+        if ( source.isIdl() )
         {
-            classpathElements.add( getClassesDirectory().getAbsolutePath() );
+            return null;
         }
-
-        return classpathElements;
+        File baseFile = new File( module.getOutputDirectory(), StringUtils.replace( include, ".class", "" ) );
+        String name = baseFile.getName();
+        return new File( baseFile.getParentFile(), source.isIiop() ? "_" + name + "_Tie.class" : name + "_Stub.class" );
     }
 
     /**
-     * Search the input directory for classes to compile.
-     *
-     * @param source the source element on which to operate
-     * @return a list of class names to rmic
+     * Returns true if a source configuration generates only version 1.2 stubs, which may be copied from another module.
      */
-    private Set<File> getRemoteClasses( Source source )
+    private boolean canReuseUpstreamStubs( Source source )
     {
-        Set<File> remoteClasses = new HashSet<>();
+        return reuseUpstreamStubs && !source.isIiop() && !source.isIdl()
+                && ( source.getVersion() == null || "1.2".equals( source.getVersion() ) );
+    }
 
+    private boolean copyUpstreamStub( String include, RmicModule module, UpstreamStubs upstreamStubs )
+    {
         try
         {
-            // Set up the classloader
-            List<URL> classpathList = generateUrlCompileClasspath();
-            URL[] classpathUrls = new URL[classpathList.size()];
-            classpathUrls[0] = getClassesDirectory().toURI().toURL();
-            classpathUrls = classpathList.toArray( classpathUrls );
-            dependencies.defineUrlClassLoader( classpathUrls );
-
-            // Scan for remote classes
-
-            SourceInclusionScanner scanner = createScanner( source.getIncludes(), getExcludes( source ) );
-            scanner.addSourceMapping( new SuffixMapping( ".class", "_Stub.class" ) );
-            
-            Collection<File> staleRemoteClasses
-                    = scanner.getIncludedSources( getClassesDirectory(), getOutputDirectory() );
-
-            for ( File file : staleRemoteClasses )
+            File location = upstreamStubs.copyStub( include, module.getOutputDirectory() );
+            if ( location != null )
             {
-                URI relativeURI = getClassesDirectory().toURI().relativize( file.toURI() );
-                String className = fileToClassName( relativeURI.toString() );
-                Class<?> candidateClass = dependencies.loadClass( className );
-                if ( isRemoteRmiClass( candidateClass, source.isIiop() ) )
-                {
-                    // file is absolute, we need relative files
-                    remoteClasses.add( new File( relativeURI.toString() ) );
-                }
+                getLog().debug( "Copied the stub for " + include + " from " + location );
             }
+            return location != null;
+        }
+        catch ( IOException e )
+        {
+            getLog().warn( "Unable to copy the stub for " + include + ": " + e );
+            return false;
+        }
+    }
 
-            // Check for classes in a classpath jar
-            for ( String include : source.getIncludes() )
+    /**
+     * Returns the output directories which modules earlier in the reactor have published for reuse.
+     */
+    private List<File> getPublishedOutputDirectories()
+    {
+        List<File> directories = new ArrayList<>();
+        if ( reactorProjects != null )
+        {
+            for ( MavenProject reactorProject : reactorProjects )
             {
-                File includeFile = new File( getClassesDirectory(), include );
-                if ( ( include.contains( "*" ) ) || dependencies.fileExists( includeFile ) )
+                String directory =
+                        reactorProject.getProperties().getProperty( UpstreamStubs.OUTPUT_DIRECTORY_PROPERTY );
+                if ( reactorProject != project && directory != null )
                 {
-                    continue;
+                    directories.add( new File( directory ) );
                 }
-                // We have found a class that is not in the classes dir.
-                remoteClasses.add( includeFile );
             }
         }
-        catch ( Exception e )
-        {
-            getLog().warn( "Problem while scanning for classes: " + e );
-        }
-        return remoteClasses;
+        return directories;
     }
 
     private SourceInclusionScanner createScanner( Set<String> includes, Set<String> excludes )
@@ -386,7 +1316,10 @@ public abstract class AbstractRmiMojo
         return dependencies.createScanner( staleMillis, includes, excludes );
     }
 
-    private Set<String> getExcludes( Source source )
+    /**
+     * Returns the exclusions for a source configuration, which always exclude previously generated stubs.
+     */
+    Set<String> getExcludes( Source source )
     {
         Set<String> excludes = source.getExcludes();
         excludes.add( STUB_CLASS_PATTERN );
@@ -398,25 +1331,20 @@ public abstract class AbstractRmiMojo
         return StringUtils.replace( StringUtils.replace( classFileName, ".class", "" ), "/", "." );
     }
 
-    // Check that each class implements java.rmi.Remote, ignore interfaces unless in IIOP mode
-    private boolean isRemoteRmiClass( Class<?> remoteClass, boolean isIiop )
-    {
-        return java.rmi.Remote.class.isAssignableFrom( remoteClass ) && ( !remoteClass.isInterface() || isIiop );
-    }
-
     /**
      * Returns a list of URL objects that represent the classpath elements. This is useful for using a URLClassLoader
      *
+     * @param module the module whose class path is required
      * @return list of url classpath elements
      */
-    private List<URL> generateUrlCompileClasspath()
+    private List<URL> generateUrlCompileClasspath( RmicModule module )
             throws MojoExecutionException
     {
         List<URL> rmiCompileClasspath = new ArrayList<>();
         try
         {
-            rmiCompileClasspath.add( getClassesDirectory().toURI().toURL() );
-            for ( String classpathElement : getRmicClasspathElements() )
+            rmiCompileClasspath.add( module.getClassesDirectory().toURI().toURL() );
+            for ( String classpathElement : module.getClasspathElements() )
             {
                 URL pathUrl = new File( classpathElement ).toURI().toURL();
                 rmiCompileClasspath.add( pathUrl );
@@ -549,6 +1477,142 @@ public abstract class AbstractRmiMojo
     }
     
     
+    /**
+     * The state shared by the groups of source configurations compiled in one execution.
+     */
+    private class Execution
+    {
+        private final Map<RmicModule, Collection<File>> scans = new HashMap<>();
+
+        private final Map<RmicModule, IncludedClassTracker> trackers = new LinkedHashMap<>();
+
+        private final Map<RmicModule, UnneededStubRecord> unneededStubs = new LinkedHashMap<>();
+
+        private final Map<RmicModule, RemoteClassIndex> indexes = new HashMap<>();
+
+        private final Map<RmicModule, GeneratedStubs> generatedStubs = new HashMap<>();
+
+        private final Map<RmicModule, UpstreamStubs> upstreamStubs = new HashMap<>();
+
+        private final Set<RmicModule> compiledModules = new LinkedHashSet<>();
+
+        private final Map<RmicModule, Integer> compiledClasses = new LinkedHashMap<>();
+
+        private final CompileScheduler scheduler;
+
+        private final CompileCostModel costModel;
+
+        private final ExecutorService classifier = Executors.newSingleThreadExecutor();
+
+        private final ExecutorService classificationPool = new ForkJoinPool(
+                classifierThreads > 0 ? classifierThreads : Runtime.getRuntime().availableProcessors() );
+
+        Execution( CompileScheduler scheduler, CompileCostModel costModel )
+        {
+            this.scheduler = scheduler;
+            this.costModel = costModel;
+        }
+
+        /**
+         * Records that classes of a module have been submitted for compilation, to be reported once compiled.
+         */
+        void addCompiledClasses( RmicModule module, int count )
+        {
+            compiledModules.add( module );
+            Integer previous = compiledClasses.get( module );
+            compiledClasses.put( module, previous == null ? count : previous + count );
+        }
+
+        /**
+         * Returns the record of the artifacts from which a module's included classes in jars were last compiled.
+         */
+        IncludedClassTracker getTracker( RmicModule module )
+        {
+            IncludedClassTracker tracker = trackers.get( module );
+            if ( tracker == null )
+            {
+                tracker = new IncludedClassTracker( module );
+                trackers.put( module, tracker );
+            }
+            return tracker;
+        }
+
+        /**
+         * Returns the record of a module's remote classes which need no stub under the required stub policy.
+         */
+        UnneededStubRecord getUnneededStubs( RmicModule module )
+        {
+            UnneededStubRecord record = unneededStubs.get( module );
+            if ( record == null )
+            {
+                record = new UnneededStubRecord( module );
+                unneededStubs.put( module, record );
+            }
+            return record;
+        }
+
+        /**
+         * Returns the remote class index of a module, or null if it has no index which is fresh.
+         */
+        RemoteClassIndex getIndex( RmicModule module )
+        {
+            if ( !indexes.containsKey( module ) )
+            {
+                RemoteClassIndex index = RemoteClassIndex.read( module.getClassesDirectory() );
+                if ( index != null )
+                {
+                    getLog().debug( "Using the remote class index in " + module.getClassesDirectory() );
+                }
+                indexes.put( module, index );
+            }
+            return indexes.get( module );
+        }
+
+        /**
+         * Returns the stubs generated while a module was compiled, or null if none were.
+         */
+        GeneratedStubs getGeneratedStubs( RmicModule module )
+        {
+            if ( !generatedStubs.containsKey( module ) )
+            {
+                generatedStubs.put( module, GeneratedStubs.read( module.getClassesDirectory() ) );
+            }
+            return generatedStubs.get( module );
+        }
+
+        /**
+         * Returns the stubs generated elsewhere for the included classes of a module.
+         */
+        UpstreamStubs getUpstreamStubs( RmicModule module )
+        {
+            UpstreamStubs stubs = upstreamStubs.get( module );
+            if ( stubs == null )
+            {
+                stubs = new UpstreamStubs( module, getPublishedOutputDirectories() );
+                upstreamStubs.put( module, stubs );
+            }
+            return stubs;
+        }
+
+        void shutdown()
+        {
+            classifier.shutdownNow();
+            classificationPool.shutdownNow();
+            scheduler.shutdown();
+            for ( UpstreamStubs stubs : upstreamStubs.values() )
+            {
+                try
+                {
+                    stubs.close();
+                }
+                catch ( IOException e )
+                {
+                    getLog().debug( "Unable to close the class path jars: " + e );
+                }
+            }
+        }
+    }
+
     /**
      * An interface for dependencies on the file system and related mojo base classes.
      */
@@ -558,9 +1622,29 @@ public abstract class AbstractRmiMojo
 
         SourceInclusionScanner createScanner( int staleMillis, Set<String> includes, Set<String> excludes );
 
-        Class<?> loadClass( String className ) throws ClassNotFoundException;
-
-        void defineUrlClassLoader( URL[] classpathUrls );
+        /**
+         * Returns true if the named class, found on the class path of a module defined by
+         * {@link #defineClasspath(Map, File)}, implements <code>java.rmi.Remote</code>. May be called from several
+         * threads at once.
+         *
+         * @param module the module whose class path is searched
+         * @param className the fully qualified name of the class
+         * @param includeInterfaces if false, interfaces are never reported as remote
+         */
+        boolean isRemoteClass( RmicModule module, String className, boolean includeInterfaces ) throws Exception;
+
+        /**
+         * Defines the class paths searched by {@link #isRemoteClass(RmicModule, String, boolean)}.
+         *
+         * @param classpaths the class path of each module
+         * @param hierarchyCache the file in which to keep the class hierarchy between builds, or null
+         */
+        void defineClasspath( Map<RmicModule, URL[]> classpaths, File hierarchyCache );
+
+        /**
+         * Releases the class paths defined by {@link #defineClasspath(Map, File)}, closing any files they hold open.
+         */
+        void closeClasspath();
     }
 
     /**
@@ -568,16 +1652,60 @@ public abstract class AbstractRmiMojo
      */
     private static class DependenciesFacadeImpl implements DependenciesFacade
     {
-        private static URLClassLoader loader;
+        private ClassHierarchy hierarchy;
+
+        private final Map<RmicModule, ClassHierarchy> moduleHierarchies = new HashMap<>();
+
+        public boolean isRemoteClass( RmicModule module, String className, boolean includeInterfaces )
+                throws IOException
+        {
+            return moduleHierarchies.get( module ).isRemoteClass( className, includeInterfaces );
+        }
+
+        public void defineClasspath( Map<RmicModule, URL[]> classpaths, File hierarchyCache )
+        {
+            closeClasspath();
+            hierarchy = new ClassHierarchy( Collections.<File>emptyList(), hierarchyCache );
+            for ( Map.Entry<RmicModule, URL[]> entry : classpaths.entrySet() )
+            {
+                List<File> classpath = new ArrayList<>();
+                for ( URL url : entry.getValue() )
+                {
+                    classpath.add( toFile( url ) );
+                }
+                moduleHierarchies.put( entry.getKey(), hierarchy.withClasspath( classpath ) );
+            }
+        }
 
-        public Class<?> loadClass( String className ) throws ClassNotFoundException
+        private static File toFile( URL url )
         {
-            return loader.loadClass( className );
+            try
+            {
+                return new File( url.toURI() );
+            }
+            catch ( URISyntaxException e )
+            {
+                return new File( url.getPath() );
+            }
         }
 
-        public void defineUrlClassLoader( URL[] classpathUrls )
+        public void closeClasspath()
         {
-            loader = new URLClassLoader( classpathUrls );
+            if ( hierarchy == null )
+            {
+                return;
+            }
+
+            try
+            {
+                hierarchy.close();
+            }
+            catch ( IOException ignored )
+            {
+                // the cache only saves work in later builds, so there is nothing more to do
+            }
+            hierarchy = null;
+            moduleHierarchies.clear();
         }
 
         public boolean fileExists( File includeFile )
@@ -0,0 +1,255 @@
+package org.codehaus.mojo.rmic;
+
+/*
+ * Copyright (c) 2026, Codehaus.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.ArtifactUtils;
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.artifact.factory.ArtifactFactory;
+import org.apache.maven.artifact.metadata.ArtifactMetadataSource;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.resolver.ArtifactNotFoundException;
+import org.apache.maven.artifact.resolver.ArtifactResolutionException;
+import org.apache.maven.artifact.resolver.ArtifactResolutionResult;
+import org.apache.maven.artifact.resolver.ArtifactResolver;
+import org.apache.maven.artifact.resolver.filter.ScopeArtifactFilter;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.artifact.InvalidDependencyVersionException;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compiles rmi stubs and skeleton classes for all projects in the reactor in a single execution. The remote classes of
+ * each project are found on that project's own class path, while the classes of dependencies the projects have in
+ * common are read only once, and the stubs for each project are written to the <code>outputDirectoryName</code>
+ * directory in that project's build directory. Since the goal processes compiled classes, it should be invoked after
+ * compilation, for example: <code>mvn compile rmic:aggregate</code>.
+ *
+ * @since 1.3.1
+ */
+@Mojo( name = "aggregate", aggregator = true, requiresDependencyResolution = ResolutionScope.COMPILE,
+       threadSafe = true )
+public class AggregateRmicMojo
+        extends AbstractRmiMojo
+{
+    /**
+     * The name of the directory, within each project's build directory, to which rmic generated class files
+     * are written.
+     */
+    @Parameter( defaultValue = "rmi-classes" )
+    private String outputDirectoryName;
+
+    /**
+     * The number of projects whose stubs may be compiled at the same time.
+     */
+    @Parameter( property = "rmic.threads", defaultValue = "1" )
+    private int threads;
+
+    /**
+     * The local repository, from which the dependencies of reactor projects are resolved.
+     */
+    @Parameter( defaultValue = "${localRepository}", readonly = true )
+    private ArtifactRepository localRepository;
+
+    @Component
+    private ArtifactResolver artifactResolver;
+
+    @Component
+    private ArtifactFactory artifactFactory;
+
+    @Component
+    private ArtifactMetadataSource artifactMetadataSource;
+
+    public AggregateRmicMojo()
+    {
+    }
+
+    AggregateRmicMojo( DependenciesFacade dependencies )
+    {
+        super( dependencies );
+    }
+
+    /**
+     * Get the directory where rmic generated class files are written for the project in which the goal runs.
+     *
+     * @return the directory
+     */
+    public File getOutputDirectory()
+    {
+        return new File( project.getBuild().getDirectory(), outputDirectoryName );
+    }
+
+    /**
+     * Get the directory where the classes of the project in which the goal runs are located.
+     *
+     * @return The project classes directory.
+     */
+    public File getClassesDirectory()
+    {
+        return new File( project.getBuild().getOutputDirectory() );
+    }
+
+    /**
+     * Get the list of classpath elements for the project in which the goal runs, whose dependencies Maven resolves.
+     *
+     * @return A list containing the project classpath elements.
+     */
+    @SuppressWarnings( "unchecked" )
+    public List<String> getProjectClasspathElements()
+    {
+        try
+        {
+            return new ArrayList<String>( project.getCompileClasspathElements() );
+        }
+        catch ( DependencyResolutionRequiredException e )
+        {
+            throw new IllegalStateException( "Dependencies of " + project.getId() + " are not resolved", e );
+        }
+    }
+
+    @Override
+    List<RmicModule> getModules() throws MojoExecutionException
+    {
+        List<RmicModule> modules = new ArrayList<>();
+        for ( MavenProject reactorProject : reactorProjects )
+        {
+            File classesDirectory = new File( reactorProject.getBuild().getOutputDirectory() );
+            if ( !fileExists( classesDirectory ) )
+            {
+                getLog().debug( "Skipping " + reactorProject.getId() + ": no classes directory" );
+                continue;
+            }
+
+            modules.add( new RmicModule( reactorProject.getId(), classesDirectory,
+                    new File( reactorProject.getBuild().getDirectory(), outputDirectoryName ),
+                    getCompileClasspathElements( reactorProject, new HashSet<MavenProject>() ) ) );
+        }
+        return modules;
+    }
+
+    @Override
+    int getModuleThreads()
+    {
+        return threads;
+    }
+
+    /**
+     * Returns the compile class path of a reactor project. As an aggregator, this goal has dependencies resolved by
+     * Maven 2 only for the project in which it runs; those of the other projects are resolved here, with projects in
+     * the reactor represented by their classes directories.
+     *
+     * @param reactorProject the project whose class path is required
+     * @param visited the projects whose class paths have already been added
+     */
+    @SuppressWarnings( "unchecked" )
+    private List<String> getCompileClasspathElements( MavenProject reactorProject, Set<MavenProject> visited )
+            throws MojoExecutionException
+    {
+        visited.add( reactorProject );
+        if ( reactorProject.getArtifacts().isEmpty() && !reactorProject.getDependencies().isEmpty() )
+        {
+            return resolveCompileClasspathElements( reactorProject, visited );
+        }
+
+        try
+        {
+            return new ArrayList<String>( reactorProject.getCompileClasspathElements() );
+        }
+        catch ( DependencyResolutionRequiredException e )
+        {
+            throw new MojoExecutionException( "Dependencies of " + reactorProject.getId() + " are not resolved: "
+                    + e.getMessage(), e );
+        }
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private List<String> resolveCompileClasspathElements( MavenProject reactorProject, Set<MavenProject> visited )
+            throws MojoExecutionException
+    {
+        getLog().debug( "Resolving the dependencies of " + reactorProject.getId() );
+        Set<String> elements = new LinkedHashSet<>();
+        elements.add( reactorProject.getBuild().getOutputDirectory() );
+        try
+        {
+            ScopeArtifactFilter compileScope = new ScopeArtifactFilter( Artifact.SCOPE_COMPILE );
+            Set<Artifact> externalArtifacts = new LinkedHashSet<>();
+            for ( Artifact artifact : (Set<Artifact>) reactorProject.createArtifacts( artifactFactory, null,
+                                                                                       compileScope ) )
+            {
+                MavenProject dependencyProject = getReactorProject( artifact );
+                if ( dependencyProject == null )
+                {
+                    externalArtifacts.add( artifact );
+                }
+                else if ( !visited.contains( dependencyProject ) )
+                {
+                    elements.addAll( getCompileClasspathElements( dependencyProject, visited ) );
+                }
+            }
+
+            if ( !externalArtifacts.isEmpty() )
+            {
+                ArtifactResolutionResult result = artifactResolver.resolveTransitively( externalArtifacts,
+                        reactorProject.getArtifact(), reactorProject.getManagedVersionMap(), localRepository,
+                        reactorProject.getRemoteArtifactRepositories(), artifactMetadataSource, compileScope );
+                for ( Artifact artifact : (Set<Artifact>) result.getArtifacts() )
+                {
+                    if ( artifact.getArtifactHandler().isAddedToClasspath() && artifact.getFile() != null )
+                    {
+                        elements.add( artifact.getFile().getPath() );
+                    }
+                }
+            }
+        }
+        catch ( InvalidDependencyVersionException | ArtifactResolutionException | ArtifactNotFoundException e )
+        {
+            throw new MojoExecutionException( "Unable to resolve the dependencies of " + reactorProject.getId()
+                    + ": " + e.getMessage(), e );
+        }
+        return new ArrayList<>( elements );
+    }
+
+    private MavenProject getReactorProject( Artifact artifact )
+    {
+        String key = ArtifactUtils.versionlessKey( artifact );
+        for ( MavenProject reactorProject : reactorProjects )
+        {
+            if ( key.equals( ArtifactUtils.versionlessKey( reactorProject.getGroupId(),
+                                                           reactorProject.getArtifactId() ) ) )
+            {
+                return reactorProject;
+            }
+        }
+        return null;
+    }
+}
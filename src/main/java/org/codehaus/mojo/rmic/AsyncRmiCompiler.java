@@ -0,0 +1,198 @@
+package org.codehaus.mojo.rmic;
+
+/*
+ * Copyright (c) 2026, Codehaus.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs rmi compilations in the background, for tools which embed the compiler and wish to overlap stub generation
+ * with other work. Each configuration submitted is compiled by the supplied executor and returns a
+ * {@link RmiCompilation} which reports the outcome for each class, the files written and the time taken.
+ * <p>
+ * Each compilation writes to its own staging directory, from which its files are then moved to the output directory,
+ * so that the files reported are exactly those it generated, even while other compilations write to the same
+ * packages. The files generated before a compiler fails are still moved into place.
+ * </p>
+ * <p>
+ * Cancelling a compilation interrupts it: the compiler stops before its next batch of classes and a forked compiler
+ * process is destroyed. A compiler running in process completes its current batch.
+ * </p>
+ */
+public class AsyncRmiCompiler
+{
+    private final RmiCompiler compiler;
+
+    private final Executor executor;
+
+    /**
+     * Creates an asynchronous compiler using the built-in rmi compiler.
+     *
+     * @param executor the executor which will run the compilations
+     */
+    public AsyncRmiCompiler( Executor executor )
+    {
+        this( new BuiltInRmiCompiler(), executor );
+    }
+
+    /**
+     * Creates an asynchronous compiler.
+     *
+     * @param compiler the compiler to run. It must be safe to run concurrently if the executor uses several threads.
+     * @param executor the executor which will run the compilations
+     */
+    public AsyncRmiCompiler( RmiCompiler compiler, Executor executor )
+    {
+        this.compiler = compiler;
+        this.executor = executor;
+    }
+
+    /**
+     * Defines the logger to be used by the compiler.
+     */
+    public void setLog( Log log )
+    {
+        compiler.setLog( log );
+    }
+
+    /**
+     * Submits a configuration for compilation.
+     *
+     * @param configuration the configuration, whose source files name the classes to compile relative to the class
+     *                      path
+     * @return the compilation, which completes when the compiler does
+     */
+    public RmiCompilation submit( final RmiCompilerConfiguration configuration )
+    {
+        RmiCompilation compilation = new RmiCompilation( configuration, new Callable<RmiCompilationResult>()
+        {
+            public RmiCompilationResult call()
+            {
+                return compile( configuration );
+            }
+        } );
+        executor.execute( compilation );
+        return compilation;
+    }
+
+    /**
+     * Submits several configurations for compilation. They are compiled independently, so may run concurrently if
+     * the executor permits.
+     *
+     * @param configurations the configurations to compile
+     * @return the compilations, in the order of the configurations
+     */
+    public List<RmiCompilation> submitAll( Collection<RmiCompilerConfiguration> configurations )
+    {
+        List<RmiCompilation> compilations = new ArrayList<>();
+        for ( RmiCompilerConfiguration configuration : configurations )
+        {
+            compilations.add( submit( configuration ) );
+        }
+        return compilations;
+    }
+
+    private RmiCompilationResult compile( RmiCompilerConfiguration configuration )
+    {
+        Set<String> classNames = new TreeSet<>();
+        for ( File sourceFile : configuration.getSourceFiles() )
+        {
+            classNames.add( AbstractRmiCompiler.fileToClassName( sourceFile.getPath() ) );
+        }
+
+        long start = System.currentTimeMillis();
+        File outputDirectory = new File( configuration.getOutputLocation() ).getAbsoluteFile();
+        List<String> generated = Collections.emptyList();
+        RmiCompilerException failure = null;
+        try
+        {
+            File stagingDirectory = StagingRmiCompiler.createStagingDirectory( outputDirectory );
+            try
+            {
+                failure = compileTo( configuration, stagingDirectory );
+                generated = StagingRmiCompiler.publish( stagingDirectory, outputDirectory );
+            }
+            finally
+            {
+                deleteStagingDirectory( stagingDirectory );
+            }
+        }
+        catch ( RmiCompilerException e )
+        {
+            failure = e;
+        }
+        catch ( IOException e )
+        {
+            failure = new RmiCompilerException( "Unable to publish generated classes to " + outputDirectory, e );
+        }
+        return RmiCompilationResult.create( configuration, classNames, generated, System.currentTimeMillis() - start,
+                                            failure );
+    }
+
+    /**
+     * Runs the compiler with its output redirected to a staging directory.
+     *
+     * @return the failure reported by the compiler, or null if it succeeded
+     */
+    private RmiCompilerException compileTo( RmiCompilerConfiguration configuration, File stagingDirectory )
+    {
+        String outputLocation = configuration.getOutputLocation();
+        configuration.setOutputLocation( stagingDirectory.getPath() );
+        try
+        {
+            compiler.execute( configuration );
+            return null;
+        }
+        catch ( RmiCompilerException e )
+        {
+            return e;
+        }
+        finally
+        {
+            configuration.setOutputLocation( outputLocation );
+        }
+    }
+
+    private void deleteStagingDirectory( File stagingDirectory )
+    {
+        try
+        {
+            FileUtils.deleteDirectory( stagingDirectory );
+        }
+        catch ( IOException e )
+        {
+            compiler.getLog().warn( "Unable to delete " + stagingDirectory + ": " + e );
+        }
+    }
+}
@@ -45,6 +45,15 @@ class BuiltInRmiCompiler extends AbstractRmiCompiler
                                     " Built-in RMIC compiler not available in JDK9."
                                   + " Add a dependency on org.glassfish.corba:rmic to the plugin.";
 
+    BuiltInRmiCompiler()
+    {
+    }
+
+    BuiltInRmiCompiler( ClassLoaderFacade classLoaderFacade )
+    {
+        super( classLoaderFacade );
+    }
+
     @Override
     protected Class<?> createMainClass()
         throws CompilerException
@@ -98,7 +107,7 @@ class BuiltInRmiCompiler extends AbstractRmiCompiler
     }
 
 
-    private static void addToolsJarToPath() throws MalformedURLException, ClassNotFoundException, CompilerException
+    private void addToolsJarToPath() throws MalformedURLException, ClassNotFoundException, CompilerException
     {
         URL toolsJarUrl = getToolsJarUrl();
         getClassLoaderFacade().prependUrls( toolsJarUrl );
@@ -0,0 +1,205 @@
+package org.codehaus.mojo.rmic;
+
+/*
+ * Copyright (c) 2026, Codehaus.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.codehaus.plexus.compiler.util.scan.InclusionScanException;
+import org.codehaus.plexus.compiler.util.scan.SimpleSourceInclusionScanner;
+import org.codehaus.plexus.compiler.util.scan.SourceInclusionScanner;
+import org.codehaus.plexus.compiler.util.scan.mapping.SuffixMapping;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Verifies that the generated rmi stubs are current, without running the rmi compiler. The classes which the
+ * <code>rmic</code> goal would compile are found with the same includes and excludes, and for each one the
+ * remote interfaces, interface hash and method hashes recorded in its stub are compared with those computed from
+ * the class files. The build fails at the first stub which is missing or out of date. IIOP stubs and IDL files are
+ * not checked. With the <code>required</code> stub policy, a remote class in the classes directory which needs no
+ * stub may have none.
+ *
+ * @since 1.3.1
+ */
+@Mojo( name = "check", defaultPhase = LifecyclePhase.VERIFY, requiresDependencyResolution = ResolutionScope.COMPILE,
+       threadSafe = true )
+public class CheckRmicMojo
+        extends RmicMojo
+{
+    private static final String STUB_SUFFIX = "_Stub";
+
+    public CheckRmicMojo()
+    {
+    }
+
+    CheckRmicMojo( DependenciesFacade dependencies )
+    {
+        super( dependencies );
+    }
+
+    @Override
+    public void execute() throws MojoExecutionException
+    {
+        List<Source> sources = getEffectiveSources();
+        for ( RmicModule module : getModules() )
+        {
+            try ( ClassFileRepository repository = new ClassFileRepository( getClasspath( module ) ) )
+            {
+                RemoteClassAnalyzer analyzer = new RemoteClassAnalyzer( repository );
+                StubVerifier verifier = new StubVerifier( analyzer );
+                StubRequirementAnalyzer requirements = isStubPolicyRequired()
+                        ? new StubRequirementAnalyzer( module.getClassesDirectory() ) : null;
+                int count = 0;
+                for ( Source source : sources )
+                {
+                    if ( source.isIiop() )
+                    {
+                        getLog().warn( "Skipping verification of IIOP stubs: " + source.getIncludes() );
+                        continue;
+                    }
+                    if ( source.isIdl() )
+                    {
+                        getLog().warn( "Skipping verification of IDL files: " + source.getIncludes() );
+                        continue;
+                    }
+                    count += verifyStubs( source, module, repository, analyzer, verifier, requirements );
+                }
+                getLog().info( "Verified " + count + " rmi stubs" );
+            }
+            catch ( IOException e )
+            {
+                throw new MojoExecutionException( "Unable to read classes for stub verification: " + e.getMessage(),
+                                                  e );
+            }
+        }
+    }
+
+    /**
+     * Verifies the stubs of the classes selected by a source configuration.
+     *
+     * @param requirements decides whether a remote class without a stub needs one, or null if every one does
+     * @return the number of stubs verified
+     */
+    private int verifyStubs( Source source, RmicModule module, ClassFileRepository repository,
+                             RemoteClassAnalyzer analyzer, StubVerifier verifier,
+                             StubRequirementAnalyzer requirements )
+        throws MojoExecutionException, IOException
+    {
+        int count = 0;
+        for ( File classFile : getCandidateClasses( source, module ) )
+        {
+            if ( !classFile.getName().endsWith( ".class" ) )
+            {
+                continue;
+            }
+
+            ClassFileInfo implementation = repository.getClass( classFile );
+            if ( !analyzer.isRemoteImplementation( implementation ) )
+            {
+                continue;
+            }
+            String className = implementation.getName().replace( '/', '.' );
+            if ( requirements != null && !getStubFile( module, implementation ).isFile()
+                    && requirements.getReason( source, className ) == null )
+            {
+                getLog().debug( className + " needs no stub, as a dynamic proxy may be used" );
+                continue;
+            }
+            verifyStub( module, repository, verifier, implementation );
+            count++;
+        }
+
+        for ( String include : source.getIncludes() )
+        {
+            if ( include.contains( "*" ) || new File( module.getClassesDirectory(), include ).exists() )
+            {
+                continue;
+            }
+            ClassFileInfo implementation = repository.getClass( include.replaceFirst( "\\.class$", "" ) );
+            verifyStub( module, repository, verifier, implementation );
+            count++;
+        }
+        return count;
+    }
+
+    private void verifyStub( RmicModule module, ClassFileRepository repository, StubVerifier verifier,
+                             ClassFileInfo implementation )
+        throws MojoExecutionException, IOException
+    {
+        String className = implementation.getName().replace( '/', '.' );
+        File stubFile = getStubFile( module, implementation );
+        if ( !stubFile.isFile() )
+        {
+            throw new MojoExecutionException( "No rmi stub found for " + className + ": expected " + stubFile );
+        }
+
+        String mismatch = verifier.findMismatch( implementation, repository.getClass( stubFile ) );
+        if ( mismatch != null )
+        {
+            throw new MojoExecutionException( "The rmi stub for " + className + " is out of date: " + mismatch );
+        }
+    }
+
+    private static File getStubFile( RmicModule module, ClassFileInfo implementation )
+    {
+        return new File( module.getOutputDirectory(), implementation.getName() + STUB_SUFFIX + ".class" );
+    }
+
+    private Set<File> getCandidateClasses( Source source, RmicModule module ) throws MojoExecutionException
+    {
+        if ( !module.getClassesDirectory().isDirectory() )
+        {
+            return new TreeSet<>();
+        }
+
+        try
+        {
+            SourceInclusionScanner scanner = new SimpleSourceInclusionScanner( source.getIncludes(),
+                                                                               getExcludes( source ) );
+            scanner.addSourceMapping( new SuffixMapping( ".class", STUB_SUFFIX + ".class" ) );
+            return new TreeSet<>( scanner.getIncludedSources( module.getClassesDirectory(),
+                                                              module.getOutputDirectory() ) );
+        }
+        catch ( InclusionScanException e )
+        {
+            throw new MojoExecutionException( "Problem while scanning for classes: " + e.getMessage(), e );
+        }
+    }
+
+    private static List<File> getClasspath( RmicModule module )
+    {
+        List<File> classpath = new ArrayList<>();
+        for ( String element : module.getClasspathElements() )
+        {
+            classpath.add( new File( element ) );
+        }
+        return classpath;
+    }
+}
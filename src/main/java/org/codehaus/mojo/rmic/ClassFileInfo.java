@@ -0,0 +1,455 @@
+package org.codehaus.mojo.rmic;
+
+/*
+ * Copyright (c) 2026, Codehaus.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The parts of a class file needed to analyze remote classes and their stubs, read directly from the bytecode
+ * so that the class need not be loaded.
+ */
+class ClassFileInfo
+{
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int ACC_INTERFACE = 0x0200;
+
+    private static final int CONSTANT_UTF8 = 1;
+
+    private static final int CONSTANT_INTEGER = 3;
+
+    private static final int CONSTANT_FLOAT = 4;
+
+    private static final int CONSTANT_LONG = 5;
+
+    private static final int CONSTANT_DOUBLE = 6;
+
+    private static final int CONSTANT_CLASS = 7;
+
+    private static final int CONSTANT_STRING = 8;
+
+    private static final int CONSTANT_METHODREF = 10;
+
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+
+    private static final int CONSTANT_METHOD_TYPE = 16;
+
+    private static final int CONSTANT_MODULE = 19;
+
+    private static final int CONSTANT_PACKAGE = 20;
+
+    private final String name;
+
+    private final String superName;
+
+    private final int accessFlags;
+
+    private final List<String> interfaces;
+
+    private final List<Member> fields;
+
+    private final List<Member> methods;
+
+    private final Set<Long> longConstants;
+
+    private final Set<String> classReferences;
+
+    private final Set<String> methodReferences;
+
+    ClassFileInfo( String name, String superName, int accessFlags, List<String> interfaces, List<Member> fields,
+                   List<Member> methods, Set<Long> longConstants, Set<String> classReferences,
+                   Set<String> methodReferences )
+    {
+        this.name = name;
+        this.superName = superName;
+        this.accessFlags = accessFlags;
+        this.interfaces = Collections.unmodifiableList( interfaces );
+        this.fields = Collections.unmodifiableList( fields );
+        this.methods = Collections.unmodifiableList( methods );
+        this.longConstants = Collections.unmodifiableSet( longConstants );
+        this.classReferences = Collections.unmodifiableSet( classReferences );
+        this.methodReferences = Collections.unmodifiableSet( methodReferences );
+    }
+
+    /**
+     * Returns the internal name of the class, for example <code>java/rmi/Remote</code>.
+     */
+    String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the internal name of the superclass, or null for <code>java/lang/Object</code>.
+     */
+    String getSuperName()
+    {
+        return superName;
+    }
+
+    int getAccessFlags()
+    {
+        return accessFlags;
+    }
+
+    boolean isInterface()
+    {
+        return ( accessFlags & ACC_INTERFACE ) != 0;
+    }
+
+    /**
+     * Returns the internal names of the interfaces directly implemented by the class, in declaration order.
+     */
+    List<String> getInterfaces()
+    {
+        return interfaces;
+    }
+
+    List<Member> getFields()
+    {
+        return fields;
+    }
+
+    List<Member> getMethods()
+    {
+        return methods;
+    }
+
+    /**
+     * Returns the field with the specified name, or null if there is none.
+     */
+    Member getField( String fieldName )
+    {
+        for ( Member field : fields )
+        {
+            if ( field.getName().equals( fieldName ) )
+            {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the values of all long constants in the constant pool.
+     */
+    Set<Long> getLongConstants()
+    {
+        return longConstants;
+    }
+
+    /**
+     * Returns the internal names of the classes referenced from the constant pool, either as classes or as strings
+     * which could be class names, such as those passed to <code>Class.forName</code>. Only read if requested.
+     */
+    Set<String> getClassReferences()
+    {
+        return classReferences;
+    }
+
+    /**
+     * Returns the methods referenced from the constant pool, each as the internal name of its class, a dot, its name
+     * and its descriptor, for example <code>java/lang/Object.toString()Ljava/lang/String;</code>. Only read if
+     * requested.
+     */
+    Set<String> getMethodReferences()
+    {
+        return methodReferences;
+    }
+
+    /**
+     * Reads the class file from the specified stream, without the classes and methods it references. The stream is
+     * not closed.
+     *
+     * @param in the stream containing the class file
+     * @return the information read
+     * @throws IOException if the stream cannot be read or does not contain a class file
+     */
+    static ClassFileInfo read( InputStream in ) throws IOException
+    {
+        return read( in, false );
+    }
+
+    /**
+     * Reads the class file from the specified stream. The stream is not closed.
+     *
+     * @param in the stream containing the class file
+     * @param readReferences true if the classes and methods referenced by the class are to be read
+     * @return the information read
+     * @throws IOException if the stream cannot be read or does not contain a class file
+     */
+    static ClassFileInfo read( InputStream in, boolean readReferences ) throws IOException
+    {
+        DataInputStream data = new DataInputStream( in );
+        if ( data.readInt() != MAGIC )
+        {
+            throw new IOException( "Not a class file" );
+        }
+        data.readUnsignedShort(); // minor version
+        data.readUnsignedShort(); // major version
+
+        int poolSize = data.readUnsignedShort();
+        Object[] pool = new Object[poolSize];
+        int[] classNameIndexes = new int[poolSize];
+        int[] references = new int[poolSize];
+        byte[] tags = new byte[poolSize];
+        Set<Long> longConstants = new HashSet<>();
+        for ( int i = 1; i < poolSize; i++ )
+        {
+            int tag = data.readUnsignedByte();
+            tags[i] = (byte) tag;
+            switch ( tag )
+            {
+                case CONSTANT_UTF8:
+                    pool[i] = data.readUTF();
+                    break;
+                case CONSTANT_INTEGER:
+                    pool[i] = data.readInt();
+                    break;
+                case CONSTANT_FLOAT:
+                    pool[i] = data.readFloat();
+                    break;
+                case CONSTANT_LONG:
+                    pool[i] = data.readLong();
+                    longConstants.add( (Long) pool[i++] );
+                    break;
+                case CONSTANT_DOUBLE:
+                    pool[i++] = data.readDouble();
+                    break;
+                case CONSTANT_CLASS:
+                    classNameIndexes[i] = data.readUnsignedShort();
+                    break;
+                case CONSTANT_STRING:
+                    references[i] = data.readUnsignedShort();
+                    break;
+                case CONSTANT_METHODREF:
+                case CONSTANT_INTERFACE_METHODREF:
+                case CONSTANT_NAME_AND_TYPE:
+                    references[i] = data.readInt();
+                    break;
+                case CONSTANT_METHOD_TYPE:
+                case CONSTANT_MODULE:
+                case CONSTANT_PACKAGE:
+                    data.readUnsignedShort();
+                    break;
+                case CONSTANT_METHOD_HANDLE:
+                    data.readUnsignedByte();
+                    data.readUnsignedShort();
+                    break;
+                default:
+                    // field references, dynamic and invoke dynamic
+                    data.readInt();
+            }
+        }
+
+        int accessFlags = data.readUnsignedShort();
+        String name = getClassName( pool, classNameIndexes, data.readUnsignedShort() );
+        int superIndex = data.readUnsignedShort();
+        String superName = superIndex == 0 ? null : getClassName( pool, classNameIndexes, superIndex );
+
+        int interfaceCount = data.readUnsignedShort();
+        List<String> interfaces = new ArrayList<>( interfaceCount );
+        for ( int i = 0; i < interfaceCount; i++ )
+        {
+            interfaces.add( getClassName( pool, classNameIndexes, data.readUnsignedShort() ) );
+        }
+
+        List<Member> fields = readMembers( data, pool, classNameIndexes );
+        List<Member> methods = readMembers( data, pool, classNameIndexes );
+
+        Set<String> classReferences = new HashSet<>();
+        Set<String> methodReferences = new HashSet<>();
+        if ( readReferences )
+        {
+            readReferences( pool, tags, classNameIndexes, references, classReferences, methodReferences );
+        }
+        return new ClassFileInfo( name, superName, accessFlags, interfaces, fields, methods, longConstants,
+                                  classReferences, methodReferences );
+    }
+
+    private static void readReferences( Object[] pool, byte[] tags, int[] classNameIndexes, int[] references,
+                                        Set<String> classReferences, Set<String> methodReferences )
+        throws IOException
+    {
+        for ( int i = 1; i < pool.length; i++ )
+        {
+            switch ( tags[i] )
+            {
+                case CONSTANT_CLASS:
+                    classReferences.add( toElementName( getClassName( pool, classNameIndexes, i ) ) );
+                    break;
+                case CONSTANT_STRING:
+                    classReferences.add( ( (String) pool[references[i]] ).replace( '.', '/' ) );
+                    break;
+                case CONSTANT_METHODREF:
+                case CONSTANT_INTERFACE_METHODREF:
+                    int nameAndType = references[i] & 0xFFFF;
+                    methodReferences.add( getClassName( pool, classNameIndexes, references[i] >>> 16 ) + '.'
+                        + pool[references[nameAndType] >>> 16] + pool[references[nameAndType] & 0xFFFF] );
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Returns the name of the element class of an array class, or the name itself for any other class.
+     */
+    private static String toElementName( String className )
+    {
+        int start = className.lastIndexOf( '[' ) + 1;
+        return start > 0 && className.startsWith( "L", start )
+            ? className.substring( start + 1, className.length() - 1 ) : className;
+    }
+
+    private static List<Member> readMembers( DataInputStream data, Object[] pool, int[] classNameIndexes )
+        throws IOException
+    {
+        int count = data.readUnsignedShort();
+        List<Member> members = new ArrayList<>( count );
+        for ( int i = 0; i < count; i++ )
+        {
+            int accessFlags = data.readUnsignedShort();
+            String memberName = (String) pool[data.readUnsignedShort()];
+            String descriptor = (String) pool[data.readUnsignedShort()];
+            Object constantValue = null;
+            List<String> exceptions = new ArrayList<>();
+
+            int attributeCount = data.readUnsignedShort();
+            for ( int j = 0; j < attributeCount; j++ )
+            {
+                String attributeName = (String) pool[data.readUnsignedShort()];
+                int length = data.readInt();
+                if ( "ConstantValue".equals( attributeName ) )
+                {
+                    constantValue = pool[data.readUnsignedShort()];
+                }
+                else if ( "Exceptions".equals( attributeName ) )
+                {
+                    int exceptionCount = data.readUnsignedShort();
+                    for ( int k = 0; k < exceptionCount; k++ )
+                    {
+                        exceptions.add( getClassName( pool, classNameIndexes, data.readUnsignedShort() ) );
+                    }
+                }
+                else
+                {
+                    skipFully( data, length );
+                }
+            }
+            members.add( new Member( accessFlags, memberName, descriptor, constantValue, exceptions ) );
+        }
+        return members;
+    }
+
+    private static String getClassName( Object[] pool, int[] classNameIndexes, int index ) throws IOException
+    {
+        if ( index <= 0 || index >= pool.length || classNameIndexes[index] == 0 )
+        {
+            throw new IOException( "Invalid class reference in constant pool: " + index );
+        }
+        return (String) pool[classNameIndexes[index]];
+    }
+
+    private static void skipFully( DataInputStream data, int length ) throws IOException
+    {
+        int remaining = length;
+        while ( remaining > 0 )
+        {
+            int skipped = data.skipBytes( remaining );
+            if ( skipped <= 0 )
+            {
+                throw new IOException( "Unexpected end of class file" );
+            }
+            remaining -= skipped;
+        }
+    }
+
+    /**
+     * A field or method of a class.
+     */
+    static class Member
+    {
+        private final int accessFlags;
+
+        private final String name;
+
+        private final String descriptor;
+
+        private final Object constantValue;
+
+        private final List<String> exceptions;
+
+        Member( int accessFlags, String name, String descriptor, Object constantValue, List<String> exceptions )
+        {
+            this.accessFlags = accessFlags;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.constantValue = constantValue;
+            this.exceptions = Collections.unmodifiableList( exceptions );
+        }
+
+        int getAccessFlags()
+        {
+            return accessFlags;
+        }
+
+        String getName()
+        {
+            return name;
+        }
+
+        String getDescriptor()
+        {
+            return descriptor;
+        }
+
+        /**
+         * Returns the value of a constant field, or null if the field has no constant value.
+         */
+        Object getConstantValue()
+        {
+            return constantValue;
+        }
+
+        /**
+         * Returns the internal names of the exceptions declared by a method.
+         */
+        List<String> getExceptions()
+        {
+            return exceptions;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package org.codehaus.mojo.rmic;
+
+/*
+ * Copyright (c) 2026, Codehaus.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+
+/**
+ * Reads class files from a class path without loading the classes. Classes not found on the class path are read
+ * from the running JDK. Jar files are opened when first needed and held open until the repository is closed, unless
+ * they are read through a {@link JarIndexCache}, which keeps them open for other readers.
+ */
+class ClassFileRepository implements Closeable
+{
+    private final List<File> classpath;
+
+    private final Map<File, JarFile> openJars = new LinkedHashMap<>();
+
+    private final Map<String, ClassFileInfo> classes = new HashMap<>();
+
+    private final JarIndexCache jars;
+
+    /**
+     * Creates a repository.
+     *
+     * @param classpath the directories and jar files to search, in order
+     */
+    ClassFileRepository( List<File> classpath )
+    {
+        this( classpath, null );
+    }
+
+    /**
+     * Creates a repository which reads jar files through a cache.
+     *
+     * @param classpath the directories and jar files to search, in order
+     * @param jars the cache through which jars are read, or null to open them in this repository
+     */
+    ClassFileRepository( List<File> classpath, JarIndexCache jars )
+    {
+        this.classpath = new ArrayList<>( classpath );
+        this.jars = jars;
+    }
+
+    /**
+     * Returns the class with the specified internal name.
+     *
+     * @param name the internal name of the class, for example <code>java/rmi/Remote</code>
+     * @return the class information
+     * @throws IOException if the class cannot be found or read
+     */
+    ClassFileInfo getClass( String name ) throws IOException
+    {
+        ClassFileInfo info = classes.get( name );
+        if ( info == null )
+        {
+            info = readClass( name );
+            classes.put( name, info );
+        }
+        return info;
+    }
+
+    /**
+     * Reads a class from the specified file, adding it to the repository.
+     *
+     * @param classFile the class file
+     * @return the class information
+     * @throws IOException if the file cannot be read
+     */
+    ClassFileInfo getClass( File classFile ) throws IOException
+    {
+        ClassFileInfo info;
+        try ( InputStream in = new FileInputStream( classFile ) )
+        {
+            info = ClassFileInfo.read( in );
+        }
+        classes.put( info.getName(), info );
+        return info;
+    }
+
+    private ClassFileInfo readClass( String name ) throws IOException
+    {
+        String resourceName = name + ".class";
+        try ( InputStream in = openClass( resourceName ) )
+        {
+            if ( in == null )
+            {
+                throw new IOException( "Class not found: " + name.replace( '/', '.' ) );
+            }
+            return ClassFileInfo.read( in );
+        }
+    }
+
+    private InputStream openClass( String resourceName ) throws IOException
+    {
+        for ( File entry : classpath )
+        {
+            if ( entry.isDirectory() )
+            {
+                File classFile = new File( entry, resourceName );
+                if ( classFile.isFile() )
+                {
+                    return new FileInputStream( classFile );
+                }
+            }
+            else if ( entry.isFile() && jars != null )
+            {
+                byte[] contents = jars.readIfPresent( entry, resourceName );
+                if ( contents != null )
+                {
+                    return new ByteArrayInputStream( contents );
+                }
+            }
+            else if ( entry.isFile() )
+            {
+                JarFile jar = getJar( entry );
+                ZipEntry classEntry = jar.getEntry( resourceName );
+                if ( classEntry != null )
+                {
+                    return jar.getInputStream( classEntry );
+                }
+            }
+        }
+        return ClassLoader.getSystemResourceAsStream( resourceName );
+    }
+
+    private JarFile getJar( File file ) throws IOException
+    {
+        JarFile jar = openJars.get( file );
+        if ( jar == null )
+        {
+            jar = new JarFile( file );
+            openJars.put( file, jar );
+        }
+        return jar;
+    }
+
+    /**
+     * Closes the jar files opened by this repository.
+     */
+    public void close() throws IOException
+    {
+        IOException failure = null;
+        for ( JarFile jar : openJars.values() )
+        {
+            try
+            {
+                jar.close();
+            }
+            catch ( IOException e )
+            {
+                failure = e;
+            }
+        }
+        openJars.clear();
+        if ( failure != null )
+        {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,647 @@
+package org.codehaus.mojo.rmic;
+
+/*
+ * Copyright (c) 2026, Codehaus.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarFile;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+/**
+ * Answers whether classes on a class path are remote classes by reading their class files rather than loading them.
+ * The super class, interfaces and kind of each class read are kept in a cache file between builds. Classes from a jar
+ * are kept for as long as the jar's fingerprint is unchanged, and classes from a directory for as long as the size and
+ * modification time of their class files are unchanged, so that a later build reads only the class files which have
+ * changed. The cache file is read through a buffered stream when loaded, and replaced when the hierarchy is closed;
+ * it is not memory-mapped, since on Windows a mapped file cannot be replaced until the mapping is garbage collected.
+ * Within a single Maven process, the classes read from each jar are also shared by all hierarchies through a
+ * {@link JarIndexCache}. Classes may be looked up from several threads at once.
+ * <p>
+ * Only the super types of each class are cached, not whether it is remote, nor its remote methods. Whether a class is
+ * remote depends on every class path element which supplies one of its super types, and so cannot be kept with the
+ * class itself, while walking the cached super types to decide it costs nothing. The remote methods are never needed
+ * to find remote classes; the checks which compare them read the class files themselves.
+ * <p>
+ * Several modules may search the same hierarchy through views created by {@link #withClasspath(List)}. The classes read
+ * from a class path element are then shared by all views, but each view resolves class names against its own class
+ * path, so that a class which appears in more than one module, or in different versions of a dependency, is found
+ * where that module would find it.
+ */
+class ClassHierarchy implements Closeable
+{
+    private static final int MAGIC = 0x524d4943;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final byte DIRECTORY = 0;
+
+    private static final byte JAR = 1;
+
+    private static final byte JDK = 2;
+
+    private static final int PARSED = 1;
+
+    private static final int INTERFACE = 2;
+
+    private static final String REMOTE = "java/rmi/Remote";
+
+    private static final String OBJECT = "java/lang/Object";
+
+    private static final String JDK_PATH = "<jdk>";
+
+    private static final String JDK_FINGERPRINT =
+            System.getProperty( "java.home" ) + ':' + System.getProperty( "java.version" );
+
+    private static final int MAX_INDEXED_JARS = 2000;
+
+    private static final int MAX_OPEN_JARS = 200;
+
+    /** The jar indexes shared by all hierarchies, and by the other readers of dependency jars in the process. */
+    static final JarIndexCache SHARED_JARS = new JarIndexCache( MAX_INDEXED_JARS, MAX_OPEN_JARS );
+
+    private final ClassHierarchy root;
+
+    private final JarIndexCache jars;
+
+    private final List<File> classpath;
+
+    private final File cacheFile;
+
+    private final Map<String, Origin> cachedOrigins;
+
+    private final Map<String, Origin> origins;
+
+    private final Map<String, Boolean> remoteTypes = new ConcurrentHashMap<>();
+
+    private volatile boolean changed;
+
+    /**
+     * Creates a hierarchy, loading the cache file left by a previous build if there is one.
+     *
+     * @param classpath the directories and jar files to search, in order
+     * @param cacheFile the file in which to keep the hierarchy between builds, or null to keep it only in memory
+     */
+    ClassHierarchy( List<File> classpath, File cacheFile )
+    {
+        this( classpath, cacheFile, SHARED_JARS );
+    }
+
+    /**
+     * Creates a hierarchy which shares the classes read from jars through the specified cache.
+     *
+     * @param classpath the directories and jar files to search, in order
+     * @param cacheFile the file in which to keep the hierarchy between builds, or null to keep it only in memory
+     * @param jars the cache of jar indexes
+     */
+    ClassHierarchy( List<File> classpath, File cacheFile, JarIndexCache jars )
+    {
+        this.root = this;
+        this.jars = jars;
+        jars.acquire();
+        this.classpath = new ArrayList<>( classpath );
+        this.cacheFile = cacheFile;
+        this.cachedOrigins = cacheFile != null && cacheFile.isFile() ? load( cacheFile )
+                : Collections.<String, Origin>emptyMap();
+        this.origins = new ConcurrentHashMap<>();
+    }
+
+    private ClassHierarchy( ClassHierarchy root, List<File> classpath )
+    {
+        this.root = root;
+        this.jars = root.jars;
+        this.classpath = new ArrayList<>( classpath );
+        this.cacheFile = root.cacheFile;
+        this.cachedOrigins = root.cachedOrigins;
+        this.origins = root.origins;
+    }
+
+    /**
+     * Returns a view of this hierarchy which searches a different class path, such as that of one module of a
+     * multi-module build. Classes read through the view are kept, and saved, with those of this hierarchy.
+     *
+     * @param classpath the directories and jar files to search, in order
+     * @return the view
+     */
+    ClassHierarchy withClasspath( List<File> classpath )
+    {
+        return new ClassHierarchy( root, classpath );
+    }
+
+    /**
+     * Returns true if the named class extends or implements <code>java.rmi.Remote</code>.
+     *
+     * @param className the fully qualified name of the class
+     * @param includeInterfaces if false, interfaces are never reported as remote
+     * @return true if the class is a remote class
+     * @throws IOException if the class or one of its super types cannot be found or read
+     */
+    boolean isRemoteClass( String className, boolean includeInterfaces ) throws IOException
+    {
+        String name = className.replace( '.', '/' );
+        return ( includeInterfaces || !getNode( name ).isInterface() ) && isRemoteType( name );
+    }
+
+    private boolean isRemoteType( String name ) throws IOException
+    {
+        if ( name == null || OBJECT.equals( name ) )
+        {
+            return false;
+        }
+        if ( REMOTE.equals( name ) )
+        {
+            return true;
+        }
+
+        Boolean known = remoteTypes.get( name );
+        if ( known != null )
+        {
+            return known;
+        }
+
+        Node node = getNode( name );
+        boolean remote = isRemoteType( node.superName );
+        for ( int i = 0; !remote && i < node.interfaces.length; i++ )
+        {
+            remote = isRemoteType( node.interfaces[i] );
+        }
+        remoteTypes.put( name, remote );
+        return remote;
+    }
+
+    private Node getNode( String name ) throws IOException
+    {
+        String resourceName = name + ".class";
+        for ( File element : classpath )
+        {
+            if ( element.isDirectory() )
+            {
+                File classFile = new File( element, resourceName );
+                if ( classFile.isFile() )
+                {
+                    return getDirectoryNode( getOrigin( element, DIRECTORY ), name, classFile );
+                }
+            }
+            else if ( element.isFile() )
+            {
+                Origin origin = getOrigin( element, JAR );
+                if ( origin.classes.containsKey( name ) )
+                {
+                    return getJarNode( origin, name, resourceName );
+                }
+            }
+        }
+        return getJdkNode( name, resourceName );
+    }
+
+    private Node getDirectoryNode( Origin origin, String name, File classFile ) throws IOException
+    {
+        Node node = origin.classes.get( name );
+        if ( node == null || node.length != classFile.length() || node.lastModified != classFile.lastModified() )
+        {
+            try ( InputStream in = new FileInputStream( classFile ) )
+            {
+                node = new Node( ClassFileInfo.read( in ), classFile.length(), classFile.lastModified() );
+            }
+            addNode( origin, name, node );
+        }
+        return node;
+    }
+
+    private Node getJarNode( Origin origin, String name, String resourceName ) throws IOException
+    {
+        Node node = origin.classes.get( name );
+        if ( node == Node.UNREAD )
+        {
+            byte[] classFile = jars.read( new File( origin.path ), resourceName );
+            node = new Node( ClassFileInfo.read( new ByteArrayInputStream( classFile ) ), 0, 0 );
+            addNode( origin, name, node );
+        }
+        return node;
+    }
+
+    private Node getJdkNode( String name, String resourceName ) throws IOException
+    {
+        Origin origin = getOrigin( null, JDK );
+        Node node = origin.classes.get( name );
+        if ( node == null )
+        {
+            try ( InputStream in = ClassLoader.getSystemResourceAsStream( resourceName ) )
+            {
+                if ( in == null )
+                {
+                    throw new IOException( "Class not found: " + name.replace( '/', '.' ) );
+                }
+                node = new Node( ClassFileInfo.read( in ), 0, 0 );
+            }
+            addNode( origin, name, node );
+        }
+        return node;
+    }
+
+    private void addNode( Origin origin, String name, Node node )
+    {
+        origin.classes.put( name, node );
+        root.changed = true;
+    }
+
+    /**
+     * Returns the classes known to come from a class path element in this build, reusing those from the cache file
+     * if the element is unchanged.
+     */
+    private Origin getOrigin( File element, byte kind ) throws IOException
+    {
+        String path = element == null ? JDK_PATH : element.getAbsolutePath();
+        Origin origin = origins.get( path );
+        return origin != null ? origin : createOrigin( path, element, kind );
+    }
+
+    private Origin createOrigin( String path, File element, byte kind ) throws IOException
+    {
+        synchronized ( root )
+        {
+            return createOriginLocked( path, element, kind );
+        }
+    }
+
+    private Origin createOriginLocked( String path, File element, byte kind ) throws IOException
+    {
+        Origin origin = origins.get( path );
+        if ( origin == null )
+        {
+            Origin cachedOrigin = cachedOrigins.get( path );
+            origin = kind == JAR ? getJarOrigin( path, element, cachedOrigin ) : cachedOrigin;
+            String fingerprint = kind == JDK ? JDK_FINGERPRINT : kind == JAR ? origin.fingerprint : "";
+            if ( origin == null || origin.kind != kind || !origin.fingerprint.equals( fingerprint ) )
+            {
+                origin = new Origin( path, kind, fingerprint );
+            }
+            if ( origin != cachedOrigin )
+            {
+                root.changed = true;
+            }
+            origins.put( path, origin );
+        }
+        return origin;
+    }
+
+    /**
+     * Returns the classes in a jar, shared with other hierarchies. Classes already read by this or another hierarchy
+     * need not be read again.
+     */
+    private Origin getJarOrigin( String path, File jar, Origin cachedOrigin ) throws IOException
+    {
+        JarIndexCache.JarIndex index = jars.getIndex( jar );
+        synchronized ( index )
+        {
+            Origin origin = index.getOrigin();
+            boolean cacheValid = cachedOrigin != null && cachedOrigin.kind == JAR
+                    && cachedOrigin.fingerprint.equals( index.getFingerprint() );
+            if ( origin == null && cacheValid )
+            {
+                origin = cachedOrigin;
+            }
+            else if ( origin == null )
+            {
+                origin = new Origin( path, JAR, index.getFingerprint() );
+                for ( String className : index.getClassNames() )
+                {
+                    origin.classes.put( className, Node.UNREAD );
+                }
+            }
+            else if ( cacheValid && origin != cachedOrigin )
+            {
+                for ( Map.Entry<String, Node> entry : cachedOrigin.classes.entrySet() )
+                {
+                    if ( entry.getValue() != Node.UNREAD )
+                    {
+                        origin.classes.put( entry.getKey(), entry.getValue() );
+                    }
+                }
+            }
+            index.setOrigin( origin );
+            return origin;
+        }
+    }
+
+    /**
+     * Returns a fingerprint of the contents of a jar, computed from the name, CRC and size of each entry recorded in
+     * its central directory, so that the entries themselves need not be read.
+     *
+     * @param file the jar file
+     * @param jar the open jar
+     * @return the fingerprint
+     */
+    static String getJarFingerprint( File file, JarFile jar )
+    {
+        CRC32 crc = new CRC32();
+        for ( Enumeration<? extends ZipEntry> entries = jar.entries(); entries.hasMoreElements(); )
+        {
+            ZipEntry entry = entries.nextElement();
+            crc.update( ( entry.getName() + ':' + entry.getCrc() + ':' + entry.getSize() + ';' )
+                                .getBytes( StandardCharsets.UTF_8 ) );
+        }
+        return Long.toHexString( crc.getValue() ) + ':' + file.length();
+    }
+
+    /**
+     * Writes the classes read in this build to the cache file, if they differ from those loaded from it, and releases
+     * the jar files used by this hierarchy. Closing a view has no effect; its classes are saved with the hierarchy
+     * from which it was created.
+     */
+    public void close() throws IOException
+    {
+        if ( root != this )
+        {
+            return;
+        }
+
+        try
+        {
+            if ( cacheFile != null && changed )
+            {
+                save();
+            }
+        }
+        finally
+        {
+            jars.release();
+        }
+    }
+
+    private void save() throws IOException
+    {
+        pruneDeletedClasses();
+
+        List<String> strings = new ArrayList<>();
+        Map<String, Integer> indexes = new HashMap<>();
+        for ( Origin origin : origins.values() )
+        {
+            index( origin.path, strings, indexes );
+            for ( Map.Entry<String, Node> entry : origin.classes.entrySet() )
+            {
+                index( entry.getKey(), strings, indexes );
+                Node node = entry.getValue();
+                if ( node != Node.UNREAD )
+                {
+                    index( node.superName, strings, indexes );
+                    for ( String anInterface : node.interfaces )
+                    {
+                        index( anInterface, strings, indexes );
+                    }
+                }
+            }
+        }
+
+        File parent = cacheFile.getAbsoluteFile().getParentFile();
+        if ( !parent.isDirectory() && !parent.mkdirs() )
+        {
+            throw new IOException( "Could not make directory " + parent );
+        }
+        File tempFile = File.createTempFile( cacheFile.getName(), ".tmp", parent );
+        try
+        {
+            try ( DataOutputStream out =
+                          new DataOutputStream( new BufferedOutputStream( new FileOutputStream( tempFile ) ) ) )
+            {
+                out.writeInt( MAGIC );
+                out.writeInt( FORMAT_VERSION );
+                out.writeInt( strings.size() );
+                for ( String string : strings )
+                {
+                    out.writeUTF( string );
+                }
+                out.writeInt( origins.size() );
+                for ( Origin origin : origins.values() )
+                {
+                    writeOrigin( out, origin, indexes );
+                }
+            }
+            Files.move( tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING );
+        }
+        finally
+        {
+            Files.deleteIfExists( tempFile.toPath() );
+        }
+    }
+
+    private void pruneDeletedClasses()
+    {
+        for ( Origin origin : origins.values() )
+        {
+            if ( origin.kind == DIRECTORY )
+            {
+                for ( Iterator<String> names = origin.classes.keySet().iterator(); names.hasNext(); )
+                {
+                    if ( !new File( origin.path, names.next() + ".class" ).isFile() )
+                    {
+                        names.remove();
+                    }
+                }
+            }
+        }
+    }
+
+    private static void index( String string, List<String> strings, Map<String, Integer> indexes )
+    {
+        if ( string != null && !indexes.containsKey( string ) )
+        {
+            indexes.put( string, strings.size() );
+            strings.add( string );
+        }
+    }
+
+    private static void writeOrigin( DataOutputStream out, Origin origin, Map<String, Integer> indexes )
+            throws IOException
+    {
+        out.writeInt( indexes.get( origin.path ) );
+        out.writeByte( origin.kind );
+        out.writeUTF( origin.fingerprint );
+        out.writeInt( origin.classes.size() );
+        for ( Map.Entry<String, Node> entry : origin.classes.entrySet() )
+        {
+            out.writeInt( indexes.get( entry.getKey() ) );
+            Node node = entry.getValue();
+            if ( node == Node.UNREAD )
+            {
+                out.writeByte( 0 );
+                continue;
+            }
+
+            out.writeByte( PARSED | ( node.isInterface() ? INTERFACE : 0 ) );
+            out.writeInt( node.superName == null ? -1 : indexes.get( node.superName ) );
+            out.writeShort( node.interfaces.length );
+            for ( String anInterface : node.interfaces )
+            {
+                out.writeInt( indexes.get( anInterface ) );
+            }
+            if ( origin.kind == DIRECTORY )
+            {
+                out.writeLong( node.length );
+                out.writeLong( node.lastModified );
+            }
+        }
+    }
+
+    /**
+     * Reads a cache file. A file which cannot be read, or was written in another format, is ignored.
+     */
+    private static Map<String, Origin> load( File cacheFile )
+    {
+        try ( DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( cacheFile ) ) ) )
+        {
+            if ( in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION )
+            {
+                return Collections.emptyMap();
+            }
+
+            String[] strings = new String[in.readInt()];
+            for ( int i = 0; i < strings.length; i++ )
+            {
+                strings[i] = in.readUTF();
+            }
+
+            Map<String, Origin> origins = new HashMap<>();
+            for ( int count = in.readInt(); count > 0; count-- )
+            {
+                Origin origin = readOrigin( in, strings );
+                origins.put( origin.path, origin );
+            }
+            return origins;
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            return Collections.emptyMap();
+        }
+    }
+
+    private static Origin readOrigin( DataInputStream in, String[] strings ) throws IOException
+    {
+        String path = strings[in.readInt()];
+        byte kind = in.readByte();
+        Origin origin = new Origin( path, kind, in.readUTF() );
+        for ( int count = in.readInt(); count > 0; count-- )
+        {
+            String name = strings[in.readInt()];
+            int flags = in.readByte();
+            if ( ( flags & PARSED ) == 0 )
+            {
+                origin.classes.put( name, Node.UNREAD );
+                continue;
+            }
+
+            int superIndex = in.readInt();
+            String[] interfaces = new String[in.readUnsignedShort()];
+            for ( int i = 0; i < interfaces.length; i++ )
+            {
+                interfaces[i] = strings[in.readInt()];
+            }
+            long length = kind == DIRECTORY ? in.readLong() : 0;
+            long lastModified = kind == DIRECTORY ? in.readLong() : 0;
+            origin.classes.put( name, new Node( superIndex < 0 ? null : strings[superIndex], interfaces,
+                                                ( flags & INTERFACE ) != 0, length, lastModified ) );
+        }
+        return origin;
+    }
+
+    /**
+     * The classes found in a single class path element, or in the JDK. For a jar, every class it contains is present;
+     * those which have not yet been read map to {@link Node#UNREAD}.
+     */
+    static class Origin
+    {
+        private final String path;
+
+        private final byte kind;
+
+        private final String fingerprint;
+
+        private final Map<String, Node> classes = new ConcurrentHashMap<>();
+
+        Origin( String path, byte kind, String fingerprint )
+        {
+            this.path = path;
+            this.kind = kind;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    /**
+     * The super types of a single class, and for a class in a directory, the size and modification time of its class
+     * file.
+     */
+    private static class Node
+    {
+        private static final Node UNREAD = new Node( null, new String[0], false, 0, 0 );
+
+        private final String superName;
+
+        private final String[] interfaces;
+
+        private final boolean anInterface;
+
+        private final long length;
+
+        private final long lastModified;
+
+        Node( ClassFileInfo info, long length, long lastModified )
+        {
+            this( info.getSuperName(), info.getInterfaces().toArray( new String[info.getInterfaces().size()] ),
+                  info.isInterface(), length, lastModified );
+        }
+
+        Node( String superName, String[] interfaces, boolean anInterface, long length, long lastModified )
+        {
+            this.superName = superName;
+            this.interfaces = interfaces;
+            this.anInterface = anInterface;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        boolean isInterface()
+        {
+            return anInterface;
+        }
+    }
+}
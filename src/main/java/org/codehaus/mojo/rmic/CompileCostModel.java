@@ -0,0 +1,384 @@
+package org.codehaus.mojo.rmic;
+
+/*
+ * Copyright (c) 2026, Codehaus.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Estimates how long each remote class takes to compile, so that the classes of a module may be divided into batches
+ * of about equal cost. A class not compiled before is estimated from the number of methods in its class file, at a
+ * rate per method learned from earlier compilations. Once a class has been compiled, the time taken by its batch is
+ * shared among the classes in the batch in proportion to their estimates, and averaged with those recorded by earlier
+ * builds. The costs are kept in a file between builds. May be used from several threads at once.
+ * <p>
+ * Each invocation of the compiler also takes a fixed time, mostly to read the JDK and class path classes, however few
+ * classes it compiles. This cost and the cost per method are fitted by least squares to the times and method counts
+ * of the batches compiled recently, and only the time a batch took beyond the invocation cost is shared among its
+ * classes. Until batches of different sizes have been seen, the invocation cost is taken to be zero.
+ */
+class CompileCostModel
+{
+    /** The key under which the learned cost of a method is kept in the cost file. */
+    static final String MILLIS_PER_METHOD_KEY = "*millis-per-method";
+
+    /** The key under which the learned cost of an invocation of the compiler is kept in the cost file. */
+    static final String MILLIS_PER_INVOCATION_KEY = "*millis-per-invocation";
+
+    /**
+     * The keys under which the weighted sums fitting the invocation and method costs are kept in the cost file: the
+     * number of batches, and the sums of their method counts, times, squared method counts and products of the two.
+     */
+    private static final String[] FIT_KEYS = { "*fit.batches", "*fit.methods", "*fit.millis", "*fit.methods-squared",
+        "*fit.methods-millis" };
+
+    private static final int BATCHES = 0;
+
+    private static final int METHODS = 1;
+
+    private static final int MILLIS = 2;
+
+    private static final int METHODS_SQUARED = 3;
+
+    private static final int METHODS_MILLIS = 4;
+
+    /** The weight given to the cost recorded by earlier builds when a new cost is observed. */
+    private static final double HISTORY_WEIGHT = 0.5;
+
+    /**
+     * The weight given to earlier batches when a batch is added to the fit. It is higher than the weight given to
+     * earlier costs, so that the fit spans the batches of several builds.
+     */
+    private static final double FIT_HISTORY_WEIGHT = 0.9;
+
+    private final File costFile;
+
+    private final Map<String, Double> costs = new HashMap<>();
+
+    private final Map<String, Integer> methodCounts = new HashMap<>();
+
+    private double millisPerMethod = 1;
+
+    private double millisPerInvocation;
+
+    private final double[] fitSums = new double[FIT_KEYS.length];
+
+    private boolean changed;
+
+    /**
+     * Creates a model, reading the costs recorded by earlier builds if there are any.
+     *
+     * @param costFile the file in which the costs are kept between builds, or null to keep them only in memory
+     */
+    CompileCostModel( File costFile )
+    {
+        this.costFile = costFile;
+        if ( costFile != null && costFile.isFile() )
+        {
+            Properties recorded = new Properties();
+            try ( InputStream in = new FileInputStream( costFile ) )
+            {
+                recorded.load( in );
+                for ( String name : recorded.stringPropertyNames() )
+                {
+                    double cost = Double.parseDouble( recorded.getProperty( name ) );
+                    int fitIndex = Arrays.asList( FIT_KEYS ).indexOf( name );
+                    if ( MILLIS_PER_METHOD_KEY.equals( name ) )
+                    {
+                        millisPerMethod = cost;
+                    }
+                    else if ( MILLIS_PER_INVOCATION_KEY.equals( name ) )
+                    {
+                        millisPerInvocation = cost;
+                    }
+                    else if ( fitIndex >= 0 )
+                    {
+                        fitSums[fitIndex] = cost;
+                    }
+                    else
+                    {
+                        costs.put( name, cost );
+                    }
+                }
+            }
+            catch ( IOException | NumberFormatException e )
+            {
+                costs.clear();
+                millisPerMethod = 1;
+                millisPerInvocation = 0;
+                Arrays.fill( fitSums, 0 );
+            }
+        }
+    }
+
+    /**
+     * Returns the estimated time in milliseconds to compile a class.
+     *
+     * @param classesDirectory the directory containing the class
+     * @param classFile the path of the class file relative to that directory
+     * @return the estimated cost
+     */
+    synchronized double estimate( File classesDirectory, File classFile )
+    {
+        String className = AbstractRmiCompiler.fileToClassName( classFile.getPath() );
+        Double cost = costs.get( className );
+        return cost != null ? cost : getMethodCount( classesDirectory, classFile, className ) * millisPerMethod;
+    }
+
+    /**
+     * Returns the estimated time in milliseconds which an invocation of the compiler takes in addition to the cost of
+     * the classes it compiles.
+     */
+    synchronized double getInvocationCost()
+    {
+        return millisPerInvocation;
+    }
+
+    /**
+     * Divides classes into batches of about equal estimated cost, longest processing time first: each class, costliest
+     * first, is added to the cheapest batch which is not full. The batches are returned costliest first, so that when
+     * they are submitted in order to a pool of workers, no worker is left with a long batch at the end. The invocation
+     * cost is the same for every batch, so it plays no part in dividing the classes.
+     *
+     * @param classesDirectory the directory containing the classes
+     * @param classes the paths of the class files relative to that directory
+     * @param workers the number of compiler invocations which may run at the same time
+     * @param maxBatchSize the largest number of classes in a batch, or 0 for no limit
+     * @return the batches, costliest first
+     */
+    List<Set<File>> partition( File classesDirectory, Collection<File> classes, int workers, int maxBatchSize )
+    {
+        final Map<File, Double> estimates = new HashMap<>();
+        for ( File classFile : classes )
+        {
+            estimates.put( classFile, estimate( classesDirectory, classFile ) );
+        }
+        List<File> sorted = new ArrayList<>( classes );
+        Collections.sort( sorted, new Comparator<File>()
+        {
+            public int compare( File first, File second )
+            {
+                int result = Double.compare( estimates.get( second ), estimates.get( first ) );
+                return result != 0 ? result : first.getPath().compareTo( second.getPath() );
+            }
+        } );
+
+        int batchCount = Math.max( 1, workers );
+        if ( maxBatchSize > 0 )
+        {
+            batchCount = Math.max( batchCount, ( sorted.size() + maxBatchSize - 1 ) / maxBatchSize );
+        }
+        List<Batch> batches = new ArrayList<>();
+        for ( int i = 0; i < Math.min( batchCount, sorted.size() ); i++ )
+        {
+            batches.add( new Batch() );
+        }
+
+        for ( File classFile : sorted )
+        {
+            Batch cheapest = null;
+            for ( Batch batch : batches )
+            {
+                if ( ( maxBatchSize <= 0 || batch.classes.size() < maxBatchSize )
+                        && ( cheapest == null || batch.cost < cheapest.cost ) )
+                {
+                    cheapest = batch;
+                }
+            }
+            cheapest.classes.add( classFile );
+            cheapest.cost += estimates.get( classFile );
+        }
+
+        Collections.sort( batches, new Comparator<Batch>()
+        {
+            public int compare( Batch first, Batch second )
+            {
+                return Double.compare( second.cost, first.cost );
+            }
+        } );
+        List<Set<File>> result = new ArrayList<>();
+        for ( Batch batch : batches )
+        {
+            result.add( batch.classes );
+        }
+        return result;
+    }
+
+    /**
+     * Records the time taken to compile a batch of classes. The batch is first added to the fit of the invocation and
+     * method costs; the time beyond the invocation cost is then shared among the classes.
+     *
+     * @param config the configuration of the batch
+     * @param elapsedMillis the time taken by the compiler
+     */
+    synchronized void record( RmiCompilerConfiguration config, long elapsedMillis )
+    {
+        if ( config.getSourceFiles().isEmpty() || config.getSourceLocations().isEmpty() )
+        {
+            return;
+        }
+
+        File classesDirectory = new File( config.getSourceLocations().get( 0 ) );
+        Map<String, Double> estimates = new HashMap<>();
+        double totalEstimate = 0;
+        int totalMethods = 0;
+        for ( File classFile : config.getSourceFiles() )
+        {
+            String className = AbstractRmiCompiler.fileToClassName( classFile.getPath() );
+            double estimate = estimate( classesDirectory, classFile );
+            estimates.put( className, estimate );
+            totalEstimate += estimate;
+            totalMethods += getMethodCount( classesDirectory, classFile, className );
+        }
+
+        fitInvocationCost( totalMethods, elapsedMillis );
+        double classMillis = Math.max( 0, elapsedMillis - millisPerInvocation );
+        for ( Map.Entry<String, Double> entry : estimates.entrySet() )
+        {
+            double observed = totalEstimate > 0 ? classMillis * entry.getValue() / totalEstimate
+                    : classMillis / estimates.size();
+            Double recorded = costs.get( entry.getKey() );
+            costs.put( entry.getKey(), recorded != null ? average( recorded, observed ) : observed );
+        }
+        changed = true;
+    }
+
+    /**
+     * Writes the costs recorded to the cost file, if they have changed.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    synchronized void save() throws IOException
+    {
+        if ( !changed || costFile == null )
+        {
+            return;
+        }
+
+        Properties recorded = new Properties();
+        recorded.setProperty( MILLIS_PER_METHOD_KEY, Double.toString( millisPerMethod ) );
+        recorded.setProperty( MILLIS_PER_INVOCATION_KEY, Double.toString( millisPerInvocation ) );
+        for ( int i = 0; i < FIT_KEYS.length; i++ )
+        {
+            recorded.setProperty( FIT_KEYS[i], Double.toString( fitSums[i] ) );
+        }
+        for ( Map.Entry<String, Double> entry : costs.entrySet() )
+        {
+            recorded.setProperty( entry.getKey(), Double.toString( entry.getValue() ) );
+        }
+        costFile.getParentFile().mkdirs();
+        try ( OutputStream out = new FileOutputStream( costFile ) )
+        {
+            recorded.store( out, "Milliseconds taken by rmic to compile each remote class" );
+        }
+        changed = false;
+    }
+
+    /**
+     * Adds a batch to the weighted least squares fit of its time against its method count, taking the intercept of
+     * the fitted line as the invocation cost and its slope as the cost per method. While the batches seen do not
+     * determine a line with a positive slope and an intercept of at least zero, the invocation cost is kept and the
+     * rest of the batch's time is averaged into the cost per method.
+     */
+    private void fitInvocationCost( int methods, long elapsedMillis )
+    {
+        for ( int i = 0; i < fitSums.length; i++ )
+        {
+            fitSums[i] *= FIT_HISTORY_WEIGHT;
+        }
+        fitSums[BATCHES] += 1;
+        fitSums[METHODS] += methods;
+        fitSums[MILLIS] += elapsedMillis;
+        fitSums[METHODS_SQUARED] += (double) methods * methods;
+        fitSums[METHODS_MILLIS] += (double) methods * elapsedMillis;
+
+        double spread = fitSums[BATCHES] * fitSums[METHODS_SQUARED] - fitSums[METHODS] * fitSums[METHODS];
+        if ( spread > 1e-9 * fitSums[BATCHES] * fitSums[METHODS_SQUARED] )
+        {
+            double slope = ( fitSums[BATCHES] * fitSums[METHODS_MILLIS] - fitSums[METHODS] * fitSums[MILLIS] ) / spread;
+            double intercept = ( fitSums[MILLIS] - slope * fitSums[METHODS] ) / fitSums[BATCHES];
+            if ( slope > 0 && intercept >= 0 )
+            {
+                millisPerMethod = slope;
+                millisPerInvocation = intercept;
+                return;
+            }
+        }
+        millisPerMethod = average( millisPerMethod, Math.max( 0, elapsedMillis - millisPerInvocation ) / methods );
+    }
+
+    private static double average( double recorded, double observed )
+    {
+        return recorded * HISTORY_WEIGHT + observed * ( 1 - HISTORY_WEIGHT );
+    }
+
+    /**
+     * Returns the number of methods in a class, plus one for the class itself. A class which cannot be read, such as
+     * one included from a jar, counts as having no methods.
+     */
+    private int getMethodCount( File classesDirectory, File classFile, String className )
+    {
+        Integer count = methodCounts.get( className );
+        if ( count == null )
+        {
+            count = 1;
+            File file = classFile.isAbsolute() ? classFile : new File( classesDirectory, classFile.getPath() );
+            try ( InputStream in = new BufferedInputStream( new FileInputStream( file ) ) )
+            {
+                count += ClassFileInfo.read( in ).getMethods().size();
+            }
+            catch ( IOException e )
+            {
+                // estimate from the cost of the class alone
+            }
+            methodCounts.put( className, count );
+        }
+        return count;
+    }
+
+    /**
+     * A batch of classes being assembled, with its total estimated cost.
+     */
+    private static class Batch
+    {
+        private final Set<File> classes = new LinkedHashSet<>();
+
+        private double cost;
+    }
+}
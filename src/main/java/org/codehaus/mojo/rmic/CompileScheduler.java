@@ -0,0 +1,159 @@
+package org.codehaus.mojo.rmic;
+
+/*
+ * Copyright (c) 2026, Codehaus.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs compiler invocations as they are submitted. With a single thread, each invocation runs immediately in the
+ * calling thread; otherwise invocations run on a pool of the specified size and the caller must wait for them
+ * with {@link #awaitCompletion()}.
+ */
+class CompileScheduler
+{
+    private final RmiCompiler rmiCompiler;
+
+    private final ExecutorService executor;
+
+    private final CompileCostModel costModel;
+
+    private final List<Future<Void>> results = new ArrayList<>();
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param rmiCompiler the compiler to invoke
+     * @param threads the maximum number of concurrent invocations
+     */
+    CompileScheduler( RmiCompiler rmiCompiler, int threads )
+    {
+        this( rmiCompiler, threads, null );
+    }
+
+    /**
+     * Creates a scheduler which records the time taken by each invocation.
+     *
+     * @param rmiCompiler the compiler to invoke
+     * @param threads the maximum number of concurrent invocations
+     * @param costModel the model in which to record the time taken by each successful invocation, or null
+     */
+    CompileScheduler( RmiCompiler rmiCompiler, int threads, CompileCostModel costModel )
+    {
+        this.rmiCompiler = rmiCompiler;
+        this.executor = threads > 1 ? Executors.newFixedThreadPool( threads ) : null;
+        this.costModel = costModel;
+    }
+
+    /**
+     * Schedules an invocation of the compiler.
+     *
+     * @param config the settings for the invocation
+     * @throws MojoExecutionException if the invocation ran immediately and failed
+     */
+    void submit( final RmiCompilerConfiguration config ) throws MojoExecutionException
+    {
+        if ( executor == null )
+        {
+            compile( config );
+            return;
+        }
+
+        results.add( executor.submit( new Callable<Void>()
+        {
+            public Void call() throws MojoExecutionException
+            {
+                compile( config );
+                return null;
+            }
+        } ) );
+    }
+
+    /**
+     * Waits for all submitted invocations to complete.
+     *
+     * @throws MojoExecutionException if any invocation failed
+     */
+    void awaitCompletion() throws MojoExecutionException
+    {
+        try
+        {
+            for ( Future<Void> result : results )
+            {
+                result.get();
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException( "Interrupted while executing the RMI compiler.", e );
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof MojoExecutionException )
+            {
+                throw (MojoExecutionException) e.getCause();
+            }
+            throw new MojoExecutionException( "Error while executing the RMI compiler.", e.getCause() );
+        }
+        finally
+        {
+            results.clear();
+        }
+    }
+
+    /**
+     * Releases the threads used by this scheduler, abandoning any invocations which have not started.
+     */
+    void shutdown()
+    {
+        if ( executor != null )
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private void compile( RmiCompilerConfiguration config ) throws MojoExecutionException
+    {
+        long start = System.currentTimeMillis();
+        try
+        {
+            rmiCompiler.execute( config );
+            if ( costModel != null )
+            {
+                costModel.record( config, System.currentTimeMillis() - start );
+            }
+        }
+        catch ( RmiCompilerException e )
+        {
+            throw new MojoExecutionException( "Error while executing the RMI compiler.", e );
+        }
+    }
+}
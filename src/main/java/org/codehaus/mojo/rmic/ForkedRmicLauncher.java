@@ -0,0 +1,375 @@
+package org.codehaus.mojo.rmic;
+
+/*
+ * Copyright (c) 2026, Codehaus.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.compiler.CompilerException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the rmi compiler in a separate JVM. The JVM is started with options tuned for a short-lived process and,
+ * on JDKs which support dynamic class data sharing, with an archive of the compiler classes which is created
+ * by the first run and reused by later ones.
+ */
+class ForkedRmicLauncher
+{
+    /**
+     * The first Java feature version which supports <code>-XX:ArchiveClassesAtExit</code>.
+     */
+    private static final int DYNAMIC_CDS_VERSION = 13;
+
+    private final Log log;
+
+    private final Class<?> mainClass;
+
+    private final RmiCompilerConfiguration rmiConfig;
+
+    private final int javaVersion;
+
+    /**
+     * Creates a launcher for the specified compiler.
+     *
+     * @param log the log to which progress is reported
+     * @param mainClass the rmi compiler main class, as loaded in process
+     * @param rmiConfig the compiler settings
+     */
+    ForkedRmicLauncher( Log log, Class<?> mainClass, RmiCompilerConfiguration rmiConfig )
+    {
+        this( log, mainClass, rmiConfig, getJavaFeatureVersion( System.getProperty( "java.specification.version" ) ) );
+    }
+
+    ForkedRmicLauncher( Log log, Class<?> mainClass, RmiCompilerConfiguration rmiConfig, int javaVersion )
+    {
+        this.log = log;
+        this.mainClass = mainClass;
+        this.rmiConfig = rmiConfig;
+        this.javaVersion = javaVersion;
+    }
+
+    /**
+     * Runs the compiler in a new JVM and waits for it to complete.
+     *
+     * @param args the arguments to pass to the compiler
+     * @throws CompilerException if the JVM could not be started or the compiler reported a failure
+     */
+    void run( String[] args )
+        throws CompilerException
+    {
+        File archive = getArchiveFile();
+        File newArchive = null;
+        if ( archive != null && !archive.isFile() )
+        {
+            newArchive = createTemporaryArchiveName( archive );
+            if ( newArchive == null )
+            {
+                // the archive can be neither used nor created, so run without class data sharing
+                archive = null;
+            }
+        }
+
+        List<String> command = buildCommand( args, archive, newArchive );
+        if ( log.isDebugEnabled() )
+        {
+            log.debug( "forked rmic command: " + command );
+        }
+
+        AbstractRmiCompiler.OutOfMemoryDetector output = new AbstractRmiCompiler.OutOfMemoryDetector( System.out );
+        int exitCode = runProcess( command, output );
+        if ( exitCode != 0 )
+        {
+            deleteQuietly( newArchive );
+            if ( output.isOutOfMemoryReported() )
+            {
+                throw new AbstractRmiCompiler.ResourceExhaustedException( null );
+            }
+            throw new CompilerException( "The forked rmi compiler exited with code " + exitCode + "." );
+        }
+
+        if ( newArchive != null )
+        {
+            publishArchive( newArchive, archive );
+        }
+    }
+
+    /**
+     * Builds the command line used to start the compiler JVM.
+     *
+     * @param args the arguments to pass to the compiler
+     * @param archive the class data sharing archive to use, or null if none is to be used
+     * @param newArchive the file to which a new archive should be written, or null if the archive already exists
+     * @return the command line
+     */
+    List<String> buildCommand( String[] args, File archive, File newArchive )
+        throws CompilerException
+    {
+        List<String> command = new ArrayList<>();
+        command.add( getJavaExecutable().getAbsolutePath() );
+        command.addAll( rmiConfig.getForkJvmArgs() );
+
+        if ( newArchive != null )
+        {
+            command.add( "-XX:ArchiveClassesAtExit=" + newArchive.getAbsolutePath() );
+        }
+        else if ( archive != null )
+        {
+            command.add( "-XX:SharedArchiveFile=" + archive.getAbsolutePath() );
+        }
+
+        command.add( "-classpath" );
+        command.add( buildClasspath( getCompilerClasspath() ) );
+        command.add( mainClass.getName() );
+
+        for ( String arg : args )
+        {
+            command.add( arg );
+        }
+        return command;
+    }
+
+    /**
+     * Returns the class data sharing archive to use for the compiler, or null if none is to be used. The name of
+     * the archive identifies the JDK and the compiler classes, so that a change to either results in a new archive.
+     *
+     * @return the archive file, which may not yet exist
+     */
+    File getArchiveFile()
+        throws CompilerException
+    {
+        if ( rmiConfig.getClassDataSharingDirectory() == null || javaVersion < DYNAMIC_CDS_VERSION )
+        {
+            return null;
+        }
+
+        StringBuilder key = new StringBuilder();
+        key.append( System.getProperty( "java.home" ) ).append( '|' );
+        key.append( System.getProperty( "java.vm.version" ) ).append( '|' );
+        key.append( mainClass.getName() );
+        for ( File entry : getCompilerClasspath() )
+        {
+            key.append( '|' ).append( entry.getAbsolutePath() );
+            key.append( ':' ).append( entry.length() ).append( ':' ).append( entry.lastModified() );
+        }
+
+        return new File( rmiConfig.getClassDataSharingDirectory(),
+                         "rmic-jdk" + javaVersion + "-" + digest( key.toString() ) + ".jsa" );
+    }
+
+    /**
+     * Returns a temporary name under which a new archive may be created, or null if its directory cannot be created.
+     */
+    File createTemporaryArchiveName( File archive )
+    {
+        File directory = archive.getParentFile();
+        if ( !directory.isDirectory() && !directory.mkdirs() )
+        {
+            log.warn( "Could not create class data sharing directory '" + directory + "'." );
+            return null;
+        }
+        return new File( directory, archive.getName() + "." + System.nanoTime() + ".tmp" );
+    }
+
+    private void publishArchive( File newArchive, File archive )
+    {
+        if ( !newArchive.isFile() )
+        {
+            return;
+        }
+
+        try
+        {
+            Files.move( newArchive.toPath(), archive.toPath(), StandardCopyOption.ATOMIC_MOVE );
+        }
+        catch ( IOException e )
+        {
+            log.debug( "Could not publish class data sharing archive: " + e );
+            deleteQuietly( newArchive );
+        }
+    }
+
+    private int runProcess( List<String> command, OutputStream output )
+        throws CompilerException
+    {
+        ProcessBuilder builder = new ProcessBuilder( command );
+        builder.redirectErrorStream( true );
+
+        Process process;
+        try
+        {
+            process = builder.start();
+        }
+        catch ( IOException e )
+        {
+            throw new CompilerException( "Unable to start the forked rmi compiler.", e );
+        }
+
+        boolean exited = false;
+        try
+        {
+            try ( InputStream input = process.getInputStream() )
+            {
+                byte[] buffer = new byte[4096];
+                int count;
+                while ( ( count = input.read( buffer ) ) != -1 )
+                {
+                    output.write( buffer, 0, count );
+                }
+                output.flush();
+            }
+            int exitCode = process.waitFor();
+            exited = true;
+            return exitCode;
+        }
+        catch ( IOException e )
+        {
+            throw new CompilerException( "Unable to read the output of the forked rmi compiler.", e );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new CompilerException( "Interrupted while waiting for the forked rmi compiler.", e );
+        }
+        finally
+        {
+            if ( !exited )
+            {
+                process.destroy();
+            }
+        }
+    }
+
+    /**
+     * Returns the class path entries needed to load the compiler in a new JVM: the location from which the compiler
+     * class was loaded, such as <code>tools.jar</code>. The other entries of the plugin's class loaders are not needed
+     * by the compiler and are left off. Locations which are not files, such as the <code>jrt:</code> URL of a compiler
+     * built into the JDK, need not be on the class path.
+     */
+    private List<File> getCompilerClasspath()
+        throws CompilerException
+    {
+        List<File> entries = new ArrayList<>();
+
+        CodeSource codeSource = mainClass.getProtectionDomain().getCodeSource();
+        if ( codeSource != null && codeSource.getLocation() != null
+            && "file".equals( codeSource.getLocation().getProtocol() ) )
+        {
+            entries.add( toFile( codeSource.getLocation() ) );
+        }
+        return entries;
+    }
+
+    private static File toFile( URL url )
+        throws CompilerException
+    {
+        try
+        {
+            return new File( url.toURI() );
+        }
+        catch ( URISyntaxException | IllegalArgumentException e )
+        {
+            throw new CompilerException( "Unable to convert compiler class path entry to a file: " + url, e );
+        }
+    }
+
+    private static String buildClasspath( List<File> entries )
+    {
+        StringBuilder classpath = new StringBuilder();
+        for ( File entry : entries )
+        {
+            if ( classpath.length() > 0 )
+            {
+                classpath.append( File.pathSeparator );
+            }
+            classpath.append( entry.getAbsolutePath() );
+        }
+        return classpath.toString();
+    }
+
+    private static File getJavaExecutable()
+    {
+        String executable = System.getProperty( "os.name" ).startsWith( "Windows" ) ? "java.exe" : "java";
+        return new File( new File( System.getProperty( "java.home" ), "bin" ), executable );
+    }
+
+    private static String digest( String key )
+        throws CompilerException
+    {
+        try
+        {
+            byte[] hash = MessageDigest.getInstance( "SHA-1" ).digest( key.getBytes( "UTF-8" ) );
+            StringBuilder sb = new StringBuilder();
+            for ( int i = 0; i < 8; i++ )
+            {
+                sb.append( String.format( "%02x", hash[i] ) );
+            }
+            return sb.toString();
+        }
+        catch ( NoSuchAlgorithmException | IOException e )
+        {
+            throw new CompilerException( "Unable to compute class data sharing archive name.", e );
+        }
+    }
+
+    private static void deleteQuietly( File file )
+    {
+        if ( file != null && file.exists() && !file.delete() )
+        {
+            file.deleteOnExit();
+        }
+    }
+
+    /**
+     * Converts a <code>java.specification.version</code> value to a Java feature version, for example "1.8" to 8.
+     *
+     * @param specificationVersion the specification version
+     * @return the feature version, or 0 if it cannot be determined
+     */
+    static int getJavaFeatureVersion( String specificationVersion )
+    {
+        if ( specificationVersion == null )
+        {
+            return 0;
+        }
+
+        String version = specificationVersion.startsWith( "1." ) ? specificationVersion.substring( 2 )
+                        : specificationVersion;
+        int end = 0;
+        while ( end < version.length() && Character.isDigit( version.charAt( end ) ) )
+        {
+            end++;
+        }
+        return end == 0 ? 0 : Integer.parseInt( version.substring( 0, end ) );
+    }
+}
@@ -0,0 +1,137 @@
+package org.codehaus.mojo.rmic;
+
+/*
+ * Copyright (c) 2026, Codehaus.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The stubs which {@link RmicStubProcessor} generated into a classes directory when the module was compiled. The list
+ * of classes may outlive the builds which ran the processor, so a listed stub is only used while it still matches the
+ * remote methods of its class.
+ */
+class GeneratedStubs
+{
+    private static final String STUB_SUFFIX = "_Stub.class";
+
+    private final File classesDirectory;
+
+    private final Set<String> classNames;
+
+    private GeneratedStubs( File classesDirectory, Set<String> classNames )
+    {
+        this.classesDirectory = classesDirectory;
+        this.classNames = classNames;
+    }
+
+    /**
+     * Reads the list of generated stubs in a classes directory.
+     *
+     * @param classesDirectory the directory to which the module's classes were compiled
+     * @return the generated stubs, or null if the processor did not run or its list is unreadable
+     */
+    static GeneratedStubs read( File classesDirectory )
+    {
+        File listFile = new File( classesDirectory, RmicStubProcessor.GENERATED_STUBS_RESOURCE );
+        if ( !listFile.isFile() )
+        {
+            return null;
+        }
+
+        Set<String> classNames = new HashSet<>();
+        try ( BufferedReader reader = new BufferedReader( new InputStreamReader( new FileInputStream( listFile ),
+                                                                                 StandardCharsets.UTF_8 ) ) )
+        {
+            for ( String line = reader.readLine(); line != null; line = reader.readLine() )
+            {
+                if ( line.trim().length() > 0 )
+                {
+                    classNames.add( line.trim() );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            return null;
+        }
+        return new GeneratedStubs( classesDirectory, classNames );
+    }
+
+    /**
+     * Copies the generated stub of a class to an output directory, if one was generated and it matches the class.
+     * The copy replaces any earlier stub atomically, under the output directory's lock, so that concurrent builds
+     * sharing the directory never see a partly written stub.
+     *
+     * @param classFile the class file of the remote class, in the classes directory
+     * @param repository the classes on the module's class path
+     * @param verifier the verifier with which to compare the stub to the class
+     * @param outputDirectory the directory to which the stub should be copied
+     * @return true if the stub was copied
+     * @throws IOException if the class, the stub or the classes they refer to cannot be read, or the copy fails
+     */
+    boolean copyStub( File classFile, ClassFileRepository repository, StubVerifier verifier, File outputDirectory )
+            throws IOException
+    {
+        String path = classesDirectory.toURI().relativize( classFile.toURI() ).getPath();
+        if ( !path.endsWith( ".class" ) )
+        {
+            return false;
+        }
+        String internalName = path.substring( 0, path.length() - ".class".length() );
+        if ( !classNames.contains( internalName.replace( '/', '.' ) ) )
+        {
+            return false;
+        }
+
+        String stubPath = internalName + STUB_SUFFIX;
+        File stubFile = new File( classesDirectory, stubPath );
+        if ( !stubFile.isFile()
+                || verifier.findMismatch( repository.getClass( classFile ), repository.getClass( stubFile ) ) != null )
+        {
+            return false;
+        }
+
+        File target = new File( outputDirectory, stubPath );
+        File copy = new File( target.getPath() + ".new" );
+        OutputDirectoryLock lock = OutputDirectoryLock.acquire( outputDirectory );
+        try
+        {
+            target.getParentFile().mkdirs();
+            Files.copy( stubFile.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING );
+            StagingRmiCompiler.moveAtomically( copy, target );
+        }
+        finally
+        {
+            lock.close();
+        }
+        return true;
+    }
+}
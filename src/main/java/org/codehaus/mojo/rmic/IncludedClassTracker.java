@@ -0,0 +1,220 @@
+package org.codehaus.mojo.rmic;
+
+/*
+ * Copyright (c) 2026, Codehaus.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.jar.JarFile;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+/**
+ * Records, for each explicitly included class found on the class path rather than in the classes directory, the
+ * artifact from which its stubs were last generated. A class in a jar is identified by the name, CRC and size of every
+ * entry in that jar, read from its central directory, so that a change to the remote interfaces or superclasses
+ * packaged alongside it also makes it out of date. A class in a directory is identified by the CRC of its class file.
+ * The record is kept in the module's state directory; since it survives the removal of the generated classes, a class
+ * is only up to date while its stub is also present.
+ */
+class IncludedClassTracker
+{
+    static final String STATE_FILE_NAME = "included-classes.properties";
+
+    private final File stateFile;
+
+    private final List<String> classpathElements;
+
+    private final Properties state = new Properties();
+
+    private final Map<String, String> jarFingerprints = new HashMap<>();
+
+    private final Map<String, Set<String>> jarEntries = new HashMap<>();
+
+    private boolean changed;
+
+    /**
+     * Creates a tracker for a module, reading any record left by a previous build.
+     *
+     * @param module the module whose included classes are to be tracked
+     */
+    IncludedClassTracker( RmicModule module )
+    {
+        this.stateFile = new File( module.getStateDirectory(), STATE_FILE_NAME );
+        this.classpathElements = module.getClasspathElements();
+        if ( stateFile.isFile() )
+        {
+            try ( InputStream in = new FileInputStream( stateFile ) )
+            {
+                state.load( in );
+            }
+            catch ( IOException e )
+            {
+                state.clear();
+            }
+        }
+    }
+
+    /**
+     * Returns true if the stubs for the specified class were generated, with the same options, from the artifact which
+     * now contains it, and are still present. Otherwise, notes the artifact so that it may be recorded by
+     * {@link #save()} once the class has been compiled.
+     *
+     * @param classFileName the path of the class file relative to a class path element
+     * @param options the compiler options with which the class is to be compiled
+     * @param generatedFile the file which compiling the class generates, or null if it cannot be predicted
+     * @return true if the class need not be compiled again
+     */
+    boolean isUpToDate( String classFileName, String options, File generatedFile )
+    {
+        String fingerprint = getFingerprint( classFileName );
+        if ( fingerprint == null )
+        {
+            return false;
+        }
+
+        String value = options + '|' + fingerprint;
+        if ( value.equals( state.getProperty( classFileName ) ) )
+        {
+            return generatedFile == null || generatedFile.isFile();
+        }
+        state.setProperty( classFileName, value );
+        changed = true;
+        return false;
+    }
+
+    /**
+     * Writes the record of the artifacts from which classes were compiled. Must only be called once all compilations
+     * have succeeded.
+     *
+     * @throws IOException if the record cannot be written
+     */
+    void save() throws IOException
+    {
+        if ( !changed )
+        {
+            return;
+        }
+
+        stateFile.getParentFile().mkdirs();
+        File newStateFile = new File( stateFile.getPath() + ".new" );
+        OutputDirectoryLock lock = OutputDirectoryLock.acquire( stateFile.getParentFile() );
+        try
+        {
+            try ( OutputStream out = new FileOutputStream( newStateFile ) )
+            {
+                state.store( out, "Artifacts from which rmic last compiled explicitly included classes" );
+            }
+            StagingRmiCompiler.moveAtomically( newStateFile, stateFile );
+        }
+        finally
+        {
+            lock.close();
+        }
+        changed = false;
+    }
+
+    private String getFingerprint( String classFileName )
+    {
+        String entryName = classFileName.replace( File.separatorChar, '/' );
+        for ( String element : classpathElements )
+        {
+            File file = new File( element );
+            try
+            {
+                if ( file.isDirectory() )
+                {
+                    File classFile = new File( file, entryName );
+                    if ( classFile.isFile() )
+                    {
+                        return element + '@' + getFileCrc( classFile );
+                    }
+                }
+                else if ( file.isFile() )
+                {
+                    String fingerprint = getArtifactFingerprint( file, entryName );
+                    if ( fingerprint != null )
+                    {
+                        return element + '@' + fingerprint;
+                    }
+                }
+            }
+            catch ( IOException e )
+            {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the fingerprint of a jar, or null if it does not contain the specified entry. Each jar is read once.
+     */
+    private String getArtifactFingerprint( File jar, String entryName ) throws IOException
+    {
+        String key = jar.getAbsolutePath();
+        if ( !jarFingerprints.containsKey( key ) )
+        {
+            readJar( key, jar );
+        }
+        return jarEntries.get( key ).contains( entryName ) ? jarFingerprints.get( key ) : null;
+    }
+
+    private void readJar( String key, File jar ) throws IOException
+    {
+        Set<String> entryNames = new HashSet<>();
+        try ( JarFile jarFile = new JarFile( jar ) )
+        {
+            for ( Enumeration<? extends ZipEntry> entries = jarFile.entries(); entries.hasMoreElements(); )
+            {
+                entryNames.add( entries.nextElement().getName() );
+            }
+            jarFingerprints.put( key, ClassHierarchy.getJarFingerprint( jar, jarFile ) );
+        }
+        jarEntries.put( key, entryNames );
+    }
+
+    private static String getFileCrc( File file ) throws IOException
+    {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[8192];
+        try ( InputStream in = new FileInputStream( file ) )
+        {
+            for ( int count = in.read( buffer ); count > 0; count = in.read( buffer ) )
+            {
+                crc.update( buffer, 0, count );
+            }
+        }
+        return Long.toHexString( crc.getValue() );
+    }
+}
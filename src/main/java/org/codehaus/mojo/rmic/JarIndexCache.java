@@ -0,0 +1,401 @@
+package org.codehaus.mojo.rmic;
+
+/*
+ * Copyright (c) 2026, Codehaus.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+
+/**
+ * Indexes of dependency jars, kept in memory so that the executions in a single Maven process need read each jar's
+ * central directory, and each class, only once. At most a fixed number of jars are indexed, and at most a fixed number
+ * are held open; the least recently used are evicted or closed first. Every jar is closed when no execution is using
+ * the cache, so that none are held open between builds.
+ * <p>
+ * Each jar is read under its own lock, so that threads reading different jars do not wait for one another. The cache's
+ * own lock guards only the order in which the jars were used, and is never held while a jar is read or closed.
+ */
+class JarIndexCache
+{
+    private final int maxJars;
+
+    private final int maxOpenJars;
+
+    private final ConcurrentMap<String, CachedJar> jars = new ConcurrentHashMap<>();
+
+    /** The indexed jars, least recently used first. */
+    private final Map<CachedJar, Boolean> indexedJars = new LinkedHashMap<>( 16, 0.75f, true );
+
+    /** The jars which may be open, least recently used first. */
+    private final Map<CachedJar, Boolean> openJars = new LinkedHashMap<>( 16, 0.75f, true );
+
+    private int users;
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxJars the largest number of jars to index
+     * @param maxOpenJars the largest number of jars to hold open
+     */
+    JarIndexCache( int maxJars, int maxOpenJars )
+    {
+        this.maxJars = maxJars;
+        this.maxOpenJars = Math.max( 1, maxOpenJars );
+    }
+
+    /**
+     * Registers a user of the cache. Each call must be matched by a call to {@link #release()}.
+     */
+    synchronized void acquire()
+    {
+        users++;
+    }
+
+    /**
+     * Deregisters a user of the cache, closing all jars if there are no others.
+     */
+    void release()
+    {
+        List<CachedJar> closed;
+        synchronized ( this )
+        {
+            if ( --users != 0 )
+            {
+                return;
+            }
+            closed = new ArrayList<>( openJars.keySet() );
+            openJars.clear();
+            forgetUnindexed( closed );
+        }
+        for ( CachedJar jar : closed )
+        {
+            jar.close();
+        }
+    }
+
+    /**
+     * Returns the index of a jar, reading it if the jar has not been indexed or has changed since it was.
+     *
+     * @param jar the jar file
+     * @return the index
+     * @throws IOException if the jar cannot be read
+     */
+    JarIndex getIndex( File jar ) throws IOException
+    {
+        CachedJar cachedJar = getCachedJar( jar );
+        JarIndex index = cachedJar.getIndex( jar );
+        recordUse( cachedJar, true );
+        return index;
+    }
+
+    /**
+     * Reads an entry from a jar, opening it if necessary.
+     *
+     * @param jar the jar file
+     * @param entryName the name of the entry to read
+     * @return the contents of the entry
+     * @throws IOException if the entry cannot be read
+     */
+    byte[] read( File jar, String entryName ) throws IOException
+    {
+        byte[] contents = readIfPresent( jar, entryName );
+        if ( contents == null )
+        {
+            throw new IOException( "No entry " + entryName + " in " + jar );
+        }
+        return contents;
+    }
+
+    /**
+     * Returns true if a jar has an entry, opening the jar if necessary.
+     *
+     * @param jar the jar file
+     * @param entryName the name of the entry
+     * @return true if the entry is present
+     * @throws IOException if the jar cannot be opened
+     */
+    boolean hasEntry( File jar, String entryName ) throws IOException
+    {
+        CachedJar cachedJar = getCachedJar( jar );
+        boolean present = cachedJar.hasEntry( entryName );
+        recordUse( cachedJar, false );
+        return present;
+    }
+
+    /**
+     * Reads an entry from a jar, opening it if necessary.
+     *
+     * @param jar the jar file
+     * @param entryName the name of the entry to read
+     * @return the contents of the entry, or null if the jar has no such entry
+     * @throws IOException if the entry cannot be read
+     */
+    byte[] readIfPresent( File jar, String entryName ) throws IOException
+    {
+        CachedJar cachedJar = getCachedJar( jar );
+        byte[] contents = cachedJar.readIfPresent( entryName );
+        recordUse( cachedJar, false );
+        return contents;
+    }
+
+    /**
+     * Returns the number of jars currently held open.
+     */
+    synchronized int getOpenJarCount()
+    {
+        return openJars.size();
+    }
+
+    private CachedJar getCachedJar( File jar )
+    {
+        String path = jar.getAbsolutePath();
+        CachedJar cachedJar = jars.get( path );
+        if ( cachedJar == null )
+        {
+            CachedJar created = new CachedJar( path );
+            cachedJar = jars.putIfAbsent( path, created );
+            if ( cachedJar == null )
+            {
+                cachedJar = created;
+            }
+        }
+        return cachedJar;
+    }
+
+    /**
+     * Records that a jar has just been opened, and indexed if so specified, then closes the least recently used jars
+     * beyond those the cache may hold. Their indexes are discarded only if they are beyond the jars it may index.
+     */
+    private void recordUse( CachedJar jar, boolean indexed )
+    {
+        List<CachedJar> evicted = new ArrayList<>();
+        List<CachedJar> closed = new ArrayList<>();
+        synchronized ( this )
+        {
+            openJars.put( jar, Boolean.TRUE );
+            if ( indexed )
+            {
+                indexedJars.put( jar, Boolean.TRUE );
+            }
+            for ( Iterator<CachedJar> eldest = indexedJars.keySet().iterator(); indexedJars.size() > maxJars; )
+            {
+                CachedJar victim = eldest.next();
+                eldest.remove();
+                openJars.remove( victim );
+                jars.remove( victim.path, victim );
+                evicted.add( victim );
+            }
+            for ( Iterator<CachedJar> eldest = openJars.keySet().iterator(); openJars.size() > maxOpenJars; )
+            {
+                closed.add( eldest.next() );
+                eldest.remove();
+            }
+            forgetUnindexed( closed );
+        }
+        for ( CachedJar victim : evicted )
+        {
+            victim.discard();
+        }
+        for ( CachedJar victim : closed )
+        {
+            victim.close();
+        }
+    }
+
+    /**
+     * Stops tracking closed jars which have not been indexed, so that the jars read only for their entries do not
+     * accumulate. Must be called with the cache's lock held.
+     */
+    private void forgetUnindexed( List<CachedJar> closed )
+    {
+        for ( CachedJar jar : closed )
+        {
+            if ( !indexedJars.containsKey( jar ) )
+            {
+                jars.remove( jar.path, jar );
+            }
+        }
+    }
+
+    private static void closeQuietly( JarFile jarFile )
+    {
+        try
+        {
+            jarFile.close();
+        }
+        catch ( IOException ignored )
+        {
+            // the jar will be opened again if needed
+        }
+    }
+
+    /**
+     * A jar known to the cache, with its index and, while it is open, its jar file. It is read and closed only with
+     * its own lock held.
+     */
+    private static class CachedJar
+    {
+        private final String path;
+
+        private JarFile jarFile;
+
+        private JarIndex index;
+
+        CachedJar( String path )
+        {
+            this.path = path;
+        }
+
+        synchronized JarIndex getIndex( File jar ) throws IOException
+        {
+            if ( index == null || index.length != jar.length() || index.lastModified != jar.lastModified() )
+            {
+                close();
+                JarFile openJar = open();
+                List<String> classNames = new ArrayList<>();
+                for ( Enumeration<? extends ZipEntry> entries = openJar.entries(); entries.hasMoreElements(); )
+                {
+                    String entryName = entries.nextElement().getName();
+                    if ( entryName.endsWith( ".class" ) )
+                    {
+                        classNames.add( entryName.substring( 0, entryName.length() - ".class".length() ) );
+                    }
+                }
+                index = new JarIndex( jar.length(), jar.lastModified(),
+                                      ClassHierarchy.getJarFingerprint( jar, openJar ), classNames );
+            }
+            return index;
+        }
+
+        synchronized boolean hasEntry( String entryName ) throws IOException
+        {
+            return open().getEntry( entryName ) != null;
+        }
+
+        synchronized byte[] readIfPresent( String entryName ) throws IOException
+        {
+            JarFile openJar = open();
+            ZipEntry entry = openJar.getEntry( entryName );
+            if ( entry == null )
+            {
+                return null;
+            }
+
+            ByteArrayOutputStream contents = new ByteArrayOutputStream( (int) Math.max( 0, entry.getSize() ) );
+            byte[] buffer = new byte[8192];
+            try ( InputStream in = openJar.getInputStream( entry ) )
+            {
+                for ( int count = in.read( buffer ); count > 0; count = in.read( buffer ) )
+                {
+                    contents.write( buffer, 0, count );
+                }
+            }
+            return contents.toByteArray();
+        }
+
+        synchronized void close()
+        {
+            if ( jarFile != null )
+            {
+                closeQuietly( jarFile );
+                jarFile = null;
+            }
+        }
+
+        /**
+         * Closes the jar and discards its index.
+         */
+        synchronized void discard()
+        {
+            close();
+            index = null;
+        }
+
+        private JarFile open() throws IOException
+        {
+            if ( jarFile == null )
+            {
+                jarFile = new JarFile( path );
+            }
+            return jarFile;
+        }
+    }
+
+    /**
+     * The classes in a single jar. The hierarchy read from the jar may be attached, to be shared by all users.
+     */
+    static class JarIndex
+    {
+        private final long length;
+
+        private final long lastModified;
+
+        private final String fingerprint;
+
+        private final List<String> classNames;
+
+        private ClassHierarchy.Origin origin;
+
+        JarIndex( long length, long lastModified, String fingerprint, List<String> classNames )
+        {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.fingerprint = fingerprint;
+            this.classNames = classNames;
+        }
+
+        String getFingerprint()
+        {
+            return fingerprint;
+        }
+
+        /**
+         * Returns the internal names of the classes in the jar.
+         */
+        List<String> getClassNames()
+        {
+            return classNames;
+        }
+
+        synchronized ClassHierarchy.Origin getOrigin()
+        {
+            return origin;
+        }
+
+        synchronized void setOrigin( ClassHierarchy.Origin origin )
+        {
+            this.origin = origin;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package org.codehaus.mojo.rmic;
+
+/*
+ * Copyright (c) 2026, Codehaus.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An exclusive lock on an output directory, held while generated classes are published to it, so that executions
+ * which share the directory, whether in this or another process, do not interleave their output. Threads of this
+ * process are ordered by a lock per directory; other processes by a file lock on a file beside the directory, which
+ * is kept outside it so that it is not packaged with the generated classes.
+ */
+class OutputDirectoryLock implements Closeable
+{
+    private static final ConcurrentMap<File, ReentrantLock> THREAD_LOCKS = new ConcurrentHashMap<>();
+
+    private final ReentrantLock threadLock;
+
+    private final FileChannel channel;
+
+    private final FileLock fileLock;
+
+    private OutputDirectoryLock( ReentrantLock threadLock, FileChannel channel, FileLock fileLock )
+    {
+        this.threadLock = threadLock;
+        this.channel = channel;
+        this.fileLock = fileLock;
+    }
+
+    /**
+     * Waits until no other thread or process holds the lock for the specified directory, then acquires it. A thread
+     * which already holds the lock may acquire it again.
+     *
+     * @param outputDirectory the directory to lock
+     * @return the lock, which must be closed to release it
+     * @throws IOException if the lock file cannot be created or locked
+     */
+    static OutputDirectoryLock acquire( File outputDirectory ) throws IOException
+    {
+        File directory = outputDirectory.getCanonicalFile();
+        ReentrantLock threadLock = getThreadLock( directory );
+        threadLock.lock();
+        if ( threadLock.getHoldCount() > 1 )
+        {
+            return new OutputDirectoryLock( threadLock, null, null );
+        }
+
+        FileChannel channel = null;
+        try
+        {
+            File lockFile = getLockFile( directory );
+            lockFile.getParentFile().mkdirs();
+            channel = FileChannel.open( lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE );
+            return new OutputDirectoryLock( threadLock, channel, channel.lock() );
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            if ( channel != null )
+            {
+                channel.close();
+            }
+            threadLock.unlock();
+            throw e;
+        }
+    }
+
+    private static ReentrantLock getThreadLock( File directory )
+    {
+        ReentrantLock lock = THREAD_LOCKS.get( directory );
+        if ( lock == null )
+        {
+            ReentrantLock newLock = new ReentrantLock();
+            lock = THREAD_LOCKS.putIfAbsent( directory, newLock );
+            if ( lock == null )
+            {
+                lock = newLock;
+            }
+        }
+        return lock;
+    }
+
+    /**
+     * Returns the file locked by other processes for the specified directory.
+     *
+     * @param outputDirectory the directory to lock
+     * @return a file in the parent of the directory
+     */
+    static File getLockFile( File outputDirectory )
+    {
+        File directory = outputDirectory.getAbsoluteFile();
+        return new File( directory.getParentFile(), "." + directory.getName() + ".rmic-lock" );
+    }
+
+    /**
+     * Releases the lock.
+     *
+     * @throws IOException if the file lock cannot be released
+     */
+    public void close() throws IOException
+    {
+        try
+        {
+            if ( channel != null )
+            {
+                try
+                {
+                    fileLock.release();
+                }
+                finally
+                {
+                    channel.close();
+                }
+            }
+        }
+        finally
+        {
+            threadLock.unlock();
+        }
+    }
+}
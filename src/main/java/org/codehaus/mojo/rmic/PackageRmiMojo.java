@@ -35,6 +35,10 @@ import org.codehaus.plexus.archiver.jar.JarArchiver;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.attribute.FileTime;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Creates a jar containing the rmic generated classes.
@@ -42,10 +46,13 @@ import java.io.IOException;
  * @author <a href="mailto:trygvis@inamo.no">Trygve Laugst&oslash;l</a>
  * @version $Id$
  */
-@Mojo( name = "package", defaultPhase = LifecyclePhase.PACKAGE )
+@Mojo( name = "package", defaultPhase = LifecyclePhase.PACKAGE, threadSafe = true )
 public class PackageRmiMojo
     extends AbstractMojo
 {
+    /** The earliest time which may be stored in a zip entry: 1980-01-01T00:00:02Z. */
+    private static final long MINIMUM_ZIP_TIME = 315532802000L;
+
     /**
      * The directory to which the generated jar should be written.
      */
@@ -94,6 +101,16 @@ public class PackageRmiMojo
     @Component
     private MavenProjectHelper projectHelper;
 
+    /**
+     * Timestamp for reproducible output, either as seconds since the epoch or in ISO 8601 format, such as
+     * <code>2020-01-01T00:00:00Z</code>. When set, the jar entries are written in a fixed order with this time, so that
+     * identical stubs always produce an identical jar. A value of a single character disables it.
+     * 
+     * @since 1.3.1
+     */
+    @Parameter( defaultValue = "${project.build.outputTimestamp}" )
+    private String outputTimestamp;
+
     /**
      * Execute the plugin
      * 
@@ -117,6 +134,12 @@ public class PackageRmiMojo
 
         jarArchiver.setDestFile( stubJar );
 
+        FileTime timestamp = parseOutputTimestamp( outputTimestamp );
+        if ( timestamp != null )
+        {
+            jarArchiver.configureReproducibleBuild( timestamp );
+        }
+
         try
         {
             jarArchiver.addDirectory( outputDirectory, includes, excludes );
@@ -137,4 +160,45 @@ public class PackageRmiMojo
 
         projectHelper.attachArtifact( project, "jar", classifier, stubJar );
     }
+
+    /**
+     * Converts the configured output timestamp to a file time.
+     * 
+     * @param outputTimestamp the timestamp, in seconds since the epoch or ISO 8601 format
+     * @return the time, or null if the output need not be reproducible
+     * @throws MojoExecutionException if the timestamp cannot be parsed or is before zip files can represent it
+     */
+    static FileTime parseOutputTimestamp( String outputTimestamp )
+        throws MojoExecutionException
+    {
+        if ( outputTimestamp == null || outputTimestamp.trim().length() < 2 )
+        {
+            return null;
+        }
+
+        String value = outputTimestamp.trim();
+        long millis;
+        if ( value.matches( "\\d+" ) )
+        {
+            millis = TimeUnit.SECONDS.toMillis( Long.parseLong( value ) );
+        }
+        else
+        {
+            try
+            {
+                millis = new SimpleDateFormat( "yyyy-MM-dd'T'HH:mm:ssXXX" ).parse( value ).getTime();
+            }
+            catch ( ParseException e )
+            {
+                throw new MojoExecutionException( "Invalid project.build.outputTimestamp value '" + value + "'", e );
+            }
+        }
+
+        if ( millis < MINIMUM_ZIP_TIME )
+        {
+            throw new MojoExecutionException( "project.build.outputTimestamp '" + value
+                + "' is before 1980-01-01T00:00:02Z, the earliest time a jar entry may have" );
+        }
+        return FileTime.fromMillis( millis );
+    }
 }
@@ -0,0 +1,316 @@
+package org.codehaus.mojo.rmic;
+
+/*
+ * Copyright (c) 2026, Codehaus.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Computes, from class files, the information which the rmi compiler builds into a stub: the remote interfaces
+ * of an implementation class, its remote methods and their hashes, and the interface hash.
+ */
+class RemoteClassAnalyzer
+{
+    private static final String REMOTE = "java/rmi/Remote";
+
+    private static final int ACC_STATIC = 0x0008;
+
+    /**
+     * The stub protocol version included in the interface hash.
+     */
+    private static final int INTERFACE_HASH_STUB_VERSION = 1;
+
+    private final ClassFileRepository repository;
+
+    private final Map<String, Boolean> remoteTypes = new HashMap<>();
+
+    RemoteClassAnalyzer( ClassFileRepository repository )
+    {
+        this.repository = repository;
+    }
+
+    /**
+     * Returns true if the specified class is a class, rather than an interface, which implements
+     * <code>java.rmi.Remote</code>.
+     */
+    boolean isRemoteImplementation( ClassFileInfo info ) throws IOException
+    {
+        return !info.isInterface() && isRemote( info.getName() );
+    }
+
+    /**
+     * Returns the remote interfaces which the rmi compiler lists for a stub: those directly implemented by the class
+     * or one of its superclasses which extend <code>java.rmi.Remote</code>, in the order they are found.
+     */
+    List<String> getRemoteInterfaces( ClassFileInfo info ) throws IOException
+    {
+        Set<String> interfaces = new LinkedHashSet<>();
+        for ( ClassFileInfo type = info; type != null; type = getSuperclass( type ) )
+        {
+            for ( String candidate : type.getInterfaces() )
+            {
+                if ( isRemote( candidate ) )
+                {
+                    interfaces.add( candidate );
+                }
+            }
+        }
+        return new ArrayList<>( interfaces );
+    }
+
+    /**
+     * Returns the remote methods of the specified interfaces, sorted as the rmi compiler numbers them. When a
+     * method is declared by more than one interface, only the exceptions compatible with every declaration are kept.
+     */
+    List<RemoteMethod> getRemoteMethods( List<String> interfaces ) throws IOException
+    {
+        Map<String, RemoteMethod> methods = new TreeMap<>();
+        Set<String> visited = new LinkedHashSet<>();
+        for ( String name : interfaces )
+        {
+            collectMethods( name, methods, visited );
+        }
+        return new ArrayList<>( methods.values() );
+    }
+
+    private void collectMethods( String name, Map<String, RemoteMethod> methods, Set<String> visited )
+        throws IOException
+    {
+        if ( !visited.add( name ) )
+        {
+            return;
+        }
+
+        ClassFileInfo info = repository.getClass( name );
+        for ( ClassFileInfo.Member member : info.getMethods() )
+        {
+            if ( ( member.getAccessFlags() & ACC_STATIC ) != 0 || member.getName().startsWith( "<" ) )
+            {
+                continue;
+            }
+
+            RemoteMethod method = new RemoteMethod( member.getName(), member.getDescriptor(), member.getExceptions() );
+            RemoteMethod existing = methods.get( method.getNameAndDescriptor() );
+            methods.put( method.getNameAndDescriptor(), existing == null ? method : merge( existing, method ) );
+        }
+
+        for ( String superInterface : info.getInterfaces() )
+        {
+            collectMethods( superInterface, methods, visited );
+        }
+    }
+
+    private RemoteMethod merge( RemoteMethod first, RemoteMethod second ) throws IOException
+    {
+        Set<String> exceptions = new LinkedHashSet<>();
+        addCompatibleExceptions( first.getExceptions(), second.getExceptions(), exceptions );
+        addCompatibleExceptions( second.getExceptions(), first.getExceptions(), exceptions );
+        return new RemoteMethod( first.getName(), first.getDescriptor(), new ArrayList<>( exceptions ) );
+    }
+
+    private void addCompatibleExceptions( List<String> candidates, List<String> declared, Set<String> compatible )
+        throws IOException
+    {
+        for ( String candidate : candidates )
+        {
+            for ( String exception : declared )
+            {
+                if ( isSubclass( candidate, exception ) )
+                {
+                    compatible.add( candidate );
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the hash by which the stub identifies a remote method to the server.
+     */
+    static long computeMethodHash( RemoteMethod method )
+    {
+        return computeMethodHash( method.getNameAndDescriptor() );
+    }
+
+    /**
+     * Computes the hash of a remote method from its name followed by its JVM descriptor.
+     */
+    static long computeMethodHash( String nameAndDescriptor )
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try ( DataOutputStream out = new DataOutputStream( bytes ) )
+        {
+            out.writeUTF( nameAndDescriptor );
+        }
+        catch ( IOException e )
+        {
+            throw new IllegalStateException( e );
+        }
+        return toHash( bytes.toByteArray() );
+    }
+
+    /**
+     * Computes the hash by which a version 1.1 stub identifies its interface to the server.
+     */
+    static long computeInterfaceHash( List<RemoteMethod> methods )
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try ( DataOutputStream out = new DataOutputStream( bytes ) )
+        {
+            out.writeInt( INTERFACE_HASH_STUB_VERSION );
+            for ( RemoteMethod method : methods )
+            {
+                out.writeUTF( method.getName() );
+                out.writeUTF( method.getDescriptor() );
+                List<String> exceptions = new ArrayList<>();
+                for ( String exception : method.getExceptions() )
+                {
+                    exceptions.add( exception.replace( '/', '.' ) );
+                }
+                Collections.sort( exceptions );
+                for ( String exception : exceptions )
+                {
+                    out.writeUTF( exception );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new IllegalStateException( e );
+        }
+        return toHash( bytes.toByteArray() );
+    }
+
+    private static long toHash( byte[] data )
+    {
+        try
+        {
+            byte[] digest = MessageDigest.getInstance( "SHA" ).digest( data );
+            long hash = 0;
+            for ( int i = 0; i < Math.min( 8, digest.length ); i++ )
+            {
+                hash += ( (long) ( digest[i] & 0xFF ) ) << ( i * 8 );
+            }
+            return hash;
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    private boolean isRemote( String name ) throws IOException
+    {
+        if ( REMOTE.equals( name ) )
+        {
+            return true;
+        }
+
+        Boolean remote = remoteTypes.get( name );
+        if ( remote == null )
+        {
+            remote = false;
+            ClassFileInfo info = repository.getClass( name );
+            if ( info.getSuperName() != null && isRemote( info.getSuperName() ) )
+            {
+                remote = true;
+            }
+            for ( int i = 0; !remote && i < info.getInterfaces().size(); i++ )
+            {
+                remote = isRemote( info.getInterfaces().get( i ) );
+            }
+            remoteTypes.put( name, remote );
+        }
+        return remote;
+    }
+
+    private boolean isSubclass( String name, String superName ) throws IOException
+    {
+        for ( String type = name; type != null; type = repository.getClass( type ).getSuperName() )
+        {
+            if ( type.equals( superName ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ClassFileInfo getSuperclass( ClassFileInfo info ) throws IOException
+    {
+        return info.getSuperName() == null ? null : repository.getClass( info.getSuperName() );
+    }
+
+    /**
+     * A method of a remote interface.
+     */
+    static class RemoteMethod
+    {
+        private final String name;
+
+        private final String descriptor;
+
+        private final List<String> exceptions;
+
+        RemoteMethod( String name, String descriptor, List<String> exceptions )
+        {
+            this.name = name;
+            this.descriptor = descriptor;
+            this.exceptions = exceptions;
+        }
+
+        String getName()
+        {
+            return name;
+        }
+
+        String getDescriptor()
+        {
+            return descriptor;
+        }
+
+        String getNameAndDescriptor()
+        {
+            return name + descriptor;
+        }
+
+        /**
+         * Returns the internal names of the exceptions the method declares.
+         */
+        List<String> getExceptions()
+        {
+            return exceptions;
+        }
+    }
+}
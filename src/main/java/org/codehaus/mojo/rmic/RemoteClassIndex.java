@@ -0,0 +1,224 @@
+package org.codehaus.mojo.rmic;
+
+/*
+ * Copyright (c) 2026, Codehaus.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The remote types of a module, as recorded by {@link RemoteClassIndexProcessor} when the module was compiled. An
+ * index is only used while it is fresh: every remote class it lists must still exist in the classes directory, and no
+ * class file may be newer than the index unless it was written by the compilation which wrote the index. The index
+ * must be written by every compilation of the module, which is so when the processor is on the compiler's processor
+ * path; a class compiled without the processor, as by an IDE with annotation processing off, makes the index stale.
+ */
+class RemoteClassIndex
+{
+    /** The class output resource in which the remote types are listed. */
+    static final String INDEX_RESOURCE = "META-INF/rmic/remote-classes.idx";
+
+    static final String CLASS = "class";
+
+    static final String INTERFACE = "interface";
+
+    /** The kind of the entries for the other types of the module, which are not remote. */
+    static final String LOCAL = "local";
+
+    /** The kind of the entries naming the types compiled by the compilation which wrote the index. */
+    static final String COMPILED = "compiled";
+
+    /** The suffixes of the class files rmic generates, which may be written to the classes directory. */
+    private static final String[] GENERATED_SUFFIXES = { "_Stub.class", "_Skel.class", "_Tie.class" };
+
+    private final Map<String, Boolean> interfaces;
+
+    private RemoteClassIndex( Map<String, Boolean> interfaces )
+    {
+        this.interfaces = interfaces;
+    }
+
+    /**
+     * Reads the index of a classes directory.
+     *
+     * @param classesDirectory the directory to which the module's classes were compiled
+     * @return the index, or null if there is no index or it is unreadable or out of date
+     */
+    static RemoteClassIndex read( File classesDirectory )
+    {
+        File indexFile = new File( classesDirectory, INDEX_RESOURCE );
+        if ( !indexFile.isFile() )
+        {
+            return null;
+        }
+
+        Map<String, Boolean> interfaces = new TreeMap<>();
+        Set<String> compiledTypes = new HashSet<>();
+        try ( BufferedReader reader = new BufferedReader( new InputStreamReader( new FileInputStream( indexFile ),
+                                                                                 StandardCharsets.UTF_8 ) ) )
+        {
+            for ( String line = reader.readLine(); line != null; line = reader.readLine() )
+            {
+                String[] fields = line.trim().split( " " );
+                if ( fields.length < 2 || !Arrays.asList( CLASS, INTERFACE, LOCAL, COMPILED ).contains( fields[0] ) )
+                {
+                    return null;
+                }
+                if ( COMPILED.equals( fields[0] ) )
+                {
+                    compiledTypes.add( fields[1] );
+                }
+                else if ( !LOCAL.equals( fields[0] ) )
+                {
+                    if ( !new File( classesDirectory, getClassFileName( fields[1] ) ).isFile() )
+                    {
+                        return null;
+                    }
+                    interfaces.put( fields[1], INTERFACE.equals( fields[0] ) );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            return null;
+        }
+        if ( hasNewerClass( classesDirectory, "", indexFile.lastModified(), compiledTypes ) )
+        {
+            return null;
+        }
+        return new RemoteClassIndex( interfaces );
+    }
+
+    /**
+     * Returns true if a directory holds a class file, other than one generated by rmic, which is newer than the index
+     * and was not written by the compilation which wrote the index: that is, which is not the class file of a compiled
+     * type or of a class nested in one. This reads only the file metadata.
+     *
+     * @param directory the directory to search
+     * @param packagePrefix the name of the package of the classes in the directory, followed by a dot if not empty
+     * @param indexTime the time the index was written
+     * @param compiledTypes the types compiled by the compilation which wrote the index
+     */
+    private static boolean hasNewerClass( File directory, String packagePrefix, long indexTime,
+                                          Set<String> compiledTypes )
+    {
+        File[] files = directory.listFiles();
+        if ( files == null )
+        {
+            return false;
+        }
+        for ( File file : files )
+        {
+            String name = file.getName();
+            if ( file.isDirectory() )
+            {
+                if ( hasNewerClass( file, packagePrefix + name + '.', indexTime, compiledTypes ) )
+                {
+                    return true;
+                }
+            }
+            else if ( name.endsWith( ".class" ) && !isGenerated( name ) && file.lastModified() > indexTime
+                    && !isNestedIn( packagePrefix + name.substring( 0, name.length() - 6 ), compiledTypes ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the named class is one of the specified types or nested in one of them. The class files of the
+     * anonymous and local classes of a type are written by every compilation of that type, so they are nested in it.
+     *
+     * @param className the binary name of the class
+     * @param types the binary names of the types
+     */
+    static boolean isNestedIn( String className, Set<String> types )
+    {
+        for ( int i = className.length(); i > 0; i = className.lastIndexOf( '$', i - 1 ) )
+        {
+            if ( types.contains( className.substring( 0, i ) ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isGenerated( String fileName )
+    {
+        for ( String suffix : GENERATED_SUFFIXES )
+        {
+            if ( fileName.endsWith( suffix ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the named class is a remote type.
+     *
+     * @param className the binary name of the class
+     * @param includeInterfaces if false, interfaces are never reported as remote
+     * @return true if the class is a remote type
+     */
+    boolean isRemoteClass( String className, boolean includeInterfaces )
+    {
+        Boolean isInterface = interfaces.get( className );
+        return isInterface != null && ( includeInterfaces || !isInterface );
+    }
+
+    /**
+     * Returns the class files of the remote types, in the classes directory.
+     *
+     * @param classesDirectory the directory containing the classes
+     * @return the class files, in order of class name
+     */
+    Collection<File> getClassFiles( File classesDirectory )
+    {
+        List<File> classFiles = new ArrayList<>();
+        for ( String className : interfaces.keySet() )
+        {
+            classFiles.add( new File( classesDirectory, getClassFileName( className ) ) );
+        }
+        return classFiles;
+    }
+
+    private static String getClassFileName( String className )
+    {
+        return className.replace( '.', '/' ) + ".class";
+    }
+}
@@ -0,0 +1,246 @@
+package org.codehaus.mojo.rmic;
+
+/*
+ * Copyright (c) 2026, Codehaus.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Records the remote types compiled by javac in the {@value RemoteClassIndex#INDEX_RESOURCE} resource, so that the
+ * <code>rmic</code> goal may find the remote classes of a module without reading its other class files. Each line of
+ * the index describes a type which implements <code>java.rmi.Remote</code>: its kind, <code>class</code> or
+ * <code>interface</code>, its binary name and, for a class, the remote interfaces implemented by it and its
+ * superclasses. The other types of the module are listed as <code>local</code>, and those compiled by the latest
+ * compilation as <code>compiled</code>, so that the index may be checked against the modification times of the class
+ * files. When only some of the classes of a module are compiled, the entries for the others are rebuilt from their
+ * class files, since a class which was not recompiled may have become remote, or stopped being so, through a
+ * recompiled supertype.
+ *
+ * @since 1.3.1
+ */
+@SupportedAnnotationTypes( "*" )
+public class RemoteClassIndexProcessor
+        extends AbstractProcessor
+{
+    private static final String REMOTE = "java.rmi.Remote";
+
+    private final Set<String> compiledTypes = new HashSet<>();
+
+    private final Map<String, String> compiledEntries = new TreeMap<>();
+
+    private boolean remoteTypeCompiled;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion()
+    {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process( Set<? extends TypeElement> annotations, RoundEnvironment roundEnv )
+    {
+        if ( roundEnv.processingOver() )
+        {
+            writeIndex();
+            return false;
+        }
+
+        for ( TypeElement type : ElementFilter.typesIn( roundEnv.getRootElements() ) )
+        {
+            processType( type );
+        }
+        return false;
+    }
+
+    private void processType( TypeElement type )
+    {
+        String binaryName = processingEnv.getElementUtils().getBinaryName( type ).toString();
+        compiledTypes.add( binaryName );
+        compiledEntries.put( binaryName, describe( type, binaryName ) );
+        remoteTypeCompiled |= isRemote( type.asType() );
+
+        for ( TypeElement member : ElementFilter.typesIn( type.getEnclosedElements() ) )
+        {
+            processType( member );
+        }
+    }
+
+    private String describe( TypeElement type, String binaryName )
+    {
+        if ( !isRemote( type.asType() ) )
+        {
+            return RemoteClassIndex.LOCAL + ' ' + binaryName;
+        }
+        else if ( type.getKind().isInterface() )
+        {
+            return RemoteClassIndex.INTERFACE + ' ' + binaryName;
+        }
+
+        StringBuilder line = new StringBuilder( RemoteClassIndex.CLASS ).append( ' ' ).append( binaryName );
+        Set<String> interfaces = new LinkedHashSet<>();
+        for ( TypeElement current = type; current != null; current = getSuperclass( current ) )
+        {
+            for ( TypeMirror candidate : current.getInterfaces() )
+            {
+                if ( isRemote( candidate ) )
+                {
+                    TypeElement remoteInterface = (TypeElement) processingEnv.getTypeUtils().asElement( candidate );
+                    interfaces.add( processingEnv.getElementUtils().getBinaryName( remoteInterface ).toString() );
+                }
+            }
+        }
+        for ( String remoteInterface : interfaces )
+        {
+            line.append( ' ' ).append( remoteInterface );
+        }
+        return line.toString();
+    }
+
+    private TypeElement getSuperclass( TypeElement type )
+    {
+        TypeMirror superclass = type.getSuperclass();
+        return superclass.getKind() == TypeKind.DECLARED
+            ? (TypeElement) processingEnv.getTypeUtils().asElement( superclass ) : null;
+    }
+
+    private boolean isRemote( TypeMirror type )
+    {
+        TypeElement remote = processingEnv.getElementUtils().getTypeElement( REMOTE );
+        return remote != null && processingEnv.getTypeUtils().isSubtype(
+            processingEnv.getTypeUtils().erasure( type ), processingEnv.getTypeUtils().erasure( remote.asType() ) );
+    }
+
+    private void writeIndex()
+    {
+        Map<String, String> index = readPreviousIndex();
+        if ( index.isEmpty() && !remoteTypeCompiled )
+        {
+            return;
+        }
+        for ( Iterator<Map.Entry<String, String>> entries = index.entrySet().iterator(); entries.hasNext(); )
+        {
+            Map.Entry<String, String> entry = entries.next();
+            TypeElement type = isRecompiled( entry.getKey() ) ? null : getTypeElement( entry.getKey() );
+            if ( type == null )
+            {
+                entries.remove();
+            }
+            else
+            {
+                entry.setValue( describe( type, entry.getKey() ) );
+            }
+        }
+        index.putAll( compiledEntries );
+
+        try
+        {
+            FileObject resource = processingEnv.getFiler()
+                .createResource( StandardLocation.CLASS_OUTPUT, "", RemoteClassIndex.INDEX_RESOURCE );
+            try ( PrintWriter writer = new PrintWriter( resource.openWriter() ) )
+            {
+                for ( String line : index.values() )
+                {
+                    writer.println( line );
+                }
+                for ( String name : new TreeSet<>( compiledTypes ) )
+                {
+                    writer.println( RemoteClassIndex.COMPILED + ' ' + name );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            processingEnv.getMessager()
+                .printMessage( Diagnostic.Kind.WARNING, "Unable to record remote classes: " + e.getMessage() );
+        }
+    }
+
+    /**
+     * Returns true if the named type was compiled in this run, or is nested in one which was; a nested type no longer
+     * declared in its recompiled outer type would otherwise remain in the index while its stale class file exists.
+     */
+    private boolean isRecompiled( String name )
+    {
+        return RemoteClassIndex.isNestedIn( name, compiledTypes );
+    }
+
+    /**
+     * Returns a type which was not compiled in this run, as read by the compiler from its class file, or null if it no
+     * longer exists.
+     */
+    private TypeElement getTypeElement( String binaryName )
+    {
+        TypeElement type = processingEnv.getElementUtils().getTypeElement( binaryName.replace( '$', '.' ) );
+        return type != null && processingEnv.getElementUtils().getBinaryName( type ).contentEquals( binaryName )
+            ? type : null;
+    }
+
+    /**
+     * Returns the entries of the index written by an earlier compilation, by type name, or none if there is none.
+     * The types compiled by that compilation are not entries.
+     */
+    private Map<String, String> readPreviousIndex()
+    {
+        Map<String, String> index = new TreeMap<>();
+        try
+        {
+            FileObject resource = processingEnv.getFiler()
+                .getResource( StandardLocation.CLASS_OUTPUT, "", RemoteClassIndex.INDEX_RESOURCE );
+            try ( BufferedReader reader = new BufferedReader( resource.openReader( true ) ) )
+            {
+                for ( String line = reader.readLine(); line != null; line = reader.readLine() )
+                {
+                    String[] fields = line.trim().split( " " );
+                    if ( fields.length >= 2 && !RemoteClassIndex.COMPILED.equals( fields[0] ) )
+                    {
+                        index.put( fields[1], line.trim() );
+                    }
+                }
+            }
+        }
+        catch ( IOException | IllegalArgumentException e )
+        {
+            index.clear();
+        }
+        return index;
+    }
+}
@@ -0,0 +1,104 @@
+package org.codehaus.mojo.rmic;
+
+/*
+ * Copyright (c) 2026, Codehaus.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A compilation submitted to an {@link AsyncRmiCompiler}. It may be waited on or cancelled as any other
+ * {@link java.util.concurrent.Future}, and notifies its listeners once it is done.
+ */
+public class RmiCompilation
+    extends FutureTask<RmiCompilationResult>
+{
+    /**
+     * Notified when a compilation completes, fails or is cancelled.
+     */
+    public interface Listener
+    {
+        /**
+         * Called once the compilation is done, on the thread which completed or cancelled it.
+         *
+         * @param compilation the compilation, whose {@link #get()} will not block
+         */
+        void completed( RmiCompilation compilation );
+    }
+
+    private final RmiCompilerConfiguration configuration;
+
+    private final List<Listener> listeners = new ArrayList<>();
+
+    private boolean finished;
+
+    RmiCompilation( RmiCompilerConfiguration configuration, Callable<RmiCompilationResult> compilation )
+    {
+        super( compilation );
+        this.configuration = configuration;
+    }
+
+    /**
+     * Returns the configuration being compiled.
+     */
+    public RmiCompilerConfiguration getConfiguration()
+    {
+        return configuration;
+    }
+
+    /**
+     * Adds a listener to be notified when the compilation is done. If it is already done, the listener is notified
+     * immediately.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener( Listener listener )
+    {
+        synchronized ( listeners )
+        {
+            if ( !finished )
+            {
+                listeners.add( listener );
+                return;
+            }
+        }
+        listener.completed( this );
+    }
+
+    @Override
+    protected void done()
+    {
+        List<Listener> toNotify;
+        synchronized ( listeners )
+        {
+            finished = true;
+            toNotify = new ArrayList<>( listeners );
+            listeners.clear();
+        }
+        for ( Listener listener : toNotify )
+        {
+            listener.completed( this );
+        }
+    }
+}
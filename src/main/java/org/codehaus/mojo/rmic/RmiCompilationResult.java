@@ -0,0 +1,226 @@
+package org.codehaus.mojo.rmic;
+
+/*
+ * Copyright (c) 2026, Codehaus.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The result of a compilation submitted to an {@link AsyncRmiCompiler}: the outcome for each class, the files written
+ * and the time taken.
+ */
+public class RmiCompilationResult
+{
+    /**
+     * The outcome of compiling a single class.
+     */
+    public enum Outcome
+    {
+        /**
+         * The compiler completed, or failed only after writing files for the class; the files it wrote are listed by
+         * {@link #getOutputFiles(String)}.
+         */
+        COMPILED,
+
+        /**
+         * The compiler reported a failure, described by {@link #getFailure()}, before writing any file for the class.
+         */
+        FAILED
+    }
+
+    /** The names rmic gives the stubs, skeletons and ties it generates, as formats of the simple class name. */
+    private static final List<String> GENERATED_NAMES = Arrays.asList( "%s_Stub", "%s_Skel", "_%s_Stub", "_%s_Tie" );
+
+    /** The extensions of the generated class files and, when they are kept, their sources. */
+    private static final List<String> GENERATED_EXTENSIONS = Arrays.asList( ".class", ".java" );
+
+    private final RmiCompilerConfiguration configuration;
+
+    private final Map<String, List<File>> classOutputs;
+
+    private final List<File> outputFiles;
+
+    private final long elapsedMillis;
+
+    private final RmiCompilerException failure;
+
+    RmiCompilationResult( RmiCompilerConfiguration configuration, Map<String, List<File>> classOutputs,
+                          List<File> outputFiles, long elapsedMillis, RmiCompilerException failure )
+    {
+        this.configuration = configuration;
+        this.classOutputs = Collections.unmodifiableMap( classOutputs );
+        this.outputFiles = Collections.unmodifiableList( outputFiles );
+        this.elapsedMillis = elapsedMillis;
+        this.failure = failure;
+    }
+
+    /**
+     * Returns the configuration which was compiled.
+     */
+    public RmiCompilerConfiguration getConfiguration()
+    {
+        return configuration;
+    }
+
+    /**
+     * Returns the fully qualified names of the classes which were compiled, in order.
+     */
+    public Set<String> getClassNames()
+    {
+        return classOutputs.keySet();
+    }
+
+    /**
+     * Returns the outcome for the named class. A compiler which fails part way through a configuration, such as in a
+     * later batch of classes, has still compiled the classes for which it wrote files.
+     *
+     * @param className the fully qualified name of a compiled class
+     * @return the outcome
+     */
+    public Outcome getOutcome( String className )
+    {
+        return failure == null || !getOutputFiles( className ).isEmpty() ? Outcome.COMPILED : Outcome.FAILED;
+    }
+
+    /**
+     * Returns the files written for the named class: its stub, skeleton or tie, and their sources if kept.
+     *
+     * @param className the fully qualified name of a compiled class
+     * @return the files, which may be empty
+     */
+    public List<File> getOutputFiles( String className )
+    {
+        List<File> files = classOutputs.get( className );
+        if ( files == null )
+        {
+            throw new IllegalArgumentException( className + " was not compiled" );
+        }
+        return Collections.unmodifiableList( files );
+    }
+
+    /**
+     * Returns all files written by the compilation, including those, such as IIOP stubs for remote interfaces, which
+     * are named for other types.
+     */
+    public List<File> getOutputFiles()
+    {
+        return outputFiles;
+    }
+
+    /**
+     * Returns the time the compiler ran, in milliseconds.
+     */
+    public long getElapsedMillis()
+    {
+        return elapsedMillis;
+    }
+
+    /**
+     * Returns the failure reported by the compiler, or null if it succeeded.
+     */
+    public RmiCompilerException getFailure()
+    {
+        return failure;
+    }
+
+    /**
+     * Returns true if the compiler succeeded for every class.
+     */
+    public boolean isSuccessful()
+    {
+        return failure == null;
+    }
+
+    /**
+     * Creates the result of a compilation from the files it generated. A file belongs to a class if it is in the
+     * class's package and is named as rmic names the stub, skeleton or tie of that class, or their sources. A file
+     * generated for another class whose name begins with that of the class, such as <code>Foo_Impl_Stub</code> for
+     * the class <code>Foo_Impl</code>, does not belong to <code>Foo</code>.
+     *
+     * @param configuration the configuration compiled
+     * @param classNames the fully qualified names of the classes compiled
+     * @param generatedPaths the paths of the files generated, relative to the output directory, using '/'
+     * @param elapsedMillis the time the compilation took
+     * @param failure the failure reported by the compiler, or null if it succeeded
+     * @return the result
+     */
+    static RmiCompilationResult create( RmiCompilerConfiguration configuration, Collection<String> classNames,
+                                        List<String> generatedPaths, long elapsedMillis,
+                                        RmiCompilerException failure )
+    {
+        File outputDirectory = new File( configuration.getOutputLocation() ).getAbsoluteFile();
+        Map<String, List<File>> classOutputs = new LinkedHashMap<>();
+        for ( String className : classNames )
+        {
+            int lastDot = className.lastIndexOf( '.' );
+            String packagePath = lastDot < 0 ? "" : className.substring( 0, lastDot ).replace( '.', '/' ) + '/';
+            String simpleName = className.substring( lastDot + 1 );
+            List<File> files = new ArrayList<>();
+            for ( String path : generatedPaths )
+            {
+                String name = path.substring( path.lastIndexOf( '/' ) + 1 );
+                if ( path.equals( packagePath + name ) && isGeneratedFor( simpleName, name ) )
+                {
+                    files.add( new File( outputDirectory, path ) );
+                }
+            }
+            classOutputs.put( className, files );
+        }
+
+        List<File> outputFiles = new ArrayList<>();
+        for ( String path : generatedPaths )
+        {
+            outputFiles.add( new File( outputDirectory, path ) );
+        }
+        return new RmiCompilationResult( configuration, classOutputs, outputFiles, elapsedMillis, failure );
+    }
+
+    /**
+     * Returns true if a file name is one which rmic gives to a file generated for the class with the specified simple
+     * name.
+     */
+    private static boolean isGeneratedFor( String simpleName, String fileName )
+    {
+        int extension = fileName.lastIndexOf( '.' );
+        if ( extension < 0 || !GENERATED_EXTENSIONS.contains( fileName.substring( extension ) ) )
+        {
+            return false;
+        }
+        String baseName = fileName.substring( 0, extension );
+        for ( String pattern : GENERATED_NAMES )
+        {
+            if ( baseName.equals( String.format( pattern, simpleName ) ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
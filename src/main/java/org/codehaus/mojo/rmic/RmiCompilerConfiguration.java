@@ -76,6 +76,22 @@ public class RmiCompilerConfiguration
     private boolean verbose;
     
     private boolean nowarn;
+
+    private int maxBatchSize;
+
+    private boolean reuseEnvironment;
+
+    private String classpathFingerprint;
+
+    // ----------------------------------------------------------------------
+    // Fork Settings
+    // ----------------------------------------------------------------------
+
+    private boolean fork;
+
+    private List<String> forkJvmArgs = new LinkedList<String>();
+
+    private File classDataSharingDirectory;
     
     // ----------------------------------------------------------------------
     //
@@ -297,4 +313,91 @@ public class RmiCompilerConfiguration
     {
         return nowarn;
     }
+
+    /**
+     * Specifies the largest number of classes to pass to a single compiler invocation. A value of zero or less
+     * places no limit on the batch size.
+     */
+    public void setMaxBatchSize( int maxBatchSize )
+    {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public int getMaxBatchSize()
+    {
+        return maxBatchSize;
+    }
+
+    /**
+     * Specifies whether an in-process compiler may keep its environment of parsed classes for later batches with the
+     * same options and class path.
+     */
+    public void setReuseEnvironment( boolean reuseEnvironment )
+    {
+        this.reuseEnvironment = reuseEnvironment;
+    }
+
+    public boolean isReuseEnvironment()
+    {
+        return reuseEnvironment;
+    }
+
+    /**
+     * Specifies the fingerprint of the class path with which a reusable environment is found, as computed once for
+     * the execution. If not set, the fingerprint is computed for each batch.
+     */
+    public void setClasspathFingerprint( String classpathFingerprint )
+    {
+        this.classpathFingerprint = classpathFingerprint;
+    }
+
+    public String getClasspathFingerprint()
+    {
+        return classpathFingerprint;
+    }
+
+    // ----------------------------------------------------------------------
+    // Fork Settings
+    // ----------------------------------------------------------------------
+
+    public void setFork( boolean fork )
+    {
+        this.fork = fork;
+    }
+
+    public boolean isFork()
+    {
+        return fork;
+    }
+
+    public void setForkJvmArgs( List<String> forkJvmArgs )
+    {
+        if ( forkJvmArgs == null )
+        {
+            this.forkJvmArgs = Collections.emptyList();
+        }
+        else
+        {
+            this.forkJvmArgs = new LinkedList<String>( forkJvmArgs );
+        }
+    }
+
+    public List<String> getForkJvmArgs()
+    {
+        return Collections.unmodifiableList( forkJvmArgs );
+    }
+
+    /**
+     * Specifies the directory in which class data sharing archives for a forked compiler are kept.
+     * A null value disables class data sharing archives.
+     */
+    public void setClassDataSharingDirectory( File classDataSharingDirectory )
+    {
+        this.classDataSharingDirectory = classDataSharingDirectory;
+    }
+
+    public File getClassDataSharingDirectory()
+    {
+        return classDataSharingDirectory;
+    }
 }
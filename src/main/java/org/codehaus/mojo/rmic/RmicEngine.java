@@ -0,0 +1,502 @@
+package org.codehaus.mojo.rmic;
+
+/*
+ * Copyright (c) 2026, Codehaus.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import org.codehaus.plexus.compiler.CompilerException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs the JDK rmi compiler in process, keeping its environment of parsed classes between batches. The compiler's own
+ * <code>compile</code> method creates an environment for each call, so that every batch parses the JDK classes and
+ * the class path again; an engine instead creates the environment once and generates the stubs for each batch in it,
+ * in the same way as the compiler would.
+ * <p>
+ * Idle engines are kept for reuse by later batches and executions with the same compiler, options and class path.
+ * An engine is discarded when any class path element changes, after any batch which reports errors or exhausts
+ * memory, and before it would compile a class a second time. Only JRMP stubs are supported; the compiler is called
+ * directly for IIOP and IDL, or if its internals are not accessible.
+ * </p>
+ */
+class RmicEngine
+{
+    private static final int MAX_IDLE_ENGINES = 4;
+
+    private static final String MAIN_CLASS = "sun.rmi.rmic.Main";
+
+    /** The class file format version which the compiler gives to its environments. */
+    private static final short MAJOR_VERSION = 45;
+
+    private static final short MINOR_VERSION = 3;
+
+    private static final Map<List<Object>, RmicEngine> IDLE_ENGINES =
+        new LinkedHashMap<List<Object>, RmicEngine>( 16, 0.75f, true )
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<List<Object>, RmicEngine> eldest )
+            {
+                if ( size() > MAX_IDLE_ENGINES )
+                {
+                    eldest.getValue().discard();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+    private final List<Object> key;
+
+    private final RedirectingOutputStream output = new RedirectingOutputStream();
+
+    private final Set<String> compiledClasses = new HashSet<>();
+
+    private final Compiler compiler;
+
+    private final Object main;
+
+    private final Object environment;
+
+    private RmicEngine( List<Object> key, Compiler compiler, List<String> options )
+        throws ReflectiveOperationException
+    {
+        this.key = key;
+        this.compiler = compiler;
+        this.main = compiler.newMain( output );
+        if ( !compiler.parseArgs( main, options ) )
+        {
+            throw new IllegalArgumentException( "The compiler rejected its options" );
+        }
+        this.environment = compiler.getEnv.invoke( main );
+        if ( environment == null )
+        {
+            throw new IllegalStateException( "The compiler could not create its environment" );
+        }
+        compiler.envFlags.setInt( environment, compiler.envFlags.getInt( environment )
+                                               | compiler.mainFlags.getInt( main ) );
+        compiler.majorVersion.setShort( environment, MAJOR_VERSION );
+        compiler.minorVersion.setShort( environment, MINOR_VERSION );
+    }
+
+    /**
+     * Returns an engine for the specified compiler, options and class path: an idle engine if there is a current one,
+     * otherwise a new one. The engine must be returned with {@link #release()} or {@link #discard()} once used.
+     *
+     * @param mainClass the compiler main class
+     * @param options the compiler options, without the names of the classes to compile
+     * @param classpathFingerprint the {@link #getFingerprint(List) fingerprint} of the class path searched by the
+     *                             compiler
+     * @return the engine, or null if the options or compiler are not supported
+     */
+    static RmicEngine acquire( Class<?> mainClass, List<String> options, String classpathFingerprint )
+    {
+        if ( !MAIN_CLASS.equals( mainClass.getName() ) || options.contains( "-iiop" ) || options.contains( "-idl" ) )
+        {
+            return null;
+        }
+
+        List<Object> key = Arrays.<Object>asList( mainClass, getOptionsKey( options ), classpathFingerprint );
+        synchronized ( IDLE_ENGINES )
+        {
+            RmicEngine engine = IDLE_ENGINES.remove( key );
+            if ( engine != null )
+            {
+                return engine;
+            }
+        }
+
+        try
+        {
+            return new RmicEngine( key, Compiler.get( mainClass ), options );
+        }
+        catch ( ReflectiveOperationException | RuntimeException e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Returns true if this engine has not compiled any of the specified classes. The stubs generated for a class are
+     * kept in the environment, so it cannot be compiled twice.
+     *
+     * @param classNames the classes to be compiled
+     */
+    boolean canCompile( List<String> classNames )
+    {
+        for ( String className : classNames )
+        {
+            if ( compiledClasses.contains( className ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Generates the stubs for a batch of classes, as the compiler would.
+     *
+     * @param options the compiler options, including the output directory
+     * @param classNames the classes to compile
+     * @param out the stream to which compiler messages are written
+     * @return true if the compiler reported no errors
+     * @throws CompilerException if the compiler could not be run
+     */
+    boolean compile( List<String> options, List<String> classNames, OutputStream out )
+        throws CompilerException
+    {
+        compiledClasses.addAll( classNames );
+        output.setTarget( out );
+        try
+        {
+            List<String> args = new ArrayList<>( options );
+            args.addAll( classNames );
+            Object batchMain = compiler.newMain( output );
+            if ( !compiler.parseArgs( batchMain, args ) )
+            {
+                return false;
+            }
+            compiler.destDir.set( main, compiler.destDir.get( batchMain ) );
+
+            List<?> classes = (List<?>) compiler.classes.get( batchMain );
+            List<?> generators = (List<?>) compiler.generators.get( main );
+            for ( int i = classes.size() - 1; i >= 0; i-- )
+            {
+                Object name = compiler.lookup.invoke( null, classes.get( i ) );
+                name = compiler.mangleClass.invoke( null, compiler.resolvePackageQualifiedName.invoke( environment,
+                                                                                                       name ) );
+                Object declaration = compiler.getClassDeclaration.invoke( environment, name );
+                try
+                {
+                    Object definition = compiler.getClassDefinition.invoke( declaration, environment );
+                    for ( Object generator : generators )
+                    {
+                        compiler.generate.invoke( generator, environment, definition, compiler.destDir.get( main ) );
+                    }
+                }
+                catch ( InvocationTargetException e )
+                {
+                    if ( !compiler.classNotFound.isInstance( e.getCause() ) )
+                    {
+                        throw e;
+                    }
+                    compiler.error.invoke( environment, 0L, "rmic.class.not.found", name );
+                }
+            }
+
+            if ( !compiler.nocompile.getBoolean( main ) )
+            {
+                compiler.compileAllClasses.invoke( main, environment );
+            }
+            compiler.flushErrors.invoke( environment );
+            if ( !compiler.keepGenerated.getBoolean( main ) )
+            {
+                compiler.deleteGeneratedFiles.invoke( environment );
+            }
+            compiler.nwarnings.setInt( environment, 0 );
+            return compiler.nerrors.getInt( environment ) == 0;
+        }
+        catch ( InvocationTargetException e )
+        {
+            if ( e.getCause() instanceof VirtualMachineError )
+            {
+                throw new AbstractRmiCompiler.ResourceExhaustedException( e.getCause() );
+            }
+            throw new CompilerException( "Error while executing the compiler.", e );
+        }
+        catch ( ReflectiveOperationException | RuntimeException e )
+        {
+            throw new CompilerException( "Error while executing the compiler.", e );
+        }
+        finally
+        {
+            output.setTarget( null );
+        }
+    }
+
+    /**
+     * Keeps this engine for reuse by a later batch.
+     */
+    void release()
+    {
+        synchronized ( IDLE_ENGINES )
+        {
+            RmicEngine replaced = IDLE_ENGINES.put( key, this );
+            if ( replaced != null )
+            {
+                replaced.discard();
+            }
+        }
+    }
+
+    /**
+     * Releases the files held open by this engine's environment.
+     */
+    void discard()
+    {
+        try
+        {
+            compiler.shutdown.invoke( environment );
+        }
+        catch ( ReflectiveOperationException | RuntimeException e )
+        {
+            // nothing more can be done
+        }
+    }
+
+    /**
+     * Returns the options which must match for an engine to be reused. The output directory is set for each batch.
+     */
+    private static List<String> getOptionsKey( List<String> options )
+    {
+        List<String> key = new ArrayList<>( options );
+        int index = key.indexOf( "-d" );
+        if ( index >= 0 && index + 1 < key.size() )
+        {
+            key.remove( index + 1 );
+        }
+        return key;
+    }
+
+    /**
+     * Returns a description of the class path which changes whenever any of its elements does: the size and
+     * modification time of each file, and the number, total size and latest modification time of the files in each
+     * directory. As this reads the metadata of every file in the class path directories, it is computed once for
+     * each execution rather than for each batch.
+     */
+    static String getFingerprint( List<String> classpath )
+    {
+        StringBuilder fingerprint = new StringBuilder();
+        for ( String element : classpath )
+        {
+            File file = new File( element );
+            long[] summary = new long[3];
+            addToSummary( file, summary );
+            fingerprint.append( element ).append( '@' ).append( summary[0] ).append( ':' ).append( summary[1] )
+                       .append( ':' ).append( summary[2] ).append( File.pathSeparatorChar );
+        }
+        return fingerprint.toString();
+    }
+
+    private static void addToSummary( File file, long[] summary )
+    {
+        File[] children = file.listFiles();
+        if ( children != null )
+        {
+            for ( File child : children )
+            {
+                addToSummary( child, summary );
+            }
+        }
+        else if ( file.isFile() )
+        {
+            summary[0]++;
+            summary[1] += file.length();
+            summary[2] = Math.max( summary[2], file.lastModified() );
+        }
+    }
+
+    /**
+     * The members of the compiler classes used by an engine, found once for each compiler class loader.
+     */
+    private static class Compiler
+    {
+        private static final Map<Class<?>, Compiler> COMPILERS = new LinkedHashMap<>();
+
+        private final Constructor<?> mainConstructor;
+
+        private final Method parseArgs;
+
+        private final Method getEnv;
+
+        private final Method compileAllClasses;
+
+        private final Field mainFlags;
+
+        private final Field classes;
+
+        private final Field generators;
+
+        private final Field destDir;
+
+        private final Field nocompile;
+
+        private final Field keepGenerated;
+
+        private final Method lookup;
+
+        private final Method mangleClass;
+
+        private final Method resolvePackageQualifiedName;
+
+        private final Method getClassDeclaration;
+
+        private final Method getClassDefinition;
+
+        private final Method generate;
+
+        private final Method error;
+
+        private final Method flushErrors;
+
+        private final Method deleteGeneratedFiles;
+
+        private final Method shutdown;
+
+        private final Field envFlags;
+
+        private final Field nerrors;
+
+        private final Field nwarnings;
+
+        private final Field majorVersion;
+
+        private final Field minorVersion;
+
+        private final Class<?> classNotFound;
+
+        static synchronized Compiler get( Class<?> mainClass ) throws ReflectiveOperationException
+        {
+            Compiler compiler = COMPILERS.get( mainClass );
+            if ( compiler == null )
+            {
+                compiler = new Compiler( mainClass );
+                COMPILERS.put( mainClass, compiler );
+            }
+            return compiler;
+        }
+
+        private Compiler( Class<?> mainClass ) throws ReflectiveOperationException
+        {
+            ClassLoader loader = mainClass.getClassLoader();
+            Class<?> environmentClass = Class.forName( "sun.rmi.rmic.BatchEnvironment", false, loader );
+            Class<?> javaEnvironmentClass = Class.forName( "sun.tools.java.Environment", false, loader );
+            Class<?> identifierClass = Class.forName( "sun.tools.java.Identifier", false, loader );
+            Class<?> declarationClass = Class.forName( "sun.tools.java.ClassDeclaration", false, loader );
+            Class<?> definitionClass = Class.forName( "sun.tools.java.ClassDefinition", false, loader );
+
+            mainConstructor = mainClass.getConstructor( OutputStream.class, String.class );
+            parseArgs = mainClass.getMethod( "parseArgs", String[].class );
+            getEnv = mainClass.getMethod( "getEnv" );
+            compileAllClasses = mainClass.getMethod( "compileAllClasses", environmentClass );
+            mainFlags = getField( mainClass, "flags" );
+            classes = getField( mainClass, "classes" );
+            generators = getField( mainClass, "generators" );
+            destDir = getField( mainClass, "destDir" );
+            nocompile = getField( mainClass, "nocompile" );
+            keepGenerated = getField( mainClass, "keepGenerated" );
+
+            lookup = identifierClass.getMethod( "lookup", String.class );
+            mangleClass = Class.forName( "sun.rmi.rmic.Names", false, loader ).getMethod( "mangleClass",
+                                                                                        identifierClass );
+            resolvePackageQualifiedName = environmentClass.getMethod( "resolvePackageQualifiedName",
+                                                                      identifierClass );
+            getClassDeclaration = environmentClass.getMethod( "getClassDeclaration", identifierClass );
+            getClassDefinition = declarationClass.getMethod( "getClassDefinition", javaEnvironmentClass );
+            generate = Class.forName( "sun.rmi.rmic.Generator", false, loader )
+                .getMethod( "generate", environmentClass, definitionClass, File.class );
+            error = environmentClass.getMethod( "error", long.class, String.class, Object.class );
+            flushErrors = environmentClass.getMethod( "flushErrors" );
+            deleteGeneratedFiles = environmentClass.getMethod( "deleteGeneratedFiles" );
+            shutdown = environmentClass.getMethod( "shutdown" );
+            envFlags = environmentClass.getField( "flags" );
+            nerrors = environmentClass.getField( "nerrors" );
+            nwarnings = environmentClass.getField( "nwarnings" );
+            majorVersion = environmentClass.getField( "majorVersion" );
+            minorVersion = environmentClass.getField( "minorVersion" );
+            classNotFound = Class.forName( "sun.tools.java.ClassNotFound", false, loader );
+        }
+
+        private static Field getField( Class<?> type, String name ) throws NoSuchFieldException
+        {
+            Field field = type.getDeclaredField( name );
+            field.setAccessible( true );
+            return field;
+        }
+
+        Object newMain( OutputStream out ) throws ReflectiveOperationException
+        {
+            return mainConstructor.newInstance( out, "rmic" );
+        }
+
+        boolean parseArgs( Object main, List<String> args ) throws ReflectiveOperationException
+        {
+            return (Boolean) parseArgs.invoke( main, new Object[] { args.toArray( new String[args.size()] ) } );
+        }
+    }
+
+    /**
+     * A stream passed to the compiler when the environment is created, which writes to the stream of the batch being
+     * compiled.
+     */
+    private static class RedirectingOutputStream extends OutputStream
+    {
+        private volatile OutputStream target;
+
+        void setTarget( OutputStream target )
+        {
+            this.target = target;
+        }
+
+        @Override
+        public void write( int b ) throws IOException
+        {
+            if ( target != null )
+            {
+                target.write( b );
+            }
+        }
+
+        @Override
+        public void write( byte[] b, int off, int len ) throws IOException
+        {
+            if ( target != null )
+            {
+                target.write( b, off, len );
+            }
+        }
+
+        @Override
+        public void flush() throws IOException
+        {
+            if ( target != null )
+            {
+                target.flush();
+            }
+        }
+    }
+}
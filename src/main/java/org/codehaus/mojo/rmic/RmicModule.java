@@ -0,0 +1,133 @@
+package org.codehaus.mojo.rmic;
+
+/*
+ * Copyright (c) 2026, Codehaus.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A directory of compiled classes to be processed by rmic, together with the directory to which the generated classes
+ * are written and the class path needed to compile them.
+ */
+class RmicModule
+{
+    private final String name;
+
+    private final File classesDirectory;
+
+    private final File outputDirectory;
+
+    private final List<String> classpathElements;
+
+    private String classpathFingerprint;
+
+    /**
+     * Creates a module description.
+     *
+     * @param name the name used to identify the module in messages
+     * @param classesDirectory the directory containing the remote implementation classes
+     * @param outputDirectory the directory to which generated classes are written
+     * @param projectClasspathElements the class path of the project; the classes directory is added if not present
+     */
+    RmicModule( String name, File classesDirectory, File outputDirectory, List<String> projectClasspathElements )
+    {
+        this.name = name;
+        this.classesDirectory = classesDirectory;
+        this.outputDirectory = outputDirectory;
+
+        List<String> elements = new ArrayList<>();
+        if ( projectClasspathElements != null )
+        {
+            elements.addAll( projectClasspathElements );
+        }
+        if ( !elements.contains( classesDirectory.getAbsolutePath() ) )
+        {
+            elements.add( classesDirectory.getAbsolutePath() );
+        }
+        this.classpathElements = Collections.unmodifiableList( elements );
+    }
+
+    String getName()
+    {
+        return name;
+    }
+
+    File getClassesDirectory()
+    {
+        return classesDirectory;
+    }
+
+    File getOutputDirectory()
+    {
+        return outputDirectory;
+    }
+
+    /**
+     * Returns the directory in which the records of earlier compilations into the output directory are kept. It is
+     * outside the output directory, so that the records are never packaged with the generated classes.
+     */
+    File getStateDirectory()
+    {
+        return getStateDirectory( outputDirectory );
+    }
+
+    /**
+     * Returns the directory in which the records of earlier compilations into an output directory are kept.
+     *
+     * @param outputDirectory the directory to which generated classes are written
+     * @return a directory named after the output directory, under an rmic directory alongside it
+     */
+    static File getStateDirectory( File outputDirectory )
+    {
+        File directory = outputDirectory.getAbsoluteFile();
+        return new File( directory.getParentFile(), "rmic/" + directory.getName() );
+    }
+
+    /**
+     * Returns the class path with which rmic should run for this module.
+     */
+    List<String> getClasspathElements()
+    {
+        return classpathElements;
+    }
+
+    /**
+     * Returns the fingerprint of the class path with which reusable compiler environments are found. It is computed
+     * when first needed, and then kept for the rest of the execution.
+     */
+    synchronized String getClasspathFingerprint()
+    {
+        if ( classpathFingerprint == null )
+        {
+            classpathFingerprint = RmicEngine.getFingerprint( classpathElements );
+        }
+        return classpathFingerprint;
+    }
+
+    public String toString()
+    {
+        return name;
+    }
+}
@@ -22,6 +22,7 @@ package org.codehaus.mojo.rmic;
  * SOFTWARE.
  */
 
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
@@ -37,7 +38,7 @@ import java.util.List;
  * @version $Id$
  */
 @Mojo( name = "rmic", defaultPhase = LifecyclePhase.PROCESS_CLASSES,
-       requiresDependencyResolution = ResolutionScope.COMPILE )
+       requiresDependencyResolution = ResolutionScope.COMPILE, threadSafe = true )
 public class RmicMojo
         extends AbstractRmiMojo
 {
@@ -91,6 +92,23 @@ public class RmicMojo
         return projectCompileClasspathElements;
     }
 
+    /**
+     * Compiles the remote classes, then records the output directory in the project, so that modules later in the
+     * reactor may reuse the stubs rather than compiling the same classes again.
+     *
+     * @throws MojoExecutionException if there is a problem executing the mojo.
+     */
+    @Override
+    public void execute() throws MojoExecutionException
+    {
+        super.execute();
+        if ( project != null )
+        {
+            project.getProperties().setProperty( UpstreamStubs.OUTPUT_DIRECTORY_PROPERTY,
+                                                 outputDirectory.getAbsolutePath() );
+        }
+    }
+
     public RmicMojo()
     {
     }
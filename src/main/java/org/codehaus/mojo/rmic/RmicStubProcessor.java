@@ -0,0 +1,657 @@
+package org.codehaus.mojo.rmic;
+
+/*
+ * Copyright (c) 2026, Codehaus.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Generates version 1.2 rmi stubs while the remote classes are compiled. For each concrete class which implements
+ * <code>java.rmi.Remote</code>, the processor writes the source of the stub which rmic would generate, so that javac
+ * compiles it in the same pass. Once processing is complete, the names of the classes for which stubs were
+ * generated are listed in the {@value #GENERATED_STUBS_RESOURCE} resource. The <code>rmic</code> goal copies the
+ * listed stubs which still match their classes to its output directory, for the <code>package</code> goal, and
+ * compiles only the other remote classes.
+ * <p>
+ * Since the processor is found on the processor path, it sees every remote class the compilation includes. The
+ * {@value #STUB_CLASSES_OPTION} option, passed to javac as <code>-Armic.stubClasses=...</code>, limits it to a
+ * comma-separated list of binary class names, each of which may end with <code>*</code> to select every class whose
+ * name begins with the rest.
+ *
+ * @since 1.3.1
+ */
+@SupportedAnnotationTypes( "*" )
+@SupportedOptions( RmicStubProcessor.STUB_CLASSES_OPTION )
+public class RmicStubProcessor
+        extends AbstractProcessor
+{
+    /**
+     * The class output resource listing the remote classes for which stubs were generated.
+     */
+    static final String GENERATED_STUBS_RESOURCE = "META-INF/rmic/generated-stubs";
+
+    private static final String REMOTE = "java.rmi.Remote";
+
+    private static final String REMOTE_STUB = "java.rmi.server.RemoteStub";
+
+    private static final String REMOTE_EXCEPTION = "java.rmi.RemoteException";
+
+    /**
+     * The processor option listing the classes for which stubs are generated.
+     */
+    static final String STUB_CLASSES_OPTION = "rmic.stubClasses";
+
+    private final Set<String> generatedStubs = new TreeSet<>();
+
+    private List<String> stubClasses;
+
+    @Override
+    public synchronized void init( ProcessingEnvironment processingEnv )
+    {
+        super.init( processingEnv );
+        String option = processingEnv.getOptions().get( STUB_CLASSES_OPTION );
+        stubClasses = option == null ? null : Arrays.asList( option.trim().split( "\\s*,\\s*" ) );
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion()
+    {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process( Set<? extends TypeElement> annotations, RoundEnvironment roundEnv )
+    {
+        if ( roundEnv.processingOver() )
+        {
+            writeGeneratedStubsResource();
+            return false;
+        }
+
+        for ( TypeElement type : ElementFilter.typesIn( roundEnv.getRootElements() ) )
+        {
+            processType( type );
+        }
+        return false;
+    }
+
+    private void processType( TypeElement type )
+    {
+        if ( isRemoteImplementation( type ) && isSelected( type ) )
+        {
+            try
+            {
+                generateStub( type );
+            }
+            catch ( IOException e )
+            {
+                error( "Unable to write rmi stub: " + e.getMessage(), type );
+            }
+        }
+
+        for ( TypeElement member : ElementFilter.typesIn( type.getEnclosedElements() ) )
+        {
+            processType( member );
+        }
+    }
+
+    /**
+     * Returns true if the class is selected by the {@value #STUB_CLASSES_OPTION} option, or the option is not set.
+     */
+    private boolean isSelected( TypeElement type )
+    {
+        if ( stubClasses == null )
+        {
+            return true;
+        }
+        String binaryName = getElements().getBinaryName( type ).toString();
+        for ( String stubClass : stubClasses )
+        {
+            if ( stubClass.endsWith( "*" ) ? binaryName.startsWith( stubClass.substring( 0, stubClass.length() - 1 ) )
+                    : binaryName.equals( stubClass ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isRemoteImplementation( TypeElement type )
+    {
+        return type.getKind() == ElementKind.CLASS && !type.getModifiers().contains( Modifier.ABSTRACT )
+            && isSubtype( type.asType(), REMOTE ) && !isSubtype( type.asType(), REMOTE_STUB );
+    }
+
+    private void generateStub( TypeElement type ) throws IOException
+    {
+        List<TypeElement> interfaces = getRemoteInterfaces( type );
+        List<RemoteMethod> methods = getRemoteMethods( interfaces );
+        for ( RemoteMethod method : methods )
+        {
+            if ( !throwsRemoteException( method ) )
+            {
+                error( "Method " + method.element + " in remote interface " + method.declaringInterface
+                           + " does not throw java.rmi.RemoteException", type );
+                return;
+            }
+        }
+
+        String binaryName = getElements().getBinaryName( type ).toString();
+        String stubName = binaryName + "_Stub";
+        try ( Writer writer = processingEnv.getFiler().createSourceFile( stubName, type ).openWriter() )
+        {
+            new StubSourceWriter( new PrintWriter( writer ), stubName, interfaces, methods ).write();
+        }
+        generatedStubs.add( binaryName );
+    }
+
+    /**
+     * Returns the interfaces which extend <code>java.rmi.Remote</code> and are directly implemented by the class or
+     * one of its superclasses, in the order rmic lists them.
+     */
+    private List<TypeElement> getRemoteInterfaces( TypeElement type )
+    {
+        Set<TypeElement> interfaces = new LinkedHashSet<>();
+        for ( TypeElement current = type; current != null; current = getSuperclass( current ) )
+        {
+            for ( TypeMirror candidate : current.getInterfaces() )
+            {
+                if ( isSubtype( candidate, REMOTE ) )
+                {
+                    interfaces.add( (TypeElement) getTypes().asElement( candidate ) );
+                }
+            }
+        }
+        return new ArrayList<>( interfaces );
+    }
+
+    private TypeElement getSuperclass( TypeElement type )
+    {
+        TypeMirror superclass = type.getSuperclass();
+        return superclass.getKind() == TypeKind.DECLARED ? (TypeElement) getTypes().asElement( superclass ) : null;
+    }
+
+    /**
+     * Returns the methods of the remote interfaces, sorted by name and descriptor as rmic numbers them.
+     */
+    private List<RemoteMethod> getRemoteMethods( List<TypeElement> interfaces )
+    {
+        Map<String, RemoteMethod> methods = new TreeMap<>();
+        Set<TypeElement> visited = new LinkedHashSet<>();
+        for ( TypeElement remoteInterface : interfaces )
+        {
+            collectMethods( remoteInterface, methods, visited );
+        }
+        return new ArrayList<>( methods.values() );
+    }
+
+    private void collectMethods( TypeElement remoteInterface, Map<String, RemoteMethod> methods,
+                                 Set<TypeElement> visited )
+    {
+        if ( !visited.add( remoteInterface ) )
+        {
+            return;
+        }
+
+        for ( ExecutableElement element : ElementFilter.methodsIn( remoteInterface.getEnclosedElements() ) )
+        {
+            if ( element.getModifiers().contains( Modifier.STATIC ) )
+            {
+                continue;
+            }
+
+            RemoteMethod method = new RemoteMethod( remoteInterface, element );
+            RemoteMethod existing = methods.get( method.nameAndDescriptor );
+            if ( existing != null )
+            {
+                method.exceptions = mergeExceptions( existing.exceptions, method.exceptions );
+                method.declaringInterface = existing.declaringInterface;
+            }
+            methods.put( method.nameAndDescriptor, method );
+        }
+
+        for ( TypeMirror superInterface : remoteInterface.getInterfaces() )
+        {
+            collectMethods( (TypeElement) getTypes().asElement( superInterface ), methods, visited );
+        }
+    }
+
+    /**
+     * Keeps only the exceptions which may be thrown by an implementation of both declarations of a method.
+     */
+    private List<TypeMirror> mergeExceptions( List<TypeMirror> first, List<TypeMirror> second )
+    {
+        List<TypeMirror> merged = new ArrayList<>();
+        addCompatibleExceptions( first, second, merged );
+        addCompatibleExceptions( second, first, merged );
+        return merged;
+    }
+
+    private void addCompatibleExceptions( List<TypeMirror> candidates, List<TypeMirror> declared,
+                                          List<TypeMirror> compatible )
+    {
+        for ( TypeMirror candidate : candidates )
+        {
+            for ( TypeMirror exception : declared )
+            {
+                if ( getTypes().isSubtype( candidate, exception ) && !contains( compatible, candidate ) )
+                {
+                    compatible.add( candidate );
+                    break;
+                }
+            }
+        }
+    }
+
+    private boolean contains( List<TypeMirror> types, TypeMirror type )
+    {
+        for ( TypeMirror candidate : types )
+        {
+            if ( getTypes().isSameType( candidate, type ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean throwsRemoteException( RemoteMethod method )
+    {
+        TypeMirror remoteException = getType( REMOTE_EXCEPTION );
+        for ( TypeMirror exception : method.exceptions )
+        {
+            if ( getTypes().isSubtype( remoteException, exception ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeGeneratedStubsResource()
+    {
+        if ( generatedStubs.isEmpty() )
+        {
+            return;
+        }
+
+        try
+        {
+            FileObject resource = processingEnv.getFiler()
+                .createResource( StandardLocation.CLASS_OUTPUT, "", GENERATED_STUBS_RESOURCE );
+            try ( PrintWriter writer = new PrintWriter( resource.openWriter() ) )
+            {
+                for ( String className : generatedStubs )
+                {
+                    writer.println( className );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            processingEnv.getMessager()
+                .printMessage( Diagnostic.Kind.WARNING, "Unable to record generated rmi stubs: " + e.getMessage() );
+        }
+    }
+
+    private boolean isSubtype( TypeMirror type, String superTypeName )
+    {
+        TypeMirror superType = getType( superTypeName );
+        return superType != null && getTypes().isSubtype( getTypes().erasure( type ), superType );
+    }
+
+    private TypeMirror getType( String name )
+    {
+        TypeElement element = getElements().getTypeElement( name );
+        return element == null ? null : getTypes().erasure( element.asType() );
+    }
+
+    private void error( String message, Element element )
+    {
+        processingEnv.getMessager().printMessage( Diagnostic.Kind.ERROR, message, element );
+    }
+
+    private Types getTypes()
+    {
+        return processingEnv.getTypeUtils();
+    }
+
+    private Elements getElements()
+    {
+        return processingEnv.getElementUtils();
+    }
+
+    /**
+     * Returns the JVM descriptor of an erased type.
+     */
+    private String getDescriptor( TypeMirror type )
+    {
+        TypeMirror erased = getTypes().erasure( type );
+        switch ( erased.getKind() )
+        {
+            case BOOLEAN:
+                return "Z";
+            case BYTE:
+                return "B";
+            case CHAR:
+                return "C";
+            case SHORT:
+                return "S";
+            case INT:
+                return "I";
+            case LONG:
+                return "J";
+            case FLOAT:
+                return "F";
+            case DOUBLE:
+                return "D";
+            case VOID:
+                return "V";
+            case ARRAY:
+                return "[" + getDescriptor( ( (ArrayType) erased ).getComponentType() );
+            default:
+                TypeElement element = (TypeElement) ( (DeclaredType) erased ).asElement();
+                return "L" + getElements().getBinaryName( element ).toString().replace( '.', '/' ) + ";";
+        }
+    }
+
+    /**
+     * A method of a remote interface, with the exceptions it may throw in every interface which declares it.
+     */
+    private class RemoteMethod
+    {
+        private final ExecutableElement element;
+
+        private final String nameAndDescriptor;
+
+        private TypeElement declaringInterface;
+
+        private List<TypeMirror> exceptions;
+
+        RemoteMethod( TypeElement declaringInterface, ExecutableElement element )
+        {
+            this.declaringInterface = declaringInterface;
+            this.element = element;
+            this.exceptions = new ArrayList<>( element.getThrownTypes() );
+
+            StringBuilder descriptor = new StringBuilder( "(" );
+            for ( VariableElement parameter : element.getParameters() )
+            {
+                descriptor.append( getDescriptor( parameter.asType() ) );
+            }
+            descriptor.append( ')' ).append( getDescriptor( element.getReturnType() ) );
+            this.nameAndDescriptor = element.getSimpleName() + descriptor.toString();
+        }
+    }
+
+    /**
+     * Writes the source of a version 1.2 stub, following the layout of the stubs generated by rmic.
+     */
+    private class StubSourceWriter
+    {
+        private final PrintWriter out;
+
+        private final String stubName;
+
+        private final List<TypeElement> interfaces;
+
+        private final List<RemoteMethod> methods;
+
+        StubSourceWriter( PrintWriter out, String stubName, List<TypeElement> interfaces, List<RemoteMethod> methods )
+        {
+            this.out = out;
+            this.stubName = stubName;
+            this.interfaces = interfaces;
+            this.methods = methods;
+        }
+
+        void write()
+        {
+            int packageEnd = stubName.lastIndexOf( '.' );
+            if ( packageEnd > 0 )
+            {
+                out.println( "package " + stubName.substring( 0, packageEnd ) + ";" );
+                out.println();
+            }
+
+            out.println( "// Stub class generated by " + RmicStubProcessor.class.getName() + ", do not edit." );
+            out.println( "@SuppressWarnings({\"unchecked\", \"rawtypes\", \"deprecation\"})" );
+            out.println( "public final class " + stubName.substring( packageEnd + 1 ) );
+            out.println( "    extends " + REMOTE_STUB );
+            out.println( "    implements " + join( getInterfaceNames() ) );
+            out.println( "{" );
+            out.println( "    private static final long serialVersionUID = 2;" );
+            out.println();
+
+            for ( int i = 0; i < methods.size(); i++ )
+            {
+                out.println( "    private static java.lang.reflect.Method " + getMethodField( i ) + ";" );
+            }
+            if ( !methods.isEmpty() )
+            {
+                out.println();
+                writeStaticInitializer();
+            }
+            out.println();
+            out.println( "    public " + stubName.substring( packageEnd + 1 ) + "(java.rmi.server.RemoteRef ref) {" );
+            out.println( "        super(ref);" );
+            out.println( "    }" );
+
+            for ( int i = 0; i < methods.size(); i++ )
+            {
+                out.println();
+                writeMethod( i, methods.get( i ) );
+            }
+            out.println( "}" );
+            out.flush();
+        }
+
+        private List<String> getInterfaceNames()
+        {
+            List<String> names = new ArrayList<>();
+            for ( TypeElement remoteInterface : interfaces )
+            {
+                names.add( remoteInterface.getQualifiedName().toString() );
+            }
+            return names;
+        }
+
+        private void writeStaticInitializer()
+        {
+            out.println( "    static {" );
+            out.println( "        try {" );
+            for ( int i = 0; i < methods.size(); i++ )
+            {
+                RemoteMethod method = methods.get( i );
+                List<String> parameterClasses = new ArrayList<>();
+                for ( VariableElement parameter : method.element.getParameters() )
+                {
+                    parameterClasses.add( getSourceName( parameter.asType() ) + ".class" );
+                }
+                out.println( "            " + getMethodField( i ) + " = "
+                                 + method.declaringInterface.getQualifiedName() + ".class.getMethod(\""
+                                 + method.element.getSimpleName() + "\", new java.lang.Class[] {"
+                                 + join( parameterClasses ) + "});" );
+            }
+            out.println( "        } catch (java.lang.NoSuchMethodException e) {" );
+            out.println( "            throw new java.lang.NoSuchMethodError(\"stub class initialization failed\");" );
+            out.println( "        }" );
+            out.println( "    }" );
+        }
+
+        private void writeMethod( int index, RemoteMethod method )
+        {
+            List<String> parameters = new ArrayList<>();
+            List<String> arguments = new ArrayList<>();
+            for ( int i = 0; i < method.element.getParameters().size(); i++ )
+            {
+                VariableElement parameter = method.element.getParameters().get( i );
+                parameters.add( getSourceName( parameter.asType() ) + " $param_" + i );
+                arguments.add( "$param_" + i );
+            }
+
+            List<String> thrown = new ArrayList<>();
+            for ( TypeMirror exception : method.exceptions )
+            {
+                thrown.add( getSourceName( exception ) );
+            }
+
+            TypeMirror returnType = method.element.getReturnType();
+            out.println( "    public " + getSourceName( returnType ) + " " + method.element.getSimpleName() + "("
+                             + join( parameters ) + ")" + ( thrown.isEmpty() ? "" : " throws " + join( thrown ) ) );
+            out.println( "    {" );
+
+            List<TypeMirror> catches = getExceptionsToRethrow( method );
+            String indent = catches == null ? "        " : "            ";
+            if ( catches != null )
+            {
+                out.println( "        try {" );
+            }
+
+            String invocation = "ref.invoke(this, " + getMethodField( index ) + ", "
+                + ( arguments.isEmpty() ? "null" : "new java.lang.Object[] {" + join( arguments ) + "}" ) + ", "
+                + RemoteClassAnalyzer.computeMethodHash( method.nameAndDescriptor ) + "L)";
+            if ( returnType.getKind() == TypeKind.VOID )
+            {
+                out.println( indent + invocation + ";" );
+            }
+            else if ( returnType.getKind().isPrimitive() )
+            {
+                out.println( indent + "java.lang.Object $result = " + invocation + ";" );
+                out.println( indent + "return ((" + getTypes().boxedClass( getTypes().getPrimitiveType(
+                    returnType.getKind() ) ).getQualifiedName() + ") $result)." + returnType + "Value();" );
+            }
+            else
+            {
+                out.println( indent + "java.lang.Object $result = " + invocation + ";" );
+                out.println( indent + "return ((" + getSourceName( returnType ) + ") $result);" );
+            }
+
+            if ( catches != null )
+            {
+                for ( TypeMirror exception : catches )
+                {
+                    out.println( "        } catch (" + getSourceName( exception ) + " e) {" );
+                    out.println( "            throw e;" );
+                }
+                out.println( "        } catch (java.lang.Exception e) {" );
+                out.println( "            throw new java.rmi.UnexpectedException(\"undeclared checked exception\", e);" );
+                out.println( "        }" );
+            }
+            out.println( "    }" );
+        }
+
+        /**
+         * Returns the exceptions which the stub method must rethrow unchanged, with no entry which is a subclass of
+         * another, or null if the method may throw any exception and so needs no handler.
+         */
+        private List<TypeMirror> getExceptionsToRethrow( RemoteMethod method )
+        {
+            List<TypeMirror> candidates = new ArrayList<>( method.exceptions );
+            candidates.add( getType( RuntimeException.class.getName() ) );
+            candidates.add( getType( REMOTE_EXCEPTION ) );
+
+            TypeMirror exceptionType = getType( Exception.class.getName() );
+            List<TypeMirror> rethrown = new ArrayList<>();
+            for ( TypeMirror candidate : candidates )
+            {
+                if ( getTypes().isSubtype( exceptionType, candidate ) )
+                {
+                    return null;
+                }
+                if ( !isSubtypeOfAnother( candidate, candidates ) && !contains( rethrown, candidate ) )
+                {
+                    rethrown.add( candidate );
+                }
+            }
+            return rethrown;
+        }
+
+        private boolean isSubtypeOfAnother( TypeMirror type, List<TypeMirror> types )
+        {
+            for ( TypeMirror other : types )
+            {
+                if ( !getTypes().isSameType( type, other ) && getTypes().isSubtype( type, other ) )
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private String getSourceName( TypeMirror type )
+        {
+            return getTypes().erasure( type ).toString();
+        }
+
+        private String getMethodField( int index )
+        {
+            return "$method_" + methods.get( index ).element.getSimpleName() + "_" + index;
+        }
+
+        private String join( List<String> values )
+        {
+            StringBuilder sb = new StringBuilder();
+            for ( String value : values )
+            {
+                if ( sb.length() > 0 )
+                {
+                    sb.append( ", " );
+                }
+                sb.append( value );
+            }
+            return sb.toString();
+        }
+    }
+}
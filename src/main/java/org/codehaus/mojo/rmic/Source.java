@@ -163,6 +163,26 @@ public class Source
         StringBuffer sb = new StringBuffer();
         sb.append( "Including " ).append( getIncludes() ).append( "; excluding " ).append( getExcludes() );
         sb.append( "\nwith options: " );
+        appendOptions( sb );
+        return sb.toString();
+    }
+
+    /**
+     * Returns the options passed to the compiler for this configuration. Configurations with the same options differ
+     * only in the classes they select, and may be compiled together.
+     *
+     * @return the options, as they would appear on the rmic command line
+     */
+    String getCompilerOptions()
+    {
+        StringBuffer sb = new StringBuffer();
+        appendIfTrue( sb, isVerbose(), "-verbose" );
+        appendOptions( sb );
+        return sb.toString();
+    }
+
+    private void appendOptions( StringBuffer sb )
+    {
         appendIfTrue( sb, isIiop(), "-iiop" );
         appendIfTrue( sb, isIiop() && isNoLocalStubs(), "-noLocalStubs" );
         appendIfTrue( sb, isIdl(), "-idl" );
@@ -175,7 +195,6 @@ public class Source
         {
             sb.append( "-v" ).append( getVersion() );
         }
-        return sb.toString();
     }
 
     private void appendIfTrue( StringBuffer sb, boolean condition, String option )
@@ -0,0 +1,358 @@
+package org.codehaus.mojo.rmic;
+
+/*
+ * Copyright (c) 2026, Codehaus.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Runs another compiler with its output directed to a private staging directory, then publishes the generated files
+ * to the real output directory by renaming them, so that no other execution, nor any later build after this one is
+ * interrupted, can see a partly written file. Publishing is done while holding an {@link OutputDirectoryLock}, so
+ * that executions sharing the output directory do not interleave their output.
+ * <p>
+ * The compiler may also keep unchanged files, publishing only those generated files whose contents differ from the
+ * files already there. Files which are unchanged keep their modification times, so that later build steps which
+ * depend on them need not run again. Since a stub which is kept is older than the class from which it was generated,
+ * the class would otherwise be found out of date by every later build. The modification times of such classes are
+ * recorded in the module's state directory, outside the output directory so that the record is never packaged, and
+ * {@link #removeVerifiedClasses(Collection, File, File)} removes them from the classes to compile while they are
+ * unchanged and their stubs are still present.
+ */
+class StagingRmiCompiler implements RmiCompiler
+{
+    static final String VERIFIED_CLASSES_FILE_NAME = "verified-classes.properties";
+
+    private final RmiCompiler delegate;
+
+    private final boolean keepUnchanged;
+
+    /**
+     * Creates a staging compiler which keeps unchanged files.
+     *
+     * @param delegate the compiler which generates the classes
+     */
+    StagingRmiCompiler( RmiCompiler delegate )
+    {
+        this( delegate, true );
+    }
+
+    /**
+     * Creates a staging compiler.
+     *
+     * @param delegate the compiler which generates the classes
+     * @param keepUnchanged true if existing files with the same contents as generated files are to be kept
+     */
+    StagingRmiCompiler( RmiCompiler delegate, boolean keepUnchanged )
+    {
+        this.delegate = delegate;
+        this.keepUnchanged = keepUnchanged;
+    }
+
+    public void setLog( Log log )
+    {
+        delegate.setLog( log );
+    }
+
+    public Log getLog()
+    {
+        return delegate.getLog();
+    }
+
+    public void execute( RmiCompilerConfiguration rmiConfig ) throws RmiCompilerException
+    {
+        File outputDirectory = new File( rmiConfig.getOutputLocation() ).getAbsoluteFile();
+        File stagingDirectory = createStagingDirectory( outputDirectory );
+        try
+        {
+            rmiConfig.setOutputLocation( stagingDirectory.getPath() );
+            delegate.execute( rmiConfig );
+            rmiConfig.setOutputLocation( outputDirectory.getPath() );
+
+            OutputDirectoryLock lock = OutputDirectoryLock.acquire( outputDirectory );
+            try
+            {
+                int unchanged = publishFiles( stagingDirectory, outputDirectory, "", keepUnchanged,
+                                              new ArrayList<String>() );
+                if ( keepUnchanged )
+                {
+                    getLog().debug( unchanged + " generated files were unchanged" );
+                    recordVerifiedClasses( rmiConfig, outputDirectory );
+                }
+            }
+            finally
+            {
+                lock.close();
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new RmiCompilerException( "Unable to publish generated classes to " + outputDirectory, e );
+        }
+        finally
+        {
+            rmiConfig.setOutputLocation( outputDirectory.getPath() );
+            try
+            {
+                FileUtils.deleteDirectory( stagingDirectory );
+            }
+            catch ( IOException e )
+            {
+                getLog().warn( "Unable to delete " + stagingDirectory + ": " + e );
+            }
+        }
+    }
+
+    /**
+     * Creates an empty directory alongside an output directory, to which a compiler may write its output.
+     *
+     * @param outputDirectory the directory to which the files are eventually to be published
+     * @return the new directory
+     * @throws RmiCompilerException if the directory cannot be created
+     */
+    static File createStagingDirectory( File outputDirectory ) throws RmiCompilerException
+    {
+        try
+        {
+            File parent = outputDirectory.getParentFile();
+            parent.mkdirs();
+            return Files.createTempDirectory( parent.toPath(), outputDirectory.getName() + "-staging" ).toFile();
+        }
+        catch ( IOException e )
+        {
+            throw new RmiCompilerException( "Unable to create a staging directory for " + outputDirectory, e );
+        }
+    }
+
+    /**
+     * Moves every file in a staging directory into place in an output directory, while holding its lock.
+     *
+     * @param stagingDirectory the directory to which the files were written
+     * @param outputDirectory the directory to which the files are to be moved
+     * @return the paths of the files, relative to the output directory, in order
+     * @throws IOException if a file cannot be moved
+     */
+    static List<String> publish( File stagingDirectory, File outputDirectory ) throws IOException
+    {
+        List<String> published = new ArrayList<>();
+        OutputDirectoryLock lock = OutputDirectoryLock.acquire( outputDirectory );
+        try
+        {
+            publishFiles( stagingDirectory, outputDirectory, "", false, published );
+        }
+        finally
+        {
+            lock.close();
+        }
+        return published;
+    }
+
+    /**
+     * Moves each staged file into place, unless unchanged files are to be kept and its contents are the same as the
+     * corresponding output file.
+     *
+     * @param staged the list to which the relative path of each staged file is added
+     * @return the number of files left unchanged
+     */
+    private static int publishFiles( File stagingDirectory, File outputDirectory, String relativePath,
+                                     boolean keepUnchanged, List<String> staged ) throws IOException
+    {
+        String[] names = new File( stagingDirectory, relativePath ).list();
+        if ( names == null )
+        {
+            return 0;
+        }
+
+        int unchanged = 0;
+        Arrays.sort( names );
+        for ( String name : names )
+        {
+            String path = relativePath.isEmpty() ? name : relativePath + '/' + name;
+            File stagedFile = new File( stagingDirectory, path );
+            File outputFile = new File( outputDirectory, path );
+            if ( stagedFile.isDirectory() )
+            {
+                unchanged += publishFiles( stagingDirectory, outputDirectory, path, keepUnchanged, staged );
+                continue;
+            }
+
+            staged.add( path );
+            if ( keepUnchanged && hasSameContents( stagedFile, outputFile ) )
+            {
+                unchanged++;
+            }
+            else
+            {
+                outputFile.getParentFile().mkdirs();
+                moveAtomically( stagedFile, outputFile );
+            }
+        }
+        return unchanged;
+    }
+
+    /**
+     * Replaces a file by renaming another to it, so that readers see either the old or the new contents in full.
+     * Should the file system not support this, the file is simply moved.
+     */
+    static void moveAtomically( File source, File target ) throws IOException
+    {
+        try
+        {
+            Files.move( source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING );
+        }
+        catch ( AtomicMoveNotSupportedException e )
+        {
+            Files.move( source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING );
+        }
+    }
+
+    private static boolean hasSameContents( File stagedFile, File outputFile ) throws IOException
+    {
+        return outputFile.isFile() && outputFile.length() == stagedFile.length()
+                && Arrays.equals( Files.readAllBytes( stagedFile.toPath() ),
+                                  Files.readAllBytes( outputFile.toPath() ) );
+    }
+
+    /**
+     * Records the modification times of the compiled classes whose stubs were kept.
+     */
+    private static void recordVerifiedClasses( RmiCompilerConfiguration rmiConfig, File outputDirectory )
+            throws IOException
+    {
+        if ( rmiConfig.getSourceLocations().isEmpty() )
+        {
+            return;
+        }
+
+        File classesDirectory = new File( rmiConfig.getSourceLocations().get( 0 ) );
+        Properties verified = new Properties();
+        for ( File sourceFile : rmiConfig.getSourceFiles() )
+        {
+            File classFile = new File( classesDirectory, sourceFile.getPath() );
+            File stubFile = new File( outputDirectory, getStubPath( sourceFile.getPath() ) );
+            if ( classFile.isFile() && stubFile.isFile() && stubFile.lastModified() < classFile.lastModified() )
+            {
+                verified.setProperty( toKey( sourceFile.getPath() ), Long.toString( classFile.lastModified() ) );
+            }
+        }
+        if ( !verified.isEmpty() )
+        {
+            updateVerifiedClasses( outputDirectory, verified );
+        }
+    }
+
+    private static synchronized void updateVerifiedClasses( File outputDirectory, Properties verified )
+            throws IOException
+    {
+        File recordFile = getVerifiedClassesFile( outputDirectory );
+        File newRecordFile = new File( recordFile.getPath() + ".new" );
+        Properties record = loadVerifiedClasses( outputDirectory );
+        recordFile.getParentFile().mkdirs();
+        record.putAll( verified );
+        try ( OutputStream out = new FileOutputStream( newRecordFile ) )
+        {
+            record.store( out, "Classes whose generated stubs were unchanged when last compiled" );
+        }
+        moveAtomically( newRecordFile, recordFile );
+    }
+
+    /**
+     * Removes from a collection of out of date classes those which were compiled, unchanged since, to stubs which were
+     * identical to those already present, and whose stubs are still present.
+     *
+     * @param candidates the out of date class files
+     * @param classesDirectory the directory containing the class files
+     * @param outputDirectory the directory containing the generated classes
+     * @return the class files which must be compiled
+     */
+    static Collection<File> removeVerifiedClasses( Collection<File> candidates, File classesDirectory,
+                                                   File outputDirectory )
+    {
+        Properties record = loadVerifiedClasses( outputDirectory );
+        if ( record.isEmpty() )
+        {
+            return candidates;
+        }
+
+        List<File> remaining = new ArrayList<>();
+        for ( File candidate : candidates )
+        {
+            String path = classesDirectory.toURI().relativize( candidate.toURI() ).getPath();
+            if ( !Long.toString( candidate.lastModified() ).equals( record.getProperty( toKey( path ) ) )
+                    || !new File( outputDirectory, getStubPath( path ) ).isFile() )
+            {
+                remaining.add( candidate );
+            }
+        }
+        return remaining;
+    }
+
+    private static synchronized Properties loadVerifiedClasses( File outputDirectory )
+    {
+        Properties record = new Properties();
+        File recordFile = getVerifiedClassesFile( outputDirectory );
+        if ( recordFile.isFile() )
+        {
+            try ( InputStream in = new FileInputStream( recordFile ) )
+            {
+                record.load( in );
+            }
+            catch ( IOException e )
+            {
+                record.clear();
+            }
+        }
+        return record;
+    }
+
+    private static File getVerifiedClassesFile( File outputDirectory )
+    {
+        return new File( RmicModule.getStateDirectory( outputDirectory ), VERIFIED_CLASSES_FILE_NAME );
+    }
+
+    private static String getStubPath( String classFilePath )
+    {
+        return classFilePath.substring( 0, classFilePath.length() - ".class".length() ) + "_Stub.class";
+    }
+
+    private static String toKey( String path )
+    {
+        return path.replace( File.separatorChar, '/' );
+    }
+}
@@ -0,0 +1,163 @@
+package org.codehaus.mojo.rmic;
+
+/*
+ * Copyright (c) 2026, Codehaus.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decides which remote classes need generated stubs. Since Java 5, an object exported with JRMP for which no stub
+ * class can be found is given a dynamic proxy as its stub, so a stub is needed only where something depends on the
+ * generated class itself:
+ * <ul>
+ * <li>IIOP, which always requires stubs and ties</li>
+ * <li>version 1.1 or compat stubs, which are generated for clients older than Java 5</li>
+ * <li>a call to <code>UnicastRemoteObject.exportObject(Remote)</code>, which returns a <code>RemoteStub</code> and so
+ * fails for an object without a generated stub; since the object exported cannot be told from the bytecode, such a
+ * call in any class requires stubs for every remote class</li>
+ * <li>a reference to the stub class by name, either as a class or a string</li>
+ * </ul>
+ * The classes directory is read once, when the first remote class is analyzed.
+ */
+class StubRequirementAnalyzer
+{
+    static final String LEGACY_EXPORT_METHOD =
+        "java/rmi/server/UnicastRemoteObject.exportObject(Ljava/rmi/Remote;)Ljava/rmi/server/RemoteStub;";
+
+    private final File classesDirectory;
+
+    private Map<String, String> stubReferences;
+
+    private String legacyExporter;
+
+    /**
+     * Creates an analyzer for the remote classes in a classes directory.
+     *
+     * @param classesDirectory the directory containing the remote classes and those which use them
+     */
+    StubRequirementAnalyzer( File classesDirectory )
+    {
+        this.classesDirectory = classesDirectory;
+    }
+
+    /**
+     * Returns the reason a remote class needs a generated stub. May be called from several threads at once.
+     *
+     * @param source the configuration with which stubs would be generated
+     * @param className the fully qualified name of the remote class
+     * @return the reason, or null if the class needs no stub
+     * @throws IOException if the classes directory cannot be read
+     */
+    String getReason( Source source, String className ) throws IOException
+    {
+        if ( source.isIiop() )
+        {
+            return "IIOP always requires stubs";
+        }
+        if ( "1.1".equals( source.getVersion() ) || "compat".equals( source.getVersion() ) )
+        {
+            return "version " + source.getVersion() + " stubs are for clients older than Java 5";
+        }
+
+        String name = className.replace( '.', '/' );
+        synchronized ( this )
+        {
+            if ( stubReferences == null )
+            {
+                stubReferences = new HashMap<>();
+                scan( classesDirectory );
+            }
+        }
+        if ( legacyExporter != null )
+        {
+            return legacyExporter.replace( '/', '.' ) + " calls UnicastRemoteObject.exportObject(Remote), "
+                + "which requires a stub for the object exported";
+        }
+        String referrer = stubReferences.get( name );
+        if ( referrer != null )
+        {
+            return "its stub is referenced by " + referrer.replace( '/', '.' );
+        }
+        return null;
+    }
+
+    private void scan( File directory ) throws IOException
+    {
+        String[] names = directory.list();
+        if ( names == null )
+        {
+            return;
+        }
+
+        Arrays.sort( names );
+        for ( String fileName : names )
+        {
+            File file = new File( directory, fileName );
+            if ( file.isDirectory() )
+            {
+                scan( file );
+            }
+            else if ( fileName.endsWith( ".class" ) && !isGenerated( fileName ) )
+            {
+                try ( InputStream in = new FileInputStream( file ) )
+                {
+                    addReferences( ClassFileInfo.read( in, true ) );
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns true if a class file is one which rmic generates.
+     */
+    static boolean isGenerated( String fileName )
+    {
+        return fileName.endsWith( "_Stub.class" ) || fileName.endsWith( "_Skel.class" )
+            || fileName.endsWith( "_Tie.class" );
+    }
+
+    private void addReferences( ClassFileInfo info )
+    {
+        if ( legacyExporter == null && info.getMethodReferences().contains( LEGACY_EXPORT_METHOD ) )
+        {
+            legacyExporter = info.getName();
+        }
+        for ( String reference : info.getClassReferences() )
+        {
+            if ( reference.endsWith( "_Stub" ) && !stubReferences.containsKey( getStubbedClass( reference ) ) )
+            {
+                stubReferences.put( getStubbedClass( reference ), info.getName() );
+            }
+        }
+    }
+
+    private static String getStubbedClass( String stubName )
+    {
+        return stubName.substring( 0, stubName.length() - "_Stub".length() );
+    }
+}
@@ -0,0 +1,117 @@
+package org.codehaus.mojo.rmic;
+
+/*
+ * Copyright (c) 2026, Codehaus.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Checks a generated stub against the implementation class from which it was compiled.
+ */
+class StubVerifier
+{
+    private static final String INTERFACE_HASH_FIELD = "interfaceHash";
+
+    private static final String METHOD_FIELD_PREFIX = "$method_";
+
+    private final RemoteClassAnalyzer analyzer;
+
+    StubVerifier( RemoteClassAnalyzer analyzer )
+    {
+        this.analyzer = analyzer;
+    }
+
+    /**
+     * Compares a stub with the stub the rmi compiler would now generate for an implementation class. Version 1.1
+     * stubs are checked by their interface hash, version 1.2 stubs by their method hashes, and compat stubs by both.
+     *
+     * @param implementation the remote implementation class
+     * @param stub the stub previously generated for it
+     * @return a description of the first difference found, or null if the stub is current
+     * @throws IOException if a class needed for the comparison cannot be read
+     */
+    String findMismatch( ClassFileInfo implementation, ClassFileInfo stub ) throws IOException
+    {
+        List<String> interfaces = analyzer.getRemoteInterfaces( implementation );
+        if ( !new HashSet<>( interfaces ).equals( new HashSet<>( stub.getInterfaces() ) ) )
+        {
+            return "stub implements " + toClassNames( stub.getInterfaces() ) + " but the class implements "
+                + toClassNames( interfaces );
+        }
+
+        List<RemoteClassAnalyzer.RemoteMethod> methods = analyzer.getRemoteMethods( interfaces );
+
+        ClassFileInfo.Member interfaceHash = stub.getField( INTERFACE_HASH_FIELD );
+        if ( interfaceHash != null && interfaceHash.getConstantValue() instanceof Long )
+        {
+            long expected = RemoteClassAnalyzer.computeInterfaceHash( methods );
+            if ( (Long) interfaceHash.getConstantValue() != expected )
+            {
+                return "interface hash " + interfaceHash.getConstantValue() + " does not match " + expected;
+            }
+        }
+
+        int methodFields = countMethodFields( stub );
+        if ( methodFields > 0 )
+        {
+            if ( methodFields != methods.size() )
+            {
+                return "stub has " + methodFields + " remote methods but the class has " + methods.size();
+            }
+            for ( RemoteClassAnalyzer.RemoteMethod method : methods )
+            {
+                if ( !stub.getLongConstants().contains( RemoteClassAnalyzer.computeMethodHash( method ) ) )
+                {
+                    return "no method hash for " + method.getNameAndDescriptor();
+                }
+            }
+        }
+        return null;
+    }
+
+    private int countMethodFields( ClassFileInfo stub )
+    {
+        int count = 0;
+        for ( ClassFileInfo.Member field : stub.getFields() )
+        {
+            if ( field.getName().startsWith( METHOD_FIELD_PREFIX ) )
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static Set<String> toClassNames( List<String> internalNames )
+    {
+        Set<String> names = new TreeSet<>();
+        for ( String name : internalNames )
+        {
+            names.add( name.replace( '/', '.' ) );
+        }
+        return names;
+    }
+}
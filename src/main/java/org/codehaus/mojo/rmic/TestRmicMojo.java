@@ -38,7 +38,7 @@ import java.util.List;
  * @version $Id$
  */
 @Mojo( name = "test-rmic", defaultPhase = LifecyclePhase.PROCESS_TEST_CLASSES,
-       requiresDependencyResolution = ResolutionScope.TEST )
+       requiresDependencyResolution = ResolutionScope.TEST, threadSafe = true )
 public class TestRmicMojo
     extends AbstractRmiMojo
 {
@@ -0,0 +1,223 @@
+package org.codehaus.mojo.rmic;
+
+/*
+ * Copyright (c) 2026, Codehaus.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Records the remote classes which the <code>required</code> stub policy found to need no stub, so that later builds
+ * need not analyze them again. Since no stub is generated for such a class, a stale source scan finds it out of date
+ * in every build. The decision depends on every class in the classes directory, which may call
+ * <code>UnicastRemoteObject.exportObject(Remote)</code> or refer to the stub class, so the whole record is discarded
+ * once any class file is newer than the analysis which produced it. Only the remote classes are candidates when the
+ * module has a remote class index, so every class file is checked, not just the candidates. The record is kept in
+ * the module's state directory.
+ */
+class UnneededStubRecord
+{
+    static final String RECORD_FILE_NAME = "unneeded-stubs.properties";
+
+    private static final String ANALYSIS_TIME = "analysis.time";
+
+    private final File recordFile;
+
+    private final File classesDirectory;
+
+    private final Properties record = new Properties();
+
+    private final long startTime = System.currentTimeMillis();
+
+    private boolean changed;
+
+    private boolean verified;
+
+    /**
+     * Creates a record for a module, reading any record left by a previous build.
+     *
+     * @param module the module whose remote classes are analyzed
+     */
+    UnneededStubRecord( RmicModule module )
+    {
+        this.recordFile = new File( module.getStateDirectory(), RECORD_FILE_NAME );
+        this.classesDirectory = module.getClassesDirectory();
+        if ( recordFile.isFile() )
+        {
+            try ( InputStream in = new FileInputStream( recordFile ) )
+            {
+                record.load( in );
+            }
+            catch ( IOException e )
+            {
+                record.clear();
+            }
+        }
+    }
+
+    /**
+     * Removes from a collection of out of date classes those which were found to need no stub, with the same options,
+     * and are unchanged since. If the record is discarded as out of date, none are removed.
+     *
+     * @param candidates the out of date class files
+     * @param options the compiler options with which the classes would be compiled
+     * @return the class files which must be analyzed
+     */
+    synchronized Collection<File> removeUnneeded( Collection<File> candidates, String options )
+    {
+        if ( candidates == null || discardIfOutOfDate() || record.isEmpty() )
+        {
+            return candidates;
+        }
+
+        List<File> remaining = new ArrayList<>();
+        for ( File candidate : candidates )
+        {
+            String recorded = record.getProperty( toKey( candidate, options ) );
+            if ( !Long.toString( candidate.lastModified() ).equals( recorded ) )
+            {
+                remaining.add( candidate );
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * Discards the record if any class in the classes directory, whether a candidate or not, is newer than the recorded
+     * analysis. The classes directory is checked only once.
+     *
+     * @return true if the record was discarded, so that the classes it held may now need stubs
+     */
+    synchronized boolean discardIfOutOfDate()
+    {
+        if ( verified )
+        {
+            return false;
+        }
+        verified = true;
+        if ( record.isEmpty() || !hasNewerClass( classesDirectory, getAnalysisTime() ) )
+        {
+            return false;
+        }
+        record.clear();
+        changed = true;
+        return true;
+    }
+
+    /**
+     * Records that a class was found to need no stub. May be called from several threads at once.
+     *
+     * @param classFile the class file
+     * @param options the compiler options with which the class would have been compiled
+     */
+    synchronized void recordUnneeded( File classFile, String options )
+    {
+        record.setProperty( ANALYSIS_TIME, Long.toString( startTime ) );
+        record.setProperty( toKey( classFile, options ), Long.toString( classFile.lastModified() ) );
+        changed = true;
+    }
+
+    /**
+     * Writes the record, if it has changed.
+     *
+     * @throws IOException if the record cannot be written
+     */
+    synchronized void save() throws IOException
+    {
+        if ( !changed )
+        {
+            return;
+        }
+
+        recordFile.getParentFile().mkdirs();
+        File newRecordFile = new File( recordFile.getPath() + ".new" );
+        OutputDirectoryLock lock = OutputDirectoryLock.acquire( recordFile.getParentFile() );
+        try
+        {
+            try ( OutputStream out = new FileOutputStream( newRecordFile ) )
+            {
+                record.store( out, "Remote classes for which the required stub policy generates no stub" );
+            }
+            StagingRmiCompiler.moveAtomically( newRecordFile, recordFile );
+        }
+        finally
+        {
+            lock.close();
+        }
+        changed = false;
+    }
+
+    /**
+     * Returns true if a directory holds a class file, other than one generated by rmic, which is newer than the
+     * analysis. This reads only the file metadata.
+     */
+    private static boolean hasNewerClass( File directory, long analysisTime )
+    {
+        File[] files = directory.listFiles();
+        if ( files == null )
+        {
+            return false;
+        }
+        for ( File file : files )
+        {
+            String name = file.getName();
+            if ( file.isDirectory() )
+            {
+                if ( hasNewerClass( file, analysisTime ) )
+                {
+                    return true;
+                }
+            }
+            else if ( name.endsWith( ".class" ) && !StubRequirementAnalyzer.isGenerated( name )
+                    && file.lastModified() > analysisTime )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long getAnalysisTime()
+    {
+        try
+        {
+            return Long.parseLong( record.getProperty( ANALYSIS_TIME, "0" ) );
+        }
+        catch ( NumberFormatException e )
+        {
+            return 0;
+        }
+    }
+
+    private String toKey( File classFile, String options )
+    {
+        return options + '|' + classesDirectory.toURI().relativize( classFile.toURI() ).getPath();
+    }
+}
@@ -0,0 +1,183 @@
+package org.codehaus.mojo.rmic;
+
+/*
+ * Copyright (c) 2026, Codehaus.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stubs already generated for the explicitly included classes of a module, which are found on its class path rather
+ * than in its classes directory. They are looked for first in the output directories published by upstream modules in
+ * the same reactor, each of which records its directory in the {@value #OUTPUT_DIRECTORY_PROPERTY} property of its
+ * project, and then in the elements of the module's class path, such as the client jar attached by the package goal.
+ * A stub is only reused if no skeleton was generated with it, so that it is a version 1.2 stub, and if it matches the
+ * class as found on the class path, as {@link StubVerifier} checks it: it implements the same remote interfaces and
+ * holds the hashes of the same remote methods. The contents are compared rather than the times, which a reproducible
+ * build sets to the same value in every jar. Jars are read through the {@link JarIndexCache} shared with the class
+ * hierarchy, so each is opened once however many classes are included from it.
+ */
+class UpstreamStubs implements Closeable
+{
+    /** The project property in which the rmic goal records the directory to which it wrote its stubs. */
+    static final String OUTPUT_DIRECTORY_PROPERTY = "rmic.generatedStubsDirectory";
+
+    private final List<File> locations = new ArrayList<>();
+
+    private final JarIndexCache jars;
+
+    private final ClassFileRepository repository;
+
+    private final StubVerifier verifier;
+
+    /**
+     * Creates a finder of the stubs for a module.
+     *
+     * @param module the module whose included classes are to be compiled
+     * @param publishedDirectories the output directories published by upstream modules
+     */
+    UpstreamStubs( RmicModule module, List<File> publishedDirectories )
+    {
+        this( module, publishedDirectories, ClassHierarchy.SHARED_JARS );
+    }
+
+    /**
+     * Creates a finder of the stubs for a module which reads jars through the specified cache. It must be closed
+     * once used.
+     *
+     * @param module the module whose included classes are to be compiled
+     * @param publishedDirectories the output directories published by upstream modules
+     * @param jars the cache through which jars are read
+     */
+    UpstreamStubs( RmicModule module, List<File> publishedDirectories, JarIndexCache jars )
+    {
+        this.jars = jars;
+        jars.acquire();
+        locations.addAll( publishedDirectories );
+        List<File> ownDirectories = Arrays.asList( module.getClassesDirectory().getAbsoluteFile(),
+                                                   module.getOutputDirectory().getAbsoluteFile() );
+        List<File> classpath = new ArrayList<>();
+        for ( String element : module.getClasspathElements() )
+        {
+            File location = new File( element ).getAbsoluteFile();
+            classpath.add( location );
+            if ( !ownDirectories.contains( location ) && !locations.contains( location ) )
+            {
+                locations.add( location );
+            }
+        }
+        repository = new ClassFileRepository( classpath, jars );
+        verifier = new StubVerifier( new RemoteClassAnalyzer( repository ) );
+    }
+
+    /**
+     * Copies an existing stub for an included class to the output directory of the module, leaving the output
+     * unchanged if it already has the same contents.
+     *
+     * @param classFileName the path of the class file relative to a class path element
+     * @param outputDirectory the directory to which the stub is to be copied
+     * @return the location from which the stub was copied, or null if no stub was found
+     * @throws IOException if the stub or the classes it is checked against cannot be read, or it cannot be written
+     */
+    synchronized File copyStub( String classFileName, File outputDirectory ) throws IOException
+    {
+        String entryName = classFileName.replace( File.separatorChar, '/' );
+        String baseName = entryName.substring( 0, entryName.length() - ".class".length() );
+        ClassFileInfo implementation;
+        try
+        {
+            implementation = repository.getClass( baseName );
+        }
+        catch ( IOException e )
+        {
+            return null;
+        }
+
+        for ( File location : locations )
+        {
+            byte[] stub = read( location, baseName + "_Stub.class" );
+            if ( stub != null && !hasEntry( location, baseName + "_Skel.class" ) && verifier.findMismatch(
+                    implementation, ClassFileInfo.read( new ByteArrayInputStream( stub ) ) ) == null )
+            {
+                File target = new File( outputDirectory, baseName + "_Stub.class" );
+                OutputDirectoryLock lock = OutputDirectoryLock.acquire( outputDirectory );
+                try
+                {
+                    if ( !target.isFile() || !Arrays.equals( stub, Files.readAllBytes( target.toPath() ) ) )
+                    {
+                        target.getParentFile().mkdirs();
+                        Files.write( target.toPath(), stub );
+                    }
+                }
+                finally
+                {
+                    lock.close();
+                }
+                return location;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Releases the jars read by this finder.
+     */
+    public synchronized void close() throws IOException
+    {
+        try
+        {
+            repository.close();
+        }
+        finally
+        {
+            jars.release();
+        }
+    }
+
+    private boolean hasEntry( File location, String entryName ) throws IOException
+    {
+        if ( location.isDirectory() )
+        {
+            return new File( location, entryName ).isFile();
+        }
+        return location.isFile() && jars.hasEntry( location, entryName );
+    }
+
+    /**
+     * Returns the contents of an entry in a location, or null if there is no such entry.
+     */
+    private byte[] read( File location, String entryName ) throws IOException
+    {
+        if ( location.isDirectory() )
+        {
+            File file = new File( location, entryName );
+            return file.isFile() ? Files.readAllBytes( file.toPath() ) : null;
+        }
+        return location.isFile() ? jars.readIfPresent( location, entryName ) : null;
+    }
+}
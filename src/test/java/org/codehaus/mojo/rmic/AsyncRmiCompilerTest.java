@@ -0,0 +1,263 @@
+package org.codehaus.mojo.rmic;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.meterware.simplestub.Stub.createStub;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.fail;
+
+public class AsyncRmiCompilerTest
+{
+    private static final File OUTPUT_DIRECTORY = new File( "target/async-compiler" ).getAbsoluteFile();
+
+    private final WritingCompiler writingCompiler = new WritingCompiler();
+    private final ExecutorService executor = Executors.newFixedThreadPool( 2 );
+    private final AsyncRmiCompiler compiler = new AsyncRmiCompiler( writingCompiler, executor );
+
+    @Before
+    public void setUp() throws Exception
+    {
+        FileUtils.deleteDirectory( OUTPUT_DIRECTORY );
+        OUTPUT_DIRECTORY.mkdirs();
+        compiler.setLog( createStub( Log.class ) );
+    }
+
+    @After
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void afterCompilation_reportOutputFilesForEachClass() throws Exception
+    {
+        RmiCompilationResult result = compiler.submit( createConfiguration( "a/Service", "a/Other" ) ).get();
+
+        assertThat( result.isSuccessful(), equalTo( true ) );
+        assertThat( result.getClassNames(), contains( "a.Other", "a.Service" ) );
+        assertThat( result.getOutcome( "a.Service" ), equalTo( RmiCompilationResult.Outcome.COMPILED ) );
+        assertThat( result.getOutputFiles( "a.Service" ),
+                    contains( new File( OUTPUT_DIRECTORY, "a/Service_Stub.class" ) ) );
+        assertThat( result.getOutputFiles( "a.Other" ),
+                    contains( new File( OUTPUT_DIRECTORY, "a/Other_Stub.class" ) ) );
+        assertThat( result.getOutputFiles(), containsInAnyOrder( new File( OUTPUT_DIRECTORY, "a/Service_Stub.class" ),
+                                                                 new File( OUTPUT_DIRECTORY, "a/Other_Stub.class" ) ) );
+    }
+
+    @Test
+    public void whenCompilerFails_reportFailureForEachClass() throws Exception
+    {
+        writingCompiler.failure = new RmiCompilerException( "no good" );
+
+        RmiCompilationResult result = compiler.submit( createConfiguration( "a/Service" ) ).get();
+
+        assertThat( result.isSuccessful(), equalTo( false ) );
+        assertThat( result.getFailure(), sameInstance( writingCompiler.failure ) );
+        assertThat( result.getOutcome( "a.Service" ), equalTo( RmiCompilationResult.Outcome.FAILED ) );
+        assertThat( result.getOutputFiles( "a.Service" ), empty() );
+    }
+
+    @Test
+    public void whenOtherFilesWrittenToPackage_reportOnlyFilesGeneratedByCompilation() throws Exception
+    {
+        File skeleton = new File( OUTPUT_DIRECTORY, "a/Service_Skel.class" );
+        skeleton.getParentFile().mkdirs();
+        Files.write( skeleton.toPath(), "skeleton".getBytes( StandardCharsets.UTF_8 ) );
+
+        RmiCompilationResult result = compiler.submit( createConfiguration( "a/Service" ) ).get();
+
+        assertThat( result.getOutputFiles( "a.Service" ),
+                    contains( new File( OUTPUT_DIRECTORY, "a/Service_Stub.class" ) ) );
+        assertThat( result.getOutputFiles(), contains( new File( OUTPUT_DIRECTORY, "a/Service_Stub.class" ) ) );
+    }
+
+    @Test
+    public void whenClassNamesShareAPrefix_attributeOnlyFilesNamedForEachClass()
+    {
+        RmiCompilationResult result = RmiCompilationResult.create(
+                createConfiguration(), Arrays.asList( "a.Foo", "a.Foo_Impl" ),
+                Arrays.asList( "a/Foo_Stub.class", "a/Foo_Skel.class", "a/_Foo_Stub.class", "a/_Foo_Tie.class",
+                               "a/Foo_Impl_Stub.class", "a/_Foo_Impl_Tie.class", "a/Foo_Helper.class" ), 0, null );
+
+        assertThat( result.getOutputFiles( "a.Foo" ),
+                    contains( new File( OUTPUT_DIRECTORY, "a/Foo_Stub.class" ),
+                              new File( OUTPUT_DIRECTORY, "a/Foo_Skel.class" ),
+                              new File( OUTPUT_DIRECTORY, "a/_Foo_Stub.class" ),
+                              new File( OUTPUT_DIRECTORY, "a/_Foo_Tie.class" ) ) );
+        assertThat( result.getOutputFiles( "a.Foo_Impl" ),
+                    contains( new File( OUTPUT_DIRECTORY, "a/Foo_Impl_Stub.class" ),
+                              new File( OUTPUT_DIRECTORY, "a/_Foo_Impl_Tie.class" ) ) );
+    }
+
+    @Test
+    public void whenCompilerFailsPartWay_reportOutcomeOfEachClass() throws Exception
+    {
+        writingCompiler.maxClasses = 1;
+
+        RmiCompilationResult result = compiler.submit( createConfiguration( "a/Service", "a/Other" ) ).get();
+
+        assertThat( result.isSuccessful(), equalTo( false ) );
+        assertThat( result.getOutcome( "a.Other" ), equalTo( RmiCompilationResult.Outcome.COMPILED ) );
+        assertThat( result.getOutcome( "a.Service" ), equalTo( RmiCompilationResult.Outcome.FAILED ) );
+        assertThat( new File( OUTPUT_DIRECTORY, "a/Other_Stub.class" ).isFile(), equalTo( true ) );
+    }
+
+    @Test
+    public void whenBatchSubmitted_compileEachConfiguration() throws Exception
+    {
+        List<RmiCompilation> compilations = compiler.submitAll( Arrays.asList( createConfiguration( "a/Service" ),
+                                                                               createConfiguration( "b/Client" ) ) );
+
+        assertThat( compilations.get( 0 ).get().getOutputFiles( "a.Service" ),
+                    contains( new File( OUTPUT_DIRECTORY, "a/Service_Stub.class" ) ) );
+        assertThat( compilations.get( 1 ).get().getOutputFiles( "b.Client" ),
+                    contains( new File( OUTPUT_DIRECTORY, "b/Client_Stub.class" ) ) );
+    }
+
+    @Test
+    public void whenCompilationDone_notifyListeners() throws Exception
+    {
+        final List<RmiCompilation> notified = Collections.synchronizedList( new ArrayList<RmiCompilation>() );
+        RmiCompilation.Listener listener = new RmiCompilation.Listener()
+        {
+            public void completed( RmiCompilation compilation )
+            {
+                notified.add( compilation );
+            }
+        };
+        RmiCompilation compilation = compiler.submit( createConfiguration( "a/Service" ) );
+        compilation.addListener( listener );
+        compilation.get();
+        executor.shutdown();
+        executor.awaitTermination( 10, TimeUnit.SECONDS );
+
+        compilation.addListener( listener );
+
+        assertThat( notified, contains( compilation, compilation ) );
+    }
+
+    @Test
+    public void whenCancelled_interruptCompiler() throws Exception
+    {
+        writingCompiler.started = new CountDownLatch( 1 );
+        writingCompiler.interrupted = new CountDownLatch( 1 );
+        RmiCompilation compilation = compiler.submit( createConfiguration( "a/Service" ) );
+        writingCompiler.started.await( 10, TimeUnit.SECONDS );
+
+        compilation.cancel( true );
+
+        assertThat( writingCompiler.interrupted.await( 10, TimeUnit.SECONDS ), equalTo( true ) );
+        try
+        {
+            compilation.get();
+            fail( "Should have reported cancellation" );
+        }
+        catch ( CancellationException e )
+        {
+            assertThat( compilation.isCancelled(), equalTo( true ) );
+        }
+    }
+
+    private RmiCompilerConfiguration createConfiguration( String... classes )
+    {
+        RmiCompilerConfiguration config = new RmiCompilerConfiguration();
+        config.setOutputLocation( OUTPUT_DIRECTORY.getPath() );
+        HashSet<File> sourceFiles = new HashSet<>();
+        for ( String className : classes )
+        {
+            sourceFiles.add( new File( className.replace( '/', File.separatorChar ) + ".class" ) );
+        }
+        config.setSourceFiles( sourceFiles );
+        return config;
+    }
+
+    /**
+     * A compiler which writes a stub for each class in order, optionally waiting to be interrupted first, or failing
+     * once it has written a given number of stubs.
+     */
+    private static class WritingCompiler implements RmiCompiler
+    {
+        private RmiCompilerException failure;
+        private int maxClasses = Integer.MAX_VALUE;
+        private CountDownLatch started;
+        private CountDownLatch interrupted;
+        private Log log;
+
+        public void execute( RmiCompilerConfiguration rmiConfig ) throws RmiCompilerException
+        {
+            if ( started != null )
+            {
+                started.countDown();
+                try
+                {
+                    Thread.sleep( TimeUnit.SECONDS.toMillis( 30 ) );
+                }
+                catch ( InterruptedException e )
+                {
+                    interrupted.countDown();
+                    throw new RmiCompilerException( "cancelled" );
+                }
+            }
+            if ( failure != null )
+            {
+                throw failure;
+            }
+
+            try
+            {
+                List<File> sourceFiles = new ArrayList<>( rmiConfig.getSourceFiles() );
+                Collections.sort( sourceFiles );
+                for ( File sourceFile : sourceFiles )
+                {
+                    if ( maxClasses-- == 0 )
+                    {
+                        throw new RmiCompilerException( "too many classes" );
+                    }
+                    String path = sourceFile.getPath();
+                    File stub = new File( rmiConfig.getOutputLocation(),
+                                          path.substring( 0, path.length() - ".class".length() ) + "_Stub.class" );
+                    stub.getParentFile().mkdirs();
+                    Files.write( stub.toPath(), "stub".getBytes( StandardCharsets.UTF_8 ) );
+                }
+            }
+            catch ( IOException e )
+            {
+                throw new RmiCompilerException( e.getMessage(), e );
+            }
+        }
+
+        public void setLog( Log log )
+        {
+            this.log = log;
+        }
+
+        public Log getLog()
+        {
+            return log;
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package org.codehaus.mojo.rmic;
 
 import com.meterware.simplestub.Memento;
-import com.meterware.simplestub.StaticStubSupport;
 import com.meterware.simplestub.SystemPropertySupport;
 
 import java.io.OutputStream;
@@ -29,8 +28,8 @@ public class BuiltInRmiCompilerTest
     private static final String OUTPUT_LOCATION = "target/rmi-classes";
 
     private final RmiCompilerConfiguration config = new RmiCompilerConfiguration();
-    private final RmiCompiler rmiCompiler = new BuiltInRmiCompiler();
     private final TestClassloaderFacade loaderFacade = new TestClassloaderFacade();
+    private final RmiCompiler rmiCompiler = new BuiltInRmiCompiler( loaderFacade );
 
     private int iteration = 0;
     private boolean foundToolsJar = false;
@@ -43,7 +42,6 @@ public class BuiltInRmiCompilerTest
         config.setOutputLocation( OUTPUT_LOCATION );
         rmiCompiler.setLog( createStub( Log.class ) );
 
-        mementos.add( StaticStubSupport.install( AbstractRmiCompiler.class, "classLoaderFacade", loaderFacade ) );
         mementos.add( SystemPropertySupport.preserve( "java.version" ) );
     }
 
@@ -0,0 +1,243 @@
+package org.codehaus.mojo.rmic;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.codehaus.plexus.util.ReflectionUtils.setVariableValueInObject;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.fail;
+
+public class CheckRmicMojoTest
+{
+    private static final String API = "package checktest; public interface Api extends java.rmi.Remote {"
+        + " String echo( String value ) throws java.rmi.RemoteException;"
+        + " int count() throws java.rmi.RemoteException, java.io.IOException; }";
+    private static final String CHANGED_API = "package checktest; public interface Api extends java.rmi.Remote {"
+        + " String echo( String value, int times ) throws java.rmi.RemoteException;"
+        + " int count() throws java.rmi.RemoteException, java.io.IOException; }";
+    private static final String SERVICE = "package checktest; public class Service"
+        + " extends java.rmi.server.UnicastRemoteObject implements Api {"
+        + " public Service() throws java.rmi.RemoteException {}"
+        + " public String echo( String value ) { return value; }"
+        + " public String echo( String value, int times ) { return value; }"
+        + " public int count() { return 0; } }";
+    private static final String LOCAL = "package checktest; public class Local { }";
+
+    private TestProject project;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        project = new TestProject( "check-rmic" );
+        project.compile( "checktest/Api.java", API );
+        project.compile( "checktest/Service.java", SERVICE );
+        project.compile( "checktest/Local.java", LOCAL );
+    }
+
+    @Test
+    public void computedHashes_matchJdkRegistryStub() throws Exception
+    {
+        assertThat( findMismatch( "sun/rmi/registry/RegistryImpl" ), nullValue() );
+    }
+
+    @Test
+    public void computedHashes_matchJdkDgcStub() throws Exception
+    {
+        assertThat( findMismatch( "sun/rmi/transport/DGCImpl" ), nullValue() );
+    }
+
+    @Test
+    public void computedInterfaceHash_matchesJdkRegistryStub() throws Exception
+    {
+        try ( ClassFileRepository repository = new ClassFileRepository( Collections.<File>emptyList() ) )
+        {
+            RemoteClassAnalyzer analyzer = new RemoteClassAnalyzer( repository );
+            ClassFileInfo impl = repository.getClass( "sun/rmi/registry/RegistryImpl" );
+
+            long hash = RemoteClassAnalyzer.computeInterfaceHash(
+                    analyzer.getRemoteMethods( analyzer.getRemoteInterfaces( impl ) ) );
+
+            assertThat( hash, equalTo( 4905912898345647071L ) );
+        }
+    }
+
+    @Test
+    public void whenStubsCurrent_checkSucceeds() throws Exception
+    {
+        runRmic( "-v1.2" );
+
+        createMojo().execute();
+    }
+
+    @Test
+    public void whenCompatStubsCurrent_checkSucceeds() throws Exception
+    {
+        runRmic( "-vcompat" );
+
+        createMojo().execute();
+    }
+
+    @Test
+    public void whenStubMissing_checkFails() throws Exception
+    {
+        try
+        {
+            createMojo().execute();
+            fail( "Should have reported missing stub" );
+        }
+        catch ( MojoExecutionException e )
+        {
+            assertThat( e.getMessage(), containsString( "No rmi stub found for checktest.Service" ) );
+        }
+    }
+
+    @Test
+    public void whenVersion12StubOutOfDate_checkFails() throws Exception
+    {
+        runRmic( "-v1.2" );
+        project.compile( "checktest/Api.java", CHANGED_API );
+
+        assertCheckFailsForService();
+    }
+
+    @Test
+    public void whenVersion11StubOutOfDate_checkFails() throws Exception
+    {
+        runRmic( "-v1.1" );
+        project.compile( "checktest/Api.java", CHANGED_API );
+
+        assertCheckFailsForService();
+    }
+
+    @Test
+    public void whenRemoteInterfaceAdded_checkFails() throws Exception
+    {
+        runRmic( "-v1.2" );
+        project.compile( "checktest/Other.java",
+                         "package checktest; public interface Other extends java.rmi.Remote {}" );
+        project.compile( "checktest/Service.java", SERVICE.replace( "implements Api", "implements Api, Other" ) );
+
+        try
+        {
+            createMojo().execute();
+            fail( "Should have reported changed interfaces" );
+        }
+        catch ( MojoExecutionException e )
+        {
+            assertThat( e.getMessage(), containsString( "checktest.Other" ) );
+        }
+    }
+
+    @Test
+    public void whenClassExcluded_checkIgnoresIt() throws Exception
+    {
+        CheckRmicMojo mojo = createMojo();
+        mojo.setExcludes( new HashSet<>( Collections.singletonList( "**/Service.class" ) ) );
+
+        mojo.execute();
+    }
+
+    @Test
+    public void whenIdl_checkSkipsSource() throws Exception
+    {
+        CheckRmicMojo mojo = createMojo();
+        mojo.setIdl( true );
+
+        mojo.execute();
+    }
+
+    @Test
+    public void whenStubPolicyRequiredLeftClassWithoutStub_checkSucceeds() throws Exception
+    {
+        RmicMojo rmic = project.configure( new RmicMojo() );
+        setVariableValueInObject( rmic, "stubPolicy", "required" );
+        TestRmiCompiler compiler = new TestRmiCompiler();
+        compiler.setInMojo( rmic );
+        rmic.execute();
+        assertThat( compiler.getInvocationCount(), equalTo( 0 ) );
+
+        CheckRmicMojo mojo = createMojo();
+        setVariableValueInObject( mojo, "stubPolicy", "required" );
+        mojo.execute();
+    }
+
+    @Test
+    public void whenStubPolicyRequiredAndStubNeeded_checkFails() throws Exception
+    {
+        project.compile( "checktest/Client.java", "package checktest; public class Client { Class<?> stubClass()"
+            + " throws Exception { return Class.forName( \"checktest.Service_Stub\" ); } }" );
+        CheckRmicMojo mojo = createMojo();
+        setVariableValueInObject( mojo, "stubPolicy", "required" );
+
+        try
+        {
+            mojo.execute();
+            fail( "Should have reported missing stub" );
+        }
+        catch ( MojoExecutionException e )
+        {
+            assertThat( e.getMessage(), containsString( "No rmi stub found for checktest.Service" ) );
+        }
+    }
+
+    private void assertCheckFailsForService() throws Exception
+    {
+        try
+        {
+            createMojo().execute();
+            fail( "Should have reported out of date stub" );
+        }
+        catch ( MojoExecutionException e )
+        {
+            assertThat( e.getMessage(), containsString( "The rmi stub for checktest.Service is out of date" ) );
+        }
+    }
+
+    private String findMismatch( String implementationName ) throws IOException
+    {
+        try ( ClassFileRepository repository = new ClassFileRepository( Collections.<File>emptyList() ) )
+        {
+            RemoteClassAnalyzer analyzer = new RemoteClassAnalyzer( repository );
+            return new StubVerifier( analyzer ).findMismatch( repository.getClass( implementationName ),
+                                                              repository.getClass( implementationName + "_Stub" ) );
+        }
+    }
+
+    private CheckRmicMojo createMojo() throws Exception
+    {
+        return project.configure( new CheckRmicMojo() );
+    }
+
+    private void runRmic( String version ) throws Exception
+    {
+        Assume.assumeTrue( TestProject.TOOLS_JAR.isFile() );
+        project.getOutputDirectory().mkdirs();
+
+        try ( URLClassLoader loader = new URLClassLoader( new URL[] { TestProject.TOOLS_JAR.toURI().toURL() } ) )
+        {
+            Class<?> mainClass = loader.loadClass( "sun.rmi.rmic.Main" );
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            Object main = mainClass.getConstructor( java.io.OutputStream.class, String.class )
+                    .newInstance( output, "rmic" );
+            Method compile = mainClass.getMethod( "compile", String[].class );
+            Object result = compile.invoke( main, (Object) new String[] { version, "-d",
+                    project.getOutputDirectory().getPath(), "-classpath", project.getClassesDirectory().getPath(),
+                    "checktest.Service" } );
+            assertThat( output.toString(), result, equalTo( (Object) Boolean.TRUE ) );
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package org.codehaus.mojo.rmic;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+public class ClassHierarchyTest
+{
+    private static final String REMOTE_API = "package hiertest; public interface Api extends java.rmi.Remote {}";
+    private static final String LOCAL_API = "package hiertest; public interface Api {}";
+
+    private TestProject project;
+    private File classesDirectory;
+    private File apiClasses;
+    private File apiJar;
+    private File cacheFile;
+    private List<File> classpath;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        project = new TestProject( "class-hierarchy" );
+        classesDirectory = project.getClassesDirectory();
+        apiClasses = project.getFile( "api-classes" );
+        apiJar = project.getFile( "api.jar" );
+        cacheFile = project.getFile( "cache/class-hierarchy.cache" );
+        classpath = Arrays.asList( classesDirectory, apiJar );
+        createApiJar( REMOTE_API );
+        compile( classesDirectory, "hiertest/Service.java",
+                 "package hiertest; public class Service extends java.lang.Thread implements Api {}" );
+        compile( classesDirectory, "hiertest/Exported.java",
+                 "package hiertest; public class Exported extends java.rmi.server.UnicastRemoteObject {"
+                 + " public Exported() throws java.rmi.RemoteException {} }" );
+        compile( classesDirectory, "hiertest/Local.java", "package hiertest; public class Local {}" );
+    }
+
+    @Test
+    public void classImplementingRemoteInterfaceInJar_isRemote() throws Exception
+    {
+        try ( ClassHierarchy hierarchy = new ClassHierarchy( classpath, cacheFile ) )
+        {
+            assertThat( hierarchy.isRemoteClass( "hiertest.Service", false ), equalTo( true ) );
+        }
+    }
+
+    @Test
+    public void classExtendingJdkRemoteClass_isRemote() throws Exception
+    {
+        try ( ClassHierarchy hierarchy = new ClassHierarchy( classpath, null ) )
+        {
+            assertThat( hierarchy.isRemoteClass( "hiertest.Exported", false ), equalTo( true ) );
+        }
+    }
+
+    @Test
+    public void classWithoutRemoteSuperType_isNotRemote() throws Exception
+    {
+        try ( ClassHierarchy hierarchy = new ClassHierarchy( classpath, cacheFile ) )
+        {
+            assertThat( hierarchy.isRemoteClass( "hiertest.Local", true ), equalTo( false ) );
+        }
+    }
+
+    @Test
+    public void remoteInterface_isRemoteOnlyIfInterfacesIncluded() throws Exception
+    {
+        try ( ClassHierarchy hierarchy = new ClassHierarchy( classpath, cacheFile ) )
+        {
+            assertThat( hierarchy.isRemoteClass( "hiertest.Api", false ), equalTo( false ) );
+            assertThat( hierarchy.isRemoteClass( "hiertest.Api", true ), equalTo( true ) );
+        }
+    }
+
+    @Test
+    public void whenModulesHaveDifferentClasspaths_resolveClassesSeparately() throws Exception
+    {
+        File localApi = project.getFile( "local-api" );
+        compile( localApi, "hiertest/Api.java", LOCAL_API );
+
+        try ( ClassHierarchy hierarchy = new ClassHierarchy( classpath, cacheFile ) )
+        {
+            ClassHierarchy remoteModule = hierarchy.withClasspath( classpath );
+            ClassHierarchy localModule = hierarchy.withClasspath( Arrays.asList( classesDirectory, localApi ) );
+
+            assertThat( remoteModule.isRemoteClass( "hiertest.Service", false ), equalTo( true ) );
+            assertThat( localModule.isRemoteClass( "hiertest.Service", false ), equalTo( false ) );
+        }
+        assertThat( cacheFile.isFile(), equalTo( true ) );
+    }
+
+    @Test
+    public void afterClose_cacheFileIsWritten() throws Exception
+    {
+        new ClassHierarchy( classpath, cacheFile ).close();
+        assertThat( cacheFile.isFile(), equalTo( false ) );
+
+        try ( ClassHierarchy hierarchy = new ClassHierarchy( classpath, cacheFile ) )
+        {
+            hierarchy.isRemoteClass( "hiertest.Service", false );
+        }
+
+        assertThat( cacheFile.isFile(), equalTo( true ) );
+    }
+
+    @Test
+    public void whenClassFileUnchanged_useCachedHierarchy() throws Exception
+    {
+        isRemoteInNewHierarchy( "hiertest.Local" );
+        File classFile = new File( classesDirectory, "hiertest/Local.class" );
+        long lastModified = classFile.lastModified();
+        byte[] original = Files.readAllBytes( classFile.toPath() );
+
+        compile( classesDirectory, "hiertest/Local.java", "package hiertest; public class Local implements Api {}" );
+        byte[] changed = Files.readAllBytes( classFile.toPath() );
+        Files.write( classFile.toPath(), Arrays.copyOf( changed, original.length ) );
+        classFile.setLastModified( lastModified );
+
+        assertThat( isRemoteInNewHierarchy( "hiertest.Local" ), equalTo( false ) );
+    }
+
+    @Test
+    public void whenClassFileChanged_readItAgain() throws Exception
+    {
+        isRemoteInNewHierarchy( "hiertest.Local" );
+
+        compile( classesDirectory, "hiertest/Local.java", "package hiertest; public class Local implements Api {}" );
+        new File( classesDirectory, "hiertest/Local.class" ).setLastModified( System.currentTimeMillis() + 5000 );
+
+        assertThat( isRemoteInNewHierarchy( "hiertest.Local" ), equalTo( true ) );
+    }
+
+    @Test
+    public void whenJarChanged_readItAgain() throws Exception
+    {
+        assertThat( isRemoteInNewHierarchy( "hiertest.Service" ), equalTo( true ) );
+
+        createApiJar( LOCAL_API );
+
+        assertThat( isRemoteInNewHierarchy( "hiertest.Service" ), equalTo( false ) );
+    }
+
+    @Test
+    public void whenCacheFileCorrupt_ignoreIt() throws Exception
+    {
+        cacheFile.getParentFile().mkdirs();
+        Files.write( cacheFile.toPath(), "not a cache".getBytes( StandardCharsets.UTF_8 ) );
+
+        assertThat( isRemoteInNewHierarchy( "hiertest.Service" ), equalTo( true ) );
+    }
+
+    private boolean isRemoteInNewHierarchy( String className ) throws IOException
+    {
+        try ( ClassHierarchy hierarchy = new ClassHierarchy( classpath, cacheFile ) )
+        {
+            return hierarchy.isRemoteClass( className, false );
+        }
+    }
+
+    private void createApiJar( String api ) throws IOException
+    {
+        compile( apiClasses, "hiertest/Api.java", api );
+        project.createJar( apiJar, apiClasses, "hiertest/Api.class" );
+    }
+
+    private void compile( File outputDirectory, String path, String content ) throws IOException
+    {
+        project.compile( outputDirectory, apiClasses, path, content );
+    }
+}
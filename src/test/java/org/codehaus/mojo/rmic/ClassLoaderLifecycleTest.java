@@ -0,0 +1,129 @@
+package org.codehaus.mojo.rmic;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+/**
+ * Verifies that repeated executions in a single JVM, as happen in a long-lived Maven daemon, do not retain
+ * class loaders or the files they open. The executions run the real in-process rmic.
+ */
+public class ClassLoaderLifecycleTest
+{
+    private static final File PROC_FD = new File( "/proc/self/fd" );
+    private static final int EXECUTIONS = 50;
+
+    private TestProject project;
+    private File dependencyJar;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        Assume.assumeTrue( TestProject.TOOLS_JAR.isFile() );
+        project = new TestProject( "classloader-lifecycle" );
+        dependencyJar = project.getFile( "dependency.jar" );
+        File dependencyClasses = project.getFile( "dependency-classes" );
+        project.compile( dependencyClasses, dependencyClasses, "leaktest/Base.java",
+                         "package leaktest; public class Base {}" );
+        project.compile( project.getClassesDirectory(), dependencyClasses, "leaktest/RemoteProbe.java",
+                         "package leaktest; public class RemoteProbe extends Base implements java.rmi.Remote {}" );
+        project.createJar( dependencyJar, dependencyClasses, "leaktest/Base.class" );
+    }
+
+    @Test
+    public void repeatedExecutions_reuseCompilerClassLoader() throws Exception
+    {
+        executeMojo();
+        int loaders = AbstractRmiCompiler.getCompilerLoaderCount();
+
+        for ( int i = 0; i < EXECUTIONS; i++ )
+        {
+            executeMojo();
+        }
+
+        assertThat( AbstractRmiCompiler.getCompilerLoaderCount(), equalTo( loaders ) );
+    }
+
+    @Test
+    public void whenManyCompilerClassPathsUsed_holdOnlyMostRecentLoaders() throws Exception
+    {
+        for ( int i = 0; i <= AbstractRmiCompiler.MAX_COMPILER_LOADERS; i++ )
+        {
+            new BuiltInRmiCompiler().getClassLoaderFacade().prependUrls( project.getFile( "lib" + i ).toURI().toURL() );
+        }
+
+        assertThat( AbstractRmiCompiler.getCompilerLoaderCount(),
+                    equalTo( AbstractRmiCompiler.MAX_COMPILER_LOADERS ) );
+        executeMojo();
+    }
+
+    @Test
+    public void repeatedExecutions_doNotAccumulateOpenFiles() throws Exception
+    {
+        Assume.assumeTrue( PROC_FD.isDirectory() );
+        executeMojo();
+        int openFiles = countOpenFiles();
+
+        for ( int i = 0; i < EXECUTIONS; i++ )
+        {
+            executeMojo();
+        }
+
+        assertThat( countOpenFiles(), lessThanOrEqualTo( openFiles ) );
+    }
+
+    @Test
+    public void afterExecution_dependencyJarIsClosed() throws Exception
+    {
+        Assume.assumeTrue( PROC_FD.isDirectory() );
+        for ( int i = 0; i < EXECUTIONS; i++ )
+        {
+            executeMojo();
+        }
+
+        assertThat( countOpenHandles( dependencyJar ), equalTo( 0 ) );
+    }
+
+    private void executeMojo() throws Exception
+    {
+        File stub = new File( project.getOutputDirectory(), "leaktest/RemoteProbe_Stub.class" );
+        stub.delete();
+
+        project.configure( new RmicMojo(), dependencyJar.getAbsolutePath() ).execute();
+
+        assertThat( stub.isFile(), equalTo( true ) );
+    }
+
+    private int countOpenFiles()
+    {
+        return PROC_FD.list().length;
+    }
+
+    private int countOpenHandles( File file ) throws IOException
+    {
+        int count = 0;
+        for ( File descriptor : PROC_FD.listFiles() )
+        {
+            try
+            {
+                if ( file.getCanonicalFile().toPath().equals( Files.readSymbolicLink( descriptor.toPath() ) ) )
+                {
+                    count++;
+                }
+            }
+            catch ( IOException ignored )
+            {
+                // the descriptor was closed while scanning
+            }
+        }
+        return count;
+    }
+}
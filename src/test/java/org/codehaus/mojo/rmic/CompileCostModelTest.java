@@ -0,0 +1,190 @@
+package org.codehaus.mojo.rmic;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class CompileCostModelTest
+{
+    private static final File LARGE = new File( "costtest/Large.class" );
+    private static final File SMALL_1 = new File( "costtest/Small1.class" );
+    private static final File SMALL_2 = new File( "costtest/Small2.class" );
+    private static final File SMALL_3 = new File( "costtest/Small3.class" );
+
+    private TestProject project;
+    private File classesDirectory;
+    private File costFile;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        project = new TestProject( "compile-costs" );
+        classesDirectory = project.getClassesDirectory();
+        costFile = project.getFile( "compile-costs.properties" );
+        compile( "Large", "public class Large { void a() {} void b() {} void c() {} void d() {} void e() {} }" );
+        for ( int i = 1; i <= 3; i++ )
+        {
+            compile( "Small" + i, "public class Small" + i + " {}" );
+        }
+    }
+
+    @Test
+    public void whenClassNotCompiledBefore_estimateFromMethodCount()
+    {
+        CompileCostModel model = new CompileCostModel( null );
+
+        assertThat( model.estimate( classesDirectory, LARGE ), equalTo( 7.0 ) );
+        assertThat( model.estimate( classesDirectory, SMALL_1 ), equalTo( 2.0 ) );
+    }
+
+    @Test
+    public void whenPartitioned_costliestClassesAreBalancedAcrossBatches()
+    {
+        CompileCostModel model = new CompileCostModel( null );
+
+        List<Set<File>> batches = model.partition( classesDirectory, Arrays.asList( SMALL_1, SMALL_2, LARGE, SMALL_3 ),
+                                                   2, 0 );
+
+        assertThat( batches, hasSize( 2 ) );
+        assertThat( batches.get( 0 ), contains( LARGE ) );
+        assertThat( batches.get( 1 ), containsInAnyOrder( SMALL_1, SMALL_2, SMALL_3 ) );
+    }
+
+    @Test
+    public void whenPartitioned_respectMaxBatchSize()
+    {
+        CompileCostModel model = new CompileCostModel( null );
+
+        List<Set<File>> batches = model.partition( classesDirectory, Arrays.asList( SMALL_1, SMALL_2, LARGE, SMALL_3 ),
+                                                   1, 2 );
+
+        assertThat( batches, hasSize( 2 ) );
+        for ( Set<File> batch : batches )
+        {
+            assertThat( batch.size(), lessThanOrEqualTo( 2 ) );
+        }
+    }
+
+    @Test
+    public void whenFewerClassesThanWorkers_createOneBatchPerClass()
+    {
+        CompileCostModel model = new CompileCostModel( null );
+
+        assertThat( model.partition( classesDirectory, Arrays.asList( SMALL_1 ), 4, 0 ), hasSize( 1 ) );
+    }
+
+    @Test
+    public void afterRecording_estimateFromObservedTimes() throws Exception
+    {
+        CompileCostModel model = new CompileCostModel( costFile );
+
+        model.record( createConfiguration( LARGE, SMALL_1 ), 90 );
+
+        assertThat( model.estimate( classesDirectory, LARGE ), equalTo( 70.0 ) );
+        assertThat( model.estimate( classesDirectory, SMALL_1 ), equalTo( 20.0 ) );
+        assertThat( model.estimate( classesDirectory, SMALL_2 ), equalTo( 11.0 ) );
+    }
+
+    @Test
+    public void whenRecordedAgain_averageWithEarlierTimes() throws Exception
+    {
+        CompileCostModel model = new CompileCostModel( costFile );
+        model.record( createConfiguration( SMALL_1 ), 10 );
+
+        model.record( createConfiguration( SMALL_1 ), 30 );
+
+        assertThat( model.estimate( classesDirectory, SMALL_1 ), equalTo( 20.0 ) );
+    }
+
+    @Test
+    public void afterSaving_laterBuildsUseRecordedTimes() throws Exception
+    {
+        CompileCostModel model = new CompileCostModel( costFile );
+        model.record( createConfiguration( LARGE, SMALL_1 ), 90 );
+
+        model.save();
+
+        CompileCostModel laterModel = new CompileCostModel( costFile );
+        assertThat( laterModel.estimate( classesDirectory, LARGE ), equalTo( 70.0 ) );
+        assertThat( laterModel.estimate( classesDirectory, SMALL_2 ), equalTo( 11.0 ) );
+    }
+
+    @Test
+    public void whenBatchesOfDifferentSizesRecorded_separateInvocationCost() throws Exception
+    {
+        CompileCostModel model = new CompileCostModel( costFile );
+        model.record( createConfiguration( SMALL_1 ), 52 );
+
+        model.record( createConfiguration( LARGE ), 57 );
+
+        assertThat( model.getInvocationCost(), closeTo( 50.0, 0.001 ) );
+        assertThat( model.estimate( classesDirectory, LARGE ), closeTo( 7.0, 0.001 ) );
+        assertThat( model.estimate( classesDirectory, SMALL_2 ), closeTo( 2.0, 0.001 ) );
+    }
+
+    @Test
+    public void afterInvocationCostLearned_shareOnlyRemainingTimeAmongClasses() throws Exception
+    {
+        CompileCostModel model = new CompileCostModel( costFile );
+        model.record( createConfiguration( SMALL_1 ), 52 );
+        model.record( createConfiguration( LARGE ), 57 );
+
+        model.record( createConfiguration( SMALL_2 ), 52 );
+
+        assertThat( model.estimate( classesDirectory, SMALL_2 ), closeTo( 2.0, 0.001 ) );
+    }
+
+    @Test
+    public void afterSaving_laterBuildsUseInvocationCost() throws Exception
+    {
+        CompileCostModel model = new CompileCostModel( costFile );
+        model.record( createConfiguration( SMALL_1 ), 52 );
+        model.record( createConfiguration( LARGE ), 57 );
+
+        model.save();
+
+        CompileCostModel laterModel = new CompileCostModel( costFile );
+        assertThat( laterModel.getInvocationCost(), closeTo( 50.0, 0.001 ) );
+        laterModel.record( createConfiguration( SMALL_3 ), 52 );
+        assertThat( laterModel.estimate( classesDirectory, SMALL_3 ), closeTo( 2.0, 0.001 ) );
+    }
+
+    @Test
+    public void whenCostFileUnreadable_estimateFromMethodCount() throws Exception
+    {
+        Files.write( costFile.toPath(), "costtest.Large=lots".getBytes( StandardCharsets.UTF_8 ) );
+
+        CompileCostModel model = new CompileCostModel( costFile );
+
+        assertThat( model.estimate( classesDirectory, LARGE ), equalTo( 7.0 ) );
+    }
+
+    private RmiCompilerConfiguration createConfiguration( File... classFiles )
+    {
+        RmiCompilerConfiguration config = new RmiCompilerConfiguration();
+        config.addSourceLocation( classesDirectory.getPath() );
+        config.setSourceFiles( new HashSet<>( Arrays.asList( classFiles ) ) );
+        return config;
+    }
+
+    private void compile( String className, String content ) throws IOException
+    {
+        project.compile( "costtest/" + className + ".java", "package costtest; " + content );
+    }
+}
@@ -0,0 +1,115 @@
+package org.codehaus.mojo.rmic;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.codehaus.plexus.util.ReflectionUtils.setVariableValueInObject;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Verifies that executions for different modules may run at the same time, as they do in a parallel reactor build.
+ * The executions run the real in-process rmic, which shares its compiler class loader and idle engines between them.
+ */
+public class ConcurrentExecutionTest
+{
+    private static final int MODULES = 4;
+    private static final int EXECUTIONS = 25;
+
+    private TestProject project;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        Assume.assumeTrue( TestProject.TOOLS_JAR.isFile() );
+        project = new TestProject( "concurrent-execution" );
+        for ( int i = 0; i < MODULES; i++ )
+        {
+            project.compile( getClassesDirectory( i ), getClassesDirectory( i ), "module" + i + "/Remote" + i + ".java",
+                             "package module" + i + "; public class Remote" + i + " implements java.rmi.Remote {}" );
+        }
+    }
+
+    @Test
+    public void whenModulesExecuteConcurrently_eachCompilesOnlyItsOwnClasses() throws Exception
+    {
+        final CyclicBarrier barrier = new CyclicBarrier( MODULES );
+        ExecutorService executor = Executors.newFixedThreadPool( MODULES );
+        try
+        {
+            List<Future<List<String[]>>> results = new ArrayList<>();
+            for ( int i = 0; i < MODULES; i++ )
+            {
+                final int module = i;
+                results.add( executor.submit( new Callable<List<String[]>>()
+                {
+                    public List<String[]> call() throws Exception
+                    {
+                        List<String[]> outputs = new ArrayList<>();
+                        for ( int j = 0; j < EXECUTIONS; j++ )
+                        {
+                            barrier.await();
+                            outputs.add( executeMojo( module ) );
+                        }
+                        return outputs;
+                    }
+                } ) );
+            }
+
+            for ( int i = 0; i < MODULES; i++ )
+            {
+                List<String[]> outputs = results.get( i ).get();
+                assertThat( outputs.size(), equalTo( EXECUTIONS ) );
+                assertThat( outputs, everyItem( arrayContaining( "Remote" + i + "_Stub.class" ) ) );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs the mojo for a module, from which the stubs of any earlier execution have been removed.
+     * @return the names of the files generated in the module's package
+     */
+    private String[] executeMojo( int module ) throws Exception
+    {
+        File outputDirectory = project.getFile( "rmi-classes" + module );
+        File packageDirectory = new File( outputDirectory, "module" + module );
+        for ( String name : packageDirectory.isDirectory() ? packageDirectory.list() : new String[0] )
+        {
+            new File( packageDirectory, name ).delete();
+        }
+
+        RmicMojo mojo = new RmicMojo();
+        setVariableValueInObject( mojo, "classesDirectory", getClassesDirectory( module ) );
+        setVariableValueInObject( mojo, "outputDirectory", outputDirectory );
+        setVariableValueInObject( mojo, "projectCompileClasspathElements", new ArrayList<String>() );
+        mojo.setLog( TestProject.createLog() );
+
+        mojo.execute();
+
+        String[] generated = packageDirectory.list();
+        Arrays.sort( generated );
+        return generated;
+    }
+
+    private File getClassesDirectory( int module )
+    {
+        return project.getFile( "classes" + module );
+    }
+}
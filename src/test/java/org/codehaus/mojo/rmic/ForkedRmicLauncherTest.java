@@ -0,0 +1,171 @@
+package org.codehaus.mojo.rmic;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.IOUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.security.cert.Certificate;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.meterware.simplestub.Stub.createStub;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
+
+public class ForkedRmicLauncherTest
+{
+    private static final File CDS_DIRECTORY = new File( "target/rmic-cds" ).getAbsoluteFile();
+    private static final String[] RMIC_ARGS = { "-d", "target/rmi-classes", "a.b.RemoteClass1" };
+
+    private final RmiCompilerConfiguration config = new RmiCompilerConfiguration();
+    private final Log log = createStub( Log.class );
+
+    @Before
+    public void setUp() throws Exception
+    {
+        config.setForkJvmArgs( Arrays.asList( "-XX:TieredStopAtLevel=1", "-Xmx64m" ) );
+        config.setClassDataSharingDirectory( CDS_DIRECTORY );
+    }
+
+    @Test
+    public void forkedCommand_includesJvmArgsMainClassAndCompilerArgs() throws Exception
+    {
+        List<String> command = createLauncher( 8 ).buildCommand( RMIC_ARGS, null, null );
+
+        assertThat( command.get( 0 ), containsString( "java" ) );
+        assertThat( command, hasItems( "-XX:TieredStopAtLevel=1", "-Xmx64m", "-classpath" ) );
+        assertThat( command.subList( command.size() - 4, command.size() ),
+                    equalTo( Arrays.asList( getClass().getName(), "-d", "target/rmi-classes", "a.b.RemoteClass1" ) ) );
+    }
+
+    @Test
+    public void whenJdkDoesNotSupportDynamicArchives_noArchiveIsUsed() throws Exception
+    {
+        assertThat( createLauncher( 11 ).getArchiveFile(), nullValue() );
+    }
+
+    @Test
+    public void whenNoArchiveDirectory_noArchiveIsUsed() throws Exception
+    {
+        config.setClassDataSharingDirectory( null );
+
+        assertThat( createLauncher( 17 ).getArchiveFile(), nullValue() );
+    }
+
+    @Test
+    public void archiveName_identifiesJdkVersion() throws Exception
+    {
+        File archive = createLauncher( 17 ).getArchiveFile();
+
+        assertThat( archive.getParentFile(), equalTo( CDS_DIRECTORY ) );
+        assertThat( archive.getName(), startsWith( "rmic-jdk17-" ) );
+        assertThat( archive.getName(), endsWith( ".jsa" ) );
+    }
+
+    @Test
+    public void whenArchiveMissing_requestArchiveCreation() throws Exception
+    {
+        ForkedRmicLauncher launcher = createLauncher( 17 );
+        File archive = launcher.getArchiveFile();
+        File newArchive = new File( CDS_DIRECTORY, "new.jsa" );
+
+        List<String> command = launcher.buildCommand( RMIC_ARGS, archive, newArchive );
+
+        assertThat( command, hasItem( "-XX:ArchiveClassesAtExit=" + newArchive.getAbsolutePath() ) );
+        assertThat( command, not( hasItem( "-XX:SharedArchiveFile=" + archive.getAbsolutePath() ) ) );
+    }
+
+    @Test
+    public void whenArchiveDirectoryCannotBeCreated_noNewArchive() throws Exception
+    {
+        File blocker = new File( "target/rmic-cds-blocker" ).getAbsoluteFile();
+        blocker.getParentFile().mkdirs();
+        blocker.createNewFile();
+        config.setClassDataSharingDirectory( blocker );
+        ForkedRmicLauncher launcher = createLauncher( 17 );
+
+        assertThat( launcher.createTemporaryArchiveName( launcher.getArchiveFile() ), nullValue() );
+    }
+
+    @Test
+    public void whenArchivePresent_useArchive() throws Exception
+    {
+        ForkedRmicLauncher launcher = createLauncher( 17 );
+        File archive = launcher.getArchiveFile();
+
+        List<String> command = launcher.buildCommand( RMIC_ARGS, archive, null );
+
+        assertThat( command, hasItem( "-XX:SharedArchiveFile=" + archive.getAbsolutePath() ) );
+    }
+
+    @Test
+    public void whenCompilerLoadedFromNonFileLocation_leaveItOffClasspath() throws Exception
+    {
+        Class<?> mainClass = new NonFileClassLoader().loadMarker();
+
+        List<String> command = new ForkedRmicLauncher( log, mainClass, config, 11 ).buildCommand( RMIC_ARGS, null,
+                                                                                                  null );
+
+        assertThat( command.get( command.indexOf( "-classpath" ) + 1 ), not( containsString( "compiler.jimage" ) ) );
+        assertThat( command, hasItem( Marker.class.getName() ) );
+    }
+
+    @Test
+    public void classpath_containsOnlyCompilerLocation() throws Exception
+    {
+        File compilerLocation = new File( getClass().getProtectionDomain().getCodeSource().getLocation().toURI() );
+
+        List<String> command = createLauncher( 8 ).buildCommand( RMIC_ARGS, null, null );
+
+        assertThat( command.get( command.indexOf( "-classpath" ) + 1 ), equalTo( compilerLocation.getAbsolutePath() ) );
+    }
+
+    @Test
+    public void specificationVersion_convertedToFeatureVersion() throws Exception
+    {
+        assertThat( ForkedRmicLauncher.getJavaFeatureVersion( "1.8" ), equalTo( 8 ) );
+        assertThat( ForkedRmicLauncher.getJavaFeatureVersion( "17" ), equalTo( 17 ) );
+        assertThat( ForkedRmicLauncher.getJavaFeatureVersion( "21-ea" ), equalTo( 21 ) );
+    }
+
+    private ForkedRmicLauncher createLauncher( int javaVersion )
+    {
+        return new ForkedRmicLauncher( log, getClass(), config, javaVersion );
+    }
+
+    public static class Marker
+    {
+    }
+
+    /**
+     * A class loader which defines classes from a location which is not a file, as the JDK does for its modules.
+     */
+    private static class NonFileClassLoader extends ClassLoader
+    {
+        Class<?> loadMarker() throws Exception
+        {
+            String resource = Marker.class.getName().replace( '.', '/' ) + ".class";
+            try ( InputStream in = Marker.class.getClassLoader().getResourceAsStream( resource ) )
+            {
+                byte[] bytes = IOUtil.toByteArray( in );
+                CodeSource codeSource = new CodeSource( new URL( "http://localhost/compiler.jimage" ),
+                                                        (Certificate[]) null );
+                return defineClass( Marker.class.getName(), bytes, 0, bytes.length,
+                                    new ProtectionDomain( codeSource, null ) );
+            }
+        }
+    }
+}
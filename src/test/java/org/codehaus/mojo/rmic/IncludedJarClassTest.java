@@ -0,0 +1,113 @@
+package org.codehaus.mojo.rmic;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.equalTo;
+
+public class IncludedJarClassTest
+{
+    private static final String INCLUDE = "jartest/Service.class";
+
+    private static final String API = "package jartest; public interface Api extends java.rmi.Remote {"
+        + " String echo( String value ) throws java.rmi.RemoteException; }";
+    private static final String SERVICE = "package jartest; public class Service implements Api {"
+        + " public String echo( String value ) { return value; } }";
+
+    private TestProject project;
+    private File apiJar;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        project = new TestProject( "included-jar-class" );
+        apiJar = project.getFile( "api.jar" );
+        project.getClassesDirectory().mkdirs();
+        createApiJar( API );
+    }
+
+    @Test
+    public void whenJarUnchanged_doNotCompileIncludedClassAgain() throws Exception
+    {
+        assertThat( executeMojo( null ), equalTo( 1 ) );
+
+        assertThat( executeMojo( null ), equalTo( 0 ) );
+    }
+
+    @Test
+    public void whenJarChanged_compileIncludedClassAgain() throws Exception
+    {
+        executeMojo( null );
+        createApiJar( API.replace( "String value", "String value, int times" ) );
+
+        assertThat( executeMojo( null ), equalTo( 1 ) );
+    }
+
+    @Test
+    public void whenOptionsChanged_compileIncludedClassAgain() throws Exception
+    {
+        executeMojo( null );
+
+        assertThat( executeMojo( "1.1" ), equalTo( 1 ) );
+    }
+
+    @Test
+    public void whenOutputRemoved_compileIncludedClassAgain() throws Exception
+    {
+        executeMojo( null );
+        FileUtils.deleteDirectory( project.getOutputDirectory() );
+
+        assertThat( executeMojo( null ), equalTo( 1 ) );
+    }
+
+    @Test
+    public void whenStubRemoved_compileIncludedClassAgain() throws Exception
+    {
+        executeMojo( null );
+        new File( project.getOutputDirectory(), "jartest/Service_Stub.class" ).delete();
+
+        assertThat( executeMojo( null ), equalTo( 1 ) );
+    }
+
+    @Test
+    public void recordIsKeptOutsideOutputDirectory() throws Exception
+    {
+        executeMojo( null );
+
+        assertThat( project.getOutputDirectory().list(), arrayContaining( "jartest" ) );
+        assertThat( new File( project.getFile( "rmic/rmi-classes" ), IncludedClassTracker.STATE_FILE_NAME ).isFile(),
+                    equalTo( true ) );
+    }
+
+    private int executeMojo( String version ) throws Exception
+    {
+        RmicMojo mojo = project.configure( new RmicMojo(), apiJar.getPath() );
+        TestRmiCompiler compiler = new TestRmiCompiler();
+        compiler.setInMojo( mojo );
+        compiler.generateStubs();
+        mojo.setIncludes( new HashSet<>( Collections.singletonList( INCLUDE ) ) );
+        mojo.setVersion( version );
+
+        mojo.execute();
+        return compiler.getInvocationCount();
+    }
+
+    private void createApiJar( String api ) throws IOException
+    {
+        File classes = project.getFile( "api-classes" );
+        FileUtils.deleteDirectory( classes );
+        project.compile( classes, classes, "jartest/Api.java", api );
+        project.compile( classes, classes, "jartest/Service.java", SERVICE.replace( "String value",
+                api.contains( "int times" ) ? "String value, int times" : "String value" ) );
+
+        project.createJar( apiJar, classes, "jartest/Api.class", INCLUDE );
+    }
+}
@@ -0,0 +1,225 @@
+package org.codehaus.mojo.rmic;
+
+import org.codehaus.plexus.util.Scanner;
+import org.codehaus.plexus.util.SelectorUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonatype.plexus.build.incremental.DefaultBuildContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.codehaus.plexus.util.ReflectionUtils.setVariableValueInObject;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItem;
+
+public class IncrementalBuildTest
+{
+    private final IncrementalBuildContext buildContext = new IncrementalBuildContext();
+    private final TestRmiCompiler compiler = new TestRmiCompiler();
+    private TestProject project;
+    private RmicMojo mojo;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        project = new TestProject( "incremental-build" );
+        project.compile( "inctest/Service.java",
+                         "package inctest; public class Service implements java.rmi.Remote {}" );
+        project.compile( "inctest/Other.java", "package inctest; public class Other implements java.rmi.Remote {}" );
+        project.compile( "inctest/Local.java", "package inctest; public class Local {}" );
+
+        mojo = project.configure( new RmicMojo() );
+        compiler.setInMojo( mojo );
+        setVariableValueInObject( mojo, "buildContext", buildContext );
+    }
+
+    @Test
+    public void whenIncremental_compileOnlyChangedRemoteClasses() throws Exception
+    {
+        buildContext.changedFiles.addAll( Arrays.asList( "inctest/Service.class", "inctest/Local.class" ) );
+
+        mojo.execute();
+
+        assertThat( compiler.getInvocation().getClassNames(), contains( "inctest.Service" ) );
+    }
+
+    @Test
+    public void whenIncrementalAndOnlyLocalClassChanged_doNotCompile() throws Exception
+    {
+        buildContext.changedFiles.add( "inctest/Local.class" );
+
+        mojo.execute();
+
+        assertThat( compiler.getInvocationCount(), equalTo( 0 ) );
+    }
+
+    @Test
+    public void whenIncrementalAfterRequiredPolicyLeftClassesWithoutStubs_compileThoseNowNeedingStubs()
+            throws Exception
+    {
+        RmicMojo fullBuild = project.configure( new RmicMojo() );
+        new TestRmiCompiler().setInMojo( fullBuild );
+        setVariableValueInObject( fullBuild, "stubPolicy", "required" );
+        fullBuild.execute();
+        project.compile( "inctest/Client.java", "package inctest; public class Client { Class<?> stubClass()"
+            + " throws Exception { return Class.forName( \"inctest.Service_Stub\" ); } }" );
+        buildContext.changedFiles.add( "inctest/Client.class" );
+        setVariableValueInObject( mojo, "stubPolicy", "required" );
+
+        mojo.execute();
+
+        assertThat( compiler.getInvocation().getClassNames(), contains( "inctest.Service" ) );
+    }
+
+    @Test
+    public void afterCompiling_refreshOutputDirectory() throws Exception
+    {
+        buildContext.changedFiles.add( "inctest/Service.class" );
+
+        mojo.execute();
+
+        assertThat( buildContext.refreshedFiles, hasItem( project.getOutputDirectory() ) );
+    }
+
+    @Test
+    public void whenClassDeleted_deleteGeneratedClasses() throws Exception
+    {
+        File stub = createOutputFile( "inctest/Removed_Stub.class" );
+        File skeleton = createOutputFile( "inctest/Removed_Skel.class" );
+        File otherStub = createOutputFile( "inctest/Other_Stub.class" );
+        buildContext.deletedFiles.add( "inctest/Removed.class" );
+
+        mojo.execute();
+
+        assertThat( stub.exists(), equalTo( false ) );
+        assertThat( skeleton.exists(), equalTo( false ) );
+        assertThat( otherStub.exists(), equalTo( true ) );
+        assertThat( buildContext.refreshedFiles, containsInAnyOrder( stub, skeleton ) );
+    }
+
+    private File createOutputFile( String path ) throws IOException
+    {
+        File file = new File( project.getOutputDirectory(), path );
+        file.getParentFile().mkdirs();
+        Files.write( file.toPath(), new byte[0] );
+        return file;
+    }
+
+    /**
+     * A build context which reports the specified changes, as an IDE would.
+     */
+    private static class IncrementalBuildContext extends DefaultBuildContext
+    {
+        private final List<String> changedFiles = new ArrayList<>();
+        private final List<String> deletedFiles = new ArrayList<>();
+        private final List<File> refreshedFiles = new ArrayList<>();
+
+        @Override
+        public boolean isIncremental()
+        {
+            return true;
+        }
+
+        @Override
+        public Scanner newScanner( File basedir )
+        {
+            return new DeltaScanner( basedir, changedFiles );
+        }
+
+        @Override
+        public Scanner newDeleteScanner( File basedir )
+        {
+            return new DeltaScanner( basedir, deletedFiles );
+        }
+
+        @Override
+        public void refresh( File file )
+        {
+            refreshedFiles.add( file );
+        }
+    }
+
+    /**
+     * A scanner which selects from a fixed list of files.
+     */
+    private static class DeltaScanner implements Scanner
+    {
+        private final File basedir;
+        private final List<String> files;
+        private final List<String> includedFiles = new ArrayList<>();
+        private String[] includes = { "**/*" };
+        private String[] excludes = {};
+
+        DeltaScanner( File basedir, List<String> files )
+        {
+            this.basedir = basedir;
+            this.files = files;
+        }
+
+        public void setIncludes( String[] includes )
+        {
+            this.includes = includes;
+        }
+
+        public void setExcludes( String[] excludes )
+        {
+            this.excludes = excludes;
+        }
+
+        public void addDefaultExcludes()
+        {
+        }
+
+        public void scan()
+        {
+            includedFiles.clear();
+            for ( String file : files )
+            {
+                if ( matches( includes, file ) && !matches( excludes, file ) )
+                {
+                    includedFiles.add( file );
+                }
+            }
+        }
+
+        private boolean matches( String[] patterns, String file )
+        {
+            for ( String pattern : patterns )
+            {
+                if ( SelectorUtils.matchPath( pattern, file ) )
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public String[] getIncludedFiles()
+        {
+            return includedFiles.toArray( new String[includedFiles.size()] );
+        }
+
+        public String[] getIncludedDirectories()
+        {
+            return new String[0];
+        }
+
+        public File getBasedir()
+        {
+            return basedir;
+        }
+
+        public void setFilenameComparator( Comparator<String> comparator )
+        {
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.codehaus.mojo.rmic;
 
 import edu.emory.mathcs.backport.java.util.Collections;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -17,6 +18,36 @@ class Invocation
         this.arguments = Arrays.asList( arguments );
     }
 
+    /**
+     * Returns the names of the classes to compile, that is, the arguments which are neither options nor option values.
+     */
+    List<String> getClassNames()
+    {
+        List<String> classNames = new ArrayList<>();
+        for ( int i = 0; i < arguments.size(); i++ )
+        {
+            String argument = arguments.get( i );
+            if ( argument.equals( "-d" ) || argument.equals( "-classpath" ) )
+            {
+                i++;
+            }
+            else if ( !argument.startsWith( "-" ) )
+            {
+                classNames.add( argument );
+            }
+        }
+        return classNames;
+    }
+
+    /**
+     * Returns the directory named by the -d option, or null if there is none.
+     */
+    String getOutputDirectory()
+    {
+        int index = arguments.indexOf( "-d" );
+        return index < 0 ? null : arguments.get( index + 1 );
+    }
+
     @SuppressWarnings( "unchecked" )
     List<String> getArguments()
     {
@@ -0,0 +1,173 @@
+package org.codehaus.mojo.rmic;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class JarIndexCacheTest
+{
+    private static final File ROOT = new File( "target/jar-index-cache" ).getAbsoluteFile();
+    private static final File JAR1 = new File( ROOT, "one.jar" );
+    private static final File JAR2 = new File( ROOT, "two.jar" );
+    private static final File JAR3 = new File( ROOT, "three.jar" );
+
+    @Before
+    public void setUp() throws Exception
+    {
+        FileUtils.deleteDirectory( ROOT );
+        ROOT.mkdirs();
+        createJar( JAR1, "a/One.class", "one" );
+        createJar( JAR2, "a/Two.class", "two" );
+        createJar( JAR3, "a/Three.class", "three" );
+    }
+
+    @Test
+    public void indexListsClassesInJar() throws Exception
+    {
+        JarIndexCache cache = new JarIndexCache( 10, 10 );
+
+        assertThat( cache.getIndex( JAR1 ).getClassNames(), contains( "a/One" ) );
+    }
+
+    @Test
+    public void whenJarUnchanged_reuseIndex() throws Exception
+    {
+        JarIndexCache cache = new JarIndexCache( 10, 10 );
+        JarIndexCache.JarIndex index = cache.getIndex( JAR1 );
+
+        assertThat( cache.getIndex( JAR1 ), sameInstance( index ) );
+    }
+
+    @Test
+    public void whenJarChanged_indexItAgain() throws Exception
+    {
+        JarIndexCache cache = new JarIndexCache( 10, 10 );
+        JarIndexCache.JarIndex index = cache.getIndex( JAR1 );
+
+        createJar( JAR1, "a/One.class", "changed contents" );
+
+        assertThat( cache.getIndex( JAR1 ), not( sameInstance( index ) ) );
+        assertThat( new String( cache.read( JAR1, "a/One.class" ), StandardCharsets.UTF_8 ),
+                    equalTo( "changed contents" ) );
+    }
+
+    @Test
+    public void whenTooManyJarsIndexed_evictLeastRecentlyUsed() throws Exception
+    {
+        JarIndexCache cache = new JarIndexCache( 2, 10 );
+        JarIndexCache.JarIndex index1 = cache.getIndex( JAR1 );
+        JarIndexCache.JarIndex index2 = cache.getIndex( JAR2 );
+        cache.getIndex( JAR1 );
+
+        cache.getIndex( JAR3 );
+
+        assertThat( cache.getIndex( JAR1 ), sameInstance( index1 ) );
+        assertThat( cache.getIndex( JAR2 ), not( sameInstance( index2 ) ) );
+    }
+
+    @Test
+    public void openJarsAreLimitedToBudget() throws Exception
+    {
+        JarIndexCache cache = new JarIndexCache( 10, 2 );
+        cache.acquire();
+
+        cache.read( JAR1, "a/One.class" );
+        cache.read( JAR2, "a/Two.class" );
+        cache.read( JAR3, "a/Three.class" );
+
+        assertThat( cache.getOpenJarCount(), equalTo( 2 ) );
+        assertThat( new String( cache.read( JAR1, "a/One.class" ), StandardCharsets.UTF_8 ), equalTo( "one" ) );
+    }
+
+    @Test
+    public void whenLastUserReleases_closeAllJars() throws Exception
+    {
+        JarIndexCache cache = new JarIndexCache( 10, 10 );
+        cache.acquire();
+        cache.acquire();
+        cache.read( JAR1, "a/One.class" );
+        cache.read( JAR2, "a/Two.class" );
+
+        cache.release();
+        assertThat( cache.getOpenJarCount(), equalTo( 2 ) );
+
+        cache.release();
+        assertThat( cache.getOpenJarCount(), equalTo( 0 ) );
+    }
+
+    @Test
+    public void whenJarsReadConcurrently_readEachCorrectlyWhileClosingOthers() throws Exception
+    {
+        final JarIndexCache cache = new JarIndexCache( 2, 1 );
+        final File[] jars = { JAR1, JAR2, JAR3 };
+        final String[] entries = { "a/One.class", "a/Two.class", "a/Three.class" };
+        final String[] contents = { "one", "two", "three" };
+        cache.acquire();
+        ExecutorService executor = Executors.newFixedThreadPool( 6 );
+        try
+        {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for ( int thread = 0; thread < 6; thread++ )
+            {
+                final int first = thread;
+                results.add( executor.submit( new Callable<Boolean>()
+                {
+                    public Boolean call() throws Exception
+                    {
+                        for ( int i = first; i < first + 300; i++ )
+                        {
+                            int jar = i % jars.length;
+                            cache.getIndex( jars[jar] );
+                            String read = new String( cache.read( jars[jar], entries[jar] ), StandardCharsets.UTF_8 );
+                            if ( !read.equals( contents[jar] ) )
+                            {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                } ) );
+            }
+
+            for ( Future<Boolean> result : results )
+            {
+                assertThat( result.get(), equalTo( true ) );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+            cache.release();
+        }
+        assertThat( cache.getOpenJarCount(), equalTo( 0 ) );
+    }
+
+    private void createJar( File jarFile, String entryName, String contents ) throws IOException
+    {
+        try ( JarOutputStream jar = new JarOutputStream( new FileOutputStream( jarFile ) ) )
+        {
+            jar.putNextEntry( new JarEntry( entryName ) );
+            jar.write( contents.getBytes( StandardCharsets.UTF_8 ) );
+            jar.closeEntry();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.codehaus.mojo.rmic;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+public class OutOfMemoryDetectorTest
+{
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private final AbstractRmiCompiler.OutOfMemoryDetector detector = new AbstractRmiCompiler.OutOfMemoryDetector(
+            output );
+
+    @Test
+    public void whenCompilerReportsOutOfMemory_detectIt() throws IOException
+    {
+        write( "error: Out of memory while compiling\n" );
+
+        assertThat( detector.isOutOfMemoryReported(), equalTo( true ) );
+    }
+
+    @Test
+    public void whenOutOfMemoryErrorPrinted_detectIt() throws IOException
+    {
+        write( "Exception in thread \"main\" java.lang.OutOfMemoryError: Java heap space\n" );
+
+        assertThat( detector.isOutOfMemoryReported(), equalTo( true ) );
+    }
+
+    @Test
+    public void whenReportWrittenOneByteAtATime_detectIt() throws IOException
+    {
+        for ( byte b : "java.lang.OutOfMemoryError\n".getBytes( StandardCharsets.US_ASCII ) )
+        {
+            detector.write( b );
+        }
+
+        assertThat( detector.isOutOfMemoryReported(), equalTo( true ) );
+    }
+
+    @Test
+    public void whenReportSplitAcrossWrites_detectIt() throws IOException
+    {
+        write( "error: out of " );
+        write( "memory\n" );
+
+        assertThat( detector.isOutOfMemoryReported(), equalTo( true ) );
+    }
+
+    @Test
+    public void whenReportOnUnterminatedLastLine_detectIt() throws IOException
+    {
+        write( "1 error\nerror: out of memory" );
+
+        assertThat( detector.isOutOfMemoryReported(), equalTo( true ) );
+    }
+
+    @Test
+    public void whenWordsOnSeparateLines_doNotDetectReport() throws IOException
+    {
+        write( "error: ran out of\nmemory\n" );
+
+        assertThat( detector.isOutOfMemoryReported(), equalTo( false ) );
+    }
+
+    @Test
+    public void whenOutputHasOtherErrors_doNotDetectReport() throws IOException
+    {
+        write( "error: Class a.Missing not found.\n1 error\n" );
+
+        assertThat( detector.isOutOfMemoryReported(), equalTo( false ) );
+    }
+
+    @Test
+    public void outputIsPassedThroughUnchanged() throws IOException
+    {
+        write( "warning: first\nerror: out of memory\n" );
+        detector.write( '!' );
+
+        assertThat( output.toString( "US-ASCII" ), equalTo( "warning: first\nerror: out of memory\n!" ) );
+    }
+
+    private void write( String text ) throws IOException
+    {
+        byte[] bytes = text.getBytes( StandardCharsets.US_ASCII );
+        detector.write( bytes, 0, bytes.length );
+    }
+}
@@ -0,0 +1,129 @@
+package org.codehaus.mojo.rmic;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.MavenProjectHelper;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import static com.meterware.simplestub.Stub.createStub;
+import static org.codehaus.plexus.util.ReflectionUtils.setVariableValueInObject;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class PackageRmiMojoTest
+{
+    private static final File ROOT = new File( "target/package-rmi" ).getAbsoluteFile();
+    private static final File OUTPUT_DIRECTORY = new File( ROOT, "rmi-classes" );
+    private static final File STUB_JAR = new File( ROOT, "test-client.jar" );
+    private static final String TIMESTAMP = "2020-01-01T00:00:00Z";
+    private static final long TIMESTAMP_MILLIS = 1577836800000L;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        FileUtils.deleteDirectory( ROOT );
+        writeStub( "a/Zeta_Stub.class", 1000000000000L );
+        writeStub( "a/Alpha_Stub.class", 1100000000000L );
+        writeStub( "b/Beta_Stub.class", 1200000000000L );
+    }
+
+    @Test
+    public void whenOutputTimestampNotSet_parseReturnsNull() throws Exception
+    {
+        assertThat( PackageRmiMojo.parseOutputTimestamp( null ), nullValue() );
+        assertThat( PackageRmiMojo.parseOutputTimestamp( "1" ), nullValue() );
+    }
+
+    @Test
+    public void outputTimestamp_mayBeInSecondsOrIso8601() throws Exception
+    {
+        assertThat( PackageRmiMojo.parseOutputTimestamp( "1577836800" ).toMillis(), equalTo( TIMESTAMP_MILLIS ) );
+        assertThat( PackageRmiMojo.parseOutputTimestamp( TIMESTAMP ).toMillis(), equalTo( TIMESTAMP_MILLIS ) );
+        assertThat( PackageRmiMojo.parseOutputTimestamp( "2020-01-01T01:00:00+01:00" ).toMillis(),
+                    equalTo( TIMESTAMP_MILLIS ) );
+    }
+
+    @Test( expected = MojoExecutionException.class )
+    public void whenOutputTimestampInvalid_reportError() throws Exception
+    {
+        PackageRmiMojo.parseOutputTimestamp( "last tuesday" );
+    }
+
+    @Test( expected = MojoExecutionException.class )
+    public void whenOutputTimestampBeforeZipEpoch_reportError() throws Exception
+    {
+        PackageRmiMojo.parseOutputTimestamp( "1970-01-01T00:00:00Z" );
+    }
+
+    @Test
+    public void whenOutputTimestampSet_entriesAreSortedWithThatTime() throws Exception
+    {
+        createMojo( TIMESTAMP ).execute();
+
+        List<String> names = new ArrayList<>();
+        try ( JarFile jar = new JarFile( STUB_JAR ) )
+        {
+            for ( Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements(); )
+            {
+                JarEntry entry = entries.nextElement();
+                if ( entry.getName().endsWith( ".class" ) )
+                {
+                    names.add( entry.getName() );
+                    assertThat( entry.getName(), Math.abs( entry.getTime() - TIMESTAMP_MILLIS ) < 86400000L,
+                                equalTo( true ) );
+                }
+            }
+        }
+        assertThat( names, equalTo( Arrays.asList( "a/Alpha_Stub.class", "a/Zeta_Stub.class",
+                                                   "b/Beta_Stub.class" ) ) );
+    }
+
+    @Test
+    public void whenOutputTimestampSet_identicalStubsProduceIdenticalJars() throws Exception
+    {
+        createMojo( TIMESTAMP ).execute();
+        byte[] first = Files.readAllBytes( STUB_JAR.toPath() );
+
+        writeStub( "a/Zeta_Stub.class", 1300000000000L );
+        writeStub( "b/Beta_Stub.class", 1400000000000L );
+        STUB_JAR.delete();
+        createMojo( TIMESTAMP ).execute();
+
+        assertThat( Files.readAllBytes( STUB_JAR.toPath() ), equalTo( first ) );
+    }
+
+    private PackageRmiMojo createMojo( String outputTimestamp ) throws Exception
+    {
+        PackageRmiMojo mojo = new PackageRmiMojo();
+        setVariableValueInObject( mojo, "target", ROOT );
+        setVariableValueInObject( mojo, "finalName", "test" );
+        setVariableValueInObject( mojo, "classifier", "client" );
+        setVariableValueInObject( mojo, "outputDirectory", OUTPUT_DIRECTORY );
+        setVariableValueInObject( mojo, "outputTimestamp", outputTimestamp );
+        setVariableValueInObject( mojo, "project", new MavenProject() );
+        setVariableValueInObject( mojo, "projectHelper", createStub( MavenProjectHelper.class ) );
+        mojo.setLog( createStub( Log.class ) );
+        return mojo;
+    }
+
+    private void writeStub( String path, long lastModified ) throws Exception
+    {
+        File file = new File( OUTPUT_DIRECTORY, path );
+        file.getParentFile().mkdirs();
+        Files.write( file.toPath(), path.getBytes( "UTF-8" ) );
+        file.setLastModified( lastModified );
+    }
+}
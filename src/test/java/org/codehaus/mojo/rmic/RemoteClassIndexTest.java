@@ -0,0 +1,212 @@
+package org.codehaus.mojo.rmic;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class RemoteClassIndexTest
+{
+    private static final File PROCESSOR_PATH = new File( "target/classes" ).getAbsoluteFile();
+
+    private static final String API = "package indextest; public interface Api extends java.rmi.Remote {}";
+    private static final String SERVICE = "package indextest; public class Service implements Api {"
+        + " public static class Nested implements java.rmi.Remote {} }";
+    private static final String LOCAL = "package indextest; public class Local {}";
+    private static final String BASE = "package indextest; public class Base {}";
+    private static final String SUB = "package indextest; public class Sub extends Base {}";
+
+    private TestProject project;
+    private File classesDirectory;
+    private File indexFile;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        project = new TestProject( "remote-class-index" );
+        classesDirectory = project.getClassesDirectory();
+        indexFile = new File( classesDirectory, RemoteClassIndex.INDEX_RESOURCE );
+    }
+
+    @Test
+    public void whenCompiled_indexRemoteTypes() throws Exception
+    {
+        compile( "Api", API, "Service", SERVICE, "Local", LOCAL );
+
+        assertThat( readIndex(), contains( "interface indextest.Api", "class indextest.Service indextest.Api",
+                                           "class indextest.Service$Nested java.rmi.Remote" ) );
+    }
+
+    @Test
+    public void whenSomeClassesRecompiled_keepEntriesForOthers() throws Exception
+    {
+        compile( "Api", API, "Service", SERVICE );
+
+        compile( "Other", "package indextest; public class Other implements Api {}" );
+
+        assertThat( readIndex(), contains( "interface indextest.Api", "class indextest.Other indextest.Api",
+                                           "class indextest.Service indextest.Api",
+                                           "class indextest.Service$Nested java.rmi.Remote" ) );
+    }
+
+    @Test
+    public void whenRecompiledClassNoLongerRemote_removeItFromIndex() throws Exception
+    {
+        compile( "Api", API, "Service", SERVICE );
+
+        compile( "Service", "package indextest; public class Service {}" );
+
+        assertThat( readIndex(), contains( "interface indextest.Api" ) );
+    }
+
+    @Test
+    public void whenIndexedClassMissing_indexIsNotUsed() throws Exception
+    {
+        compile( "Api", API, "Service", SERVICE );
+        new File( classesDirectory, "indextest/Service.class" ).delete();
+
+        assertThat( RemoteClassIndex.read( classesDirectory ), nullValue() );
+    }
+
+    @Test
+    public void whenSupertypeRecompiledAsRemote_indexSubtype() throws Exception
+    {
+        compile( "Api", API, "Base", BASE, "Sub", SUB );
+
+        compile( "Base", "package indextest; public class Base implements Api {}" );
+
+        assertThat( readIndex(), contains( "interface indextest.Api", "class indextest.Base indextest.Api",
+                                           "class indextest.Sub indextest.Api" ) );
+    }
+
+    @Test
+    public void whenSupertypeRecompiledAsLocal_removeSubtypeFromIndex() throws Exception
+    {
+        compile( "Api", API, "Base", "package indextest; public class Base implements Api {}", "Sub", SUB );
+
+        compile( "Base", BASE );
+
+        assertThat( readIndex(), contains( "interface indextest.Api" ) );
+    }
+
+    @Test
+    public void whenOnlyClassesOfIndexingCompilationNewer_indexIsUsed() throws Exception
+    {
+        compile( "Api", API, "Service", SERVICE );
+        setIndexTimeBack();
+
+        assertThat( RemoteClassIndex.read( classesDirectory ), notNullValue() );
+    }
+
+    @Test
+    public void whenAnonymousClassesOfIndexingCompilationNewer_indexIsUsed() throws Exception
+    {
+        compile( "Api", API, "Service", "package indextest; public class Service implements Api {"
+            + " Runnable task = new Runnable() { public void run() {} }; }" );
+        setIndexTimeBack();
+
+        assertThat( new File( classesDirectory, "indextest/Service$1.class" ).isFile(), equalTo( true ) );
+        assertThat( RemoteClassIndex.read( classesDirectory ), notNullValue() );
+    }
+
+    @Test
+    public void whenClassCompiledWithoutProcessor_indexIsNotUsed() throws Exception
+    {
+        compile( "Api", API, "Service", SERVICE );
+        setIndexTimeBack();
+
+        project.compile( "indextest/Other.java", "package indextest; public class Other implements Api {}" );
+
+        assertThat( RemoteClassIndex.read( classesDirectory ), nullValue() );
+    }
+
+    @Test
+    public void whenIndexPresent_mojoCompilesIndexedClasses() throws Exception
+    {
+        compile( "Api", API, "Service", SERVICE, "Local", LOCAL );
+        Files.write( indexFile.toPath(), "class indextest.Local\n".getBytes( StandardCharsets.UTF_8 ) );
+
+        assertThat( executeMojo(), contains( "indextest.Local" ) );
+    }
+
+    @Test
+    public void whenIndexStale_mojoScansClassesDirectory() throws Exception
+    {
+        compile( "Api", API, "Service", SERVICE, "Local", LOCAL );
+        Files.write( indexFile.toPath(), "class indextest.Missing\n".getBytes( StandardCharsets.UTF_8 ) );
+
+        assertThat( executeMojo(), contains( "indextest.Service", "indextest.Service$Nested" ) );
+    }
+
+    private List<String> executeMojo() throws Exception
+    {
+        RmicMojo mojo = project.configure( new RmicMojo() );
+        TestRmiCompiler compiler = new TestRmiCompiler();
+        compiler.setInMojo( mojo );
+
+        mojo.execute();
+
+        List<String> compiled = new ArrayList<>();
+        for ( int i = 0; i < compiler.getInvocationCount(); i++ )
+        {
+            compiled.addAll( compiler.getInvocation( i ).getClassNames() );
+        }
+        return compiled;
+    }
+
+    /**
+     * Returns the entries of the index for remote types.
+     */
+    private List<String> readIndex() throws IOException
+    {
+        List<String> entries = new ArrayList<>();
+        for ( String line : Files.readAllLines( indexFile.toPath(), StandardCharsets.UTF_8 ) )
+        {
+            String kind = line.substring( 0, line.indexOf( ' ' ) );
+            if ( kind.equals( RemoteClassIndex.CLASS ) || kind.equals( RemoteClassIndex.INTERFACE ) )
+            {
+                entries.add( line );
+            }
+        }
+        return entries;
+    }
+
+    private void setIndexTimeBack()
+    {
+        assertThat( indexFile.setLastModified( indexFile.lastModified() - TimeUnit.HOURS.toMillis( 1 ) ),
+                    equalTo( true ) );
+    }
+
+    private void compile( String... namesAndContents ) throws IOException
+    {
+        List<String> args = new ArrayList<>();
+        args.add( "-d" );
+        args.add( classesDirectory.getPath() );
+        args.add( "-classpath" );
+        args.add( classesDirectory.getPath() );
+        args.add( "-processorpath" );
+        args.add( PROCESSOR_PATH.getPath() );
+        args.add( "-processor" );
+        args.add( RemoteClassIndexProcessor.class.getName() );
+        for ( int i = 0; i < namesAndContents.length; i += 2 )
+        {
+            args.add( project.writeSource( "indextest/" + namesAndContents[i] + ".java",
+                                           namesAndContents[i + 1] ).getPath() );
+        }
+        classesDirectory.mkdirs();
+
+        assertThat( project.javac( null, args.toArray( new String[args.size()] ) ), equalTo( 0 ) );
+    }
+}
@@ -5,6 +5,8 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
 
 import static com.meterware.simplestub.Stub.createStub;
 import static org.codehaus.mojo.rmic.ArgumentSequenceInvocationMatcher.hasArgument;
@@ -12,6 +14,8 @@ import static org.codehaus.mojo.rmic.ArgumentSequenceInvocationMatcher.hasArgume
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
 
 public class RmiCompilerTest
 {
@@ -176,4 +180,51 @@ public class RmiCompilerTest
         assertThat( testRmiCompiler.getInvocation(), hasArgument( "-nowarn" ) );
     }
 
+    @Test
+    public void whenMaxBatchSizeSpecified_compileInBatches()
+            throws Exception
+    {
+        config.setSourceFiles( createClassFiles( 5 ) );
+        config.setMaxBatchSize( 2 );
+
+        testRmiCompiler.execute( config );
+
+        assertThat( testRmiCompiler.getInvocationCount(), equalTo( 3 ) );
+        assertThat( testRmiCompiler.getInvocation( 0 ).getClassNames(), contains( "a.Class0", "a.Class1" ) );
+        assertThat( testRmiCompiler.getInvocation( 2 ).getClassNames(), contains( "a.Class4" ) );
+    }
+
+    @Test
+    public void whenCompilerRunsOutOfMemory_splitBatch()
+            throws Exception
+    {
+        config.setSourceFiles( createClassFiles( 4 ) );
+        testRmiCompiler.setMemoryLimit( 2 );
+
+        testRmiCompiler.execute( config );
+
+        assertThat( testRmiCompiler.getInvocationCount(), equalTo( 3 ) );
+        assertThat( testRmiCompiler.getInvocation( 1 ).getClassNames(), contains( "a.Class0", "a.Class1" ) );
+        assertThat( testRmiCompiler.getInvocation( 2 ).getClassNames(), contains( "a.Class2", "a.Class3" ) );
+    }
+
+    @Test(expected = RmiCompilerException.class)
+    public void whenSingleClassRunsOutOfMemory_throwException()
+            throws Exception
+    {
+        config.setSourceFiles( createClassFiles( 2 ) );
+        testRmiCompiler.setMemoryLimit( 0 );
+
+        testRmiCompiler.execute( config );
+    }
+
+    private Set<File> createClassFiles( int count )
+    {
+        Set<File> files = new HashSet<>();
+        for ( int i = 0; i < count; i++ )
+        {
+            files.add( new File( "a/Class" + i + ".class" ) );
+        }
+        return files;
+    }
 }
@@ -0,0 +1,184 @@
+package org.codehaus.mojo.rmic;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class RmicEngineTest
+{
+    private static final String API = "package enginetest; public interface Api extends java.rmi.Remote {"
+        + " String echo( String value ) throws java.rmi.RemoteException; }";
+
+    private TestProject project;
+    private URLClassLoader loader;
+    private Class<?> mainClass;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        Assume.assumeTrue( TestProject.TOOLS_JAR.isFile() );
+        project = new TestProject( "rmic-engine" );
+        project.getOutputDirectory().mkdirs();
+        compile( "Api", API );
+        compile( "First", createService( "First" ) );
+        compile( "Second", createService( "Second" ) );
+        loader = new URLClassLoader( new URL[] { TestProject.TOOLS_JAR.toURI().toURL() } );
+        mainClass = loader.loadClass( "sun.rmi.rmic.Main" );
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        if ( loader != null )
+        {
+            loader.close();
+        }
+    }
+
+    @Test
+    public void whenBatchesCompiledInSameEngine_generateStubsForEach() throws Exception
+    {
+        RmicEngine engine = acquireEngine();
+
+        assertThat( engine.compile( getOptions(), Collections.singletonList( "enginetest.First" ),
+                                    new ByteArrayOutputStream() ), equalTo( true ) );
+        assertThat( engine.compile( getOptions(), Collections.singletonList( "enginetest.Second" ),
+                                    new ByteArrayOutputStream() ), equalTo( true ) );
+        engine.discard();
+
+        File outputDirectory = project.getOutputDirectory();
+        assertThat( new File( outputDirectory, "enginetest/First_Stub.class" ).isFile(), equalTo( true ) );
+        assertThat( new File( outputDirectory, "enginetest/Second_Stub.class" ).isFile(), equalTo( true ) );
+        assertThat( new File( outputDirectory, "enginetest/Second_Stub.java" ).exists(), equalTo( false ) );
+    }
+
+    @Test
+    public void whenReleased_reuseEngineForSameClasspath() throws Exception
+    {
+        RmicEngine engine = acquireEngine();
+        engine.release();
+
+        RmicEngine reused = acquireEngine();
+        reused.discard();
+
+        assertThat( reused, sameInstance( engine ) );
+    }
+
+    @Test
+    public void whenClasspathChanged_createNewEngine() throws Exception
+    {
+        RmicEngine engine = acquireEngine();
+        engine.release();
+        compile( "Third", createService( "Third" ) );
+
+        RmicEngine other = acquireEngine();
+        other.discard();
+
+        assertThat( other, not( sameInstance( engine ) ) );
+    }
+
+    @Test
+    public void duringExecution_classpathFingerprintedOnce() throws Exception
+    {
+        RmicModule module = new RmicModule( "test", project.getClassesDirectory(), project.getOutputDirectory(), null );
+        String fingerprint = module.getClasspathFingerprint();
+
+        compile( "Third", createService( "Third" ) );
+
+        assertThat( module.getClasspathFingerprint(), sameInstance( fingerprint ) );
+        assertThat( RmicEngine.getFingerprint( module.getClasspathElements() ), not( equalTo( fingerprint ) ) );
+    }
+
+    @Test
+    public void afterClassCompiled_engineCannotCompileItAgain() throws Exception
+    {
+        RmicEngine engine = acquireEngine();
+
+        engine.compile( getOptions(), Collections.singletonList( "enginetest.First" ), new ByteArrayOutputStream() );
+        engine.discard();
+
+        assertThat( engine.canCompile( Collections.singletonList( "enginetest.First" ) ), equalTo( false ) );
+        assertThat( engine.canCompile( Collections.singletonList( "enginetest.Second" ) ), equalTo( true ) );
+    }
+
+    @Test
+    public void whenIiopRequested_engineNotSupported() throws Exception
+    {
+        List<String> options = new ArrayList<>( getOptions() );
+        options.add( "-iiop" );
+
+        assertThat( RmicEngine.acquire( mainClass, options, getFingerprint() ), nullValue() );
+    }
+
+    @Test
+    public void whenReusingEnvironmentInBatches_generatedStubsPassCheck() throws Exception
+    {
+        BuiltInRmiCompiler compiler = new BuiltInRmiCompiler();
+        compiler.setLog( TestProject.createLog() );
+        RmiCompilerConfiguration config = new RmiCompilerConfiguration();
+        config.setClasspathEntries( getClasspath() );
+        config.setOutputLocation( project.getOutputDirectory().getPath() );
+        config.setSourceFiles( new HashSet<>( Arrays.asList( new File( "enginetest/First.class" ),
+                                                             new File( "enginetest/Second.class" ) ) ) );
+        config.setMaxBatchSize( 1 );
+        config.setReuseEnvironment( true );
+
+        compiler.execute( config );
+
+        project.configure( new CheckRmicMojo() ).execute();
+    }
+
+    private RmicEngine acquireEngine()
+    {
+        RmicEngine engine = RmicEngine.acquire( mainClass, getOptions(), getFingerprint() );
+        assertThat( engine, notNullValue() );
+        return engine;
+    }
+
+    private List<String> getOptions()
+    {
+        return Arrays.asList( "-classpath", project.getClassesDirectory().getPath(), "-d",
+                              project.getOutputDirectory().getPath() );
+    }
+
+    private String getFingerprint()
+    {
+        return RmicEngine.getFingerprint( getClasspath() );
+    }
+
+    private List<String> getClasspath()
+    {
+        return Collections.singletonList( project.getClassesDirectory().getPath() );
+    }
+
+    private static String createService( String name )
+    {
+        return "package enginetest; public class " + name + " extends java.rmi.server.UnicastRemoteObject"
+            + " implements Api { public " + name + "() throws java.rmi.RemoteException {}"
+            + " public String echo( String value ) { return value; } }";
+    }
+
+    private void compile( String className, String content ) throws IOException
+    {
+        project.compile( "enginetest/" + className + ".java", content );
+    }
+}
@@ -0,0 +1,258 @@
+package org.codehaus.mojo.rmic;
+
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.MavenProjectHelper;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.rmi.server.RemoteRef;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarFile;
+
+import static com.meterware.simplestub.Stub.createStub;
+import static org.codehaus.plexus.util.ReflectionUtils.setVariableValueInObject;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+
+public class RmicStubProcessorTest
+{
+    private static final File PROCESSOR_PATH = new File( "target/classes" ).getAbsoluteFile();
+
+    private static final String API = "package proctest; public interface Api extends java.rmi.Remote {"
+        + " String echo( String value ) throws java.rmi.RemoteException;"
+        + " int count() throws java.rmi.RemoteException, java.io.IOException;"
+        + " void reset( java.util.List<String> values ) throws Exception;"
+        + " long[] values( int[] in ) throws java.rmi.RemoteException, IllegalStateException; }";
+    private static final String SERVICE = "package proctest; public class Service"
+        + " extends java.rmi.server.UnicastRemoteObject implements Api {"
+        + " public Service() throws java.rmi.RemoteException {}"
+        + " public String echo( String value ) { return value; }"
+        + " public int count() { return 0; }"
+        + " public void reset( java.util.List<String> values ) {}"
+        + " public long[] values( int[] in ) { return null; }"
+        + " public static class Nested extends java.rmi.server.UnicastRemoteObject implements Api {"
+        + "   public Nested() throws java.rmi.RemoteException {}"
+        + "   public String echo( String value ) { return value; }"
+        + "   public int count() { return 0; }"
+        + "   public void reset( java.util.List<String> values ) {}"
+        + "   public long[] values( int[] in ) { return null; } } }";
+
+    private TestProject project;
+    private File classesDirectory;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        project = new TestProject( "stub-processor" );
+        classesDirectory = project.getClassesDirectory();
+    }
+
+    @Test
+    public void whenRemoteClassCompiled_generateStubs() throws Exception
+    {
+        assertThat( compile( API, SERVICE ), equalTo( 0 ) );
+
+        assertThat( new File( classesDirectory, "proctest/Service_Stub.class" ).isFile(), equalTo( true ) );
+        assertThat( new File( classesDirectory, "proctest/Service$Nested_Stub.class" ).isFile(), equalTo( true ) );
+        assertThat( new File( classesDirectory, "proctest/Api_Stub.class" ).exists(), equalTo( false ) );
+    }
+
+    @Test
+    public void whenRemoteClassHasNoRemoteMethods_generateStub() throws Exception
+    {
+        assertThat( compile( "package proctest; public interface Api extends java.rmi.Remote {}",
+                             "package proctest; public class Service implements Api {}" ), equalTo( 0 ) );
+
+        assertThat( new File( classesDirectory, "proctest/Service_Stub.class" ).isFile(), equalTo( true ) );
+    }
+
+    @Test
+    public void whenStubClassesListed_generateOnlyTheirStubs() throws Exception
+    {
+        assertThat( compile( new ByteArrayOutputStream(), API, SERVICE,
+                             "-A" + RmicStubProcessor.STUB_CLASSES_OPTION + "=proctest.Service$*" ), equalTo( 0 ) );
+
+        assertThat( new File( classesDirectory, "proctest/Service$Nested_Stub.class" ).isFile(), equalTo( true ) );
+        assertThat( new File( classesDirectory, "proctest/Service_Stub.class" ).exists(), equalTo( false ) );
+        File resource = new File( classesDirectory, RmicStubProcessor.GENERATED_STUBS_RESOURCE );
+        assertThat( Files.readAllLines( resource.toPath(), StandardCharsets.UTF_8 ),
+                    equalTo( Arrays.asList( "proctest.Service$Nested" ) ) );
+    }
+
+    @Test
+    public void afterGeneratingStubs_listRemoteClasses() throws Exception
+    {
+        compile( API, SERVICE );
+
+        File resource = new File( classesDirectory, RmicStubProcessor.GENERATED_STUBS_RESOURCE );
+        assertThat( Files.readAllLines( resource.toPath(), StandardCharsets.UTF_8 ),
+                    equalTo( Arrays.asList( "proctest.Service", "proctest.Service$Nested" ) ) );
+    }
+
+    @Test
+    public void generatedStubs_passCheckGoal() throws Exception
+    {
+        compile( API, SERVICE );
+
+        CheckRmicMojo mojo = project.configure( new CheckRmicMojo() );
+        setVariableValueInObject( mojo, "outputDirectory", classesDirectory );
+
+        mojo.execute();
+    }
+
+    @Test
+    public void whenStubsGeneratedDuringCompilation_rmicCopiesThemInsteadOfCompiling() throws Exception
+    {
+        compile( API, SERVICE );
+
+        assertThat( executeRmic(), empty() );
+        assertThat( new File( project.getOutputDirectory(), "proctest/Service_Stub.class" ).isFile(),
+                    equalTo( true ) );
+        assertThat( new File( project.getOutputDirectory(), "proctest/Service$Nested_Stub.class" ).isFile(),
+                    equalTo( true ) );
+    }
+
+    @Test
+    public void whenStubsGeneratedDuringCompilation_clientJarContainsThem() throws Exception
+    {
+        compile( API, SERVICE );
+        executeRmic();
+
+        PackageRmiMojo mojo = new PackageRmiMojo();
+        setVariableValueInObject( mojo, "target", project.getFile( "target" ) );
+        setVariableValueInObject( mojo, "finalName", "proctest" );
+        setVariableValueInObject( mojo, "classifier", "client" );
+        setVariableValueInObject( mojo, "outputDirectory", project.getOutputDirectory() );
+        setVariableValueInObject( mojo, "project", new MavenProject() );
+        setVariableValueInObject( mojo, "projectHelper", createStub( MavenProjectHelper.class ) );
+        mojo.setLog( TestProject.createLog() );
+        mojo.execute();
+
+        try ( JarFile jar = new JarFile( project.getFile( "target/proctest-client.jar" ) ) )
+        {
+            assertThat( jar.getEntry( "proctest/Service_Stub.class" ), notNullValue() );
+            assertThat( jar.getEntry( "proctest/Service$Nested_Stub.class" ), notNullValue() );
+        }
+    }
+
+    @Test
+    public void whenListedClassRecompiledWithoutProcessor_rmicCompilesIt() throws Exception
+    {
+        compile( API, SERVICE );
+
+        project.compile( "proctest/Api.java",
+                         API.replace( "void reset(", "void clear() throws Exception; void reset(" ) );
+        project.compile( "proctest/Service.java", SERVICE.replace( "public void reset(",
+                                                                  "public void clear() {} public void reset(" ) );
+
+        assertThat( executeRmic(), containsInAnyOrder( "proctest.Service", "proctest.Service$Nested" ) );
+    }
+
+    @Test
+    public void whenRemoteClassAddedWithoutProcessor_rmicCompilesOnlyThatClass() throws Exception
+    {
+        compile( API, SERVICE );
+
+        project.compile( "proctest/Other.java", SERVICE.replace( "class Service", "class Other" )
+                .replace( "public Service()", "public Other()" ).replace( "static class Nested", "static class Inner" )
+                .replace( "public Nested()", "public Inner()" ) );
+
+        assertThat( executeRmic(), containsInAnyOrder( "proctest.Other", "proctest.Other$Inner" ) );
+    }
+
+    @Test
+    public void generatedStub_invokesRemoteReferenceWithMethodHash() throws Exception
+    {
+        compile( API, SERVICE );
+
+        try ( URLClassLoader loader = new URLClassLoader( new URL[] { classesDirectory.toURI().toURL() } ) )
+        {
+            final long[] hash = new long[1];
+            RemoteRef ref = (RemoteRef) Proxy.newProxyInstance( getClass().getClassLoader(),
+                    new Class<?>[] { RemoteRef.class }, new InvocationHandler()
+                    {
+                        public Object invoke( Object proxy, Method method, Object[] args )
+                        {
+                            hash[0] = (Long) args[3];
+                            return ( (Object[]) args[2] )[0];
+                        }
+                    } );
+            Class<?> stubClass = loader.loadClass( "proctest.Service_Stub" );
+            Object stub = stubClass.getConstructor( RemoteRef.class ).newInstance( ref );
+
+            Object result = stubClass.getMethod( "echo", String.class ).invoke( stub, "hello" );
+
+            assertThat( result, equalTo( (Object) "hello" ) );
+            assertThat( hash[0], equalTo( RemoteClassAnalyzer.computeMethodHash( "echo(Ljava/lang/String;)"
+                                                                                   + "Ljava/lang/String;" ) ) );
+        }
+    }
+
+    @Test
+    public void whenRemoteMethodDoesNotThrowRemoteException_reportError() throws Exception
+    {
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        int result = compile( errors, "package proctest; public interface Api extends java.rmi.Remote {"
+            + " String echo( String value ); }", "package proctest; public class Service"
+            + " extends java.rmi.server.UnicastRemoteObject implements Api {"
+            + " public Service() throws java.rmi.RemoteException {}"
+            + " public String echo( String value ) { return value; } }" );
+
+        assertThat( result, not( equalTo( 0 ) ) );
+        assertThat( errors.toString(), containsString( "does not throw java.rmi.RemoteException" ) );
+    }
+
+    private List<String> executeRmic() throws Exception
+    {
+        RmicMojo mojo = project.configure( new RmicMojo() );
+        TestRmiCompiler compiler = new TestRmiCompiler();
+        compiler.setInMojo( mojo );
+
+        mojo.execute();
+
+        List<String> compiled = new ArrayList<>();
+        for ( int i = 0; i < compiler.getInvocationCount(); i++ )
+        {
+            compiled.addAll( compiler.getInvocation( i ).getClassNames() );
+        }
+        return compiled;
+    }
+
+    private int compile( String api, String service ) throws IOException
+    {
+        return compile( new ByteArrayOutputStream(), api, service );
+    }
+
+    private int compile( ByteArrayOutputStream errors, String api, String service, String... options )
+            throws IOException
+    {
+        File generatedSources = project.getFile( "generated-sources" );
+        classesDirectory.mkdirs();
+        generatedSources.mkdirs();
+        List<String> args = new ArrayList<>( Arrays.asList( "-d", classesDirectory.getPath(),
+                                                            "-processorpath", PROCESSOR_PATH.getPath(),
+                                                            "-processor", RmicStubProcessor.class.getName(),
+                                                            "-s", generatedSources.getPath() ) );
+        args.addAll( Arrays.asList( options ) );
+        args.add( project.writeSource( "proctest/Api.java", api ).getPath() );
+        args.add( project.writeSource( "proctest/Service.java", service ).getPath() );
+        return project.javac( errors, args.toArray( new String[args.size()] ) );
+    }
+}
@@ -1,7 +1,22 @@
 package org.codehaus.mojo.rmic;
 
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.factory.ArtifactFactory;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.metadata.ArtifactMetadataSource;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.resolver.ArtifactNotFoundException;
+import org.apache.maven.artifact.resolver.ArtifactResolutionResult;
+import org.apache.maven.artifact.resolver.ArtifactResolver;
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.compiler.util.scan.InclusionScanException;
 import org.codehaus.plexus.compiler.util.scan.SourceInclusionScanner;
 import org.codehaus.plexus.compiler.util.scan.mapping.SourceMapping;
@@ -9,6 +24,8 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
 import java.net.URL;
 import java.rmi.Remote;
 import java.util.ArrayList;
@@ -17,6 +34,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 
 import static com.meterware.simplestub.Stub.createStub;
@@ -26,7 +44,12 @@ import static org.codehaus.plexus.util.ReflectionUtils.setVariableValueInObject;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.fail;
 
@@ -51,6 +74,7 @@ public class RmicTestCase
     }
 
     private final TestDependencies dependencies = new TestDependencies();
+    private final TestArtifactResolver artifactResolver = createStub( TestArtifactResolver.class );
     private final RmicMojo mojo = new RmicMojo( dependencies );
     private final ScannableFileSystem fileSystem = new ScannableFileSystem();
 
@@ -261,8 +285,10 @@ public class RmicTestCase
         scanResults2.add( defineRemoteInterface( "c.d.RemoteInterface" ) );
         scanResults2.add( defineRemoteClass( "c.d.RemoteClass1" ) );
         scanResults2.add( defineRemoteClass( "c.d.RemoteClass2" ) );
-        fileSystem.defineExpectedScan( DEFAULT_PROJECT_OUTPUT_DIRECTORY, INCLUDES_A, DEFAULT_EXCLUDES, scanResults1 );
-        fileSystem.defineExpectedScan( DEFAULT_PROJECT_OUTPUT_DIRECTORY, INCLUDES_B, DEFAULT_EXCLUDES, scanResults2 );
+        Set<File> scanResults = new HashSet<>( scanResults1 );
+        scanResults.addAll( scanResults2 );
+        fileSystem.defineExpectedScan( DEFAULT_PROJECT_OUTPUT_DIRECTORY, DEFAULT_INCLUDES, DEFAULT_EXCLUDES,
+                                       scanResults );
 
         Source source1 = addNewSource();
         defineIncludes( source1, INCLUDES_A );
@@ -289,6 +315,284 @@ public class RmicTestCase
 
     }
 
+    @Test
+    public void whenTwoSources_scanAndDefineClasspathOnce() throws Exception
+    {
+        defineDefaultScan();
+        defineIncludes( addNewSource(), INCLUDES_A );
+        Source keepSource = addNewSource();
+        defineIncludes( keepSource, newSet( "**/*Class2.class" ) );
+        keepSource.setKeep( true );
+
+        mojo.execute();
+
+        assertThat( dependencies.scannerCount, equalTo( 1 ) );
+        assertThat( dependencies.classpathCount, equalTo( 1 ) );
+        assertThat( testRmiCompiler.getInvocation( 1 ).getClassNames(), contains( "a.b.RemoteClass2" ) );
+    }
+
+    @Test
+    public void whenSourcesHaveSameOptions_compileThemTogether() throws Exception
+    {
+        defineDefaultScan();
+        defineIncludes( addNewSource(), newSet( "**/*Class1.class" ) );
+        defineIncludes( addNewSource(), newSet( "**/*Class2.class" ) );
+
+        mojo.execute();
+
+        assertThat( testRmiCompiler.getInvocation().getClassNames(),
+                    contains( "a.b.RemoteClass1", "a.b.RemoteClass2" ) );
+    }
+
+    @Test
+    public void whenMaxBatchSizeSet_compileEachBatchSeparately() throws Exception
+    {
+        defineDefaultScan();
+        setVariableValueInObject( mojo, "maxBatchSize", 1 );
+
+        mojo.execute();
+
+        assertThat( testRmiCompiler.getInvocationCount(), equalTo( 2 ) );
+        assertThat( testRmiCompiler.getInvocation( 0 ).getClassNames(), hasSize( 1 ) );
+        assertThat( testRmiCompiler.getInvocation( 1 ).getClassNames(), hasSize( 1 ) );
+    }
+
+    @Test
+    public void whenScheduledByCost_recordCompileTimeOfEachClass() throws Exception
+    {
+        File costCache = new File( "target/rmic-costs/compile-costs.properties" ).getAbsoluteFile();
+        costCache.delete();
+        defineDefaultScan();
+        setVariableValueInObject( mojo, "maxBatchSize", 1 );
+        setVariableValueInObject( mojo, "scheduleByCost", true );
+        setVariableValueInObject( mojo, "compileCostCache", costCache );
+
+        mojo.execute();
+
+        assertThat( testRmiCompiler.getInvocationCount(), equalTo( 2 ) );
+        Properties costs = new Properties();
+        try ( InputStream in = new FileInputStream( costCache ) )
+        {
+            costs.load( in );
+        }
+        assertThat( costs.stringPropertyNames(), hasItems( "a.b.RemoteClass1", "a.b.RemoteClass2" ) );
+    }
+
+    @Test
+    public void whenClassifiedInParallel_batchesFollowClassNameOrder() throws Exception
+    {
+        Set<File> scanResults = new HashSet<>();
+        List<String> remoteClassNames = new ArrayList<>();
+        for ( int i = 0; i < 300; i++ )
+        {
+            String className = String.format( "a.b.RemoteClass%03d", i );
+            scanResults.add( defineRemoteClass( className ) );
+            scanResults.add( defineNonRemoteClass( className + "Helper" ) );
+            remoteClassNames.add( className );
+        }
+        fileSystem.defineExpectedScan( DEFAULT_PROJECT_OUTPUT_DIRECTORY, DEFAULT_INCLUDES, DEFAULT_EXCLUDES,
+                scanResults );
+        setVariableValueInObject( mojo, "maxBatchSize", 100 );
+        setVariableValueInObject( mojo, "classifierThreads", 4 );
+
+        mojo.execute();
+
+        assertThat( testRmiCompiler.getInvocationCount(), equalTo( 3 ) );
+        for ( int i = 0; i < 3; i++ )
+        {
+            assertThat( testRmiCompiler.getInvocation( i ).getClassNames(),
+                        equalTo( remoteClassNames.subList( i * 100, i * 100 + 100 ) ) );
+        }
+    }
+
+    @Test
+    public void whenMaxBatchSizeNotSet_compileLargeModuleInBatches() throws Exception
+    {
+        Set<File> scanResults = new HashSet<>();
+        for ( int i = 0; i < 600; i++ )
+        {
+            scanResults.add( defineRemoteClass( String.format( "a.b.RemoteClass%03d", i ) ) );
+        }
+        fileSystem.defineExpectedScan( DEFAULT_PROJECT_OUTPUT_DIRECTORY, DEFAULT_INCLUDES, DEFAULT_EXCLUDES,
+                scanResults );
+
+        mojo.execute();
+
+        assertThat( testRmiCompiler.getInvocationCount(), equalTo( 2 ) );
+        assertThat( testRmiCompiler.getInvocation( 0 ).getClassNames(), hasSize( 500 ) );
+        assertThat( testRmiCompiler.getInvocation( 1 ).getClassNames(), hasSize( 100 ) );
+    }
+
+    @Test
+    public void afterAllBatchesCompiled_reportNumberOfClasses() throws Exception
+    {
+        defineDefaultScan();
+        setVariableValueInObject( mojo, "maxBatchSize", 1 );
+        setVariableValueInObject( mojo, "compileThreads", 2 );
+        RecordingLog log = createStub( RecordingLog.class );
+        log.compiler = testRmiCompiler;
+        mojo.setLog( log );
+
+        mojo.execute();
+
+        assertThat( log.messages, hasItem( "Compiled 2 remote classes after 2 invocations" ) );
+    }
+
+    @Test
+    public void whenStubsGeneratedDuringCompilationForOtherVersion_runCompiler() throws Exception
+    {
+        defineDefaultScan();
+        dependencies.existingFiles.add(
+                new File( DEFAULT_PROJECT_OUTPUT_DIRECTORY, RmicStubProcessor.GENERATED_STUBS_RESOURCE ) );
+        mojo.setVersion( "1.1" );
+
+        mojo.execute();
+
+        assertThat( testRmiCompiler.getInvocation(), hasArgument( "a.b.RemoteClass1" ) );
+    }
+
+    @Test
+    public void whenModuleDependenciesNotResolved_resolveThemForAggregate() throws Exception
+    {
+        MavenProject api = createReactorProject( "api" );
+        MavenProject server = createReactorProject( "server" );
+        addDependency( server, "api" );
+        addDependency( server, "library" );
+        File library = new File( "library.jar" ).getAbsoluteFile();
+        artifactResolver.resolvedFiles.put( "test:library", library );
+        defineModuleScan( server, "s.RemoteServer" );
+        AggregateRmicMojo aggregate = createAggregateMojo( server, api );
+
+        aggregate.execute();
+
+        assertThat( testRmiCompiler.getInvocation(), hasArgumentSequence( "-classpath",
+                getClassesDirectory( server ) + File.pathSeparator + getClassesDirectory( api )
+                + File.pathSeparator + library ) );
+    }
+
+    @Test( expected = MojoExecutionException.class )
+    public void whenModuleDependenciesCannotBeResolved_aggregateFails() throws Exception
+    {
+        MavenProject server = createReactorProject( "server" );
+        addDependency( server, "missing" );
+        defineModuleScan( server, "s.RemoteServer" );
+
+        createAggregateMojo( server ).execute();
+    }
+
+    @Test
+    public void whenAggregatingSeveralModules_compileEachIntoItsOwnOutputDirectory() throws Exception
+    {
+        MavenProject client = createReactorProject( "client" );
+        MavenProject server = createReactorProject( "server" );
+        defineModuleScan( client, "c.RemoteClient" );
+        defineModuleScan( server, "s.RemoteServer" );
+
+        createAggregateMojo( client, server ).execute();
+
+        assertThat( testRmiCompiler.getInvocationCount(), equalTo( 2 ) );
+        assertThat( testRmiCompiler.getInvocation( 0 ), hasArgumentSequence( "-d",
+                getRmiOutputDirectory( client ).getAbsolutePath() ) );
+        assertThat( testRmiCompiler.getInvocation( 0 ).getClassNames(), contains( "c.RemoteClient" ) );
+        assertThat( testRmiCompiler.getInvocation( 1 ), hasArgumentSequence( "-d",
+                getRmiOutputDirectory( server ).getAbsolutePath() ) );
+        assertThat( testRmiCompiler.getInvocation( 1 ).getClassNames(), contains( "s.RemoteServer" ) );
+    }
+
+    @Test
+    public void whenModuleHasNoClassesDirectory_skipIt() throws Exception
+    {
+        MavenProject parent = createReactorProject( "parent" );
+        MavenProject server = createReactorProject( "server" );
+        defineModuleScan( server, "s.RemoteServer" );
+
+        createAggregateMojo( parent, server ).execute();
+
+        assertThat( testRmiCompiler.getInvocation().getClassNames(), contains( "s.RemoteServer" ) );
+    }
+
+    @Test
+    public void whenModulesDefineSameClassName_classifyEachAgainstItsOwnClasses() throws Exception
+    {
+        MavenProject client = createReactorProject( "client" );
+        MavenProject server = createReactorProject( "server" );
+        addDependency( server, "client" );
+        defineModuleScan( client, "x.Shared" );
+        defineModuleScan( server, NonRmicClass.class, "x.Shared" );
+
+        createAggregateMojo( client, server ).execute();
+
+        assertThat( testRmiCompiler.getInvocation(), hasArgumentSequence( "-d",
+                getRmiOutputDirectory( client ).getAbsolutePath() ) );
+    }
+
+    private AggregateRmicMojo createAggregateMojo( MavenProject... reactorProjects ) throws Exception
+    {
+        AggregateRmicMojo aggregate = new AggregateRmicMojo( dependencies );
+        testRmiCompiler.setInMojo( aggregate );
+        setVariableValueInObject( aggregate, "project", reactorProjects[0] );
+        setVariableValueInObject( aggregate, "reactorProjects", Arrays.asList( reactorProjects ) );
+        setVariableValueInObject( aggregate, "outputDirectoryName", "rmi-classes" );
+        setVariableValueInObject( aggregate, "threads", 1 );
+        setVariableValueInObject( aggregate, "artifactResolver", artifactResolver );
+        setVariableValueInObject( aggregate, "artifactFactory", createStub( TestArtifactFactory.class ) );
+        aggregate.setLog( createStub( Log.class ) );
+        return aggregate;
+    }
+
+    private MavenProject createReactorProject( String artifactId )
+    {
+        Model model = new Model();
+        model.setGroupId( "test" );
+        model.setArtifactId( artifactId );
+        model.setVersion( "1.0" );
+        model.setBuild( new Build() );
+        File buildDirectory = new File( "target/reactor/" + artifactId + "/target" ).getAbsoluteFile();
+        model.getBuild().setDirectory( buildDirectory.getPath() );
+        model.getBuild().setOutputDirectory( new File( buildDirectory, "classes" ).getPath() );
+        MavenProject reactorProject = new MavenProject( model );
+        reactorProject.setArtifact( new DefaultArtifact( "test", artifactId, VersionRange.createFromVersion( "1.0" ),
+                                                         Artifact.SCOPE_COMPILE, "jar", null,
+                                                         new ClasspathArtifactHandler() ) );
+        return reactorProject;
+    }
+
+    private void addDependency( MavenProject reactorProject, String artifactId )
+    {
+        Dependency dependency = new Dependency();
+        dependency.setGroupId( "test" );
+        dependency.setArtifactId( artifactId );
+        dependency.setVersion( "1.0" );
+        reactorProject.getModel().addDependency( dependency );
+    }
+
+    private File getClassesDirectory( MavenProject reactorProject )
+    {
+        return new File( reactorProject.getBuild().getOutputDirectory() );
+    }
+
+    private File getRmiOutputDirectory( MavenProject reactorProject )
+    {
+        return new File( reactorProject.getBuild().getDirectory(), "rmi-classes" );
+    }
+
+    private void defineModuleScan( MavenProject reactorProject, String... remoteClassNames )
+    {
+        defineModuleScan( reactorProject, RmicClass.class, remoteClassNames );
+    }
+
+    private void defineModuleScan( MavenProject reactorProject, Class<?> contents, String... classNames )
+    {
+        File classesDirectory = getClassesDirectory( reactorProject );
+        dependencies.existingFiles.add( classesDirectory );
+        Set<File> scanResults = new HashSet<>();
+        for ( String className : classNames )
+        {
+            scanResults.add( defineClassFile( classesDirectory, className, contents ) );
+        }
+        fileSystem.defineExpectedScan( classesDirectory, DEFAULT_INCLUDES, DEFAULT_EXCLUDES, scanResults );
+    }
+
     // todo test compiler selection
 
     private File defineNonRemoteClass( String className )
@@ -432,20 +736,31 @@ public class RmicTestCase
 
     private class TestDependencies implements AbstractRmiMojo.DependenciesFacade
     {
-        private URL[] classpathUrls;
+        private Map<RmicModule, URL[]> classpaths;
+        private Set<File> existingFiles = new HashSet<>();
+        private int scannerCount;
+        private int classpathCount;
 
         public boolean fileExists( File includeFile )
         {
-            return false;
+            return existingFiles.contains( includeFile.getAbsoluteFile() );
         }
 
         public SourceInclusionScanner createScanner( int staleMillis, Set<String> includes,
                                                      Set<String> excludes )
         {
+            scannerCount++;
             return new TestScanner( includes, excludes );
         }
 
-        public Class loadClass( String className ) throws ClassNotFoundException
+        public boolean isRemoteClass( RmicModule module, String className, boolean includeInterfaces )
+                throws ClassNotFoundException
+        {
+            Class<?> aClass = loadClass( classpaths.get( module ), className );
+            return Remote.class.isAssignableFrom( aClass ) && ( includeInterfaces || !aClass.isInterface() );
+        }
+
+        private Class<?> loadClass( URL[] classpathUrls, String className ) throws ClassNotFoundException
         {
             for ( URL classpathUrl : classpathUrls )
             {
@@ -464,9 +779,96 @@ public class RmicTestCase
             return new File( url.getPath() );
         }
 
-        public void defineUrlClassLoader( URL[] classpathUrls )
+        public void defineClasspath( Map<RmicModule, URL[]> classpaths, File hierarchyCache )
         {
-            this.classpathUrls = classpathUrls;
+            this.classpaths = classpaths;
+            classpathCount++;
+        }
+
+        public void closeClasspath()
+        {
+            this.classpaths = null;
+        }
+    }
+
+    /**
+     * A log which records its info messages, with the number of compiler invocations made when each was logged.
+     */
+    abstract static class RecordingLog implements Log
+    {
+        private final List<String> messages = new ArrayList<>();
+        private TestRmiCompiler compiler;
+
+        @Override
+        public void info( CharSequence content )
+        {
+            messages.add( content + " after " + compiler.getInvocationCount() + " invocations" );
+        }
+    }
+
+    /**
+     * An artifact handler for jars, whose files are added to the class path.
+     */
+    static class ClasspathArtifactHandler extends DefaultArtifactHandler
+    {
+        ClasspathArtifactHandler()
+        {
+            super( "jar" );
+        }
+
+        @Override
+        public boolean isAddedToClasspath()
+        {
+            return true;
+        }
+    }
+
+    abstract static class TestArtifactFactory implements ArtifactFactory
+    {
+        @Override
+        public Artifact createDependencyArtifact( String groupId, String artifactId, VersionRange versionRange,
+                                                  String type, String classifier, String scope,
+                                                  String inheritedScope, boolean optional )
+        {
+            return new DefaultArtifact( groupId, artifactId, versionRange, scope, type, classifier,
+                                        new ClasspathArtifactHandler(), optional );
+        }
+    }
+
+    /**
+     * Resolves the artifacts for which files have been defined, and fails to find any other.
+     */
+    abstract static class TestArtifactResolver implements ArtifactResolver
+    {
+        private final Map<String, File> resolvedFiles = new HashMap<>();
+
+        @Override
+        @SuppressWarnings( "unchecked" )
+        public ArtifactResolutionResult resolveTransitively( Set artifacts, Artifact originatingArtifact,
+                                                             Map managedVersions, ArtifactRepository localRepository,
+                                                             List remoteRepositories, ArtifactMetadataSource source,
+                                                             ArtifactFilter filter )
+                throws ArtifactNotFoundException
+        {
+            final Set<Artifact> resolved = new HashSet<>();
+            for ( Artifact artifact : (Set<Artifact>) artifacts )
+            {
+                File file = resolvedFiles.get( artifact.getGroupId() + ':' + artifact.getArtifactId() );
+                if ( file == null )
+                {
+                    throw new ArtifactNotFoundException( "Not found", artifact );
+                }
+                artifact.setFile( file );
+                resolved.add( artifact );
+            }
+            return new ArtifactResolutionResult()
+            {
+                @Override
+                public Set getArtifacts()
+                {
+                    return resolved;
+                }
+            };
         }
     }
 
@@ -3,6 +3,8 @@ package org.codehaus.mojo.rmic;
 import static org.junit.Assert.*;
 import org.junit.Test;
 
+import java.util.Collections;
+
 
 public class SourceTest
 {
@@ -15,5 +17,15 @@ public class SourceTest
         assertEquals( "Including [**/*]; excluding []\nwith options: -keep -nowarn ", source.toString() );
     }
 
+    @Test
+    public void compilerOptions_ignoreSelectedClasses() throws Exception
+    {
+        Source source = new Source();
+        source.setIncludes( Collections.singleton( "a/**" ) );
+        source.setVerbose( true );
+        source.setVersion( "1.2" );
+        assertEquals( "-verbose -v1.2", source.getCompilerOptions() );
+    }
+
 
 }
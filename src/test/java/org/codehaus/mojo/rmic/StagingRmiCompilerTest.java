@@ -0,0 +1,260 @@
+package org.codehaus.mojo.rmic;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static com.meterware.simplestub.Stub.createStub;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+
+public class StagingRmiCompilerTest
+{
+    private static final File ROOT = new File( "target/staging-compiler" ).getAbsoluteFile();
+    private static final File CLASSES_DIRECTORY = new File( ROOT, "classes" );
+    private static final File OUTPUT_DIRECTORY = new File( ROOT, "rmi-classes" );
+    private static final long OLD_TIME = 1000000000000L;
+
+    private final GeneratingCompiler generatingCompiler = new GeneratingCompiler();
+    private final StagingRmiCompiler compiler = new StagingRmiCompiler( generatingCompiler );
+    private final RmiCompilerConfiguration config = new RmiCompilerConfiguration();
+    private File classFile;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        FileUtils.deleteDirectory( ROOT );
+        classFile = writeFile( CLASSES_DIRECTORY, "a/Service.class", "class" );
+        compiler.setLog( createStub( Log.class ) );
+        config.setOutputLocation( OUTPUT_DIRECTORY.getPath() );
+        config.addSourceLocation( CLASSES_DIRECTORY.getPath() );
+        config.setSourceFiles( Collections.singleton( new File( "a/Service.class" ) ) );
+    }
+
+    @Test
+    public void whenGeneratedFileIdentical_keepExistingFile() throws Exception
+    {
+        File stub = writeFile( OUTPUT_DIRECTORY, "a/Service_Stub.class", "stub" );
+        stub.setLastModified( OLD_TIME );
+        generatingCompiler.files.put( "a/Service_Stub.class", "stub" );
+
+        compiler.execute( config );
+
+        assertThat( stub.lastModified(), equalTo( OLD_TIME ) );
+    }
+
+    @Test
+    public void whenGeneratedFileDiffers_replaceExistingFile() throws Exception
+    {
+        File stub = writeFile( OUTPUT_DIRECTORY, "a/Service_Stub.class", "stub" );
+        stub.setLastModified( OLD_TIME );
+        generatingCompiler.files.put( "a/Service_Stub.class", "changed stub" );
+
+        compiler.execute( config );
+
+        assertThat( readFile( stub ), equalTo( "changed stub" ) );
+    }
+
+    @Test
+    public void whenGeneratedFileNew_createIt() throws Exception
+    {
+        generatingCompiler.files.put( "a/Service_Stub.class", "stub" );
+        generatingCompiler.files.put( "a/Service_Skel.class", "skeleton" );
+
+        compiler.execute( config );
+
+        assertThat( readFile( new File( OUTPUT_DIRECTORY, "a/Service_Skel.class" ) ), equalTo( "skeleton" ) );
+    }
+
+    @Test
+    public void afterCompiling_removeStagingDirectory() throws Exception
+    {
+        generatingCompiler.files.put( "a/Service_Stub.class", "stub" );
+
+        compiler.execute( config );
+
+        assertThat( Arrays.asList( ROOT.list() ), containsInAnyOrder( "classes", "rmi-classes",
+                                                                ".rmi-classes.rmic-lock" ) );
+        assertThat( config.getOutputLocation(), equalTo( OUTPUT_DIRECTORY.getPath() ) );
+    }
+
+    @Test
+    public void whenStubKept_classIsNotCompiledAgain() throws Exception
+    {
+        writeFile( OUTPUT_DIRECTORY, "a/Service_Stub.class", "stub" ).setLastModified( OLD_TIME );
+        generatingCompiler.files.put( "a/Service_Stub.class", "stub" );
+
+        compiler.execute( config );
+
+        assertThat( StagingRmiCompiler.removeVerifiedClasses( Collections.singletonList( classFile ),
+                                                              CLASSES_DIRECTORY, OUTPUT_DIRECTORY ), empty() );
+    }
+
+    @Test
+    public void whenClassChangedAfterStubKept_compileItAgain() throws Exception
+    {
+        writeFile( OUTPUT_DIRECTORY, "a/Service_Stub.class", "stub" ).setLastModified( OLD_TIME );
+        generatingCompiler.files.put( "a/Service_Stub.class", "stub" );
+        compiler.execute( config );
+
+        classFile.setLastModified( classFile.lastModified() + 5000 );
+
+        assertThat( StagingRmiCompiler.removeVerifiedClasses( Collections.singletonList( classFile ),
+                                                              CLASSES_DIRECTORY, OUTPUT_DIRECTORY ),
+                    contains( classFile ) );
+    }
+
+    @Test
+    public void whenStubDeletedAfterStubKept_compileClassAgain() throws Exception
+    {
+        File stub = writeFile( OUTPUT_DIRECTORY, "a/Service_Stub.class", "stub" );
+        stub.setLastModified( OLD_TIME );
+        generatingCompiler.files.put( "a/Service_Stub.class", "stub" );
+        compiler.execute( config );
+
+        stub.delete();
+
+        assertThat( StagingRmiCompiler.removeVerifiedClasses( Collections.singletonList( classFile ),
+                                                              CLASSES_DIRECTORY, OUTPUT_DIRECTORY ),
+                    contains( classFile ) );
+    }
+
+    @Test
+    public void whenStubKept_recordVerifiedClassOutsideOutputDirectory() throws Exception
+    {
+        writeFile( OUTPUT_DIRECTORY, "a/Service_Stub.class", "stub" ).setLastModified( OLD_TIME );
+        generatingCompiler.files.put( "a/Service_Stub.class", "stub" );
+
+        compiler.execute( config );
+
+        assertThat( OUTPUT_DIRECTORY.list(), arrayContaining( "a" ) );
+        assertThat( new File( ROOT, "rmic/rmi-classes/" + StagingRmiCompiler.VERIFIED_CLASSES_FILE_NAME ).isFile(),
+                    equalTo( true ) );
+    }
+
+    @Test
+    public void whenNotKeepingUnchangedFiles_replaceIdenticalFile() throws Exception
+    {
+        File stub = writeFile( OUTPUT_DIRECTORY, "a/Service_Stub.class", "stub" );
+        stub.setLastModified( OLD_TIME );
+        generatingCompiler.files.put( "a/Service_Stub.class", "stub" );
+
+        new StagingRmiCompiler( generatingCompiler, false ).execute( config );
+
+        assertThat( stub.lastModified(), not( equalTo( OLD_TIME ) ) );
+        assertThat( new File( ROOT, "rmic/rmi-classes/" + StagingRmiCompiler.VERIFIED_CLASSES_FILE_NAME ).exists(),
+                    equalTo( false ) );
+    }
+
+    @Test
+    public void whileOutputDirectoryLocked_waitToPublish() throws Exception
+    {
+        generatingCompiler.files.put( "a/Service_Stub.class", "stub" );
+        final CountDownLatch locked = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        Thread holder = new Thread()
+        {
+            public void run()
+            {
+                try ( OutputDirectoryLock ignored = OutputDirectoryLock.acquire( OUTPUT_DIRECTORY ) )
+                {
+                    locked.countDown();
+                    release.await();
+                }
+                catch ( IOException | InterruptedException e )
+                {
+                    throw new RuntimeException( e );
+                }
+            }
+        };
+        holder.start();
+        locked.await();
+
+        Thread executor = new Thread()
+        {
+            public void run()
+            {
+                try
+                {
+                    compiler.execute( config );
+                }
+                catch ( RmiCompilerException e )
+                {
+                    throw new RuntimeException( e );
+                }
+            }
+        };
+        executor.start();
+        executor.join( 500 );
+        boolean publishedWhileLocked = new File( OUTPUT_DIRECTORY, "a/Service_Stub.class" ).exists();
+        release.countDown();
+        executor.join();
+        holder.join();
+
+        assertThat( publishedWhileLocked, equalTo( false ) );
+        assertThat( readFile( new File( OUTPUT_DIRECTORY, "a/Service_Stub.class" ) ), equalTo( "stub" ) );
+    }
+
+    private File writeFile( File directory, String path, String contents ) throws IOException
+    {
+        File file = new File( directory, path );
+        file.getParentFile().mkdirs();
+        Files.write( file.toPath(), contents.getBytes( StandardCharsets.UTF_8 ) );
+        return file;
+    }
+
+    private String readFile( File file ) throws IOException
+    {
+        return new String( Files.readAllBytes( file.toPath() ), StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * A compiler which writes the specified files to its output location.
+     */
+    private class GeneratingCompiler implements RmiCompiler
+    {
+        private final Map<String, String> files = new LinkedHashMap<>();
+        private Log log;
+
+        public void execute( RmiCompilerConfiguration rmiConfig ) throws RmiCompilerException
+        {
+            try
+            {
+                for ( Map.Entry<String, String> file : files.entrySet() )
+                {
+                    writeFile( new File( rmiConfig.getOutputLocation() ), file.getKey(), file.getValue() );
+                }
+            }
+            catch ( IOException e )
+            {
+                throw new RmiCompilerException( e.getMessage(), e );
+            }
+        }
+
+        public void setLog( Log log )
+        {
+            this.log = log;
+        }
+
+        public Log getLog()
+        {
+            return log;
+        }
+    }
+}
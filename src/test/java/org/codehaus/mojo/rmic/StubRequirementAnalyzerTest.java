@@ -0,0 +1,237 @@
+package org.codehaus.mojo.rmic;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.meterware.simplestub.Stub.createStub;
+import static org.codehaus.plexus.util.ReflectionUtils.setVariableValueInObject;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class StubRequirementAnalyzerTest
+{
+    private static final String API = "package needs; public interface Api extends java.rmi.Remote {"
+        + " String echo( String value ) throws java.rmi.RemoteException; }";
+    private static final String SERVICE = "package needs; public class Service"
+        + " extends java.rmi.server.UnicastRemoteObject implements Api {"
+        + " public Service() throws java.rmi.RemoteException {}"
+        + " public String echo( String value ) { return value; } }";
+    private static final String OTHER = "package needs; public class Other implements Api {"
+        + " public String echo( String value ) { return value; } }";
+
+    private TestProject project;
+    private File classesDirectory;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        project = new TestProject( "stub-requirement" );
+        classesDirectory = project.getClassesDirectory();
+        project.compile( "needs/Api.java", API );
+        project.compile( "needs/Service.java", SERVICE );
+        project.compile( "needs/Other.java", OTHER );
+    }
+
+    @Test
+    public void whenClassMayUseDynamicProxy_noStubNeeded() throws Exception
+    {
+        StubRequirementAnalyzer analyzer = new StubRequirementAnalyzer( classesDirectory );
+
+        assertThat( analyzer.getReason( new Source(), "needs.Service" ), nullValue() );
+        assertThat( analyzer.getReason( new Source(), "needs.Other" ), nullValue() );
+    }
+
+    @Test
+    public void whenIiop_stubNeeded() throws Exception
+    {
+        Source source = new Source();
+        source.setIiop( true );
+
+        assertThat( new StubRequirementAnalyzer( classesDirectory ).getReason( source, "needs.Service" ),
+                    containsString( "IIOP" ) );
+    }
+
+    @Test
+    public void whenCompatVersion_stubNeeded() throws Exception
+    {
+        Source source = new Source();
+        source.setVersion( "compat" );
+
+        assertThat( new StubRequirementAnalyzer( classesDirectory ).getReason( source, "needs.Service" ),
+                    containsString( "older than Java 5" ) );
+    }
+
+    @Test
+    public void whenLegacyExportCalled_allStubsNeeded() throws Exception
+    {
+        project.compile( "needs/Server.java", "package needs; public class Server {"
+            + " public static void main( String[] args ) throws Exception { java.rmi.server.UnicastRemoteObject.exportObject( new Other() ); } }" );
+        StubRequirementAnalyzer analyzer = new StubRequirementAnalyzer( classesDirectory );
+
+        assertThat( analyzer.getReason( new Source(), "needs.Other" ), containsString( "needs.Server calls" ) );
+        assertThat( analyzer.getReason( new Source(), "needs.Service" ), containsString( "needs.Server calls" ) );
+    }
+
+    @Test
+    public void whenStubReferencedByName_stubNeeded() throws Exception
+    {
+        project.compile( "needs/Client.java", "package needs; public class Client { Class<?> stubClass()"
+            + " throws Exception { return Class.forName( \"needs.Service_Stub\" ); } }" );
+        StubRequirementAnalyzer analyzer = new StubRequirementAnalyzer( classesDirectory );
+
+        assertThat( analyzer.getReason( new Source(), "needs.Service" ),
+                    equalTo( "its stub is referenced by needs.Client" ) );
+        assertThat( analyzer.getReason( new Source(), "needs.Other" ), nullValue() );
+    }
+
+    @Test
+    public void whenPolicyRequired_compileOnlyClassesNeedingStubs() throws Exception
+    {
+        project.compile( "needs/Client.java", "package needs; public class Client { Class<?> stubClass()"
+            + " throws Exception { return Class.forName( \"needs.Service_Stub\" ); } }" );
+        RmicMojo mojo = createMojo( "required" );
+        TestRmiCompiler compiler = new TestRmiCompiler();
+        compiler.setInMojo( mojo );
+
+        mojo.execute();
+
+        assertThat( compiler.getInvocation().getClassNames(), contains( "needs.Service" ) );
+    }
+
+    @Test
+    public void whenPolicyRequired_doNotAnalyzeUnchangedClassesAgain() throws Exception
+    {
+        RmicMojo mojo = createMojo( "required" );
+        new TestRmiCompiler().setInMojo( mojo );
+        AnalysisLog log = createStub( AnalysisLog.class );
+        mojo.setLog( log );
+        mojo.execute();
+        assertThat( log.analyses, hasSize( 2 ) );
+        log.analyses.clear();
+
+        mojo = createMojo( "required" );
+        TestRmiCompiler compiler = new TestRmiCompiler();
+        compiler.setInMojo( mojo );
+        mojo.setLog( log );
+        mojo.execute();
+
+        assertThat( log.analyses, empty() );
+        assertThat( compiler.getInvocationCount(), equalTo( 0 ) );
+    }
+
+    @Test
+    public void whenClassChangedAfterNoStubRecorded_analyzeAgain() throws Exception
+    {
+        RmicMojo mojo = createMojo( "required" );
+        new TestRmiCompiler().setInMojo( mojo );
+        mojo.execute();
+        project.compile( "needs/Client.java", "package needs; public class Client { Class<?> stubClass()"
+            + " throws Exception { return Class.forName( \"needs.Service_Stub\" ); } }" );
+
+        mojo = createMojo( "required" );
+        TestRmiCompiler compiler = new TestRmiCompiler();
+        compiler.setInMojo( mojo );
+        mojo.execute();
+
+        assertThat( compiler.getInvocation().getClassNames(), contains( "needs.Service" ) );
+    }
+
+    @Test
+    public void whenIndexedAndClassChangedAfterNoStubRecorded_analyzeAgain() throws Exception
+    {
+        compileIndexed( "needs/Api.java", API, "needs/Service.java", SERVICE, "needs/Other.java", OTHER );
+        RmicMojo mojo = createMojo( "required" );
+        new TestRmiCompiler().setInMojo( mojo );
+        mojo.execute();
+        compileIndexed( "needs/Client.java", "package needs; public class Client { Class<?> stubClass()"
+            + " throws Exception { return Class.forName( \"needs.Service_Stub\" ); } }" );
+        assertThat( RemoteClassIndex.read( classesDirectory ), notNullValue() );
+
+        mojo = createMojo( "required" );
+        TestRmiCompiler compiler = new TestRmiCompiler();
+        compiler.setInMojo( mojo );
+        mojo.execute();
+
+        assertThat( compiler.getInvocation().getClassNames(), contains( "needs.Service" ) );
+    }
+
+    @Test
+    public void whenPolicyReport_compileAllRemoteClasses() throws Exception
+    {
+        RmicMojo mojo = createMojo( "report" );
+        TestRmiCompiler compiler = new TestRmiCompiler();
+        compiler.setInMojo( mojo );
+
+        mojo.execute();
+
+        assertThat( compiler.getInvocation().getClassNames().size(), equalTo( 2 ) );
+    }
+
+    @Test( expected = MojoExecutionException.class )
+    public void whenPolicyUnknown_reportError() throws Exception
+    {
+        RmicMojo mojo = createMojo( "some" );
+        new TestRmiCompiler().setInMojo( mojo );
+
+        mojo.execute();
+    }
+
+    private RmicMojo createMojo( String stubPolicy ) throws Exception
+    {
+        RmicMojo mojo = project.configure( new RmicMojo() );
+        setVariableValueInObject( mojo, "stubPolicy", stubPolicy );
+        return mojo;
+    }
+
+    /**
+     * Compiles source files with the remote class index processor, as listed paths and contents.
+     */
+    private void compileIndexed( String... pathsAndContents ) throws Exception
+    {
+        List<String> args = new ArrayList<>( Arrays.asList( "-d", classesDirectory.getPath(), "-classpath",
+                classesDirectory.getPath(), "-processorpath", new File( "target/classes" ).getAbsolutePath(),
+                "-processor", RemoteClassIndexProcessor.class.getName() ) );
+        for ( int i = 0; i < pathsAndContents.length; i += 2 )
+        {
+            args.add( project.writeSource( pathsAndContents[i], pathsAndContents[i + 1] ).getPath() );
+        }
+
+        assertThat( project.javac( null, args.toArray( new String[args.size()] ) ), equalTo( 0 ) );
+    }
+
+    /**
+     * A log which records the stub analysis of each remote class.
+     */
+    abstract static class AnalysisLog implements Log
+    {
+        private final List<String> analyses = new ArrayList<>();
+
+        @Override
+        public boolean isDebugEnabled()
+        {
+            return true;
+        }
+
+        @Override
+        public void debug( CharSequence content )
+        {
+            if ( content.toString().matches( ".* needs (a|no) stub.*" ) )
+            {
+                analyses.add( content.toString() );
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package org.codehaus.mojo.rmic;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Assume;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static com.meterware.simplestub.Stub.createStub;
+import static org.codehaus.plexus.util.ReflectionUtils.setVariableValueInObject;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * A scratch project under target/ in which tests compile real classes, package them into jars and run the mojos.
+ * Creating one skips the test if no system Java compiler is available and removes anything left by an earlier run.
+ */
+class TestProject
+{
+    /** The JDK 8 library containing the rmic classes. */
+    static final File TOOLS_JAR = new File( System.getProperty( "java.home" ), "../lib/tools.jar" );
+
+    private final JavaCompiler javac;
+
+    private final File root;
+
+    TestProject( String name ) throws IOException
+    {
+        javac = ToolProvider.getSystemJavaCompiler();
+        Assume.assumeTrue( javac != null );
+
+        root = new File( "target/" + name ).getAbsoluteFile();
+        FileUtils.deleteDirectory( root );
+    }
+
+    /**
+     * Returns a file relative to the project root.
+     * @param path the path of the file within the project
+     */
+    File getFile( String path )
+    {
+        return new File( root, path );
+    }
+
+    File getClassesDirectory()
+    {
+        return getFile( "classes" );
+    }
+
+    File getOutputDirectory()
+    {
+        return getFile( "rmi-classes" );
+    }
+
+    /**
+     * Writes a Java source file under the project's src directory.
+     * @param path the path of the source file, relative to the src directory
+     * @param content the Java source
+     * @return the source file
+     */
+    File writeSource( String path, String content ) throws IOException
+    {
+        File sourceFile = new File( getFile( "src" ), path );
+        sourceFile.getParentFile().mkdirs();
+        Files.write( sourceFile.toPath(), content.getBytes( StandardCharsets.UTF_8 ) );
+        return sourceFile;
+    }
+
+    /**
+     * Compiles a source file into the classes directory, against the classes already compiled there.
+     * @param path the path of the source file, relative to the src directory
+     * @param content the Java source
+     */
+    void compile( String path, String content ) throws IOException
+    {
+        compile( getClassesDirectory(), getClassesDirectory(), path, content );
+    }
+
+    /**
+     * Compiles a source file without annotation processing, failing the test if it does not compile.
+     * @param outputDirectory the directory to which the class files should be written
+     * @param classpath the directory containing the classes the source refers to
+     * @param path the path of the source file, relative to the src directory
+     * @param content the Java source
+     */
+    void compile( File outputDirectory, File classpath, String path, String content ) throws IOException
+    {
+        outputDirectory.mkdirs();
+        File sourceFile = writeSource( path, content );
+
+        assertThat( javac( null, "-proc:none", "-nowarn", "-d", outputDirectory.getPath(), "-classpath",
+                           classpath.getPath(), sourceFile.getPath() ), equalTo( 0 ) );
+    }
+
+    /**
+     * Runs the Java compiler with the specified arguments.
+     * @param errors the stream to which diagnostics should be written, or null for standard error
+     * @param arguments the compiler arguments
+     * @return the compiler's exit code
+     */
+    int javac( OutputStream errors, String... arguments )
+    {
+        return javac.run( null, null, errors, arguments );
+    }
+
+    /**
+     * Packages class files into a jar.
+     * @param jarFile the jar to create
+     * @param classesDirectory the directory containing the class files
+     * @param entryNames the paths of the class files to include, relative to the classes directory
+     */
+    void createJar( File jarFile, File classesDirectory, String... entryNames ) throws IOException
+    {
+        try ( JarOutputStream jar = new JarOutputStream( new FileOutputStream( jarFile ) ) )
+        {
+            for ( String entryName : entryNames )
+            {
+                jar.putNextEntry( new JarEntry( entryName ) );
+                jar.write( Files.readAllBytes( new File( classesDirectory, entryName ).toPath() ) );
+                jar.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Points a mojo at this project's classes and output directories and gives it a silent log.
+     * @param mojo the mojo to configure
+     * @param classpathElements the compile class path of the project
+     * @return the configured mojo
+     */
+    <T extends RmicMojo> T configure( T mojo, String... classpathElements ) throws IllegalAccessException
+    {
+        setVariableValueInObject( mojo, "classesDirectory", getClassesDirectory() );
+        setVariableValueInObject( mojo, "outputDirectory", getOutputDirectory() );
+        setVariableValueInObject( mojo, "projectCompileClasspathElements",
+                                  new ArrayList<>( Arrays.asList( classpathElements ) ) );
+        mojo.setLog( createLog() );
+        return mojo;
+    }
+
+    /**
+     * Returns a log which discards all messages.
+     */
+    static Log createLog()
+    {
+        return createStub( Log.class );
+    }
+}
@@ -2,7 +2,10 @@ package org.codehaus.mojo.rmic;
 
 import org.codehaus.plexus.compiler.CompilerException;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static org.codehaus.plexus.util.ReflectionUtils.setVariableValueInObject;
@@ -15,7 +18,11 @@ import static org.hamcrest.Matchers.greaterThan;
  */
 class TestRmiCompiler extends AbstractRmiCompiler
 {
-    private List<Invocation> invocations = new ArrayList<>();
+    private List<Invocation> invocations = Collections.synchronizedList( new ArrayList<Invocation>() );
+
+    private int memoryLimit = Integer.MAX_VALUE;
+
+    private boolean generateStubs;
 
     /**
      * Sets this compiler as the active one for the specified mojo.
@@ -23,7 +30,7 @@ class TestRmiCompiler extends AbstractRmiCompiler
      * @param mojo the mojo to update
      * @throws IllegalAccessException should never be thrown
      */
-    void setInMojo( RmicMojo mojo ) throws IllegalAccessException
+    void setInMojo( AbstractRmiMojo mojo ) throws IllegalAccessException
     {
         setVariableValueInObject( mojo, "rmiCompiler", this );
     }
@@ -47,14 +54,65 @@ class TestRmiCompiler extends AbstractRmiCompiler
         return invocations.get( i );
     }
 
+    /**
+     * Returns the number of invocations made by this compiler, including those which ran out of memory.
+     */
+    int getInvocationCount()
+    {
+        return invocations.size();
+    }
+
+    /**
+     * Causes invocations with more than the specified number of classes to report running out of memory.
+     * @param maxClasses the largest number of classes which can be compiled at once
+     */
+    void setMemoryLimit( int maxClasses )
+    {
+        memoryLimit = maxClasses;
+    }
+
+    /**
+     * Causes each invocation to write an empty stub for each of its classes to its output directory, as rmic would.
+     */
+    void generateStubs()
+    {
+        generateStubs = true;
+    }
+
     /**
      * Instead of invoking the compiler, simply records the call.
      * @param args the arguments passed to the rmi compiler
      */
     @Override
-    protected void compileInProcess( String[] args )
+    protected void compileInProcess( String[] args ) throws CompilerException
+    {
+        Invocation invocation = new Invocation( args );
+        invocations.add( invocation );
+        if ( invocation.getClassNames().size() > memoryLimit )
+        {
+            throw new ResourceExhaustedException( new OutOfMemoryError() );
+        }
+        if ( generateStubs )
+        {
+            writeStubs( invocation );
+        }
+    }
+
+    private void writeStubs( Invocation invocation ) throws CompilerException
     {
-        invocations.add( new Invocation( args ) );
+        for ( String className : invocation.getClassNames() )
+        {
+            File stub = new File( invocation.getOutputDirectory(), className.replace( '.', '/' ) + "_Stub.class" );
+            stub.getParentFile().mkdirs();
+            try
+            {
+                stub.createNewFile();
+            }
+            catch ( IOException e )
+            {
+                throw new CompilerException( "Unable to write " + stub, e );
+            }
+        }
     }
 
     @Override
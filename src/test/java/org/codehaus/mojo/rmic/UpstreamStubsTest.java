@@ -0,0 +1,221 @@
+package org.codehaus.mojo.rmic;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.project.MavenProject;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.codehaus.plexus.util.ReflectionUtils.setVariableValueInObject;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+public class UpstreamStubsTest
+{
+    private static final String INCLUDE = "upstreamtest/Service.class";
+    private static final String STUB = "upstreamtest/Service_Stub.class";
+    private static final File PROCESSOR_PATH = new File( "target/classes" ).getAbsoluteFile();
+
+    private static final String API = "package upstreamtest; public interface Api extends java.rmi.Remote {"
+        + " String echo( String value ) throws java.rmi.RemoteException; }";
+    private static final String SERVICE = "package upstreamtest; public class Service implements Api {"
+        + " public String echo( String value ) { return value; } }";
+    private static final String OTHER_API = "package upstreamtest; public interface Api extends java.rmi.Remote {"
+        + " String echo( String value ) throws java.rmi.RemoteException;"
+        + " void reset() throws java.rmi.RemoteException; }";
+    private static final String OTHER_SERVICE = "package upstreamtest; public class Service implements Api {"
+        + " public String echo( String value ) { return value; } public void reset() {} }";
+
+    private TestProject project;
+    private File upstreamOutputDirectory;
+    private MavenProject upstreamProject = new MavenProject( new Model() );
+    private List<String> classpath = new ArrayList<>();
+    private boolean reuseUpstreamStubs = true;
+    private byte[] stubContents;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        project = new TestProject( "upstream-stubs" );
+        upstreamOutputDirectory = project.getFile( "upstream/rmi-classes" );
+        project.getClassesDirectory().mkdirs();
+        createApiJar();
+        stubContents = generateStub( "current", API, SERVICE );
+    }
+
+    @Test
+    public void whenUpstreamModulePublishedStub_copyInsteadOfCompiling() throws Exception
+    {
+        publishUpstreamStub( STUB );
+
+        assertThat( executeMojo( null ), equalTo( 0 ) );
+        assertThat( Files.readAllBytes( new File( project.getOutputDirectory(), STUB ).toPath() ),
+                    equalTo( stubContents ) );
+    }
+
+    @Test
+    public void whenStubInClientJar_copyInsteadOfCompiling() throws Exception
+    {
+        File clientJar = project.getFile( "api-client.jar" );
+        createJar( clientJar, STUB, stubContents );
+        classpath.add( clientJar.getPath() );
+
+        assertThat( executeMojo( null ), equalTo( 0 ) );
+        assertThat( Files.readAllBytes( new File( project.getOutputDirectory(), STUB ).toPath() ),
+                    equalTo( stubContents ) );
+    }
+
+    @Test
+    public void whenReuseNotRequested_compileIncludedClass() throws Exception
+    {
+        publishUpstreamStub( STUB );
+        reuseUpstreamStubs = false;
+
+        assertThat( executeMojo( null ), equalTo( 1 ) );
+    }
+
+    @Test
+    public void whenUpstreamStubOlderThanClass_copyMatchingStub() throws Exception
+    {
+        publishUpstreamStub( STUB );
+        new File( upstreamOutputDirectory, STUB ).setLastModified( System.currentTimeMillis()
+                                                                     - TimeUnit.HOURS.toMillis( 1 ) );
+
+        assertThat( executeMojo( null ), equalTo( 0 ) );
+    }
+
+    @Test
+    public void whenUpstreamStubDoesNotMatchClass_compileIncludedClass() throws Exception
+    {
+        stubContents = generateStub( "other", OTHER_API, OTHER_SERVICE );
+        publishUpstreamStub( STUB );
+
+        assertThat( executeMojo( null ), equalTo( 1 ) );
+    }
+
+    @Test
+    public void whenStubInClientJar_readJarThroughCache() throws Exception
+    {
+        File clientJar = project.getFile( "api-client.jar" );
+        createJar( clientJar, STUB, stubContents );
+        classpath.add( clientJar.getPath() );
+        JarIndexCache jars = new JarIndexCache( 10, 10 );
+        RmicModule module = new RmicModule( "test", project.getClassesDirectory(), project.getOutputDirectory(),
+                                            classpath );
+
+        try ( UpstreamStubs stubs = new UpstreamStubs( module, Collections.<File>emptyList(), jars ) )
+        {
+            assertThat( stubs.copyStub( INCLUDE, project.getOutputDirectory() ), equalTo( clientJar ) );
+            assertThat( jars.getOpenJarCount(), equalTo( 2 ) );
+        }
+        assertThat( jars.getOpenJarCount(), equalTo( 0 ) );
+    }
+
+    @Test
+    public void whenUpstreamGeneratedSkeleton_compileIncludedClass() throws Exception
+    {
+        publishUpstreamStub( STUB, "upstreamtest/Service_Skel.class" );
+
+        assertThat( executeMojo( null ), equalTo( 1 ) );
+    }
+
+    @Test
+    public void whenOtherVersionRequested_compileIncludedClass() throws Exception
+    {
+        publishUpstreamStub( STUB );
+
+        assertThat( executeMojo( "1.1" ), equalTo( 1 ) );
+    }
+
+    @Test
+    public void afterExecution_publishOutputDirectory() throws Exception
+    {
+        MavenProject mavenProject = new MavenProject( new Model() );
+        RmicMojo mojo = createMojo( null );
+        setVariableValueInObject( mojo, "project", mavenProject );
+
+        mojo.execute();
+
+        assertThat( mavenProject.getProperties().getProperty( UpstreamStubs.OUTPUT_DIRECTORY_PROPERTY ),
+                    equalTo( project.getOutputDirectory().getAbsolutePath() ) );
+    }
+
+    private void publishUpstreamStub( String... entryNames ) throws IOException
+    {
+        for ( String entryName : entryNames )
+        {
+            File file = new File( upstreamOutputDirectory, entryName );
+            file.getParentFile().mkdirs();
+            Files.write( file.toPath(), stubContents );
+        }
+        upstreamProject.getProperties().setProperty( UpstreamStubs.OUTPUT_DIRECTORY_PROPERTY,
+                                                     upstreamOutputDirectory.getPath() );
+    }
+
+    private int executeMojo( String version ) throws Exception
+    {
+        RmicMojo mojo = createMojo( version );
+        TestRmiCompiler compiler = new TestRmiCompiler();
+        compiler.setInMojo( mojo );
+
+        mojo.execute();
+        return compiler.getInvocationCount();
+    }
+
+    private RmicMojo createMojo( String version ) throws Exception
+    {
+        RmicMojo mojo = project.configure( new RmicMojo(), classpath.toArray( new String[classpath.size()] ) );
+        setVariableValueInObject( mojo, "reactorProjects", Collections.singletonList( upstreamProject ) );
+        setVariableValueInObject( mojo, "reuseUpstreamStubs", reuseUpstreamStubs );
+        mojo.setIncludes( new HashSet<>( Collections.singletonList( INCLUDE ) ) );
+        mojo.setVersion( version );
+        return mojo;
+    }
+
+    private void createApiJar() throws IOException
+    {
+        File classes = project.getFile( "api-classes" );
+        File apiJar = project.getFile( "api.jar" );
+        project.compile( classes, classes, "upstreamtest/Api.java", API );
+        project.compile( classes, classes, "upstreamtest/Service.java", SERVICE );
+
+        project.createJar( apiJar, classes, "upstreamtest/Api.class", INCLUDE );
+        classpath.add( apiJar.getPath() );
+    }
+
+    /**
+     * Returns the stub which the stub processor generates for a version of the service.
+     */
+    private byte[] generateStub( String name, String api, String service ) throws IOException
+    {
+        File classes = project.getFile( name + "-stub-classes" );
+        classes.mkdirs();
+        assertThat( project.javac( null, "-d", classes.getPath(), "-processorpath", PROCESSOR_PATH.getPath(),
+                                   "-processor", RmicStubProcessor.class.getName(), "-s", classes.getPath(),
+                                   project.writeSource( name + "/upstreamtest/Api.java", api ).getPath(),
+                                   project.writeSource( name + "/upstreamtest/Service.java", service ).getPath() ),
+                    equalTo( 0 ) );
+        return Files.readAllBytes( new File( classes, STUB ).toPath() );
+    }
+
+    private void createJar( File jarFile, String entryName, byte[] contents ) throws IOException
+    {
+        try ( JarOutputStream jar = new JarOutputStream( new FileOutputStream( jarFile ) ) )
+        {
+            jar.putNextEntry( new JarEntry( entryName ) );
+            jar.write( contents );
+            jar.closeEntry();
+        }
+    }
+}